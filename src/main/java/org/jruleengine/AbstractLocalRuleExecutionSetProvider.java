@@ -73,6 +73,7 @@ abstract public class AbstractLocalRuleExecutionSetProvider implements LocalRule
             }
             rs = new RuleExecutionSetImpl(name, description, null);
             rs.getRules().addAll(rules);
+            rs.setEngineProperties(props);
 
             return rs;
         }
@@ -0,0 +1,188 @@
+package org.jruleengine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: A public method of a class, resolved once and then invoked through a method handle.
+ * Accessors are cached for each class, by method name and arity, and are shared by all the sessions.
+ * The cache is bound to the class through a ClassValue, so that it does not prevent the class from being unloaded.
+ * </p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class Accessor {
+
+  /** accessors of each class: method name -> accessors, by arity */
+  private static final ClassValue ACCESSORS = new ClassValue() {
+
+    protected Object computeValue(Class type) {
+      return new ConcurrentHashMap();
+    }
+
+  };
+
+  /** accessor used to cache a method not found */
+  private static final Accessor NOT_FOUND = new Accessor();
+
+  /** empty argument list */
+  private static final Object[] NO_ARGS = new Object[0];
+
+  /** method */
+  private Method method;
+
+  /** method parameter types */
+  private Class[] parameterTypes;
+
+  /** method handle, having type (Object)Object; defined only for methods without arguments */
+  private MethodHandle getter;
+
+  /** method handle, having type (Object,Object[])Object */
+  private MethodHandle invoker;
+
+
+  private Accessor() { }
+
+
+  /**
+   * @param method public method
+   */
+  private Accessor(Method method) {
+    this.method = method;
+    this.parameterTypes = method.getParameterTypes();
+    try {
+      MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers()))
+        handle = MethodHandles.dropArguments(handle,0,Object.class);
+      if (parameterTypes.length==0)
+        getter = handle.asType(MethodType.methodType(Object.class,Object.class));
+      invoker = handle.asSpreader(Object[].class,parameterTypes.length).asType(MethodType.methodType(Object.class,Object.class,Object[].class));
+    }
+    catch (IllegalAccessException ex) {
+      // e.g. a public method declared in a non public class: the method is invoked through reflection...
+    }
+  }
+
+
+  /**
+   * Find a public method of a class.
+   * A method without arguments is searched as Class.getMethod does; otherwise the first method having the specified
+   * name and arity is returned.
+   * @param type class that contains the method
+   * @param name method name
+   * @param arity number of method arguments
+   * @return accessor of the method, null if the method is not found
+   */
+  static Accessor lookup(Class type,String name,int arity) {
+    Map methods = (Map)ACCESSORS.get(type);
+    Accessor[] accessors = (Accessor[])methods.get(name);
+    if (accessors!=null && arity<accessors.length && accessors[arity]!=null)
+      return accessors[arity]==NOT_FOUND ? null : accessors[arity];
+
+    Accessor accessor = NOT_FOUND;
+    if (arity==0) {
+      try {
+        accessor = new Accessor(type.getMethod(name,new Class[0]));
+      }
+      catch (NoSuchMethodException ex) {
+      }
+    }
+    else {
+      Method[] list = type.getMethods();
+      for(int i=0;i<list.length;i++)
+        if (list[i].getName().equals(name) && list[i].getParameterTypes().length==arity) {
+          accessor = new Accessor(list[i]);
+          break;
+        }
+    }
+
+    // copy on write: concurrent lookups may compute the same accessor twice, which is harmless...
+    Accessor[] newAccessors = new Accessor[accessors==null ? arity+1 : Math.max(arity+1,accessors.length)];
+    if (accessors!=null)
+      System.arraycopy(accessors,0,newAccessors,0,accessors.length);
+    newAccessors[arity] = accessor;
+    methods.put(name,newAccessors);
+    return accessor==NOT_FOUND ? null : accessor;
+  }
+
+
+  /**
+   * @return method name
+   */
+  final String getName() {
+    return method.getName();
+  }
+
+
+  /**
+   * @return method parameter types
+   */
+  final Class[] getParameterTypes() {
+    return parameterTypes;
+  }
+
+
+  /**
+   * Invoke a method without arguments.
+   * @param target object on which the method is invoked
+   * @return value returned by the method
+   * @throws InvocationTargetException if the method throws an exception
+   */
+  final Object invoke(Object target) throws InvocationTargetException, IllegalAccessException {
+    if (getter==null)
+      return method.invoke(target,NO_ARGS);
+    try {
+      return (Object)getter.invokeExact(target);
+    }
+    catch (Throwable ex) {
+      throw new InvocationTargetException(ex);
+    }
+  }
+
+
+  /**
+   * Invoke the method.
+   * @param target object on which the method is invoked
+   * @param args method arguments
+   * @return value returned by the method
+   * @throws InvocationTargetException if the method throws an exception
+   */
+  final Object invoke(Object target,Object[] args) throws InvocationTargetException, IllegalAccessException {
+    if (invoker==null)
+      return method.invoke(target,args);
+    try {
+      return (Object)invoker.invokeExact(target,args);
+    }
+    catch (Throwable ex) {
+      throw new InvocationTargetException(ex);
+    }
+  }
+
+}
@@ -0,0 +1,409 @@
+package org.jruleengine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+import javax.rules.InvalidRuleSessionException;
+
+import org.jruleengine.rule.Action;
+import org.jruleengine.rule.Term;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: An action compiled into an invoker: the class of the target object, the argument values and
+ * the fact getters referenced by the argument values are resolved once; the method to invoke and the converters
+ * of its arguments are resolved once for each class of the target object and kept in a monomorphic inline cache.
+ * Invokers are shared by all the sessions and keep no state of a rule firing: variables are read from the
+ * bindings of the rule activation.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class ActionInvoker {
+
+  /** converter of each argument type */
+  private static final ClassValue CONVERTERS = new ClassValue() {
+
+    protected Object computeValue(Class type) {
+      return Converter.create(type);
+    }
+
+  };
+
+  /** method to execute, as defined in the rule: "className.methodName" */
+  private final String text;
+
+  /** working memory key of the target object, i.e. its class name; null if the method has no class name */
+  private final String className;
+
+  /** method name */
+  private final String methodName;
+
+  /** argument values */
+  private final Argument[] arguments;
+
+  /** class instantiated when the working memory does not contain the target object */
+  private Class targetClass;
+
+  /** last class of the target object, the method to invoke and its argument converters */
+  private Site site;
+
+
+  /**
+   * @param action action to compile
+   */
+  ActionInvoker(Action action) {
+    text = action.getMethod();
+    int pos = text.lastIndexOf(".");
+    className = pos==-1 ? null : text.substring(0,pos);
+    methodName = pos==-1 ? null : text.substring(pos+1);
+    List values = action.getValues();
+    arguments = new Argument[values.size()];
+    for(int i=0;i<arguments.length;i++)
+      arguments[i] = Argument.create(values.get(i).toString());
+  }
+
+
+  /**
+   * Add the working memory keys referenced by the action: the class name of the target object and the keys of
+   * the facts whose getters are used as argument values.
+   * @param keys referenced keys
+   */
+  final void collectKeys(Set keys) {
+    if (className!=null)
+      keys.add(className);
+    for(int i=0;i<arguments.length;i++)
+      if (arguments[i] instanceof FactArgument)
+        keys.add(((FactArgument)arguments[i]).key);
+  }
+
+
+  /**
+   * Execute the action.
+   * @param session session whose working memory is read and updated
+   * @param variables variables bound by the rule assumptions
+   */
+  final void execute(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+    // check variables...
+    for(int i=0;i<arguments.length;i++)
+      if (arguments[i].variable && !variables.containsKey(arguments[i].text))
+        throw new InvalidRuleSessionException("Variable '"+arguments[i].text+"' not bound");
+
+    // find the target object...
+    if (className==null)
+      throw new InvalidRuleSessionException("Class not found '"+text+"'");
+    Object obj = session.getFact(className);
+    try {
+      if (obj==null) {
+        Class c = targetClass;
+        if (c==null) {
+          c = Class.forName(className);
+          targetClass = c;
+        }
+        obj = c.newInstance();
+      }
+    }
+    catch (Throwable ex) {
+      throw new InvalidRuleSessionException("Class not found '"+className+"'");
+    }
+
+    // invoke the method...
+    Accessor accessor = null;
+    try {
+      Site s = site(obj.getClass());
+      accessor = s.accessor;
+      Object[] argValues = new Object[arguments.length];
+      for(int j=0;j<arguments.length;j++)
+        argValues[j] = s.converters[j].convert(arguments[j].value(session,variables));
+      accessor.invoke(obj,argValues);
+      session.storeTarget(obj);
+    }
+    catch (Throwable ex) {
+      String msg = "Class '"+obj.getClass().getName()+"' ";
+      if (accessor!=null)
+        msg += "Method '"+accessor.getName()+"':\n";
+      throw new InvalidRuleSessionException(msg+ex.getMessage());
+    }
+  }
+
+
+  /**
+   * @param type class of the target object
+   * @return method to invoke and its argument converters
+   */
+  private Site site(Class type) throws InvalidRuleSessionException {
+    Site s = site;
+    if (s!=null && s.type==type)
+      return s;
+    Accessor accessor = Accessor.lookup(type,methodName,arguments.length);
+    if (accessor==null)
+      throw new InvalidRuleSessionException("No method '"+text+"' found in class '"+type.getName()+"'");
+    Class[] parameterTypes = accessor.getParameterTypes();
+    Converter[] converters = new Converter[parameterTypes.length];
+    for(int i=0;i<converters.length;i++)
+      converters[i] = (Converter)CONVERTERS.get(parameterTypes[i]);
+    s = new Site(type,accessor,converters);
+    site = s;
+    return s;
+  }
+
+
+  /**
+   * <p>Description: Class of a target object, the method to invoke and its argument converters;
+   * immutable, so that it can be replaced while other sessions are reading it.</p>
+   */
+  private static final class Site {
+
+    /** class of the target object */
+    final Class type;
+
+    /** method to invoke */
+    final Accessor accessor;
+
+    /** converter of each argument */
+    final Converter[] converters;
+
+
+    Site(Class type,Accessor accessor,Converter[] converters) {
+      this.type = type;
+      this.accessor = accessor;
+      this.converters = converters;
+    }
+
+  }
+
+
+  /**
+   * <p>Description: An argument value of the action: a literal value, a fact getter ("className.methodName")
+   * or a variable (":name").</p>
+   */
+  private static class Argument {
+
+    /** argument value, as defined in the rule */
+    final String text;
+
+    /** <code>true</code> if the argument is a variable */
+    final boolean variable;
+
+    /** argument value, without the ".0" suffix */
+    private final String literal;
+
+
+    private Argument(String text) {
+      this.text = text;
+      this.variable = text.startsWith(":");
+      this.literal = Term.stripDecimals(text);
+    }
+
+
+    /**
+     * @param text argument value, as defined in the rule
+     * @return compiled argument
+     */
+    static Argument create(String text) {
+      if (text.startsWith(":"))
+        return new Argument(text);
+      if (text.indexOf(".")!=-1)
+        return new FactArgument(text);
+      return new Argument(text);
+    }
+
+
+    /**
+     * @param session session whose working memory is read
+     * @param variables variables bound by the rule assumptions
+     * @return argument value, in String format
+     */
+    String value(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      if (!variable)
+        return literal;
+      // the value of a variable is a working memory key, that can also reference a fact getter...
+      String value = variables.get(text).toString();
+      if (value.indexOf(".")!=-1)
+        value = FactArgument.resolve(session,value,null);
+      return Term.stripDecimals(value);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: An argument whose value is returned by a getter method of a fact ("className.methodName");
+   * the value is the argument itself if the fact is not in the working memory.</p>
+   */
+  private static final class FactArgument extends Argument {
+
+    /** working memory key of the fact */
+    private final String key;
+
+    /** getter method name */
+    private final String method;
+
+    /** last class the getter has been applied to, and its accessor */
+    private Getter getter;
+
+
+    FactArgument(String text) {
+      super(text);
+      key = text.substring(0,text.lastIndexOf("."));
+      method = text.substring(text.lastIndexOf(".")+1);
+    }
+
+
+    final String value(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      return Term.stripDecimals(resolve(session,text,this));
+    }
+
+
+    /**
+     * @param session session whose working memory is read
+     * @param value value, in the format "className.methodName"
+     * @param argument compiled argument, used to cache the getter; null if the value has not been compiled
+     * @return value returned by the getter method, the value itself if the fact is not in the working memory
+     */
+    static String resolve(StatefulRuleSessionImpl session,String value,FactArgument argument) throws InvalidRuleSessionException {
+      int pos = value.lastIndexOf(".");
+      Object aux = session.getFact(argument==null ? value.substring(0,pos) : argument.key);
+      if (aux==null)
+        return value;
+      try {
+        Accessor accessor;
+        Getter g = argument==null ? null : argument.getter;
+        if (g!=null && g.type==aux.getClass())
+          accessor = g.accessor;
+        else {
+          accessor = Accessor.lookup(aux.getClass(),value.substring(pos+1),0);
+          if (accessor==null)
+            throw new NoSuchMethodException(value);
+          if (argument!=null)
+            argument.getter = new Getter(aux.getClass(),accessor);
+        }
+        return accessor.invoke(aux).toString();
+      }
+      catch (NullPointerException ex) {
+        return null;
+      }
+      catch (Throwable ex) {
+        throw new InvalidRuleSessionException("Method not found: '"+value.substring(0,pos+1)+"'");
+      }
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Class of a fact and the accessor of its getter method; immutable, so that it can be replaced
+   * while other sessions are reading it.</p>
+   */
+  private static final class Getter {
+
+    /** class of the fact */
+    final Class type;
+
+    /** getter method */
+    final Accessor accessor;
+
+
+    Getter(Class type,Accessor accessor) {
+      this.type = type;
+      this.accessor = accessor;
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Conversion of an argument value from String format to the type of a method parameter.</p>
+   */
+  private static abstract class Converter {
+
+    /**
+     * @param value argument value, in String format
+     * @return argument value, converted to the parameter type
+     */
+    abstract Object convert(String value) throws Throwable;
+
+
+    /**
+     * @param type parameter type
+     * @return converter of the parameter type: a parser for primitive types, the String constructor of the type
+     *         or its static valueOf(String) method
+     */
+    static Converter create(final Class type) {
+      if (type==double.class)
+        return new Converter() {
+          Object convert(String value) { return Double.valueOf(value); }
+        };
+      if (type==float.class)
+        return new Converter() {
+          Object convert(String value) { return Float.valueOf(value); }
+        };
+      if (type==int.class)
+        return new Converter() {
+          Object convert(String value) { return Integer.valueOf(value); }
+        };
+      if (type==long.class)
+        return new Converter() {
+          Object convert(String value) { return Long.valueOf(value); }
+        };
+      if (type==char.class)
+        return new Converter() {
+          Object convert(String value) { return new Character(value.charAt(0)); }
+        };
+      if (type==boolean.class)
+        return new Converter() {
+          Object convert(String value) { return Boolean.valueOf(value); }
+        };
+      if (type==Object.class || type==String.class)
+        return new Converter() {
+          Object convert(String value) { return value; }
+        };
+
+      MethodHandle factory = null;
+      try {
+        factory = MethodHandles.publicLookup().findConstructor(type,MethodType.methodType(void.class,String.class));
+      }
+      catch (Exception ex) {
+        try {
+          factory = MethodHandles.publicLookup().findStatic(type,"valueOf",MethodType.methodType(type,String.class));
+        }
+        catch (Exception ex2) {
+        }
+      }
+      if (factory==null)
+        return new Converter() {
+          Object convert(String value) throws NoSuchMethodException {
+            throw new NoSuchMethodException(type.getName()+".<init>(java.lang.String)");
+          }
+        };
+      final MethodHandle handle = factory.asType(MethodType.methodType(Object.class,String.class));
+      return new Converter() {
+        Object convert(String value) throws Throwable { return (Object)handle.invokeExact(value); }
+      };
+    }
+
+  }
+
+}
@@ -0,0 +1,159 @@
+package org.jruleengine;
+
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Agenda of a rule execution: the conflict set, i.e. the rules whose assumptions are all verified
+ * and that are waiting to be fired.
+ * The agenda is kept between rule firings: a rule is added to it when its assumptions become verified and it is removed
+ * when it is fired or when its assumptions are no more verified.
+ *
+ * Rules are identified by their rank in the Rete network, i.e. by their position after the static conflict resolution
+ * (declaration order or salience) has been applied; the "recency" conflict resolution selects the rule activated most recently,
+ * and then the rule with the lowest rank.
+ * </p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class Agenda {
+
+  /** activated rules */
+  private BitSet activations;
+
+  /** activation cycle of each activated rule */
+  private long[] cycles;
+
+  /** current cycle */
+  private long cycle = 0;
+
+  /** activated rules, ordered by recency (defined only for the "recency" conflict resolution) */
+  private TreeSet recent = null;
+
+
+  /**
+   * @param size rules count
+   * @param recency <code>true</code> to select the rule activated most recently
+   */
+  Agenda(int size,boolean recency) {
+    activations = new BitSet(size);
+    cycles = new long[size];
+    if (recency)
+      recent = new TreeSet(new Comparator() {
+
+        public int compare(Object o1, Object o2) {
+          int r1 = ((Integer)o1).intValue();
+          int r2 = ((Integer)o2).intValue();
+          if (cycles[r1]!=cycles[r2])
+            return cycles[r1]>cycles[r2] ? -1 : 1;
+          return r1-r2;
+        }
+
+      });
+  }
+
+
+  /**
+   * @return <code>true</code> if the selected rule depends on all the activations and not only on the rule rank
+   */
+  final boolean isDynamic() {
+    return recent!=null;
+  }
+
+
+  /**
+   * Start a new cycle: rules activated from now on are more recent than the ones already in the agenda.
+   */
+  final void nextCycle() {
+    cycle++;
+  }
+
+
+  /**
+   * Add a rule to the agenda; nothing is done if the rule is already in the agenda.
+   * @param rule rule rank
+   */
+  final void add(int rule) {
+    if (activations.get(rule))
+      return;
+    activations.set(rule);
+    cycles[rule] = cycle;
+    if (recent!=null)
+      recent.add(new Integer(rule));
+  }
+
+
+  /**
+   * Remove a rule from the agenda.
+   * @param rule rule rank
+   */
+  final void remove(int rule) {
+    if (!activations.get(rule))
+      return;
+    if (recent!=null)
+      recent.remove(new Integer(rule));
+    activations.clear(rule);
+  }
+
+
+  /**
+   * @param rule rule rank
+   * @return <code>true</code> if the rule is in the agenda
+   */
+  final boolean contains(int rule) {
+    return activations.get(rule);
+  }
+
+
+  /**
+   * @param from rule rank
+   * @return first rule in the agenda whose rank is greater or equals to the specified one, -1 if there is none
+   */
+  final int next(int from) {
+    return activations.nextSetBit(from);
+  }
+
+
+  /**
+   * Remove all rules from the agenda.
+   */
+  final void clear() {
+    activations.clear();
+    cycle = 0;
+    if (recent!=null)
+      recent.clear();
+  }
+
+
+  /**
+   * @return rule to fire according to the conflict resolution strategy, -1 if the agenda is empty
+   */
+  final int select() {
+    if (recent==null)
+      return activations.nextSetBit(0);
+    if (recent.isEmpty())
+      return -1;
+    return ((Integer)recent.first()).intValue();
+  }
+
+}
@@ -0,0 +1,296 @@
+package org.jruleengine;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import javax.rules.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Asynchronous executions of the rules, as a stateless session would do: each execution runs on
+ * its own virtual thread when the JVM supports them (Java 21 or later), otherwise on a bounded pool of the rule
+ * execution set, sized by its "asyncConcurrency" property.
+ * The executions of a rule execution set in progress at the same time can be limited through its
+ * "asyncConcurrency" property. An execution is stopped before the next rule is fired when its future is cancelled
+ * or when its timeout expires; an execution still waiting for a permit stops waiting at once and cancel(true)
+ * interrupts also the thread that executes the rules.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class AsyncRuleExecutor {
+
+  /** virtual thread per task executor; null if the JVM does not support virtual threads */
+  private static final Executor VIRTUAL_EXECUTOR = createVirtualExecutor();
+
+  /** thread that expires the timeouts */
+  private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+
+  private AsyncRuleExecutor() {
+  }
+
+
+  /**
+   * @return a virtual thread per task executor, null if it is not supported
+   */
+  private static Executor createVirtualExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (Executor)factory.invoke(null);
+    }
+    catch (Exception ex) {
+      return null;
+    }
+  }
+
+
+  /**
+   * @param size maximum number of threads
+   * @return a pool of daemon threads, used when virtual threads are not supported: the executions beyond
+   *         the size wait in its queue and idle threads are stopped
+   */
+  static ThreadPoolExecutor createPool(int size) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+      size,size,60,TimeUnit.SECONDS,new LinkedBlockingQueue(),new DaemonThreadFactory("JRuleEngine-async")
+    );
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+
+  /**
+   * @return a scheduler whose cancelled tasks are removed at once, since most timeouts do not expire
+   */
+  private static ScheduledThreadPoolExecutor createTimer() {
+    ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,new DaemonThreadFactory("JRuleEngine-timeout"));
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
+  }
+
+
+  /**
+   * Execute the rules asynchronously over a list of objects.
+   * @param ruleSet rules
+   * @param objects objects
+   * @param timeout maximum duration of the execution, in nanoseconds; 0 for no timeout
+   * @return future completed with the objects of the session, with a TimeoutException if the timeout expires,
+   *         or with the exception thrown by the execution
+   */
+  static CompletableFuture execute(RuleExecutionSetImpl ruleSet,List objects,long timeout) {
+    final Execution execution = new Execution(ruleSet,objects);
+
+    if (timeout>0) {
+      final ScheduledFuture expiration = TIMER.schedule(new Runnable() {
+
+        public void run() {
+          execution.completeExceptionally(new TimeoutException("Rules execution timed out"));
+        }
+
+      },timeout,TimeUnit.NANOSECONDS);
+      execution.whenComplete(new BiConsumer() {
+
+        public void accept(Object result,Object ex) {
+          expiration.cancel(false);
+        }
+
+      });
+    }
+
+    // a future cancelled or expired stops the execution...
+    execution.whenComplete(new BiConsumer() {
+
+      public void accept(Object result,Object ex) {
+        if (ex!=null)
+          execution.stop(false);
+      }
+
+    });
+
+    try {
+      (VIRTUAL_EXECUTOR!=null ? VIRTUAL_EXECUTOR : ruleSet.getAsyncPool()).execute(execution);
+    }
+    catch (RejectedExecutionException ex) {
+      execution.completeExceptionally(ex);
+    }
+    return execution;
+  }
+
+
+  /**
+   * @return a stateless session, borrowed from the pool of the rule execution set if sessions are pooled
+   */
+  private static StatelessRuleSessionImpl createSession(RuleExecutionSetImpl ruleSet) throws RuleSessionCreateException {
+    SessionPool pool = ruleSet.getSessionPool();
+    if (pool!=null)
+      return pool.borrow();
+    return StatelessRuleSessionImpl.create(ruleSet,null);
+  }
+
+
+  /**
+   * <p>Description: An asynchronous execution, that is also its future: the thread running it and the session
+   * executing the rules are tracked, so that cancelling the future stops them.</p>
+   */
+  private static final class Execution extends CompletableFuture implements Runnable {
+
+    /** rules */
+    private final RuleExecutionSetImpl ruleSet;
+
+    /** objects */
+    private final List objects;
+
+    /** lock that guards the following fields */
+    private final Object lock = new Object();
+
+    /** thread running the execution; null if it has not started yet or it has ended */
+    private Thread worker = null;
+
+    /** <code>true</code> while the worker waits for a permit of the "asyncConcurrency" limit */
+    private boolean waiting = false;
+
+    /** session executing the rules; null if the rules are not being executed */
+    private StatefulRuleSessionImpl running = null;
+
+
+    Execution(RuleExecutionSetImpl ruleSet,List objects) {
+      this.ruleSet = ruleSet;
+      this.objects = objects;
+    }
+
+
+    /**
+     * Cancel the execution: it stops before the next rule is fired; if mayInterruptIfRunning is <code>true</code>,
+     * the thread that executes the rules is interrupted too.
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled)
+        stop(mayInterruptIfRunning);
+      return cancelled;
+    }
+
+
+    /**
+     * Stop the execution in progress, if any: a worker waiting for a permit is always interrupted.
+     * @param interrupt <code>true</code> to interrupt the worker also while it executes the rules
+     */
+    final void stop(boolean interrupt) {
+      synchronized(lock) {
+        if (running!=null)
+          running.cancel();
+        if (worker!=null && (interrupt || waiting))
+          worker.interrupt();
+      }
+    }
+
+
+    public void run() {
+      synchronized(lock) {
+        if (isDone())
+          // cancelled or expired before starting...
+          return;
+        worker = Thread.currentThread();
+      }
+      Semaphore limit = ruleSet.getAsyncLimit();
+      boolean acquired = false;
+      StatelessRuleSessionImpl session = null;
+      try {
+        if (limit!=null) {
+          synchronized(lock) {
+            waiting = true;
+          }
+          if (isDone())
+            return;
+          // interrupted if the future is cancelled or expires meanwhile...
+          limit.acquire();
+          acquired = true;
+          synchronized(lock) {
+            waiting = false;
+          }
+          if (isDone())
+            return;
+        }
+        session = createSession(ruleSet);
+        StatefulRuleSessionImpl stateful = session.getSession();
+        stateful.reset();
+        stateful.addFacts(objects);
+        synchronized(lock) {
+          running = stateful;
+        }
+        if (isDone())
+          stateful.cancel();
+        stateful.executeRules();
+        complete(stateful.getObjects(ruleSet.resolveObjectFilter()));
+      }
+      catch (Throwable ex) {
+        completeExceptionally(ex);
+      }
+      finally {
+        synchronized(lock) {
+          running = null;
+          waiting = false;
+          worker = null;
+        }
+        // an interruption that stopped this execution must not reach the next task of the thread...
+        Thread.interrupted();
+        if (session!=null)
+          try {
+            session.release();
+          }
+          catch (InvalidRuleSessionException ex) {
+          }
+        if (acquired)
+          limit.release();
+      }
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Factory of named daemon threads, that do not prevent the JVM from exiting.</p>
+   */
+  private static final class DaemonThreadFactory implements ThreadFactory {
+
+    /** prefix of the thread names */
+    private final String name;
+
+    /** number of threads created */
+    private int count = 0;
+
+
+    DaemonThreadFactory(String name) {
+      this.name = name;
+    }
+
+
+    public synchronized Thread newThread(Runnable task) {
+      Thread t = new Thread(task,name+"-"+(++count));
+      t.setDaemon(true);
+      return t;
+    }
+
+  }
+
+}
@@ -0,0 +1,357 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.rules.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Executes the rules of a rule execution set over a batch of independent inputs, each one a list of
+ * objects, as a stateless session would do for each input; inputs are evaluated in parallel by an executor (the
+ * common fork-join pool by default) and the results are returned in input order.
+ * Each worker reuses its own session, so that the compiled rules are the only state shared by the workers;
+ * workers take the inputs in small chunks, so that they stay busy until the end of the batch.
+ * An input whose execution fails does not abort the batch: its result reports the exception.
+ * Inputs can also be streamed: they are read and evaluated only as the results are consumed, with a bounded
+ * number of inputs in flight, so that the memory used does not depend on the number of inputs.
+ * When the "batchEvaluation" property of the rule execution set is "columnar", the assumptions are evaluated
+ * over the columns extracted from all the inputs of a chunk, and then each input is fired by its session.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class BatchRuleSession {
+
+  /** number of chunks of inputs taken by each worker, on average */
+  private static final int CHUNKS_PER_WORKER = 8;
+
+  /** rules */
+  private final RuleExecutionSetImpl ruleSet;
+
+  /** properties of the sessions */
+  private final Map properties;
+
+  /** executor of the workers */
+  private final Executor executor;
+
+  /** maximum number of workers */
+  private final int parallelism;
+
+  /** sessions not used by a worker */
+  private final Queue idle = new ConcurrentLinkedQueue();
+
+
+  /**
+   * Create a batch session whose inputs are evaluated by the common fork-join pool.
+   * @param ruleSet rules
+   * @param properties properties of the sessions; may be null
+   */
+  public BatchRuleSession(RuleExecutionSetImpl ruleSet,Map properties) {
+    this(ruleSet,properties,ForkJoinPool.commonPool(),ForkJoinPool.commonPool().getParallelism());
+  }
+
+
+  /**
+   * @param ruleSet rules
+   * @param properties properties of the sessions; may be null
+   * @param executor executor of the workers
+   * @param parallelism maximum number of workers
+   */
+  public BatchRuleSession(RuleExecutionSetImpl ruleSet,Map properties,Executor executor,int parallelism) {
+    if (parallelism<1)
+      throw new IllegalArgumentException("Parallelism must be positive");
+    this.ruleSet = ruleSet;
+    this.properties = properties;
+    this.executor = executor;
+    this.parallelism = parallelism;
+  }
+
+
+  /**
+   * Executes the rules over each input.
+   * @param inputs lists of objects
+   * @return a Result for each input, in input order
+   */
+  public final List executeRules(Collection inputs) throws InvalidRuleSessionException {
+    return executeRules(inputs,null);
+  }
+
+
+  /**
+   * Executes the rules over each input.
+   * @param inputs lists of objects
+   * @return a Result for each input, in input order
+   */
+  public final List executeRules(Stream inputs) throws InvalidRuleSessionException {
+    return executeRules((List)inputs.collect(Collectors.toList()),null);
+  }
+
+
+  /**
+   * Executes the rules over each input.
+   * @param inputs lists of objects
+   * @param filter filter applied to the objects of each result, used by more threads at the same time;
+   *        null to use the default filter of the rule execution set
+   * @return a Result for each input, in input order
+   */
+  public final List executeRules(Collection inputs,final ObjectFilter filter) throws InvalidRuleSessionException {
+    final Object[] items = inputs.toArray();
+    final Result[] results = new Result[items.length];
+    if (items.length==0)
+      return new ArrayList();
+    int workers = Math.min(parallelism,items.length);
+    final int chunk = Math.max(1,items.length/(workers*CHUNKS_PER_WORKER));
+    final AtomicInteger next = new AtomicInteger();
+
+    CompletableFuture[] tasks = new CompletableFuture[workers];
+    for(int i=0;i<workers;i++)
+      tasks[i] = CompletableFuture.runAsync(new Runnable() {
+
+        public void run() {
+          StatelessRuleSessionImpl session = null;
+          int start;
+          while((start = next.getAndAdd(chunk))<items.length) {
+            int end = Math.min(start+chunk,items.length);
+            ColumnarBatch batch = null;
+            if (ruleSet.isColumnarBatch())
+              try {
+                batch = ColumnarBatch.create(ruleSet,items,start,end);
+              }
+              catch (Exception ex) {
+                // the inputs are evaluated by their sessions, which report the error...
+              }
+            for(int j=start;j<end;j++)
+              try {
+                if (session==null)
+                  session = borrow();
+                ObjectFilter f = filter==null ? ruleSet.resolveObjectFilter() : filter;
+                results[j] = new Result(session.executeRules((List)items[j],f,batch,j-start),null);
+              }
+              catch (Exception ex) {
+                results[j] = new Result(null,ex);
+              }
+          }
+          if (session!=null)
+            idle.offer(session);
+        }
+
+      },executor);
+
+    try {
+      CompletableFuture.allOf(tasks).join();
+    }
+    catch (Exception ex) {
+      throw new InvalidRuleSessionException("Internal error", ex);
+    }
+    return new ArrayList(Arrays.asList(results));
+  }
+
+
+  /**
+   * Executes the rules over each input, as the results are consumed: an input is read only when there is room
+   * for it among the inputs in flight, so that a consumer slower than the rules execution slows down the reading
+   * of the inputs.
+   * @param inputs lists of objects, read by the thread that consumes the results
+   * @param maxInFlight maximum number of inputs read and not yet consumed
+   * @return a Result for each input, in input order
+   */
+  public final Iterator executeStreaming(Iterator inputs,int maxInFlight) {
+    if (maxInFlight<1)
+      throw new IllegalArgumentException("Inputs in flight must be positive");
+    return new Results(inputs,maxInFlight);
+  }
+
+
+  /**
+   * Executes the rules over each input, as the results are consumed.
+   * @param inputs lists of objects
+   * @param maxInFlight maximum number of inputs read and not yet consumed
+   * @return a Result for each input, in input order
+   * @see #executeStreaming(Iterator,int)
+   */
+  public final Stream executeStreaming(Stream inputs,int maxInFlight) {
+    Iterator results = executeStreaming(inputs.iterator(),maxInFlight);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results,Spliterator.ORDERED | Spliterator.NONNULL),false);
+  }
+
+
+  /**
+   * Execute the rules over an input, with a session not used by other workers.
+   * @param input list of objects
+   * @return result of the rules execution
+   */
+  private Result execute(List input) {
+    StatelessRuleSessionImpl session = null;
+    try {
+      session = borrow();
+      return new Result(session.executeRules(input,ruleSet.resolveObjectFilter()),null);
+    }
+    catch (Exception ex) {
+      return new Result(null,ex);
+    }
+    finally {
+      if (session!=null)
+        idle.offer(session);
+    }
+  }
+
+
+  /**
+   * @return a session not used by other workers
+   */
+  private StatelessRuleSessionImpl borrow() throws RuleSessionCreateException {
+    StatelessRuleSessionImpl session = (StatelessRuleSessionImpl)idle.poll();
+    if (session==null)
+      session = StatelessRuleSessionImpl.create(ruleSet,properties);
+    return session;
+  }
+
+
+  /**
+   * Release the sessions kept for the next batches.
+   */
+  public final void release() {
+    StatelessRuleSessionImpl session;
+    while((session = (StatelessRuleSessionImpl)idle.poll())!=null)
+      try {
+        session.release();
+      }
+      catch (InvalidRuleSessionException ex) {
+      }
+  }
+
+
+  /**
+   * <p>Description: Results of the inputs in flight, in input order: the head result is waited for when it is
+   * consumed, and an input is read for each result consumed.</p>
+   */
+  private final class Results implements Iterator {
+
+    /** inputs not yet read */
+    private final Iterator inputs;
+
+    /** maximum number of inputs read and not yet consumed */
+    private final int maxInFlight;
+
+    /** results of the inputs in flight, in input order */
+    private final ArrayDeque window = new ArrayDeque();
+
+
+    Results(Iterator inputs,int maxInFlight) {
+      this.inputs = inputs;
+      this.maxInFlight = maxInFlight;
+    }
+
+
+    /**
+     * Read inputs until the window is full.
+     */
+    private void fill() {
+      while(window.size()<maxInFlight && inputs.hasNext()) {
+        final List input = (List)inputs.next();
+        window.add(CompletableFuture.supplyAsync(new Supplier() {
+
+          public Object get() {
+            return execute(input);
+          }
+
+        },executor));
+      }
+    }
+
+
+    public boolean hasNext() {
+      fill();
+      return !window.isEmpty();
+    }
+
+
+    public Object next() {
+      fill();
+      if (window.isEmpty())
+        throw new NoSuchElementException();
+      Result result = (Result)((CompletableFuture)window.poll()).join();
+      fill();
+      return result;
+    }
+
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Result of the rules execution over an input: the objects of the session, or the exception
+   * thrown by the execution.</p>
+   */
+  public static final class Result {
+
+    /** objects of the session, null if the execution has failed */
+    private final List objects;
+
+    /** exception thrown by the execution, null if the execution has completed */
+    private final Exception exception;
+
+
+    Result(List objects,Exception exception) {
+      this.objects = objects;
+      this.exception = exception;
+    }
+
+
+    /**
+     * @return objects of the session, null if the execution has failed
+     */
+    public final List getObjects() {
+      return objects;
+    }
+
+
+    /**
+     * @return exception thrown by the execution, null if the execution has completed
+     */
+    public final Exception getException() {
+      return exception;
+    }
+
+
+    /**
+     * @return <code>true</code> if the execution has failed
+     */
+    public final boolean isFailed() {
+      return exception!=null;
+    }
+
+  }
+
+}
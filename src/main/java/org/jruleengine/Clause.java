@@ -1,5 +1,8 @@
 package org.jruleengine;
 
+import java.io.Serializable;
+
+
 /**
  * <p>Title: JRuleEngine Project</p>
  * <p>Description: This class represents a simple clause, composed of a name and a value.</p>
@@ -28,7 +31,7 @@ package org.jruleengine;
  * @author Mauro Carniel
  * @version 1.0
  */
-public class Clause {
+public class Clause implements Serializable {
 
   /** property name */
   private String name = "";
@@ -0,0 +1,528 @@
+package org.jruleengine;
+
+import java.awt.Component;
+import java.util.*;
+import javax.rules.RuleSessionCreateException;
+
+import org.jruleengine.rule.Assumption;
+import org.jruleengine.rule.Term;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Alpha nodes of a network evaluated over a batch of inputs at once, for the inputs of a batch session
+ * ("batchEvaluation" property set to "columnar"). The facts read by the terms of the alpha nodes are collected for
+ * all the inputs, and the getter values of each left term are extracted into a column: integral and double values
+ * into primitive arrays, the other values dictionary-encoded. Each condition is then evaluated over a whole column
+ * into a bit set: a comparison runs over the primitive values, any other condition is evaluated once for each
+ * distinct value. The results are set into the state of the network of each input, which combines them into rule
+ * activations: a value that cannot be decided over a column (e.g. an invalid number, or a variable) is left to the session,
+ * as the alpha nodes invalidated by the actions, so that the rules are fired exactly as without the batch.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class ColumnarBatch {
+
+  /** kind of a row value: the fact is not in the working memory, the value is the literal of the term */
+  private static final byte ABSENT = 0;
+
+  /** kind of a row value: the getter has returned null */
+  private static final byte NULL = 1;
+
+  /** kind of a row value: an int, long, short or byte value, stored in the long column */
+  private static final byte LONG = 2;
+
+  /** kind of a row value: a double value, stored in the double column */
+  private static final byte DOUBLE = 3;
+
+  /** kind of a row value: any other value, dictionary-encoded */
+  private static final byte CODED = 4;
+
+  /** kind of a row value: the getter has failed, the row is evaluated by its session */
+  private static final byte FAILED = 5;
+
+  /** columns and conditions of the network */
+  private final Plan plan;
+
+  /** number of inputs */
+  private final int rows;
+
+  /** fact read through each key, for each row */
+  private final Object[][] facts;
+
+  /** keys that read a fact in at least one row */
+  private final int[] present;
+
+  /** alpha nodes evaluated for each row, as the words of a bit set */
+  private final long[][] rowNodes;
+
+  /** alpha nodes verified for each row, as the words of a bit set */
+  private final long[][] rowValues;
+
+
+  /**
+   * @param plan columns and conditions of the network
+   * @param reference reference facts of the rule execution set; null if there are none
+   * @param inputs inputs, each one a list of objects
+   * @param from first input of the batch
+   * @param to last input of the batch, exclusive
+   * @param multiple <code>true</code> if the working memory holds more facts of the same type
+   */
+  private ColumnarBatch(Plan plan,ReferenceFacts reference,Object[] inputs,int from,int to,boolean multiple) {
+    this.plan = plan;
+    this.rows = to-from;
+    this.facts = new Object[plan.keys.length][rows];
+    this.rowNodes = new long[rows][(plan.network.getAlphaCount()+63) >> 6];
+    this.rowValues = new long[rows][rowNodes.length==0 ? 0 : rowNodes[0].length];
+
+    // facts read through each key, stored as a session stores the objects of an input...
+    for(int r=0;r<rows;r++) {
+      if (!(inputs[from+r] instanceof List))
+        continue;
+      List objects = (List)inputs[from+r];
+      for(int i=0;i<objects.size();i++) {
+        Object obj = objects.get(i);
+        if (obj instanceof Clause)
+          store(((Clause)obj).getName(),((Clause)obj).getValue(),r);
+        else if (obj instanceof Component && ((Component)obj).getName()!=null)
+          store(((Component)obj).getName(),obj,r);
+        else if (obj!=null) {
+          // a fact having an extent is read as the first fact of its extent...
+          int[] keys = (int[])plan.typeKeys.get(obj.getClass());
+          for(int j=0;j<keys.length;j++)
+            if (!multiple || facts[keys[j]][r]==null)
+              facts[keys[j]][r] = obj;
+        }
+      }
+    }
+    if (reference!=null)
+      for(int k=0;k<facts.length;k++) {
+        Object fact = reference.memory.get(plan.keys[k]);
+        if (fact!=null)
+          for(int r=0;r<rows;r++)
+            if (facts[k][r]==null)
+              facts[k][r] = fact;
+      }
+
+    int n = 0;
+    int[] keys = new int[facts.length];
+    for(int k=0;k<facts.length;k++)
+      for(int r=0;r<rows;r++)
+        if (facts[k][r]!=null) {
+          keys[n++] = k;
+          break;
+        }
+    present = Arrays.copyOf(keys,n);
+
+    for(int c=0;c<plan.columns.length;c++)
+      evaluateColumn(c);
+  }
+
+
+  /**
+   * Extract the columns of a batch of inputs and evaluate the alpha nodes over them.
+   * @param ruleSet rules
+   * @param inputs inputs, each one a list of objects
+   * @param from first input of the batch
+   * @param to last input of the batch, exclusive
+   * @return alpha nodes evaluated over the batch
+   */
+  static ColumnarBatch create(RuleExecutionSetImpl ruleSet,Object[] inputs,int from,int to) throws RuleSessionCreateException {
+    return new ColumnarBatch(
+      ruleSet.getReteNetwork().getColumnarPlan(),
+      ruleSet.getReferenceFacts(),
+      inputs,
+      from,
+      to,
+      ruleSet.isMultipleFacts()
+    );
+  }
+
+
+  /**
+   * Set the alpha nodes evaluated for a row into the state of the network of its session: an alpha node is set only
+   * if the facts read by its terms are the ones its columns have been extracted from (a key without facts in the
+   * batch has no fact in the session too, since the facts are collected as the session stores them).
+   * @param memory state of the network
+   * @param session session that contains the objects of the row
+   * @param row row of the batch
+   */
+  final void preset(ReteNetwork.Memory memory,StatefulRuleSessionImpl session,int row) {
+    if (memory.getNetwork()!=plan.network)
+      return;
+    BitSet nodes = BitSet.valueOf(rowNodes[row]);
+    for(int i=0;i<present.length;i++)
+      if (session.getFact(plan.keys[present[i]])!=facts[present[i]][row])
+        nodes.andNot(plan.keyReaders[present[i]]);
+    BitSet verified = BitSet.valueOf(rowValues[row]);
+    verified.and(nodes);
+    memory.preset(this,row,nodes,verified);
+  }
+
+
+  /**
+   * @param row row of the batch
+   * @param key working memory key
+   * @param fact fact; may be null
+   * @return alpha nodes whose terms read the key, or read the fact in the specified row
+   */
+  final BitSet readers(int row,Object key,Object fact) {
+    BitSet nodes = new BitSet();
+    Integer k = (Integer)plan.keyIndex.get(key);
+    if (k!=null)
+      nodes.or(plan.keyReaders[k.intValue()]);
+    if (fact!=null)
+      for(int i=0;i<present.length;i++)
+        if (facts[present[i]][row]==fact)
+          nodes.or(plan.keyReaders[present[i]]);
+    return nodes;
+  }
+
+
+  /**
+   * Store a fact read through a key, replacing the fact previously stored with the same key.
+   * @param key working memory key
+   * @param fact fact
+   * @param row row of the batch
+   */
+  private void store(String key,Object fact,int row) {
+    Integer k = (Integer)plan.keyIndex.get(key);
+    if (k!=null)
+      facts[k.intValue()][row] = fact;
+  }
+
+
+  /**
+   * Extract the values of a left term and evaluate the alpha nodes of the term over them.
+   * @param c column index
+   */
+  private void evaluateColumn(int c) {
+    Term term = plan.columns[c];
+    Object[] column = facts[plan.columnKeys[c]];
+    byte[] kinds = new byte[rows];
+    Object[] items = new Object[rows];
+    long[] longs = null;
+    double[] doubles = null;
+    int[] codes = null;
+    ArrayList dictionary = new ArrayList();
+    HashMap strings = new HashMap();
+    IdentityHashMap others = new IdentityHashMap();
+    BitSet[] byKind = new BitSet[FAILED+1];
+    for(int i=0;i<byKind.length;i++)
+      byKind[i] = new BitSet(rows);
+
+    Class type = null;
+    Accessor getter = null;
+    for(int r=0;r<rows;r++) {
+      Object value = column[r];
+      if (value==null) {
+        kinds[r] = ABSENT;
+        byKind[ABSENT].set(r);
+        continue;
+      }
+      if (term.getMethod()!=null)
+        try {
+          if (value.getClass()!=type) {
+            type = value.getClass();
+            getter = Accessor.lookup(type,term.getMethod(),0);
+          }
+          value = getter.invoke(value);
+        }
+        catch (Throwable ex) {
+          // the session will report the error...
+          kinds[r] = FAILED;
+          byKind[FAILED].set(r);
+          continue;
+        }
+      items[r] = value;
+      if (value==null)
+        kinds[r] = NULL;
+      else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        if (longs==null)
+          longs = new long[rows];
+        longs[r] = ((Number)value).longValue();
+        kinds[r] = LONG;
+      }
+      else if (value instanceof Double) {
+        if (doubles==null)
+          doubles = new double[rows];
+        doubles[r] = ((Double)value).doubleValue();
+        kinds[r] = DOUBLE;
+      }
+      else {
+        // strings are encoded by value, the other objects by identity...
+        Map map = value instanceof String ? (Map)strings : (Map)others;
+        Integer code = (Integer)map.get(value);
+        if (code==null) {
+          code = new Integer(dictionary.size());
+          map.put(value,code);
+          dictionary.add(value);
+        }
+        if (codes==null)
+          codes = new int[rows];
+        codes[r] = code.intValue();
+        kinds[r] = CODED;
+      }
+      byKind[kinds[r]].set(r);
+    }
+
+    for(int i=0;i<plan.columnAlphas[c].length;i++) {
+      int a = plan.columnAlphas[c][i];
+      Condition cond = plan.network.getCondition(a);
+      Assumption ass = plan.network.getAlpha(a);
+      Object v1 = ass.getLeft().getLiteral();
+      Object v2 = ass.getRight().getLiteral();
+      BitSet done = new BitSet(rows);
+      BitSet verified = new BitSet(rows);
+
+      // rows whose right term is a fact are evaluated by their sessions...
+      BitSet excluded = new BitSet(rows);
+      Object[] right = facts[plan.rightKeys[a]];
+      for(int r=0;r<rows;r++)
+        if (right[r]!=null)
+          excluded.set(r);
+
+      evaluateConstant(cond,v1,v2,byKind[ABSENT],excluded,done,verified);
+      evaluateConstant(cond,null,v2,byKind[NULL],excluded,done,verified);
+      if (longs!=null) {
+        BitSet bs = (BitSet)byKind[LONG].clone();
+        bs.andNot(excluded);
+        BitSet result = new BitSet(rows);
+        cond.testLongs(longs,bs,result);
+        done.or(bs);
+        verified.or(result);
+      }
+      if (doubles!=null) {
+        BitSet bs = (BitSet)byKind[DOUBLE].clone();
+        bs.andNot(excluded);
+        BitSet result = new BitSet(rows);
+        cond.testDoubles(doubles,bs,result);
+        done.or(bs);
+        verified.or(result);
+      }
+      if (codes!=null) {
+        // each dictionary value is evaluated once...
+        byte[] memo = new byte[dictionary.size()];
+        BitSet bs = byKind[CODED];
+        for(int r=bs.nextSetBit(0);r>=0;r=bs.nextSetBit(r+1)) {
+          if (excluded.get(r))
+            continue;
+          int code = codes[r];
+          if (memo[code]==0)
+            // a value that is the literal itself would be read as the literal...
+            memo[code] = dictionary.get(code)==v1 ? 3 : test(cond,dictionary.get(code),v2);
+          if (memo[code]!=3) {
+            done.set(r);
+            if (memo[code]==1)
+              verified.set(r);
+          }
+        }
+      }
+
+      // numeric values not evaluated over their column...
+      for(int r=0;r<rows;r++)
+        if ((kinds[r]==LONG || kinds[r]==DOUBLE) && !done.get(r) && !excluded.get(r)) {
+          byte b = test(cond,items[r],v2);
+          if (b!=3) {
+            done.set(r);
+            if (b==1)
+              verified.set(r);
+          }
+        }
+
+      int word = a >> 6;
+      long bit = 1L << a;
+      for(int r=done.nextSetBit(0);r>=0;r=done.nextSetBit(r+1)) {
+        rowNodes[r][word] |= bit;
+        if (verified.get(r))
+          rowValues[r][word] |= bit;
+      }
+    }
+  }
+
+
+  /**
+   * Evaluate an alpha node once for the rows having the same value.
+   * @param cond condition of the alpha node
+   * @param v1 value of the left term
+   * @param v2 value of the right term
+   * @param rows rows having the value
+   * @param excluded rows not to evaluate
+   * @param done rows evaluated
+   * @param verified rows where the alpha node is verified
+   */
+  private void evaluateConstant(Condition cond,Object v1,Object v2,BitSet rows,BitSet excluded,BitSet done,BitSet verified) {
+    if (rows.isEmpty())
+      return;
+    byte b = test(cond,v1,v2);
+    if (b==3)
+      return;
+    BitSet bs = (BitSet)rows.clone();
+    bs.andNot(excluded);
+    done.or(bs);
+    if (b==1)
+      verified.or(bs);
+  }
+
+
+  /**
+   * @param cond condition of an alpha node
+   * @param v1 value of the left term
+   * @param v2 value of the right term
+   * @return 1 if the condition is verified, 2 if it is not verified, 3 if it must be evaluated by the session
+   */
+  private static byte test(Condition cond,Object v1,Object v2) {
+    try {
+      return cond.test(v1,v2) ? (byte)1 : (byte)2;
+    }
+    catch (Exception ex) {
+      return 3;
+    }
+  }
+
+
+  /**
+   * <p>Description: Columns of a network: the alpha nodes evaluated only from the values of their terms are grouped
+   * by left term, and each left term is a column of the batch. The plan is immutable and it is shared by all the batches.</p>
+   */
+  static final class Plan {
+
+    /** network */
+    final ReteNetwork network;
+
+    /** working memory keys read by the terms of the alpha nodes */
+    final String[] keys;
+
+    /** index of each key: key -> Integer */
+    final HashMap keyIndex = new HashMap();
+
+    /** alpha nodes evaluated over the columns */
+    final int[] alphas;
+
+    /** left terms of the alpha nodes, one for each column */
+    final Term[] columns;
+
+    /** key index of each column */
+    final int[] columnKeys;
+
+    /** alpha nodes of each column */
+    final int[][] columnAlphas;
+
+    /** key index of the left term of each alpha node */
+    final int[] leftKeys;
+
+    /** key index of the right term of each alpha node */
+    final int[] rightKeys;
+
+    /** alpha nodes whose terms read each key */
+    final BitSet[] keyReaders;
+
+    /** key indexes used to store a fact of each type */
+    final ClassValue typeKeys = new ClassValue() {
+
+      protected Object computeValue(Class type) {
+        String[] names = network.getTypeKeys(type);
+        int[] indexes = new int[names.length];
+        int n = 0;
+        for(int i=0;i<names.length;i++) {
+          Integer k = (Integer)keyIndex.get(names[i]);
+          if (k!=null)
+            indexes[n++] = k.intValue();
+        }
+        return Arrays.copyOf(indexes,n);
+      }
+
+    };
+
+
+    /**
+     * @param network network compiled from the rules
+     */
+    Plan(ReteNetwork network) {
+      this.network = network;
+      ArrayList keyList = new ArrayList();
+      ArrayList alphaList = new ArrayList();
+      LinkedHashMap terms = new LinkedHashMap();
+      leftKeys = new int[network.getAlphaCount()];
+      rightKeys = new int[network.getAlphaCount()];
+      for(int a=0;a<network.getAlphaCount();a++) {
+        if (network.getCondition(a)==null)
+          continue;
+        Assumption ass = network.getAlpha(a);
+        leftKeys[a] = key(ass.getLeft().getKey(),keyList);
+        rightKeys[a] = key(ass.getRight().getKey(),keyList);
+        alphaList.add(new Integer(a));
+        ArrayList list = (ArrayList)terms.get(ass.getLeft().getText());
+        if (list==null) {
+          list = new ArrayList();
+          terms.put(ass.getLeft().getText(),list);
+        }
+        list.add(new Integer(a));
+      }
+      keys = (String[])keyList.toArray(new String[keyList.size()]);
+      alphas = toArray(alphaList);
+      keyReaders = new BitSet[keys.length];
+      for(int k=0;k<keys.length;k++)
+        keyReaders[k] = new BitSet(network.getAlphaCount());
+      for(int i=0;i<alphas.length;i++) {
+        keyReaders[leftKeys[alphas[i]]].set(alphas[i]);
+        keyReaders[rightKeys[alphas[i]]].set(alphas[i]);
+      }
+      columns = new Term[terms.size()];
+      columnKeys = new int[columns.length];
+      columnAlphas = new int[columns.length][];
+      Iterator it = terms.values().iterator();
+      for(int c=0;it.hasNext();c++) {
+        columnAlphas[c] = toArray((List)it.next());
+        Assumption ass = network.getAlpha(columnAlphas[c][0]);
+        columns[c] = ass.getLeft();
+        columnKeys[c] = leftKeys[columnAlphas[c][0]];
+      }
+    }
+
+
+    /**
+     * @param key working memory key
+     * @param keyList keys already indexed
+     * @return index of the key
+     */
+    private int key(String key,List keyList) {
+      Integer k = (Integer)keyIndex.get(key);
+      if (k==null) {
+        k = new Integer(keyList.size());
+        keyIndex.put(key,k);
+        keyList.add(key);
+      }
+      return k.intValue();
+    }
+
+
+    private static int[] toArray(List list) {
+      int[] array = new int[list.size()];
+      for(int i=0;i<array.length;i++)
+        array[i] = ((Integer)list.get(i)).intValue();
+      return array;
+    }
+
+  }
+
+}
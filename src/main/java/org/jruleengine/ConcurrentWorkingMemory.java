@@ -0,0 +1,88 @@
+package org.jruleengine;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Working memory that can be filled by more threads at the same time, e.g. when facts are added to
+ * the same session by more producers; it is selected by the "concurrent" value of the "workingMemory" property.
+ * Its iterators never throw ConcurrentModificationException.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ConcurrentWorkingMemory implements WorkingMemory {
+
+  /** facts */
+  private final ConcurrentHashMap facts = new ConcurrentHashMap();
+
+  /** Map view */
+  private final Map view = new WorkingMemoryMap(this);
+
+
+  public final Object get(Object key) {
+    return facts.get(key);
+  }
+
+
+  public final Object put(Object key,Object fact) {
+    return facts.put(key,fact);
+  }
+
+
+  public final Object remove(Object key) {
+    return key==null ? null : facts.remove(key);
+  }
+
+
+  public final boolean containsValue(Object fact) {
+    return facts.containsValue(fact);
+  }
+
+
+  public final int size() {
+    return facts.size();
+  }
+
+
+  public final void clear() {
+    facts.clear();
+  }
+
+
+  public final Iterator keys() {
+    return facts.keySet().iterator();
+  }
+
+
+  public final Iterator values() {
+    return facts.values().iterator();
+  }
+
+
+  public final Map asMap() {
+    return view;
+  }
+
+}
@@ -0,0 +1,624 @@
+package org.jruleengine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.BitSet;
+import java.util.Hashtable;
+import javax.rules.InvalidRuleSessionException;
+
+import org.jruleengine.rule.Assumption;
+import org.jruleengine.rule.Operator;
+import org.jruleengine.rule.Term;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: An assumption compiled into a specialized evaluator: the operator is selected when the
+ * rule execution set is compiled, so that each condition contains only the code needed by its operator,
+ * and each getter term keeps the accessor of the last fact class it has been applied to (a monomorphic inline cache).
+ * Conditions evaluate their operators through Operator.evaluate, as StatefulRuleSessionImpl.evaluateAssumption does,
+and only add the variable bindings and the column kernels; they are shared by all the sessions.
+ * </p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+abstract class Condition {
+
+  /** operator */
+  protected final Operator op;
+
+  /** <code>true</code> to compare numeric values as typed values */
+  protected final boolean typed;
+
+  /** left term */
+  protected final Value left;
+
+  /** right term */
+  protected final Value right;
+
+  /** numeric value of the right literal, compared to the columns of a batch; null if the literal is not a number */
+  protected final Threshold threshold;
+
+
+  /**
+   * @param ass assumption to compile
+   * @param typed <code>true</code> to compare numeric values as typed values
+   */
+  private Condition(Assumption ass,boolean typed) {
+    op = ass.getOperatorType();
+    this.typed = typed;
+    left = new Value(ass.getLeft());
+    right = new Value(ass.getRight());
+    threshold = Threshold.create(ass.getRight().getNumericValue());
+  }
+
+
+  /**
+   * Evaluate the condition against the working memory of a session.
+   * @param session session whose working memory is read
+   * @param variables variables bound by the condition
+   * @return <code>true</code> if the condition is verified
+   */
+  abstract boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException;
+
+
+  /**
+   * Evaluate the condition against the values of its terms, without reading the working memory:
+   * used by the columnar evaluation of a batch of inputs.
+   * @param v1 value of the left term
+   * @param v2 value of the right term
+   * @return <code>true</code> if the condition is verified
+   * @throws InvalidRuleSessionException if the values are not valid or the condition must be evaluated by a session (it binds a variable)
+   */
+  boolean test(Object v1,Object v2) throws InvalidRuleSessionException {
+    throw new InvalidRuleSessionException("Condition evaluated by the session");
+  }
+
+
+  /**
+   * Evaluate the condition over a column of integral values (int, long, short, byte), when the right term is its literal.
+   * @param column values of the left term
+   * @param rows rows to evaluate; the rows that cannot be evaluated over the column are removed, they must be evaluated through test()
+   * @param result rows where the condition is verified
+   */
+  void testLongs(long[] column,BitSet rows,BitSet result) {
+    rows.clear();
+  }
+
+
+  /**
+   * Evaluate the condition over a column of double values, when the right term is its literal.
+   * @param column values of the left term
+   * @param rows rows to evaluate; the rows that cannot be evaluated over the column are removed, they must be evaluated through test()
+   * @param result rows where the condition is verified
+   */
+  void testDoubles(double[] column,BitSet rows,BitSet result) {
+    rows.clear();
+  }
+
+
+  /**
+   * Evaluate the operator over the values of the terms, through Operator.evaluate.
+   * @param v1 value of the left term
+   * @param v2 value of the right term
+   * @return <code>true</code> if the operator is verified
+   */
+  final boolean match(Object v1,Object v2) throws InvalidRuleSessionException {
+    try {
+      return op.evaluate(left.getTerm(),v1,right.getTerm(),v2,typed);
+    }
+    catch (NumberFormatException ex) {
+      throw new InvalidRuleSessionException(ex.getMessage());
+    }
+  }
+
+
+  /**
+   * Compare a column to the right literal, as Numbers.compare does.
+   * @param column values of the left term: a long[] or a double[] array
+   * @param rows rows to evaluate; the rows whose comparison cannot be decided without Numbers.compare are removed
+   * @param result rows where the operator is verified
+   */
+  final void compareColumn(Object column,BitSet rows,BitSet result) {
+    if (threshold==null) {
+      rows.clear();
+      return;
+    }
+    long[] longs = column instanceof long[] ? (long[])column : null;
+    double[] doubles = longs==null ? (double[])column : null;
+    for(int r=rows.nextSetBit(0);r>=0;r=rows.nextSetBit(r+1)) {
+      int cmp = longs!=null ? threshold.compare(longs[r]) : threshold.compare(doubles[r]);
+      if (cmp==Threshold.UNKNOWN)
+        rows.clear(r);
+      else if (cmp==Threshold.NAN ? op==Operator.NOT_EQUALS_TO : op.holds(cmp))
+        result.set(r);
+    }
+  }
+
+
+  /**
+   * Compile an assumption.
+   * @param ass assumption to compile
+   * @param typed <code>true</code> to compare numeric values as typed values, <code>false</code> to compare them as strings
+   * @return compiled condition, null if the assumption cannot be compiled (it will be evaluated by the session)
+   */
+  static Condition compile(Assumption ass,boolean typed) {
+    Operator op = ass.getOperatorType();
+    if (op==null || ass.getLeft()==null || ass.getRight()==null)
+      return null;
+    if (typed && op.isOrdering())
+      return new TypedCompare(ass);
+    switch(op) {
+      case EXISTS:
+        return new Exists(ass);
+      case EQUALS_TO:
+        return new EqualsTo(ass,typed);
+      case NOT_EQUALS_TO:
+        return new NotEqualsTo(ass,typed);
+      case CONTAINS:
+        return new Contains(ass);
+      case CONTAINSATLEASTONE:
+      case NOT_CONTAINS:
+      case NOT_CONTAINSANYONE:
+        return new Generic(ass);
+      case LESS_THAN:
+      case LESS_OR_EQUALS_TO:
+      case GREATER_THAN:
+      case GREATER_OR_EQUALS_TO:
+        return new Compare(ass);
+      default:
+        return null;
+    }
+  }
+
+
+  /**
+   * <p>Description: A term of a condition.</p>
+   */
+  static final class Value {
+
+    /** term */
+    private final Term term;
+
+    /** last class the getter has been applied to, and its accessor */
+    private Site site;
+
+
+    Value(Term term) {
+      this.term = term;
+    }
+
+
+    /**
+     * @return term
+     */
+    final Term getTerm() {
+      return term;
+    }
+
+
+    /**
+     * Calculate the value of the term, as StatefulRuleSessionImpl.resolveTerm does.
+     * @param session session whose working memory is read
+     * @return value of the term
+     */
+    final Object resolve(StatefulRuleSessionImpl session) throws InvalidRuleSessionException {
+      Object aux = session.readFact(term.getKey());
+      if (aux==null)
+        return term.getLiteral();
+      if (term.getMethod()==null)
+        return aux;
+      try {
+        return getter(aux.getClass()).invoke(aux);
+      }
+      catch (InvalidRuleSessionException ex) {
+        throw ex;
+      }
+      catch (Throwable ex) {
+        throw new InvalidRuleSessionException("Method not found: '"+term.getMethod()+"'\n"+ex.getMessage());
+      }
+    }
+
+
+    /**
+     * @param session session whose working memory is read
+     * @return value of the term in String format, without the ".0" suffix
+     */
+    final String text(StatefulRuleSessionImpl session) throws InvalidRuleSessionException {
+      return term.toText(resolve(session));
+    }
+
+
+    /**
+     * @param type class of the fact
+     * @return getter method of the fact class
+     */
+    private Accessor getter(Class type) throws InvalidRuleSessionException {
+      Site s = site;
+      if (s!=null && s.type==type)
+        return s.accessor;
+      Accessor accessor = Accessor.lookup(type,term.getMethod(),0);
+      if (accessor==null)
+        throw new InvalidRuleSessionException("Method not found: '"+term.getMethod()+"'");
+      site = new Site(type,accessor);
+      return accessor;
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Class of a fact and the accessor of its getter method; immutable, so that it can be replaced
+   * while other sessions are reading it.</p>
+   */
+  private static final class Site {
+
+    /** class of the fact */
+    final Class type;
+
+    /** getter method */
+    final Accessor accessor;
+
+
+    Site(Class type,Accessor accessor) {
+      this.type = type;
+      this.accessor = accessor;
+    }
+
+  }
+
+
+  /**
+   * <p>Description: "exists" operator.</p>
+   */
+  private static final class Exists extends Condition {
+
+    Exists(Assumption ass) {
+      super(ass,false);
+    }
+
+    final boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      String t1 = left.text(session);
+      right.resolve(session);
+      return t1!=null && session.containsFact(t1);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: "=" operator; binds a variable when the left term is a variable.</p>
+   */
+  private static final class EqualsTo extends Condition {
+
+    EqualsTo(Assumption ass,boolean typed) {
+      super(ass,typed);
+    }
+
+    final boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      Object v1 = left.resolve(session);
+      Object v2 = right.resolve(session);
+      String t1 = left.getTerm().toText(v1);
+      String t2 = right.getTerm().toText(v2);
+      if (t1!=null && t1.startsWith(":") && t2!=null) // t1 is a variable...
+        return session.bindVariable(t1,t2,false,variables);
+      return match(v1,v2);
+    }
+
+    final boolean test(Object v1,Object v2) throws InvalidRuleSessionException {
+      String t1 = left.getTerm().toText(v1);
+      if (t1!=null && t1.startsWith(":") && v2!=null)
+        return super.test(v1,v2);
+      return match(v1,v2);
+    }
+
+    final void testLongs(long[] column,BitSet rows,BitSet result) {
+      testNumbers(column,rows,result);
+    }
+
+    final void testDoubles(double[] column,BitSet rows,BitSet result) {
+      testNumbers(column,rows,result);
+    }
+
+    /**
+     * A numeric value is never equal to a literal that is not a number, since its text is a number.
+     */
+    private void testNumbers(Object column,BitSet rows,BitSet result) {
+      if (!typed)
+        rows.clear();
+      else if (threshold!=null)
+        compareColumn(column,rows,result);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: "<>" operator.</p>
+   */
+  private static final class NotEqualsTo extends Condition {
+
+    NotEqualsTo(Assumption ass,boolean typed) {
+      super(ass,typed);
+    }
+
+    final boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      return match(left.resolve(session),right.resolve(session));
+    }
+
+    final void testLongs(long[] column,BitSet rows,BitSet result) {
+      testNumbers(column,rows,result);
+    }
+
+    final void testDoubles(double[] column,BitSet rows,BitSet result) {
+      testNumbers(column,rows,result);
+    }
+
+    /**
+     * A numeric value is always different from a literal that is not a number, since its text is a number.
+     */
+    private void testNumbers(Object column,BitSet rows,BitSet result) {
+      if (!typed)
+        rows.clear();
+      else if (threshold!=null)
+        compareColumn(column,rows,result);
+      else
+        result.or(rows);
+    }
+
+    final boolean test(Object v1,Object v2) throws InvalidRuleSessionException {
+      return match(v1,v2);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: "contains" operator; binds a variable when the left term is a variable.</p>
+   */
+  private static final class Contains extends Condition {
+
+    Contains(Assumption ass) {
+      super(ass,false);
+    }
+
+    final boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      String t1 = left.text(session);
+      String t2 = right.text(session);
+      if (t1!=null && t1.startsWith(":") && t2!=null) // t1 is a variable...
+        return session.bindVariable(t1,t2,true,variables);
+      return op.test(t1,right.getTerm(),t2);
+    }
+
+    final boolean test(Object v1,Object v2) throws InvalidRuleSessionException {
+      String t1 = left.getTerm().toText(v1);
+      if (t1!=null && t1.startsWith(":") && v2!=null)
+        return super.test(v1,v2);
+      return match(v1,v2);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: "containsAtLeastOne", "notContains" and "notContainsAnyone" operators.</p>
+   */
+  private static final class Generic extends Condition {
+
+    Generic(Assumption ass) {
+      super(ass,false);
+    }
+
+    final boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      return match(left.resolve(session),right.resolve(session));
+    }
+
+    final boolean test(Object v1,Object v2) throws InvalidRuleSessionException {
+      return match(v1,v2);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: numeric comparison operators, comparing typed values.</p>
+   */
+  private static final class TypedCompare extends Condition {
+
+    TypedCompare(Assumption ass) {
+      super(ass,true);
+    }
+
+    final boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      return match(left.resolve(session),right.resolve(session));
+    }
+
+    final void testLongs(long[] column,BitSet rows,BitSet result) {
+      compareColumn(column,rows,result);
+    }
+
+    final void testDoubles(double[] column,BitSet rows,BitSet result) {
+      compareColumn(column,rows,result);
+    }
+
+    final boolean test(Object v1,Object v2) throws InvalidRuleSessionException {
+      return match(v1,v2);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: numeric comparison operators, comparing values parsed as double values.</p>
+   */
+  private static final class Compare extends Condition {
+
+    Compare(Assumption ass) {
+      super(ass,false);
+    }
+
+    final boolean evaluate(StatefulRuleSessionImpl session,Hashtable variables) throws InvalidRuleSessionException {
+      return match(left.resolve(session),right.resolve(session));
+    }
+
+    /**
+     * The text of a numeric value is parsed back to the same double value.
+     */
+    final void testLongs(long[] column,BitSet rows,BitSet result) {
+      String t2 = right.getTerm().getLiteral();
+      if ("".equals(t2))
+        return;
+      double d2;
+      try {
+        d2 = right.getTerm().toNumber(t2);
+      }
+      catch (NumberFormatException ex) {
+        rows.clear();
+        return;
+      }
+      for(int r=rows.nextSetBit(0);r>=0;r=rows.nextSetBit(r+1))
+        if (op.compare((double)column[r],d2))
+          result.set(r);
+    }
+
+    final void testDoubles(double[] column,BitSet rows,BitSet result) {
+      String t2 = right.getTerm().getLiteral();
+      if ("".equals(t2))
+        return;
+      double d2;
+      try {
+        d2 = right.getTerm().toNumber(t2);
+      }
+      catch (NumberFormatException ex) {
+        rows.clear();
+        return;
+      }
+      for(int r=rows.nextSetBit(0);r>=0;r=rows.nextSetBit(r+1))
+        if (op.compare(column[r],d2))
+          result.set(r);
+    }
+
+    final boolean test(Object v1,Object v2) throws InvalidRuleSessionException {
+      return match(v1,v2);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Numeric literal of a right term, prepared to be compared to the primitive values of a column
+   * with the same result of Numbers.compare: a value whose comparison would depend on the decimal representation
+   * of a double value is not compared.</p>
+   */
+  static final class Threshold {
+
+    /** comparison result: the values cannot be compared without Numbers.compare */
+    static final int UNKNOWN = 2;
+
+    /** comparison result: a NaN value is compared */
+    static final int NAN = 3;
+
+    /** numeric literal: Long, BigDecimal or Double */
+    private final Number number;
+
+    /** largest long value not greater than the literal */
+    private final long floor;
+
+    /** <code>true</code> if the literal is an integral value */
+    private final boolean integral;
+
+    /** <code>true</code> if floor is defined, i.e. the integral part of the literal fits a long value */
+    private final boolean bounded;
+
+    /** nearest double value of the literal */
+    private final double approx;
+
+
+    private Threshold(Number number) {
+      this.number = number;
+      approx = number.doubleValue();
+      if (number instanceof Long) {
+        floor = number.longValue();
+        integral = true;
+        bounded = true;
+      }
+      else if (number instanceof BigDecimal) {
+        BigDecimal f = ((BigDecimal)number).setScale(0,RoundingMode.FLOOR);
+        bounded = f.toBigInteger().bitLength()<64;
+        floor = bounded ? f.longValue() : 0;
+        integral = ((BigDecimal)number).compareTo(f)==0;
+      }
+      else {
+        floor = 0;
+        integral = false;
+        bounded = false;
+      }
+    }
+
+
+    /**
+     * @param number numeric value of a literal; may be null
+     * @return threshold of the literal, null if the literal is not a number
+     */
+    static Threshold create(Number number) {
+      return number==null ? null : new Threshold(number);
+    }
+
+
+    /**
+     * @param value integral value
+     * @return comparison of the value to the literal: -1, 0, 1, UNKNOWN or NAN
+     */
+    final int compare(long value) {
+      if (number instanceof Double)
+        return compareDoubles(value,approx);
+      if (!bounded)
+        return UNKNOWN;
+      if (integral || value<=floor)
+        return value<floor ? -1 : (value>floor ? 1 : (integral ? 0 : -1));
+      return 1;
+    }
+
+
+    /**
+     * A finite double value is compared to a BigDecimal literal through its decimal representation, which
+     * lies between the same double values that bound the literal, unless the nearest double value of the literal
+     * is the value itself.
+     * @param value double value
+     * @return comparison of the value to the literal: -1, 0, 1, UNKNOWN or NAN
+     */
+    final int compare(double value) {
+      if (number instanceof BigDecimal && !Double.isNaN(value) && !Double.isInfinite(value))
+        return value<approx ? -1 : (value>approx ? 1 : UNKNOWN);
+      return compareDoubles(value,approx);
+    }
+
+
+    private static int compareDoubles(double d1,double d2) {
+      if (Double.isNaN(d1) || Double.isNaN(d2))
+        return NAN;
+      return d1<d2 ? -1 : (d1>d2 ? 1 : 0);
+    }
+
+  }
+
+}
@@ -0,0 +1,435 @@
+package org.jruleengine;
+
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Extents of the facts that are not Clause or named Component objects, used when the working memory
+ * holds more facts of the same type ("facts" property set to "multiple").
+ * Each fact receives a fact id, that does not change until the fact is removed, and it is added to the extent of
+ * each working memory key of its type (class name, superclasses, interfaces). The working memory still stores a
+ * single fact for each key: during a rule execution, the session binds the keys to the facts of their extents in turn,
+ * so that the rules that depend on those keys are matched against each fact. The keys read by the same rule are
+ * grouped, and the keys of a group are bound to each combination of their facts (a cross product).
+ * The extents of a session are layered on the extents of the reference facts, that are read but never copied.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class FactExtents {
+
+  /** extents of the reference facts, read without locking since they are never changed; null if there are none */
+  private final FactExtents base;
+
+  /** fact id assigned to the next fact */
+  private int nextId;
+
+  /** facts, in fact id order: fact id -> fact */
+  private final LinkedHashMap facts = new LinkedHashMap();
+
+  /** fact -> fact entry, by identity */
+  private final IdentityHashMap entries = new IdentityHashMap();
+
+  /** extents: working memory key -> facts stored with that key, in fact id order */
+  private final HashMap extents = new HashMap();
+
+
+  FactExtents() {
+    this(null);
+  }
+
+
+  /**
+   * @param base extents of the reference facts; null if there are none
+   */
+  FactExtents(FactExtents base) {
+    this.base = base;
+    this.nextId = base==null ? 0 : base.nextId;
+  }
+
+
+  /**
+   * Add a fact to the extents of its type keys; a fact already added, also as a reference fact, keeps its fact id.
+   * @param keys working memory keys of the fact type
+   * @param fact fact to add
+   * @return fact id
+   */
+  final int add(String[] keys,Object fact) {
+    Fact entry = (Fact)entries.get(fact);
+    if (entry==null && base!=null)
+      entry = (Fact)base.entries.get(fact);
+    if (entry!=null)
+      return entry.id;
+    entry = new Fact(nextId++,fact,keys);
+    entries.put(fact,entry);
+    facts.put(new Integer(entry.id),entry);
+    for(int i=0;i<keys.length;i++) {
+      ArrayList extent = (ArrayList)extents.get(keys[i]);
+      if (extent==null) {
+        extent = new ArrayList();
+        extents.put(keys[i],extent);
+      }
+      extent.add(entry);
+    }
+    return entry.id;
+  }
+
+
+  /**
+   * Remove a fact from the extents; a reference fact is never removed.
+   * @param fact fact to remove
+   * @return working memory keys of the fact, null if the fact is not contained in the extents or it is a reference fact
+   */
+  final String[] remove(Object fact) {
+    Fact entry = (Fact)entries.remove(fact);
+    if (entry==null)
+      return null;
+    facts.remove(new Integer(entry.id));
+    for(int i=0;i<entry.keys.length;i++) {
+      ArrayList extent = (ArrayList)extents.get(entry.keys[i]);
+      extent.remove(indexOf(extent,entry.id));
+      if (extent.isEmpty())
+        extents.remove(entry.keys[i]);
+    }
+    return entry.keys;
+  }
+
+
+  /**
+   * @return a copy of the extents, that shares the fact entries and the extents of the reference facts
+   */
+  final FactExtents copy() {
+    FactExtents copy = new FactExtents(base);
+    copy.nextId = nextId;
+    copy.facts.putAll(facts);
+    copy.entries.putAll(entries);
+    Iterator it = extents.entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      copy.extents.put(entry.getKey(),new ArrayList((ArrayList)entry.getValue()));
+    }
+    return copy;
+  }
+
+
+  /**
+   * Remove all facts; the reference facts are visible again.
+   */
+  final void clear() {
+    facts.clear();
+    entries.clear();
+    extents.clear();
+  }
+
+
+  /**
+   * @param fact fact to search
+   * @return <code>true</code> if the fact is contained in the extents
+   */
+  final boolean contains(Object fact) {
+    return entries.containsKey(fact) || base!=null && base.entries.containsKey(fact);
+  }
+
+
+  /**
+   * @return <code>true</code> if at least one extent contains more than one fact
+   */
+  final boolean isMultiple() {
+    if (base!=null && base.isMultiple())
+      return true;
+    Iterator it = extents.keySet().iterator();
+    while(it.hasNext())
+      if (size(it.next())>1)
+        return true;
+    return false;
+  }
+
+
+  /**
+   * @return working memory keys having an extent: the keys of the reference facts first
+   */
+  final Iterator keys() {
+    if (base==null)
+      return extents.keySet().iterator();
+    return new Keys();
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return first fact of the extent, i.e. the one having the lowest fact id; null if there is no extent
+   */
+  final Object first(Object key) {
+    if (base!=null && base.extents.containsKey(key))
+      // the reference facts have the lowest fact ids...
+      return base.first(key);
+    ArrayList extent = (ArrayList)extents.get(key);
+    return extent==null ? null : ((Fact)extent.get(0)).fact;
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return last fact of the extent, i.e. the one having the highest fact id; null if there is no extent
+   */
+  final Object last(Object key) {
+    ArrayList extent = (ArrayList)extents.get(key);
+    if (extent==null)
+      return base==null ? null : base.last(key);
+    return ((Fact)extent.get(extent.size()-1)).fact;
+  }
+
+
+  /**
+   * @return fact entries, in fact id order; the reference facts are not included
+   */
+  final Iterator entries() {
+    return facts.values().iterator();
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return number of facts of the extent, reference facts included
+   */
+  private int size(Object key) {
+    ArrayList extent = (ArrayList)extents.get(key);
+    ArrayList shared = base==null ? null : (ArrayList)base.extents.get(key);
+    return (extent==null ? 0 : extent.size())+(shared==null ? 0 : shared.size());
+  }
+
+
+  /**
+   * Group the working memory keys having more facts and read by the rules: two keys are in the same group
+   * if a rule reads both of them.
+   * @param network network compiled from the rules
+   * @return groups of keys
+   */
+  final List groups(ReteNetwork network) {
+    ArrayList groups = new ArrayList();
+    Iterator it = keys();
+    while(it.hasNext()) {
+      Object key = it.next();
+      if (size(key)<2)
+        continue;
+      BitSet readers = network.getKeyRules(key);
+      if (readers.isEmpty())
+        continue;
+      Group group = new Group();
+      for(int i=groups.size()-1;i>=0;i--) {
+        Group other = (Group)groups.get(i);
+        if (other.rules.intersects(readers)) {
+          group.addAll(other);
+          groups.remove(i);
+        }
+      }
+      group.add(key,base==null ? null : (ArrayList)base.extents.get(key),(ArrayList)extents.get(key),readers);
+      groups.add(group);
+    }
+    return groups;
+  }
+
+
+  /**
+   * @param extent facts sorted by fact id
+   * @param id fact id to search
+   * @return position of the fact in the extent
+   */
+  private static int indexOf(ArrayList extent,int id) {
+    int low = 0;
+    int high = extent.size()-1;
+    while(low<high) {
+      int mid = (low+high) >>> 1;
+      if (((Fact)extent.get(mid)).id<id)
+        low = mid+1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+
+  /**
+   * <p>Description: Working memory keys read by the same rules, with the facts of their extents.</p>
+   */
+  static final class Group {
+
+    /** working memory keys */
+    private final ArrayList keys = new ArrayList();
+
+    /** reference facts of each key, in fact id order; null elements for the keys having no reference facts */
+    private final ArrayList bases = new ArrayList();
+
+    /** other facts of each key, in fact id order; null elements for the keys having only reference facts */
+    private final ArrayList extents = new ArrayList();
+
+    /** rules that read each key */
+    private final ArrayList readers = new ArrayList();
+
+    /** rules that read at least one key */
+    private final BitSet rules = new BitSet();
+
+
+    private void add(Object key,ArrayList shared,ArrayList extent,BitSet keyReaders) {
+      keys.add(key);
+      bases.add(shared);
+      extents.add(extent);
+      readers.add(keyReaders);
+      rules.or(keyReaders);
+    }
+
+
+    private void addAll(Group other) {
+      for(int i=0;i<other.size();i++)
+        add(other.keys.get(i),(ArrayList)other.bases.get(i),(ArrayList)other.extents.get(i),(BitSet)other.readers.get(i));
+    }
+
+
+    /**
+     * @return number of keys
+     */
+    final int size() {
+      return keys.size();
+    }
+
+
+    /**
+     * @param index key position
+     * @return working memory key
+     */
+    final Object getKey(int index) {
+      return keys.get(index);
+    }
+
+
+    /**
+     * @param index key position
+     * @return number of facts of the key
+     */
+    final int getFactCount(int index) {
+      ArrayList shared = (ArrayList)bases.get(index);
+      ArrayList extent = (ArrayList)extents.get(index);
+      return (shared==null ? 0 : shared.size())+(extent==null ? 0 : extent.size());
+    }
+
+
+    /**
+     * @param index key position
+     * @param position fact position in the extent of the key
+     * @return fact
+     */
+    final Object getFact(int index,int position) {
+      // the reference facts have the lowest fact ids...
+      ArrayList shared = (ArrayList)bases.get(index);
+      if (shared!=null) {
+        if (position<shared.size())
+          return ((Fact)shared.get(position)).fact;
+        position -= shared.size();
+      }
+      return ((Fact)((ArrayList)extents.get(index)).get(position)).fact;
+    }
+
+
+    /**
+     * @param index key position
+     * @return rules that read the key
+     */
+    final BitSet getReaders(int index) {
+      return (BitSet)readers.get(index);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Iterator over the keys of the reference facts and then over the other keys having an extent;
+   * it does not support the remove operation.</p>
+   */
+  private final class Keys implements Iterator {
+
+    /** keys of the reference facts, then keys of the other facts */
+    private Iterator it = base.extents.keySet().iterator();
+
+    /** <code>true</code> while reading the keys of the other facts */
+    private boolean own = false;
+
+    /** next key to return, null if it has not been read yet */
+    private Object next = null;
+
+
+    public boolean hasNext() {
+      while(next==null) {
+        if (!it.hasNext()) {
+          if (own)
+            return false;
+          own = true;
+          it = extents.keySet().iterator();
+          continue;
+        }
+        Object key = it.next();
+        if (!own || !base.extents.containsKey(key))
+          next = key;
+      }
+      return true;
+    }
+
+
+    public Object next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      Object key = next;
+      next = null;
+      return key;
+    }
+
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+
+  /**
+   * <p>Description: A fact, its fact id and the working memory keys of its type.</p>
+   */
+  static final class Fact {
+
+    /** fact id */
+    final int id;
+
+    /** fact */
+    final Object fact;
+
+    /** working memory keys of the fact type */
+    final String[] keys;
+
+
+    Fact(int id,Object fact,String[] keys) {
+      this.id = id;
+      this.fact = fact;
+      this.keys = keys;
+    }
+
+  }
+
+}
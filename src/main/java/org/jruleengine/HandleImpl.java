@@ -5,7 +5,13 @@ import javax.rules.Handle;
 
 /**
  * <p>Title: JRuleEngine Project</p>
- * <p>Description: This class implements the handle interface.</p>
+ * <p>Description: This class implements the handle interface.
+ * A handle identifies a slot of the handle table of a session and the generation of the object in that slot:
+ * the handle is no longer valid when the object is removed from the session, even if the slot is reused.
+ * A handle is valid also in the forks of the session that still contain its object, and after being serialized
+ * and deserialized in the same JVM, since it identifies its table through the table lineage.
+ * A handle created through the public constructor is detached: it belongs to no handle table, so no session
+ * resolves it, and it is equal to the detached handles of an equal object.</p>
  * <p>Copyright: Copyright (C) 2006 Mauro Carniel</p>
  *
  * <p> This file is part of JRuleEngine project.
@@ -33,10 +39,40 @@ import javax.rules.Handle;
  */
 public class HandleImpl implements Handle {
 
+  /** handle table of the session, null for a detached handle; not serialized, a deserialized handle is identified by its lineage */
+  private final transient HandleTable table;
+
+  /** lineage of the handle table, shared by the table and its forks; 0 for a detached handle */
+  private final long lineage;
+
+  /** slot of the handle table */
+  private final int slot;
+
+  /** generation of the object in the slot */
+  private final int generation;
+
+  /** object associated to the handle */
   private Object object;
 
 
+  /**
+   * Create a detached handle, that belongs to no handle table.
+   * @param o object associated to the handle
+   */
   public HandleImpl(Object o) {
+    table = null;
+    lineage = 0;
+    slot = -1;
+    generation = 0;
+    object = o;
+  }
+
+
+  HandleImpl(HandleTable table,int slot,int generation,Object o) {
+    this.table = table;
+    lineage = table.getLineage();
+    this.slot = slot;
+    this.generation = generation;
     object = o;
   }
 
@@ -51,16 +87,53 @@ public class HandleImpl implements Handle {
   }
 
 
+  /**
+   * @return handle table of the session, null if the handle is detached or it has been deserialized
+   */
+  final HandleTable getTable() {
+    return table;
+  }
+
+
+  /**
+   * @return lineage of the handle table, shared by the table and its forks
+   */
+  final long getLineage() {
+    return lineage;
+  }
+
+
+  /**
+   * @return slot of the handle table
+   */
+  final int getSlot() {
+    return slot;
+  }
+
+
+  /**
+   * @return generation of the object in the slot
+   */
+  final int getGeneration() {
+    return generation;
+  }
+
+
   public final boolean equals(Object o) {
     if(!(o instanceof HandleImpl))
       return false;
-    else
-      return object.equals(((HandleImpl)o).object);
+    HandleImpl h = (HandleImpl)o;
+    if (lineage==0 && h.lineage==0)
+      // detached handles are compared by their objects...
+      return object==null ? h.object==null : object.equals(h.object);
+    return lineage==h.lineage && slot==h.slot && generation==h.generation;
   }
 
 
   public final int hashCode() {
-    return object.hashCode();
+    if (lineage==0)
+      return object==null ? 0 : object.hashCode();
+    return slot*31+generation;
   }
 
 
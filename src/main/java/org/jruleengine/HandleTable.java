@@ -0,0 +1,281 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Handle table of a session: the objects added to the session are stored in slots, each one with
+ * the working memory keys used to store the object and a generation, drawn from a counter when the object is
+ * added, so that a handle is resolved in constant time and a stale handle is detected without hashing the object.
+ * Removed slots are reused. Handles are resolved without locking: each slot holds an immutable entry and the
+ * slot array is published through a volatile write after each change; changes and forks are synchronized, since
+ * objects can be added by more threads when the session uses a concurrent working memory.
+ * A fork of the table shares its slots until one of the two tables is changed, and the generation counter,
+ * so that a handle is valid in all the forks that still contain its object.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class HandleTable {
+
+  /** initial number of slots */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** lineage assigned to the next table */
+  private static final AtomicLong LINEAGES = new AtomicLong();
+
+  /** lineage of the table, shared by the table and its forks: it identifies also the deserialized handles */
+  private final long lineage;
+
+  /** generation counter, shared by the table and its forks */
+  private final AtomicInteger generator;
+
+  /** entry of each slot, null if the slot is free; written again after each change, to publish it to the readers */
+  private volatile Slot[] slots = new Slot[INITIAL_CAPACITY];
+
+  /** free slots below top */
+  private int[] free = new int[INITIAL_CAPACITY];
+
+  /** number of free slots below top */
+  private int freeCount = 0;
+
+  /** slots already used are below this one */
+  private int top = 0;
+
+  /** <code>true</code> if the arrays are shared with a fork and must be copied before being changed */
+  private boolean shared = false;
+
+
+  HandleTable() {
+    lineage = LINEAGES.incrementAndGet();
+    generator = new AtomicInteger();
+  }
+
+
+  /**
+   * @param table table to fork, whose arrays are shared
+   */
+  private HandleTable(HandleTable table) {
+    lineage = table.lineage;
+    generator = table.generator;
+    slots = table.slots;
+    free = table.free;
+    freeCount = table.freeCount;
+    top = table.top;
+    shared = true;
+  }
+
+
+  /**
+   * @return a table with the same slots, that can be changed independently of this one
+   */
+  final synchronized HandleTable fork() {
+    shared = true;
+    return new HandleTable(this);
+  }
+
+
+  /**
+   * @return lineage, that identifies the table and its forks
+   */
+  final long getLineage() {
+    return lineage;
+  }
+
+
+  /**
+   * Store an object into a free slot.
+   * @param object object added to the session
+   * @param objectKeys working memory keys used to store the object
+   * @return handle of the object
+   */
+  final synchronized HandleImpl add(Object object,String[] objectKeys) {
+    Slot[] s = own();
+    int slot;
+    if (freeCount>0)
+      slot = free[--freeCount];
+    else {
+      if (top==s.length)
+        s = grow(s);
+      slot = top++;
+    }
+    Slot entry = new Slot(object,objectKeys,generator.incrementAndGet());
+    s[slot] = entry;
+    slots = s;
+    return new HandleImpl(this,slot,entry.generation,object);
+  }
+
+
+  /**
+   * @param handle handle
+   * @return entry of the handle, null if the handle does not belong to this table (or to one of its forks)
+   *         or its object has been removed
+   */
+  private Slot find(HandleImpl handle) {
+    Slot[] s = slots;
+    int slot = handle.getSlot();
+    if (handle.getLineage()!=lineage || slot<0 || slot>=s.length)
+      return null;
+    Slot entry = s[slot];
+    return entry!=null && entry.generation==handle.getGeneration() ? entry : null;
+  }
+
+
+  /**
+   * @param handle handle
+   * @return <code>true</code> if the handle belongs to this table (or to one of its forks) and its object has not been removed
+   */
+  final boolean isValid(HandleImpl handle) {
+    return find(handle)!=null;
+  }
+
+
+  /**
+   * @param handle handle
+   * @return object of the handle, null if the handle is not valid
+   */
+  final Object get(HandleImpl handle) {
+    Slot entry = find(handle);
+    return entry==null ? null : entry.object;
+  }
+
+
+  /**
+   * @param handle valid handle
+   * @return working memory keys used to store the object of the handle, null if the handle is no longer valid
+   */
+  final String[] getKeys(HandleImpl handle) {
+    Slot entry = find(handle);
+    return entry==null ? null : entry.keys;
+  }
+
+
+  /**
+   * Replace the object of a valid handle, which remains valid.
+   * @param handle valid handle
+   * @param object new object
+   * @param objectKeys working memory keys used to store the new object
+   */
+  final synchronized void replace(HandleImpl handle,Object object,String[] objectKeys) {
+    Slot[] s = own();
+    s[handle.getSlot()] = new Slot(object,objectKeys,handle.getGeneration());
+    slots = s;
+    if (handle.getTable()==this)
+      handle.setObject(object);
+  }
+
+
+  /**
+   * Free the slot of a valid handle: the handle and its copies are no longer valid.
+   * @param handle valid handle
+   */
+  final synchronized void remove(HandleImpl handle) {
+    Slot[] s = own();
+    int slot = handle.getSlot();
+    s[slot] = null;
+    slots = s;
+    free[freeCount++] = slot;
+  }
+
+
+  /**
+   * Free all slots.
+   */
+  final synchronized void clear() {
+    if (shared) {
+      free = new int[INITIAL_CAPACITY];
+      shared = false;
+      slots = new Slot[INITIAL_CAPACITY];
+    }
+    else {
+      Slot[] s = slots;
+      Arrays.fill(s,0,top,null);
+      slots = s;
+    }
+    top = 0;
+    freeCount = 0;
+  }
+
+
+  /**
+   * @return handles of the objects stored in the table, in slot order
+   */
+  final List handles() {
+    Slot[] s = slots;
+    ArrayList list = new ArrayList();
+    for(int i=0;i<s.length;i++)
+      if (s[i]!=null)
+        list.add(new HandleImpl(this,i,s[i].generation,s[i].object));
+    return list;
+  }
+
+
+  /**
+   * Copy the arrays shared with a fork, before changing them.
+   * @return slot array to change and publish
+   */
+  private Slot[] own() {
+    if (!shared)
+      return slots;
+    free = free.clone();
+    shared = false;
+    return slots.clone();
+  }
+
+
+  /**
+   * Double the number of slots.
+   * @param s slot array to copy
+   * @return new slot array
+   */
+  private Slot[] grow(Slot[] s) {
+    free = Arrays.copyOf(free,s.length*2);
+    return Arrays.copyOf(s,s.length*2);
+  }
+
+
+  /**
+   * <p>Description: Immutable entry of a slot: readers see either the whole entry or none of it.</p>
+   */
+  private static final class Slot {
+
+    /** object stored in the slot */
+    final Object object;
+
+    /** working memory keys used to store the object */
+    final String[] keys;
+
+    /** generation of the object */
+    final int generation;
+
+
+    Slot(Object object,String[] keys,int generation) {
+      this.object = object;
+      this.keys = keys;
+      this.generation = generation;
+    }
+
+  }
+
+}
@@ -0,0 +1,254 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Working memory of a session that reads the reference facts of its rule execution set, when the
+ * session is configured with a working memory that is not persistent: the facts of the session are stored into that
+ * working memory, layered on the working memory of the reference facts, which is read but never copied nor changed.
+ * A fact of the session shadows the reference fact stored with the same key; when it is removed, the reference fact
+ * is visible again only if it is stored again (the session does so), otherwise the key is hidden.
+ * It can be accessed by the same threads as the working memory of the session.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class LayeredWorkingMemory implements WorkingMemory {
+
+  /** working memory of the reference facts, read without locking since it is never changed */
+  private final PersistentWorkingMemory base;
+
+  /** facts of the session */
+  private final WorkingMemory facts;
+
+  /** keys of the reference facts removed by the session and not stored again */
+  private final Set hidden = Collections.newSetFromMap(new ConcurrentHashMap());
+
+  /** Map view */
+  private Map view = null;
+
+
+  /**
+   * @param base working memory of the reference facts
+   * @param facts working memory that stores the facts of the session
+   */
+  LayeredWorkingMemory(PersistentWorkingMemory base,WorkingMemory facts) {
+    this.base = base;
+    this.facts = facts;
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return fact stored with the specified key, null if there is none
+   */
+  public final Object get(Object key) {
+    Object fact = facts.get(key);
+    if (fact!=null || !hidden.isEmpty() && hidden.contains(key))
+      return fact;
+    return base.get(key);
+  }
+
+
+  /**
+   * Store a fact; the reference fact of the key is not copied, it is visible again.
+   * @param key working memory key
+   * @param fact fact to store
+   * @return fact previously stored with the specified key, null if there was none
+   */
+  public final Object put(Object key,Object fact) {
+    if (key==null || fact==null)
+      throw new NullPointerException();
+    Object shared = base.get(key);
+    Object old = fact==shared ? facts.remove(key) : facts.put(key,fact);
+    if (old==null && shared!=null && !hidden.remove(key))
+      old = shared;
+    return old;
+  }
+
+
+  /**
+   * Remove a fact.
+   * @param key working memory key
+   * @return fact removed, null if there was none
+   */
+  public final Object remove(Object key) {
+    if (key==null)
+      return null;
+    Object old = facts.remove(key);
+    Object shared = base.get(key);
+    if (shared!=null && hidden.add(key) && old==null)
+      old = shared;
+    return old;
+  }
+
+
+  /**
+   * @param fact fact to search
+   * @return <code>true</code> if the working memory contains a fact equal to the specified one
+   */
+  public final boolean containsValue(Object fact) {
+    if (facts.containsValue(fact))
+      return true;
+    Iterator it = base.keys();
+    while(it.hasNext()) {
+      Object key = it.next();
+      if (!hidden.contains(key) && facts.get(key)==null && base.get(key).equals(fact))
+        return true;
+    }
+    return false;
+  }
+
+
+  /**
+   * @return number of working memory keys
+   */
+  public final int size() {
+    int size = base.size()-hidden.size();
+    Iterator it = facts.keys();
+    while(it.hasNext())
+      if (base.get(it.next())==null)
+        size++;
+    return size;
+  }
+
+
+  /**
+   * Remove the facts of the session; the reference facts are visible again.
+   */
+  public final void clear() {
+    facts.clear();
+    hidden.clear();
+  }
+
+
+  /**
+   * @return working memory keys: the keys of the reference facts first
+   */
+  public final Iterator keys() {
+    return new Keys();
+  }
+
+
+  /**
+   * @return facts, one for each working memory key
+   */
+  public final Iterator values() {
+    final Iterator keys = keys();
+    return new Iterator() {
+
+      public boolean hasNext() {
+        return keys.hasNext();
+      }
+
+      public Object next() {
+        return get(keys.next());
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+
+    };
+  }
+
+
+  /**
+   * @return view of the working memory as a Map
+   */
+  public final Map asMap() {
+    if (view==null)
+      view = new WorkingMemoryMap(this);
+    return view;
+  }
+
+
+  /**
+   * @return a persistent working memory with the same content, that shares the reference facts
+   */
+  final PersistentWorkingMemory fork() {
+    PersistentWorkingMemory fork = base.fork();
+    Iterator it = hidden.iterator();
+    while(it.hasNext())
+      fork.remove(it.next());
+    it = facts.keys();
+    while(it.hasNext()) {
+      Object key = it.next();
+      Object fact = facts.get(key);
+      if (fact!=null)
+        fork.put(key,fact);
+    }
+    return fork;
+  }
+
+
+  /**
+   * <p>Description: Iterator over the keys of the reference facts that are not shadowed nor hidden and then over
+   * the keys of the session; it does not support the remove operation.</p>
+   */
+  private final class Keys implements Iterator {
+
+    /** keys of the reference facts, then keys of the session */
+    private Iterator it = base.keys();
+
+    /** <code>true</code> while reading the keys of the session */
+    private boolean own = false;
+
+    /** next key to return, null if it has not been read yet */
+    private Object next = null;
+
+
+    public boolean hasNext() {
+      while(next==null) {
+        if (!it.hasNext()) {
+          if (own)
+            return false;
+          own = true;
+          it = facts.keys();
+          continue;
+        }
+        Object key = it.next();
+        if (own || !hidden.contains(key) && facts.get(key)==null)
+          next = key;
+      }
+      return true;
+    }
+
+
+    public Object next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      Object key = next;
+      next = null;
+      return key;
+    }
+
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
@@ -58,6 +58,7 @@ public class LocalJsonRuleExecutionSetProvider extends AbstractLocalRuleExecutio
     public static final String RULES = "rules";
     public static final String SYNONYMS = "synonyms";
     public static final String ENABLED = "enabled";
+    public static final String SALIENCE = "salience";
 
     public LocalJsonRuleExecutionSetProvider() {}
 
@@ -168,13 +169,17 @@ public class LocalJsonRuleExecutionSetProvider extends AbstractLocalRuleExecutio
                       enabled = el.getBoolean(ENABLED);
                     }
 
-                    rules.add(new RuleImpl(
+                    RuleImpl rule = new RuleImpl(
                             el.getString(NAME),
                             el.getString(DESCRIPTION),
                             assumptions,
                             actions,
                             enabled
-                    ));
+                    );
+                    if (el.has(SALIENCE)) {
+                        rule.setProperty(RuleImpl.SALIENCE, new Integer(el.getInt(SALIENCE)));
+                    }
+                    rules.add(rule);
                 }
             }
 
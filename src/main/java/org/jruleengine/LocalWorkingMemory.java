@@ -0,0 +1,266 @@
+package org.jruleengine;
+
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Working memory accessed by a single thread (the default one): an unsynchronized hash table
+ * with open addressing and linear probing, whose keys and facts are stored in a single array.
+ * Removed entries are not marked as deleted: the following entries of the same cluster are shifted back.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class LocalWorkingMemory implements WorkingMemory {
+
+  /** initial number of slots */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** keys and facts: the key of slot i is at index 2*i, the fact at index 2*i+1 */
+  private Object[] table = new Object[INITIAL_CAPACITY*2];
+
+  /** number of keys */
+  private int size = 0;
+
+  /** Map view */
+  private Map view = null;
+
+
+  /**
+   * @param key working memory key
+   * @return fact stored with the specified key, null if there is none
+   */
+  public final Object get(Object key) {
+    Object[] tab = table;
+    int mask = (tab.length >> 1)-1;
+    for(int i=hash(key) & mask;;i=(i+1) & mask) {
+      Object k = tab[i << 1];
+      if (k==null)
+        return null;
+      if (k==key || k.equals(key))
+        return tab[(i << 1)+1];
+    }
+  }
+
+
+  /**
+   * Store a fact.
+   * @param key working memory key
+   * @param fact fact to store
+   * @return fact previously stored with the specified key, null if there was none
+   */
+  public final Object put(Object key,Object fact) {
+    if (key==null || fact==null)
+      throw new NullPointerException();
+    int mask = (table.length >> 1)-1;
+    int i = hash(key) & mask;
+    for(;;i=(i+1) & mask) {
+      Object k = table[i << 1];
+      if (k==null)
+        break;
+      if (k==key || k.equals(key)) {
+        Object old = table[(i << 1)+1];
+        table[(i << 1)+1] = fact;
+        return old;
+      }
+    }
+    table[i << 1] = key;
+    table[(i << 1)+1] = fact;
+    if (++size*2>table.length >> 1)
+      resize();
+    return null;
+  }
+
+
+  /**
+   * Remove a fact.
+   * @param key working memory key
+   * @return fact removed, null if there was none
+   */
+  public final Object remove(Object key) {
+    if (key==null)
+      return null;
+    int mask = (table.length >> 1)-1;
+    int i = hash(key) & mask;
+    for(;;i=(i+1) & mask) {
+      Object k = table[i << 1];
+      if (k==null)
+        return null;
+      if (k==key || k.equals(key))
+        break;
+    }
+    Object old = table[(i << 1)+1];
+    size--;
+
+    // shift back the following entries of the cluster, that could not be reached anymore...
+    int free = i;
+    for(int j=(i+1) & mask;table[j << 1]!=null;j=(j+1) & mask) {
+      int home = hash(table[j << 1]) & mask;
+      if ((j-home & mask)>=(j-free & mask)) {
+        table[free << 1] = table[j << 1];
+        table[(free << 1)+1] = table[(j << 1)+1];
+        free = j;
+      }
+    }
+    table[free << 1] = null;
+    table[(free << 1)+1] = null;
+    return old;
+  }
+
+
+  /**
+   * @param fact fact to search
+   * @return <code>true</code> if the working memory contains a fact equal to the specified one
+   */
+  public final boolean containsValue(Object fact) {
+    if (fact==null)
+      throw new NullPointerException();
+    for(int i=1;i<table.length;i+=2)
+      if (table[i]!=null && table[i].equals(fact))
+        return true;
+    return false;
+  }
+
+
+  /**
+   * @return number of working memory keys
+   */
+  public final int size() {
+    return size;
+  }
+
+
+  /**
+   * Remove all facts.
+   */
+  public final void clear() {
+    if (size==0)
+      return;
+    Arrays.fill(table,null);
+    size = 0;
+  }
+
+
+  /**
+   * @return working memory keys
+   */
+  public final Iterator keys() {
+    return new Slots(0);
+  }
+
+
+  /**
+   * @return facts, one for each working memory key
+   */
+  public final Iterator values() {
+    return new Slots(1);
+  }
+
+
+  /**
+   * @return view of the working memory as a Map
+   */
+  public final Map asMap() {
+    if (view==null)
+      view = new WorkingMemoryMap(this);
+    return view;
+  }
+
+
+  /**
+   * Double the number of slots.
+   */
+  private void resize() {
+    Object[] old = table;
+    table = new Object[old.length*2];
+    int mask = (table.length >> 1)-1;
+    for(int j=0;j<old.length;j+=2)
+      if (old[j]!=null) {
+        int i = hash(old[j]) & mask;
+        while(table[i << 1]!=null)
+          i = (i+1) & mask;
+        table[i << 1] = old[j];
+        table[(i << 1)+1] = old[j+1];
+      }
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return hash code of the key, with the high bits spread to the low ones
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode()*0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+
+  /**
+   * <p>Description: Iterator over the keys or the facts; it does not support the remove operation.</p>
+   */
+  private final class Slots implements Iterator {
+
+    /** 0 to return keys, 1 to return facts */
+    private final int offset;
+
+    /** table iterated */
+    private final Object[] tab = table;
+
+    /** next slot to return */
+    private int next = -1;
+
+
+    Slots(int offset) {
+      this.offset = offset;
+      advance();
+    }
+
+
+    private void advance() {
+      do {
+        next++;
+      }
+      while(next<tab.length >> 1 && tab[next << 1]==null);
+    }
+
+
+    public boolean hasNext() {
+      return next<tab.length >> 1;
+    }
+
+
+    public Object next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      Object value = tab[(next << 1)+offset];
+      advance();
+      return value;
+    }
+
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
@@ -192,13 +192,17 @@ public class LocalXmlRuleExecutionSetProvider extends AbstractLocalRuleExecution
         if (el.hasAttribute("enabled")) {
           enabled = Boolean.parseBoolean(el.getAttribute("enabled"));
         }
-        rules.add(new RuleImpl(
+        RuleImpl rule = new RuleImpl(
             el.getAttribute("name"),
             el.getAttribute("description"),
             assumptions,
             actions,
             enabled
-        ));
+        );
+        if (el.hasAttribute(RuleImpl.SALIENCE)) {
+          rule.setProperty(RuleImpl.SALIENCE, new Integer(el.getAttribute(RuleImpl.SALIENCE).trim()));
+        }
+        rules.add(rule);
       }
 
       return createRuleExecutionSetFromRuleList(rules, properties);
@@ -0,0 +1,135 @@
+package org.jruleengine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Bounded lock-free queue, written by more threads and read by a single thread.
+ * Each cell of the ring buffer has a sequence number: a producer reserves a cell by advancing the tail with a
+ * compare-and-set and publishes the element by updating the sequence number of the cell, that the consumer
+ * checks before reading the element. A full queue rejects the element instead of blocking the producer.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class MpscQueue {
+
+  /** elements */
+  private final Object[] buffer;
+
+  /** sequence number of each cell: equals to the position to write when the cell is free,
+   *  to the position plus one when the cell contains an element */
+  private final AtomicLongArray sequences;
+
+  /** capacity - 1; the capacity is a power of two */
+  private final int mask;
+
+  /** next position to write */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** next position to read; written only by the consumer */
+  private volatile long head = 0;
+
+
+  /**
+   * @param capacity maximum number of elements, rounded up to a power of two
+   */
+  MpscQueue(int capacity) {
+    int size = 2;
+    while(size<capacity)
+      size <<= 1;
+    buffer = new Object[size];
+    sequences = new AtomicLongArray(size);
+    for(int i=0;i<size;i++)
+      sequences.set(i,i);
+    mask = size-1;
+  }
+
+
+  /**
+   * Add an element; it can be called by more threads.
+   * @param element element to add
+   * @return <code>false</code> if the queue is full
+   */
+  final boolean offer(Object element) {
+    for(;;) {
+      long t = tail.get();
+      int index = (int)t & mask;
+      long seq = sequences.get(index);
+      if (seq==t) {
+        if (tail.compareAndSet(t,t+1)) {
+          buffer[index] = element;
+          // a volatile write, so that it is not reordered with the following read of the consumer state...
+          sequences.set(index,t+1);
+          return true;
+        }
+      }
+      else if (seq<t)
+        // the cell has not been read yet: the queue is full...
+        return false;
+    }
+  }
+
+
+  /**
+   * Remove the first element; it must be called only by the consumer thread.
+   * @return first element, null if the queue is empty
+   */
+  final Object poll() {
+    long h = head;
+    int index = (int)h & mask;
+    if (sequences.get(index)!=h+1)
+      return null;
+    Object element = buffer[index];
+    buffer[index] = null;
+    sequences.lazySet(index,h+mask+1);
+    head = h+1;
+    return element;
+  }
+
+
+  /**
+   * @return <code>true</code> if the queue is empty; it must be called only by the consumer thread
+   */
+  final boolean isEmpty() {
+    return sequences.get((int)head & mask)!=head+1;
+  }
+
+
+  /**
+   * @return number of elements in the queue, approximated if the queue is being changed
+   */
+  final int size() {
+    long size = tail.get()-head;
+    return size<0 ? 0 : (int)Math.min(size,buffer.length);
+  }
+
+
+  /**
+   * @return maximum number of elements
+   */
+  final int capacity() {
+    return buffer.length;
+  }
+
+}
@@ -0,0 +1,480 @@
+package org.jruleengine;
+
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Working memory whose content can be forked in constant time: a persistent hash trie
+ * (32 branches for each level, selected by 5 bits of the key hash) whose nodes are never changed once created.
+ * A change copies only the nodes on the path from the root to the changed entry, so that a fork and the working
+ * memory it has been forked from share all the other nodes.
+ * A working memory is accessed by a single thread, but its forks can be used by other threads.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class PersistentWorkingMemory implements WorkingMemory {
+
+  /** bits of the key hash used by each level of the trie */
+  private static final int BITS = 5;
+
+  /** empty trie */
+  private static final Node EMPTY = new Node(0,new Object[0]);
+
+  /** root of the trie */
+  private Node root;
+
+  /** number of keys */
+  private int size;
+
+  /** Map view */
+  private Map view = null;
+
+  /** set by a change that adds a key */
+  private boolean added;
+
+  /** fact replaced or removed by the last change */
+  private Object previous;
+
+
+  public PersistentWorkingMemory() {
+    this(EMPTY,0);
+  }
+
+
+  private PersistentWorkingMemory(Node root,int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+
+  /**
+   * @return a working memory with the same content, that can be changed independently of this one
+   */
+  public final PersistentWorkingMemory fork() {
+    return new PersistentWorkingMemory(root,size);
+  }
+
+
+  /**
+   * Replace the content of this working memory with the content of another one, which is shared.
+   * @param memory working memory to copy
+   */
+  final void assign(PersistentWorkingMemory memory) {
+    root = memory.root;
+    size = memory.size;
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return fact stored with the specified key, null if there is none
+   */
+  public final Object get(Object key) {
+    if (key==null)
+      return null;
+    return root.find(key,hash(key),0);
+  }
+
+
+  /**
+   * Store a fact.
+   * @param key working memory key
+   * @param fact fact to store
+   * @return fact previously stored with the specified key, null if there was none
+   */
+  public final Object put(Object key,Object fact) {
+    if (key==null || fact==null)
+      throw new NullPointerException();
+    added = false;
+    previous = null;
+    root = root.put(this,key,fact,hash(key),0);
+    if (added)
+      size++;
+    Object old = previous;
+    previous = null;
+    return old;
+  }
+
+
+  /**
+   * Remove a fact.
+   * @param key working memory key
+   * @return fact removed, null if there was none
+   */
+  public final Object remove(Object key) {
+    if (key==null)
+      return null;
+    previous = null;
+    Node n = root.remove(this,key,hash(key),0);
+    root = n==null ? EMPTY : n;
+    Object old = previous;
+    previous = null;
+    if (old!=null)
+      size--;
+    return old;
+  }
+
+
+  /**
+   * @param fact fact to search
+   * @return <code>true</code> if the working memory contains a fact equal to the specified one
+   */
+  public final boolean containsValue(Object fact) {
+    if (fact==null)
+      throw new NullPointerException();
+    Iterator it = values();
+    while(it.hasNext())
+      if (it.next().equals(fact))
+        return true;
+    return false;
+  }
+
+
+  /**
+   * @return number of working memory keys
+   */
+  public final int size() {
+    return size;
+  }
+
+
+  /**
+   * Remove all facts; the forks are not affected.
+   */
+  public final void clear() {
+    root = EMPTY;
+    size = 0;
+  }
+
+
+  /**
+   * @return working memory keys
+   */
+  public final Iterator keys() {
+    return new Entries(root,0);
+  }
+
+
+  /**
+   * @return facts, one for each working memory key
+   */
+  public final Iterator values() {
+    return new Entries(root,1);
+  }
+
+
+  /**
+   * @return view of the working memory as a Map
+   */
+  public final Map asMap() {
+    if (view==null)
+      view = new WorkingMemoryMap(this);
+    return view;
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return hash code of the key, with the high bits spread to the low ones
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode()*0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+
+  /**
+   * @return a node that contains two entries whose keys have the same hash bits up to the specified level
+   */
+  private static Node pair(Object key1,int hash1,Object fact1,Object key2,int hash2,Object fact2,int shift) {
+    if (shift>=32)
+      // the whole hash is the same: the entries are stored in a collision node...
+      return new Collision(new Object[]{key1,fact1,key2,fact2});
+    int bit1 = (hash1 >>> shift) & 31;
+    int bit2 = (hash2 >>> shift) & 31;
+    if (bit1==bit2)
+      return new Node(1 << bit1,new Object[]{null,pair(key1,hash1,fact1,key2,hash2,fact2,shift+BITS)});
+    if (bit1<bit2)
+      return new Node((1 << bit1) | (1 << bit2),new Object[]{key1,fact1,key2,fact2});
+    return new Node((1 << bit1) | (1 << bit2),new Object[]{key2,fact2,key1,fact1});
+  }
+
+
+  /**
+   * <p>Description: Node of the trie: an entry for each bit set in the bitmap, stored as two array elements;
+   * an entry is a key and its fact, or null and a child node.</p>
+   */
+  private static class Node {
+
+    /** hash bits having an entry */
+    final int bitmap;
+
+    /** entries */
+    final Object[] array;
+
+
+    Node(int bitmap,Object[] array) {
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+
+    /**
+     * @return fact stored with the key, null if there is none
+     */
+    Object find(Object key,int hash,int shift) {
+      int bit = 1 << ((hash >>> shift) & 31);
+      if ((bitmap & bit)==0)
+        return null;
+      int i = Integer.bitCount(bitmap & (bit-1)) << 1;
+      Object k = array[i];
+      if (k==null)
+        return ((Node)array[i+1]).find(key,hash,shift+BITS);
+      return k==key || k.equals(key) ? array[i+1] : null;
+    }
+
+
+    /**
+     * @return node that contains the fact, this node if nothing has been changed
+     */
+    Node put(PersistentWorkingMemory memory,Object key,Object fact,int hash,int shift) {
+      int bit = 1 << ((hash >>> shift) & 31);
+      int i = Integer.bitCount(bitmap & (bit-1)) << 1;
+      if ((bitmap & bit)==0) {
+        Object[] a = new Object[array.length+2];
+        System.arraycopy(array,0,a,0,i);
+        a[i] = key;
+        a[i+1] = fact;
+        System.arraycopy(array,i,a,i+2,array.length-i);
+        memory.added = true;
+        return new Node(bitmap | bit,a);
+      }
+      Object k = array[i];
+      Object v = array[i+1];
+      if (k==null) {
+        Node child = ((Node)v).put(memory,key,fact,hash,shift+BITS);
+        return child==v ? this : with(i+1,child);
+      }
+      if (k==key || k.equals(key)) {
+        memory.previous = v;
+        return v==fact ? this : with(i+1,fact);
+      }
+      memory.added = true;
+      Node child = pair(k,hash(k),v,key,hash,fact,shift+BITS);
+      Object[] a = array.clone();
+      a[i] = null;
+      a[i+1] = child;
+      return new Node(bitmap,a);
+    }
+
+
+    /**
+     * @return node without the key, this node if nothing has been changed, null if the node is empty
+     */
+    Node remove(PersistentWorkingMemory memory,Object key,int hash,int shift) {
+      int bit = 1 << ((hash >>> shift) & 31);
+      if ((bitmap & bit)==0)
+        return this;
+      int i = Integer.bitCount(bitmap & (bit-1)) << 1;
+      Object k = array[i];
+      Object v = array[i+1];
+      if (k==null) {
+        Node child = ((Node)v).remove(memory,key,hash,shift+BITS);
+        if (child==v)
+          return this;
+        if (child==null)
+          return without(bit,i);
+        if (child.array.length==2 && child.array[0]!=null) {
+          // the child node contains a single fact: it is moved to this node...
+          Object[] a = array.clone();
+          a[i] = child.array[0];
+          a[i+1] = child.array[1];
+          return new Node(bitmap,a);
+        }
+        return with(i+1,child);
+      }
+      if (k!=key && !k.equals(key))
+        return this;
+      memory.previous = v;
+      return without(bit,i);
+    }
+
+
+    /**
+     * @return copy of this node, with an array element replaced
+     */
+    private Node with(int i,Object value) {
+      Object[] a = array.clone();
+      a[i] = value;
+      return new Node(bitmap,a);
+    }
+
+
+    /**
+     * @return copy of this node, without an entry; null if the node would be empty
+     */
+    private Node without(int bit,int i) {
+      if (bitmap==bit)
+        return null;
+      Object[] a = new Object[array.length-2];
+      System.arraycopy(array,0,a,0,i);
+      System.arraycopy(array,i+2,a,i,a.length-i);
+      return new Node(bitmap & ~bit,a);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Node of the entries whose keys have the same hash: keys and facts, searched sequentially.</p>
+   */
+  private static final class Collision extends Node {
+
+    Collision(Object[] array) {
+      super(0,array);
+    }
+
+
+    private int indexOf(Object key) {
+      for(int i=0;i<array.length;i+=2)
+        if (array[i]==key || array[i].equals(key))
+          return i;
+      return -1;
+    }
+
+
+    Object find(Object key,int hash,int shift) {
+      int i = indexOf(key);
+      return i==-1 ? null : array[i+1];
+    }
+
+
+    Node put(PersistentWorkingMemory memory,Object key,Object fact,int hash,int shift) {
+      int i = indexOf(key);
+      Object[] a;
+      if (i==-1) {
+        a = Arrays.copyOf(array,array.length+2);
+        a[array.length] = key;
+        a[array.length+1] = fact;
+        memory.added = true;
+      }
+      else {
+        memory.previous = array[i+1];
+        if (array[i+1]==fact)
+          return this;
+        a = array.clone();
+        a[i+1] = fact;
+      }
+      return new Collision(a);
+    }
+
+
+    Node remove(PersistentWorkingMemory memory,Object key,int hash,int shift) {
+      int i = indexOf(key);
+      if (i==-1)
+        return this;
+      memory.previous = array[i+1];
+      if (array.length==2)
+        return null;
+      Object[] a = new Object[array.length-2];
+      System.arraycopy(array,0,a,0,i);
+      System.arraycopy(array,i+2,a,i,a.length-i);
+      return new Collision(a);
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Iterator over the keys or the facts of a trie; it does not support the remove operation.</p>
+   */
+  private static final class Entries implements Iterator {
+
+    /** 0 to return keys, 1 to return facts */
+    private final int offset;
+
+    /** entries of the nodes being visited, from the root */
+    private final Object[][] arrays = new Object[8][];
+
+    /** next entry of each node being visited */
+    private final int[] positions = new int[8];
+
+    /** depth of the node being visited, -1 if the iteration is complete */
+    private int depth = 0;
+
+    /** array and position of the next entry to return */
+    private Object[] nextArray;
+    private int nextPosition;
+
+
+    Entries(Node root,int offset) {
+      this.offset = offset;
+      arrays[0] = root.array;
+      advance();
+    }
+
+
+    private void advance() {
+      while(depth>=0) {
+        Object[] a = arrays[depth];
+        int p = positions[depth];
+        if (p>=a.length) {
+          depth--;
+          continue;
+        }
+        positions[depth] = p+2;
+        if (a[p]==null) {
+          depth++;
+          arrays[depth] = ((Node)a[p+1]).array;
+          positions[depth] = 0;
+          continue;
+        }
+        nextArray = a;
+        nextPosition = p;
+        return;
+      }
+      nextArray = null;
+    }
+
+
+    public boolean hasNext() {
+      return nextArray!=null;
+    }
+
+
+    public Object next() {
+      if (nextArray==null)
+        throw new NoSuchElementException();
+      Object value = nextArray[nextPosition+offset];
+      advance();
+      return value;
+    }
+
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
@@ -0,0 +1,396 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.rules.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Reactive front end of a stateful session, used as a long running event processor.
+ * Producer threads insert, update and retract objects without locking: each change is put into a bounded
+ * lock-free queue and the call returns immediately, with a null handle or <code>false</code> when the queue is full,
+ * so that producers can slow down or retry. A single engine thread drains the queue in batches, coalesces
+ * the changes of the same handle within a batch (e.g. two updates are applied as the last one), applies them
+ * to the session and executes the rules; the session is accessed only by the engine thread, so it can use the
+ * default unsynchronized working memory. The handles returned to producers are bound to the handles of the
+ * session by the engine thread, so that producers never lock the session.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ReactiveRuleSession {
+
+  /** default number of changes applied before executing the rules */
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  /** change type: insert an object */
+  private static final int INSERT = 0;
+
+  /** change type: update an object */
+  private static final int UPDATE = 1;
+
+  /** change type: retract an object */
+  private static final int RETRACT = 2;
+
+  /** session, accessed only by the engine thread */
+  private final StatefulRuleSessionImpl session;
+
+  /** changes not yet applied */
+  private final MpscQueue queue;
+
+  /** maximum number of changes applied before executing the rules */
+  private final int batchSize;
+
+  /** listener notified by the engine thread; may be null */
+  private final Listener listener;
+
+  /** producers currently putting a change into the queue */
+  private final AtomicInteger producers = new AtomicInteger();
+
+  /** id of the next handle returned by insert() */
+  private final AtomicLong nextHandle = new AtomicLong();
+
+  /** handles returned by insert() -> handles of the session; accessed only by the engine thread */
+  private final HashMap handles = new HashMap();
+
+  /** engine thread */
+  private volatile Thread engine = null;
+
+  /** <code>true</code> when the engine thread is going to wait for changes */
+  private volatile boolean waiting = false;
+
+  /** <code>true</code> when the session does not accept changes anymore */
+  private volatile boolean closed = false;
+
+
+  /**
+   * @param session session fed by this reactive session; it must not be used directly until this session is closed
+   * @param capacity maximum number of changes not yet applied
+   * @param listener listener notified by the engine thread; may be null
+   */
+  public ReactiveRuleSession(StatefulRuleSessionImpl session,int capacity,Listener listener) {
+    this(session,capacity,DEFAULT_BATCH_SIZE,listener);
+  }
+
+
+  /**
+   * @param session session fed by this reactive session; it must not be used directly until this session is closed
+   * @param capacity maximum number of changes not yet applied
+   * @param batchSize maximum number of changes applied before executing the rules
+   * @param listener listener notified by the engine thread; may be null
+   */
+  public ReactiveRuleSession(StatefulRuleSessionImpl session,int capacity,int batchSize,Listener listener) {
+    if (capacity<1 || batchSize<1)
+      throw new IllegalArgumentException("Capacity and batch size must be positive");
+    this.session = session;
+    this.queue = new MpscQueue(capacity);
+    this.batchSize = batchSize;
+    this.listener = listener;
+  }
+
+
+  /**
+   * Start the engine thread.
+   */
+  public final synchronized void start() {
+    if (engine!=null)
+      throw new IllegalStateException("Reactive session already started");
+    Thread t = new Thread(new Runnable() {
+
+      public void run() {
+        process();
+      }
+
+    },"JRuleEngine reactive session");
+    t.setDaemon(true);
+    engine = t;
+    t.start();
+  }
+
+
+  /**
+   * Insert an object; it can be called by more threads.
+   * @param object object to insert
+   * @return handle of the object, null if the queue is full or the session is closed
+   */
+  public final Handle insert(Object object) {
+    ReactiveHandle handle = new ReactiveHandle(nextHandle.getAndIncrement());
+    return offer(new Change(INSERT,handle,object)) ? handle : null;
+  }
+
+
+  /**
+   * Update an object; it can be called by more threads.
+   * @param handle handle of the object
+   * @param object new object
+   * @return <code>false</code> if the queue is full or the session is closed
+   */
+  public final boolean update(Handle handle,Object object) {
+    return offer(new Change(UPDATE,reactiveHandle(handle),object));
+  }
+
+
+  /**
+   * Retract an object; it can be called by more threads.
+   * @param handle handle of the object
+   * @return <code>false</code> if the queue is full or the session is closed
+   */
+  public final boolean retract(Handle handle) {
+    return offer(new Change(RETRACT,reactiveHandle(handle),null));
+  }
+
+
+  /**
+   * @return number of changes not yet applied, approximated while producers are adding changes
+   */
+  public final int getPendingCount() {
+    return queue.size();
+  }
+
+
+  /**
+   * @return number of changes that can still be added before the queue is full, approximated
+   */
+  public final int getRemainingCapacity() {
+    return queue.capacity()-queue.size();
+  }
+
+
+  /**
+   * Stop accepting changes, wait for the engine thread to apply the pending ones and to execute the rules.
+   * @throws InterruptedException if the current thread is interrupted while waiting
+   */
+  public final void close() throws InterruptedException {
+    closed = true;
+    Thread t = engine;
+    if (t==null)
+      return;
+    LockSupport.unpark(t);
+    t.join();
+  }
+
+
+  /**
+   * @param handle handle returned by insert()
+   * @return handle, checked
+   */
+  private ReactiveHandle reactiveHandle(Handle handle) {
+    if (!(handle instanceof ReactiveHandle))
+      throw new IllegalArgumentException("Wrong driver");
+    return (ReactiveHandle)handle;
+  }
+
+
+  /**
+   * Put a change into the queue and wake up the engine thread if it is waiting.
+   * @param change change to add
+   * @return <code>false</code> if the queue is full or the session is closed
+   */
+  private boolean offer(Change change) {
+    producers.incrementAndGet();
+    try {
+      if (closed || !queue.offer(change))
+        return false;
+    }
+    finally {
+      producers.decrementAndGet();
+    }
+    if (waiting)
+      LockSupport.unpark(engine);
+    return true;
+  }
+
+
+  /**
+   * Engine thread: apply the changes in batches and execute the rules after each batch.
+   */
+  private void process() {
+    LinkedHashMap batch = new LinkedHashMap();
+    for(;;) {
+      Change change = (Change)queue.poll();
+      if (change==null) {
+        if (closed && producers.get()==0 && queue.isEmpty())
+          return;
+        waiting = true;
+        if (queue.isEmpty() && !closed)
+          LockSupport.park(this);
+        waiting = false;
+        continue;
+      }
+
+      // collect and coalesce a batch of changes...
+      int count = 0;
+      while(change!=null) {
+        coalesce(batch,change);
+        if (++count==batchSize)
+          break;
+        change = (Change)queue.poll();
+      }
+
+      // apply the changes and execute the rules...
+      Iterator it = batch.values().iterator();
+      while(it.hasNext())
+        apply((Change)it.next());
+      batch.clear();
+      try {
+        session.executeRules();
+        if (listener!=null)
+          listener.executed(session);
+      }
+      catch (Exception ex) {
+        failed(ex);
+      }
+    }
+  }
+
+
+  /**
+   * Add a change to a batch, merging it with the change of the same handle already in the batch.
+   * @param batch changes to apply: handle -> change
+   * @param change change to add
+   */
+  private void coalesce(LinkedHashMap batch,Change change) {
+    Change previous = (Change)batch.get(change.handle);
+    if (previous==null) {
+      batch.put(change.handle,change);
+      return;
+    }
+    if (previous.type==RETRACT) {
+      // the handle has already been retracted, as it would be reported if the changes were applied one by one...
+      failed(new InvalidHandleException("Invalid handle"));
+      return;
+    }
+    if (change.type==UPDATE)
+      // an insert or an update followed by an update: the last object is inserted or updated...
+      previous.object = change.object;
+    else if (change.type==RETRACT) {
+      if (previous.type==INSERT) {
+        // an object inserted and retracted in the same batch is not added at all...
+        batch.remove(change.handle);
+      }
+      else
+        batch.put(change.handle,change);
+    }
+  }
+
+
+  /**
+   * Apply a change to the session.
+   * @param change change to apply
+   */
+  private void apply(Change change) {
+    try {
+      if (change.type==INSERT) {
+        handles.put(change.handle,session.addObject(change.object));
+        return;
+      }
+      Handle handle = (Handle)(change.type==UPDATE ? handles.get(change.handle) : handles.remove(change.handle));
+      if (handle==null)
+        throw new InvalidHandleException("Invalid handle");
+      if (change.type==UPDATE)
+        session.updateObject(handle,change.object);
+      else
+        session.removeObject(handle);
+    }
+    catch (Exception ex) {
+      failed(ex);
+    }
+  }
+
+
+  /**
+   * @param ex error raised while applying a change or executing the rules
+   */
+  private void failed(Exception ex) {
+    if (listener!=null)
+      listener.failed(ex);
+  }
+
+
+  /**
+   * <p>Description: Listener notified by the engine thread of a reactive session.</p>
+   */
+  public interface Listener {
+
+    /**
+     * Called after the rules have been executed on a batch of changes.
+     * @param session session, that can be read until this method returns
+     */
+    public void executed(StatefulRuleSession session);
+
+
+    /**
+     * Called when a change cannot be applied or the rules execution fails.
+     * @param ex error
+     */
+    public void failed(Exception ex);
+
+  }
+
+
+  /**
+   * <p>Description: Handle returned to producers, bound to a handle of the session when the object is inserted.</p>
+   */
+  private static final class ReactiveHandle implements Handle {
+
+    /** handle id, unique within the reactive session */
+    private final long id;
+
+
+    ReactiveHandle(long id) {
+      this.id = id;
+    }
+
+
+    public int hashCode() {
+      return (int)(id ^ (id >>> 32));
+    }
+
+  }
+
+
+  /**
+   * <p>Description: A change to apply to the session.</p>
+   */
+  private static final class Change {
+
+    /** change type */
+    final int type;
+
+    /** handle of the object */
+    final ReactiveHandle handle;
+
+    /** object to insert or update */
+    Object object;
+
+
+    Change(int type,ReactiveHandle handle,Object object) {
+      this.type = type;
+      this.handle = handle;
+      this.object = object;
+    }
+
+  }
+
+}
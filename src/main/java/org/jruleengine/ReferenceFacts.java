@@ -0,0 +1,51 @@
+package org.jruleengine;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Reference facts of a rule execution set (catalogs, tables, ...), that do not change between rule
+ * executions: they are stored once into a persistent working memory and indexed, and each session reads them
+ * through a fork of that working memory (or layers its own working memory on it), so that they are neither copied
+ * nor indexed again for each session, nor when the session is reset.
+ * The reference facts are never changed once built and they are read by all the sessions without locking.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class ReferenceFacts {
+
+  /** working memory that contains the reference facts */
+  final PersistentWorkingMemory memory;
+
+  /** reverse index of the reference facts; null if the index is not enabled */
+  final ValueIndex index;
+
+  /** extents of the reference facts; null if the working memory holds a single fact for each type */
+  final FactExtents extents;
+
+
+  ReferenceFacts(PersistentWorkingMemory memory,ValueIndex index,FactExtents extents) {
+    this.memory = memory;
+    this.index = index;
+    this.extents = extents;
+  }
+
+}
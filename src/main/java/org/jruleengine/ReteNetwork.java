@@ -0,0 +1,1045 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import javax.rules.InvalidRuleSessionException;
+
+import org.jruleengine.rule.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Rete-like match network compiled from the rules of a rule execution set.
+ * Each distinct assumption is an alpha node, shared by all the rules that contain it;
+ * each rule is a beta node that joins its alpha nodes.
+ *
+ * The network is immutable and can be shared by all the sessions bound to the rule execution set:
+ * the state of the network (alpha and beta memories) is stored into a Memory instance, created for each rule execution.
+ * While an alpha node is evaluated, the memory records the working memory keys and the facts read by it,
+ * so that a change to the working memory re-evaluates only the alpha nodes (and the rules) that depend on it.
+ *
+ * Facts are supposed to change only through the rule actions: a fact changed by a getter or by an action
+ * executed on a different fact is not detected.
+ *
+ * The same network is used when rules are matched by the interpreter: in that case every working memory change
+ * invalidates all the alpha nodes, so that all the rules are re-analyzed after each rule firing.
+ *
+ * When many rules must be re-analyzed, their alpha nodes can be evaluated in parallel by tasks of the common
+ * fork-join pool, each one over a chunk of rules, while the working memory is not changed; the results are then
+ * recorded by the thread that executes the rules, which selects and fires the rules as in sequential mode.
+ * </p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+class ReteNetwork {
+
+  /** rule names, in conflict resolution order (declaration order or salience) */
+  private final String[] ruleNames;
+
+  /** actions of each rule, compiled into invokers */
+  private final ActionInvoker[][] ruleActions;
+
+  /** alpha nodes: distinct assumptions of all rules */
+  private final Assumption[] alphas;
+
+  /** alpha nodes compiled into specialized conditions; null for the alpha nodes that cannot be compiled */
+  private final Condition[] conditions;
+
+  /** alpha nodes of each rule, in declaration order */
+  private final int[][] ruleAlphas;
+
+  /** rules that contain each alpha node */
+  private final int[][] alphaRules;
+
+  /** rules whose actions reference each working memory key: key -> BitSet of rule ranks */
+  private final HashMap actionRules = new HashMap();
+
+  /** alpha nodes that reference each working memory key through their terms: key -> BitSet of alpha nodes */
+  private final HashMap keyAlphas = new HashMap();
+
+  /** alpha nodes whose reads do not depend only on the keys of their terms: "exists" assumptions and variables */
+  private final BitSet wildcardAlphas = new BitSet();
+
+  /** <code>true</code> to re-evaluate only the alpha nodes that have read a changed fact (Rete matcher),
+   *  <code>false</code> to re-evaluate the alpha nodes that reference a changed fact in their terms (interpreter) */
+  private final boolean tracking;
+
+  /** <code>true</code> to evaluate alpha nodes through the compiled conditions */
+  private final boolean compiled;
+
+  /** <code>true</code> if each rule can be fired at most once, <code>false</code> if a rule can be fired again
+   *  when a fact read by its assumptions changes */
+  private final boolean once;
+
+  /** <code>true</code> to fire the rule activated most recently, <code>false</code> to fire the rule with the lowest rank */
+  private final boolean recency;
+
+  /** <code>true</code> to compare numeric values as typed values */
+  private final boolean typed;
+
+  /** maximum number of rule firings in a rule execution, 0 for no limit */
+  private final int maxFirings;
+
+  /** <code>true</code> to evaluate again all the alpha nodes of the rules not fired yet after each rule firing */
+  private final boolean fullScan;
+
+  /** rules evaluated by each parallel task; 0 if alpha nodes are evaluated only by the thread that executes the rules */
+  private final int parallelChunk;
+
+  /** alpha node evaluated by the current thread in a parallel task, null if there is none */
+  private static final ThreadLocal EVALUATION = new ThreadLocal();
+
+  /** columns and conditions used to evaluate the alpha nodes over a batch of inputs; created when first used */
+  private volatile ColumnarBatch.Plan columnarPlan = null;
+
+  /** working memory keys referenced by the rules; null if a fact is stored with all the keys of its type */
+  private final Set referencedKeys;
+
+  /** working memory keys of each fact type, filtered by the keys referenced by the rules */
+  private final ClassValue typeKeys = new ClassValue() {
+
+    protected Object computeValue(Class type) {
+      String[] keys = (String[])HIERARCHY.get(type);
+      if (referencedKeys==null)
+        return keys;
+      // the class name is always stored, the other keys only if they are referenced...
+      ArrayList list = new ArrayList();
+      list.add(keys[0]);
+      for(int i=1;i<keys.length;i++)
+        if (referencedKeys.contains(keys[i]))
+          list.add(keys[i]);
+      return list.toArray(new String[list.size()]);
+    }
+
+  };
+
+  /** working memory keys of each fact type: the class name, the names of its superclasses and of all the interfaces it implements */
+  private static final ClassValue HIERARCHY = new ClassValue() {
+
+    protected Object computeValue(Class type) {
+      LinkedHashSet keys = new LinkedHashSet();
+      keys.add(type.getName());
+      if (!type.getName().startsWith("java.")) {
+        // superclasses...
+        for(Class c=type.getSuperclass();c!=null;c=c.getSuperclass())
+          keys.add(c.getName());
+        // interfaces implemented by the class and by its superclasses, and their super-interfaces...
+        LinkedList queue = new LinkedList();
+        for(Class c=type;c!=null;c=c.getSuperclass())
+          queue.addAll(Arrays.asList(c.getInterfaces()));
+        while(!queue.isEmpty()) {
+          Class i = (Class)queue.removeFirst();
+          if (keys.add(i.getName()))
+            queue.addAll(Arrays.asList(i.getInterfaces()));
+        }
+      }
+      return keys.toArray(new String[keys.size()]);
+    }
+
+  };
+
+
+  /**
+   * Compile the network from the rules and the engine properties of a rule execution set.
+   * Disabled rules are not included in the network.
+   * The network does not reference the rules, so that a change to them does not affect the sessions in progress.
+   * @param ruleSet rule execution set
+   */
+  ReteNetwork(RuleExecutionSetImpl ruleSet) {
+    tracking = ruleSet.isRete();
+    compiled = ruleSet.isCompiled();
+    once = ruleSet.isFiringOnce();
+    recency = ruleSet.isRecency();
+    typed = ruleSet.isTypedComparison();
+    parallelChunk = ruleSet.getParallelChunk();
+    maxFirings = ruleSet.getMaxFirings();
+    fullScan = ruleSet.isFullScan();
+    HashSet keys = ruleSet.isReferencedTypeKeys() ? new HashSet() : null;
+
+    List ruleList = ruleSet.getRules();
+    ArrayList enabledRules = new ArrayList();
+    for(int i=0;i<ruleList.size();i++)
+      if (((RuleImpl)ruleList.get(i)).isEnabled())
+        enabledRules.add(ruleList.get(i));
+    if (ruleSet.isSalience())
+      // stable sort: rules having the same salience are kept in declaration order...
+      Collections.sort(enabledRules,new Comparator() {
+
+        public int compare(Object o1, Object o2) {
+          int s1 = ((RuleImpl)o1).getSalience();
+          int s2 = ((RuleImpl)o2).getSalience();
+          return s1>s2 ? -1 : (s1<s2 ? 1 : 0);
+        }
+
+      });
+    RuleImpl[] rules = (RuleImpl[])enabledRules.toArray(new RuleImpl[enabledRules.size()]);
+    ruleNames = new String[rules.length];
+    ruleAlphas = new int[rules.length][];
+    ruleActions = new ActionInvoker[rules.length][];
+
+    HashMap nodes = new HashMap();
+    ArrayList alphaList = new ArrayList();
+    ArrayList alphaRuleList = new ArrayList();
+    for(int i=0;i<rules.length;i++) {
+      ruleNames[i] = rules[i].getName();
+      ArrayList actions = rules[i].getActions();
+      ruleActions[i] = new ActionInvoker[actions.size()];
+      HashSet actionKeys = new HashSet();
+      for(int j=0;j<actions.size();j++) {
+        ruleActions[i][j] = new ActionInvoker((Action)actions.get(j));
+        ruleActions[i][j].collectKeys(actionKeys);
+      }
+      if (keys!=null)
+        keys.addAll(actionKeys);
+      for(Iterator it=actionKeys.iterator();it.hasNext();) {
+        Object key = it.next();
+        BitSet bs = (BitSet)actionRules.get(key);
+        if (bs==null) {
+          bs = new BitSet();
+          actionRules.put(key,bs);
+        }
+        bs.set(i);
+      }
+
+      ArrayList assumptions = rules[i].getAssumptions();
+      ruleAlphas[i] = new int[assumptions.size()];
+      for(int j=0;j<assumptions.size();j++) {
+        Assumption ass = (Assumption)assumptions.get(j);
+        if (keys!=null) {
+          collectKeys(ass.getLeft(),keys);
+          collectKeys(ass.getRight(),keys);
+        }
+        String key = ass.getLeftTerm()+"\u0000"+ass.getOperator()+"\u0000"+ass.getRightTerm();
+        Integer node = (Integer)nodes.get(key);
+        if (node==null) {
+          node = new Integer(alphaList.size());
+          nodes.put(key,node);
+          alphaList.add(ass);
+          alphaRuleList.add(new BitSet());
+        }
+        ruleAlphas[i][j] = node.intValue();
+        ((BitSet)alphaRuleList.get(node.intValue())).set(i);
+      }
+    }
+
+    referencedKeys = keys;
+    alphas = (Assumption[])alphaList.toArray(new Assumption[alphaList.size()]);
+    conditions = new Condition[alphas.length];
+    alphaRules = new int[alphas.length][];
+    for(int i=0;i<alphas.length;i++) {
+      // dependency index: working memory keys referenced by the alpha node...
+      HashSet alphaKeys = new HashSet();
+      collectKeys(alphas[i].getLeft(),alphaKeys);
+      collectKeys(alphas[i].getRight(),alphaKeys);
+      for(Iterator it=alphaKeys.iterator();it.hasNext();) {
+        Object key = it.next();
+        BitSet bs = (BitSet)keyAlphas.get(key);
+        if (bs==null) {
+          bs = new BitSet(alphas.length);
+          keyAlphas.put(key,bs);
+        }
+        bs.set(i);
+      }
+      if (alphas[i].getOperatorType()==Operator.EXISTS ||
+          alphas[i].getLeftTerm()!=null && alphas[i].getLeftTerm().startsWith(":"))
+        wildcardAlphas.set(i);
+
+      conditions[i] = Condition.compile(alphas[i],typed);
+      BitSet bs = (BitSet)alphaRuleList.get(i);
+      alphaRules[i] = new int[bs.cardinality()];
+      int k = 0;
+      for(int r=bs.nextSetBit(0);r>=0;r=bs.nextSetBit(r+1))
+        alphaRules[i][k++] = r;
+    }
+  }
+
+
+  /**
+   * Add the working memory keys referenced by a term: the key of the fact and the literal value, used as a key by the "exists" operator.
+   * @param term term of an assumption; may be null
+   * @param keys referenced keys
+   */
+  private static void collectKeys(Term term,Set keys) {
+    if (term==null)
+      return;
+    keys.add(term.getKey());
+    keys.add(term.getLiteral());
+  }
+
+
+  /**
+   * @param type class of a fact
+   * @return working memory keys used to store a fact of the specified class: the class name and, unless the class
+   *         is a "java." class, the names of its superclasses and of its interfaces (only the referenced ones, if so configured)
+   */
+  final String[] getTypeKeys(Class type) {
+    return (String[])typeKeys.get(type);
+  }
+
+
+  /**
+   * @param type class of a fact
+   * @return all the working memory keys of the specified class: the class name and, unless the class is a "java." class,
+   *         the names of its superclasses and of its interfaces
+   */
+  static String[] getHierarchy(Class type) {
+    return (String[])HIERARCHY.get(type);
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return rules that reference the key through the terms of their assumptions or through their actions
+   */
+  final BitSet getKeyRules(Object key) {
+    BitSet rules = new BitSet(ruleNames.length);
+    BitSet acting = (BitSet)actionRules.get(key);
+    if (acting!=null)
+      rules.or(acting);
+    BitSet nodes = (BitSet)keyAlphas.get(key);
+    if (nodes!=null)
+      for(int a=nodes.nextSetBit(0);a>=0;a=nodes.nextSetBit(a+1))
+        for(int j=0;j<alphaRules[a].length;j++)
+          rules.set(alphaRules[a][j]);
+    return rules;
+  }
+
+
+  /**
+   * @return rules whose assumptions may read any working memory key: "exists" assumptions and variables
+   */
+  final BitSet getWildcardRules() {
+    BitSet rules = new BitSet(ruleNames.length);
+    for(int a=wildcardAlphas.nextSetBit(0);a>=0;a=wildcardAlphas.nextSetBit(a+1))
+      for(int j=0;j<alphaRules[a].length;j++)
+        rules.set(alphaRules[a][j]);
+    return rules;
+  }
+
+
+  /**
+   * @return rules count
+   */
+  final int getRuleCount() {
+    return ruleNames.length;
+  }
+
+
+  /**
+   * @return alpha nodes count
+   */
+  final int getAlphaCount() {
+    return alphas.length;
+  }
+
+
+  /**
+   * @param index rule rank
+   * @return rule name
+   */
+  final String getRuleName(int index) {
+    return ruleNames[index];
+  }
+
+
+  /**
+   * @param index alpha node index
+   * @return assumption of the alpha node
+   */
+  final Assumption getAlpha(int index) {
+    return alphas[index];
+  }
+
+
+  /**
+   * @param index alpha node index
+   * @return condition compiled from the alpha node, null if the alpha node cannot be evaluated only from the
+   *         values of its terms (it has not been compiled, it is an "exists" assumption or it binds a variable)
+   */
+  final Condition getCondition(int index) {
+    return wildcardAlphas.get(index) ? null : conditions[index];
+  }
+
+
+  /**
+   * @return columns and conditions used to evaluate the alpha nodes over a batch of inputs
+   */
+  final ColumnarBatch.Plan getColumnarPlan() {
+    ColumnarBatch.Plan plan = columnarPlan;
+    if (plan==null) {
+      // a plan created by more threads at the same time is equivalent...
+      plan = new ColumnarBatch.Plan(this);
+      columnarPlan = plan;
+    }
+    return plan;
+  }
+
+
+  /**
+   * @return <code>true</code> if numeric values are compared as typed values
+   */
+  final boolean isTypedComparison() {
+    return typed;
+  }
+
+
+  /**
+   * @param index rule rank
+   * @return actions of the rule, compiled into invokers
+   */
+  final ActionInvoker[] getActions(int index) {
+    return ruleActions[index];
+  }
+
+
+  /**
+   * @return a new, empty, state of the network
+   */
+  final Memory createMemory() {
+    return new Memory();
+  }
+
+
+  /**
+   * <p>Description: State of the network for a single rule execution.</p>
+   */
+  final class Memory {
+
+    /** alpha nodes whose result is up to date */
+    private BitSet alphaValid = new BitSet(alphas.length);
+
+    /** result of each alpha node */
+    private BitSet alphaValue = new BitSet(alphas.length);
+
+    /** variables bound by each alpha node */
+    private Hashtable[] alphaVariables = new Hashtable[alphas.length];
+
+    /** working memory keys read by each alpha node */
+    private ArrayList[] alphaKeys = new ArrayList[alphas.length];
+
+    /** facts read by each alpha node */
+    private ArrayList[] alphaFacts = new ArrayList[alphas.length];
+
+    /** rules that must be re-evaluated */
+    private BitSet ruleDirty = new BitSet(ruleNames.length);
+
+    /** rules already fired, that cannot be fired again */
+    private BitSet ruleFired = new BitSet(ruleNames.length);
+
+    /** rules whose assumptions are all verified */
+    private Agenda agenda;
+
+    /** alpha nodes that read each working memory key */
+    private HashMap keyIndex = new HashMap();
+
+    /** alpha nodes that read each fact */
+    private IdentityHashMap factIndex = new IdentityHashMap();
+
+    /** alpha nodes that read the whole working memory */
+    private BitSet wildcards = new BitSet(alphas.length);
+
+    /** alpha node currently evaluated */
+    private int current = -1;
+
+    /** rule whose actions are being executed, -1 if there is none */
+    private int firing = -1;
+
+    /** number of rules fired in the rule execution */
+    private int firings = 0;
+
+    /** batch of inputs whose alpha nodes have been set by preset(); null if there is none */
+    private ColumnarBatch batch = null;
+
+    /** row of the batch that contains the facts of the session */
+    private int batchRow = 0;
+
+    /** alpha nodes set by preset() and not evaluated since then: their reads are not recorded, they are found through the batch */
+    private BitSet presetAlphas = new BitSet(alphas.length);
+
+
+    private Memory() {
+      agenda = new Agenda(ruleNames.length,recency);
+      ruleDirty.set(0,ruleNames.length);
+    }
+
+
+    /**
+     * Empty the state, so that it can be used for another rule execution: arrays and lists are reused.
+     */
+    final void reset() {
+      alphaValid.clear();
+      alphaValue.clear();
+      Arrays.fill(alphaVariables,null);
+      for(int i=0;i<alphaKeys.length;i++)
+        if (alphaKeys[i]!=null) {
+          alphaKeys[i].clear();
+          alphaFacts[i].clear();
+        }
+      ruleFired.clear();
+      ruleDirty.set(0,ruleNames.length);
+      agenda.clear();
+      keyIndex.clear();
+      factIndex.clear();
+      wildcards.clear();
+      current = -1;
+      firing = -1;
+      firings = 0;
+      batch = null;
+      presetAlphas.clear();
+    }
+
+
+    /**
+     * @return network this state belongs to
+     */
+    final ReteNetwork getNetwork() {
+      return ReteNetwork.this;
+    }
+
+
+    /**
+     * Set the results of alpha nodes evaluated over the columns of a batch of inputs, before the rules are fired.
+     * Their working memory reads are not recorded: the batch knows the facts they have read.
+     * @param batch batch of inputs
+     * @param row row of the batch that contains the facts of the session
+     * @param nodes alpha nodes evaluated
+     * @param values alpha nodes verified
+     */
+    final void preset(ColumnarBatch batch,int row,BitSet nodes,BitSet values) {
+      this.batch = batch;
+      this.batchRow = row;
+      presetAlphas.or(nodes);
+      alphaValid.or(nodes);
+      alphaValue.andNot(nodes);
+      alphaValue.or(values);
+    }
+
+
+    /**
+     * @param key working memory key
+     * @param fact fact; may be null
+     * @return alpha nodes set by preset() that have read the key or the fact
+     */
+    private BitSet presetReaders(Object key,Object fact) {
+      if (batch==null || presetAlphas.isEmpty())
+        return null;
+      BitSet nodes = batch.readers(batchRow,key,fact);
+      nodes.and(presetAlphas);
+      return nodes;
+    }
+
+
+    /**
+     * Find the rule to fire, according to the conflict resolution strategy.
+     * All the rules not fired yet are re-evaluated after a rule firing, unless the "fullScan" property is "false":
+     * then only the rules affected by a working memory change are re-evaluated.
+     * @param session session that evaluates the assumptions
+     * @return rule rank, -1 if there is no rule to fire
+     */
+    final int nextActivation(StatefulRuleSessionImpl session) throws InvalidRuleSessionException {
+      if (fullScan && firing!=-1) {
+        // the actions of the fired rule may have changed facts without storing them again...
+        alphaValid.clear();
+        ruleDirty.set(0,ruleNames.length);
+        ruleDirty.andNot(ruleFired);
+      }
+      firing = -1;
+      if (parallelChunk>0)
+        evaluateParallel(session);
+      if (agenda.isDynamic()) {
+        // all the dirty rules must be re-evaluated before selecting the rule to fire...
+        agenda.nextCycle();
+        for(int i=ruleDirty.nextSetBit(0);i>=0;i=ruleDirty.nextSetBit(i+1))
+          evaluateRule(i,session);
+        return agenda.select();
+      }
+
+      // rules are analyzed by rank, until the first one that can be fired...
+      int i = nextCandidate(0);
+      while(i!=-1) {
+        if (ruleDirty.get(i))
+          evaluateRule(i,session);
+        if (agenda.contains(i))
+          return i;
+        i = nextCandidate(i+1);
+      }
+      return -1;
+    }
+
+
+    /**
+     * Remove a rule from the agenda because it is being fired: until the next rule is selected, the working memory
+     * changes are performed by its actions.
+     * @param index rule rank
+     * @return variables bound by the rule assumptions
+     */
+    final Hashtable fire(int index) throws InvalidRuleSessionException {
+      if (maxFirings>0 && ++firings>maxFirings)
+        throw new InvalidRuleSessionException("Too many rule firings: the limit is "+maxFirings);
+      firing = index;
+      agenda.remove(index);
+      ruleFired.set(index);
+      ruleDirty.clear(index);
+      Hashtable variables = new Hashtable();
+      for(int j=0;j<ruleAlphas[index].length;j++)
+        if (alphaVariables[ruleAlphas[index][j]]!=null)
+          variables.putAll(alphaVariables[ruleAlphas[index][j]]);
+      return variables;
+    }
+
+
+    /**
+     * Record a working memory read performed by the alpha node currently evaluated.
+     * @param key working memory key
+     * @param value fact read, null if the key is not defined
+     */
+    final void read(Object key,Object value) {
+      if (current==-1) {
+        Evaluation e = parallelChunk>0 ? (Evaluation)EVALUATION.get() : null;
+        if (e!=null && e.memory==this) {
+          e.keys.add(key);
+          if (value!=null)
+            e.facts.add(value);
+        }
+        return;
+      }
+      readKey(current,key);
+      if (value!=null)
+        readFact(current,value);
+    }
+
+
+    /**
+     * Record a read of the whole working memory performed by the alpha node currently evaluated.
+     */
+    final void readAll() {
+      if (current!=-1)
+        wildcards.set(current);
+      else {
+        Evaluation e = parallelChunk>0 ? (Evaluation)EVALUATION.get() : null;
+        if (e!=null && e.memory==this)
+          e.wildcard = true;
+      }
+    }
+
+
+    /**
+     * @param index alpha node index
+     * @param key working memory key read by the alpha node
+     */
+    private void readKey(int index,Object key) {
+      BitSet bs = (BitSet)keyIndex.get(key);
+      if (bs==null) {
+        bs = new BitSet(alphas.length);
+        keyIndex.put(key,bs);
+      }
+      bs.set(index);
+      alphaKeys[index].add(key);
+    }
+
+
+    /**
+     * @param index alpha node index
+     * @param fact fact read by the alpha node
+     */
+    private void readFact(int index,Object fact) {
+      BitSet bs = (BitSet)factIndex.get(fact);
+      if (bs==null) {
+        bs = new BitSet(alphas.length);
+        factIndex.put(fact,bs);
+      }
+      bs.set(index);
+      alphaFacts[index].add(fact);
+    }
+
+
+    /**
+     * Invalidate the alpha nodes that depend on a changed fact.
+     * @param key working memory key
+     * @param fact changed fact
+     */
+    final void changed(Object key,Object fact) {
+      affect(presetReaders(key,fact));
+      affect((BitSet)keyIndex.get(key));
+      if (fact!=null)
+        affect((BitSet)factIndex.get(fact));
+      affect(wildcards);
+      if (!tracking) {
+        // interpreter: the alpha nodes that reference the changed fact, through any key of its type, are re-evaluated,
+        // according to the dependency index built with the network...
+        invalidate((BitSet)keyAlphas.get(key));
+        if (fact!=null && !(fact instanceof String)) {
+          String[] keys = getTypeKeys(fact.getClass());
+          for(int i=0;i<keys.length;i++)
+            invalidate((BitSet)keyAlphas.get(keys[i]));
+        }
+        invalidate(wildcardAlphas);
+      }
+    }
+
+
+    /**
+     * Invalidate alpha nodes that may depend on a changed fact: the rules that contain them and that have not been
+     * fired must be re-evaluated.
+     * @param nodes alpha nodes to invalidate; may be null
+     */
+    private void invalidate(BitSet nodes) {
+      if (nodes==null)
+        return;
+      for(int a=nodes.nextSetBit(0);a>=0;a=nodes.nextSetBit(a+1)) {
+        alphaValid.clear(a);
+        for(int j=0;j<alphaRules[a].length;j++)
+          if (!ruleFired.get(alphaRules[a][j]))
+            ruleDirty.set(alphaRules[a][j]);
+      }
+    }
+
+
+    /**
+     * Bind a working memory key to another fact of its extent: the rules that read the key, through their
+     * assumptions or their actions, must be re-evaluated and can be fired again, also if each rule can be fired
+     * at most once, since they are matched against a different fact.
+     * @param key working memory key
+     * @param fact fact bound to the key
+     * @param allowed rules that can be fired again; the other rules have already been matched against the facts
+     *                they read, so the rules already fired are not fired again, also with refraction
+     */
+    final void rebind(Object key,Object fact,BitSet allowed) {
+      BitSet rules = new BitSet(ruleNames.length);
+      BitSet acting = (BitSet)actionRules.get(key);
+      if (acting!=null)
+        rules.or(acting);
+      addRules((BitSet)keyIndex.get(key),rules);
+      addRules(presetReaders(key,null),rules);
+      addRules(wildcards,rules);
+      rules.and(allowed);
+      BitSet kept = (BitSet)ruleFired.clone();
+      kept.andNot(allowed);
+      ruleFired.andNot(rules);
+      for(int r=rules.nextSetBit(0);r>=0;r=rules.nextSetBit(r+1)) {
+        agenda.remove(r);
+        ruleDirty.set(r);
+      }
+      changed(key,fact);
+      kept.andNot(ruleFired);
+      for(int r=kept.nextSetBit(0);r>=0;r=kept.nextSetBit(r+1)) {
+        ruleFired.set(r);
+        agenda.remove(r);
+        ruleDirty.clear(r);
+      }
+    }
+
+
+    /**
+     * @param nodes alpha nodes; may be null
+     * @param rules rules that contain the alpha nodes
+     */
+    private void addRules(BitSet nodes,BitSet rules) {
+      if (nodes==null)
+        return;
+      for(int a=nodes.nextSetBit(0);a>=0;a=nodes.nextSetBit(a+1))
+        for(int j=0;j<alphaRules[a].length;j++)
+          rules.set(alphaRules[a][j]);
+    }
+
+
+    /**
+     * @param from first rule rank to check
+     * @return first rule to check, starting from the specified rank, -1 if there are no more rules
+     */
+    private int nextCandidate(int from) {
+      int dirty = ruleDirty.nextSetBit(from);
+      int active = agenda.next(from);
+      if (dirty==-1)
+        return active;
+      if (active==-1)
+        return dirty;
+      return Math.min(dirty,active);
+    }
+
+
+    /**
+     * Evaluate the assumptions of a rule, re-evaluating only the alpha nodes not up to date,
+     * and add the rule to the agenda or remove it from the agenda.
+     * @param index rule rank
+     */
+    private void evaluateRule(int index,StatefulRuleSessionImpl session) throws InvalidRuleSessionException {
+      ruleDirty.clear(index);
+      boolean ok = true;
+      for(int j=0;j<ruleAlphas[index].length && ok;j++) {
+        int a = ruleAlphas[index][j];
+        if (!alphaValid.get(a))
+          evaluateAlpha(a,session);
+        ok = alphaValue.get(a);
+      }
+      if (ok)
+        agenda.add(index);
+      else
+        agenda.remove(index);
+    }
+
+
+    /**
+     * Evaluate an alpha node and record its working memory reads.
+     * @param index alpha node index
+     */
+    private void evaluateAlpha(int index,StatefulRuleSessionImpl session) throws InvalidRuleSessionException {
+      clearReads(index);
+      presetAlphas.clear(index);
+      Hashtable variables = new Hashtable();
+      current = index;
+      try {
+        if (compiled && conditions[index]!=null)
+          alphaValue.set(index,conditions[index].evaluate(session,variables));
+        else
+          alphaValue.set(index,session.evaluateAssumption(alphas[index],variables));
+      }
+      finally {
+        current = -1;
+      }
+      alphaVariables[index] = variables.isEmpty() ? null : variables;
+      alphaValid.set(index);
+    }
+
+
+    /**
+     * Evaluate in parallel the alpha nodes not up to date of the rules to re-evaluate, if these rules are more than
+     * a chunk: each task evaluates the alpha nodes of a chunk of rules, in rank order and up to the first one not
+     * verified, while the working memory is not changed. The results are then recorded in rank order, with the
+     * working memory reads of each alpha node, as if they were evaluated by the thread that executes the rules;
+     * the rules are then evaluated from the recorded alpha nodes and fired as in sequential mode.
+     * An alpha node whose evaluation fails is not recorded, so that it is evaluated again (and the error is
+     * reported) only when a rule that contains it is evaluated in sequential mode.
+     * @param session session whose working memory is read
+     */
+    private void evaluateParallel(StatefulRuleSessionImpl session) {
+      // rules that contain an alpha node not up to date, before the first one not verified...
+      int[] pending = new int[ruleDirty.cardinality()];
+      int count = 0;
+      for(int i=ruleDirty.nextSetBit(0);i>=0;i=ruleDirty.nextSetBit(i+1))
+        for(int j=0;j<ruleAlphas[i].length;j++) {
+          int a = ruleAlphas[i][j];
+          if (!alphaValid.get(a)) {
+            pending[count++] = i;
+            break;
+          }
+          if (!alphaValue.get(a))
+            break;
+        }
+      if (count<=parallelChunk)
+        return;
+
+      Chunk[] chunks = new Chunk[(count+parallelChunk-1)/parallelChunk];
+      for(int k=0;k<chunks.length;k++)
+        chunks[k] = new Chunk(session,pending,k*parallelChunk,Math.min(count,(k+1)*parallelChunk));
+      ForkJoinTask.invokeAll(chunks);
+
+      // an alpha node shared by more chunks is recorded once, from the first chunk...
+      for(int k=0;k<chunks.length;k++)
+        for(int i=0;i<chunks[k].results.size();i++) {
+          Evaluation e = (Evaluation)chunks[k].results.get(i);
+          if (alphaValid.get(e.index))
+            continue;
+          clearReads(e.index);
+          presetAlphas.clear(e.index);
+          for(int j=0;j<e.keys.size();j++)
+            readKey(e.index,e.keys.get(j));
+          for(int j=0;j<e.facts.size();j++)
+            readFact(e.index,e.facts.get(j));
+          if (e.wildcard)
+            wildcards.set(e.index);
+          alphaValue.set(e.index,e.value);
+          alphaVariables[e.index] = e.variables.isEmpty() ? null : e.variables;
+          alphaValid.set(e.index);
+        }
+    }
+
+
+    /**
+     * Remove the working memory reads previously recorded for an alpha node.
+     * @param index alpha node index
+     */
+    private void clearReads(int index) {
+      if (alphaKeys[index]==null) {
+        alphaKeys[index] = new ArrayList();
+        alphaFacts[index] = new ArrayList();
+        return;
+      }
+      for(int i=0;i<alphaKeys[index].size();i++)
+        ((BitSet)keyIndex.get(alphaKeys[index].get(i))).clear(index);
+      for(int i=0;i<alphaFacts[index].size();i++)
+        ((BitSet)factIndex.get(alphaFacts[index].get(i))).clear(index);
+      alphaKeys[index].clear();
+      alphaFacts[index].clear();
+      wildcards.clear(index);
+    }
+
+
+    /**
+     * Invalidate alpha nodes that read a changed fact: the rules that contain them are removed from the agenda
+     * and must be re-evaluated; if rules can be fired more than once, these rules can be fired again, except the
+     * rule whose actions have changed the fact (no-loop), which would be fired again by its own changes.
+     * @param nodes alpha nodes to invalidate
+     */
+    private void affect(BitSet nodes) {
+      if (nodes==null)
+        return;
+      for(int a=nodes.nextSetBit(0);a>=0;a=nodes.nextSetBit(a+1)) {
+        alphaValid.clear(a);
+        for(int j=0;j<alphaRules[a].length;j++) {
+          int r = alphaRules[a][j];
+          if (ruleFired.get(r)) {
+            if (once || r==firing)
+              continue;
+            ruleFired.clear(r);
+          }
+          agenda.remove(r);
+          ruleDirty.set(r);
+        }
+      }
+    }
+
+
+    /**
+     * <p>Description: Parallel task that evaluates the alpha nodes of a chunk of rules; it reads the state of the
+     * memory and the working memory, which are not changed until all the tasks are completed.</p>
+     */
+    private final class Chunk extends RecursiveAction {
+
+      /** session whose working memory is read */
+      private final StatefulRuleSessionImpl session;
+
+      /** ranks of the rules to evaluate */
+      private final int[] rules;
+
+      /** first rule of the chunk */
+      private final int from;
+
+      /** last rule of the chunk (excluded) */
+      private final int to;
+
+      /** alpha nodes evaluated, in evaluation order */
+      final ArrayList results = new ArrayList();
+
+      /** alpha nodes evaluated by this task */
+      private final BitSet evaluated = new BitSet(alphas.length);
+
+      /** alpha nodes evaluated by this task and verified */
+      private final BitSet verified = new BitSet(alphas.length);
+
+
+      Chunk(StatefulRuleSessionImpl session,int[] rules,int from,int to) {
+        this.session = session;
+        this.rules = rules;
+        this.from = from;
+        this.to = to;
+      }
+
+
+      protected void compute() {
+        for(int k=from;k<to;k++) {
+          int r = rules[k];
+          for(int j=0;j<ruleAlphas[r].length;j++) {
+            int a = ruleAlphas[r][j];
+            boolean ok;
+            if (alphaValid.get(a))
+              ok = alphaValue.get(a);
+            else if (evaluated.get(a))
+              ok = verified.get(a);
+            else
+              ok = evaluate(a);
+            if (!ok)
+              break;
+          }
+        }
+      }
+
+
+      /**
+       * @param index alpha node index
+       * @return <code>true</code> if the alpha node is verified, <code>false</code> if it is not verified or its evaluation fails
+       */
+      private boolean evaluate(int index) {
+        Evaluation e = new Evaluation(Memory.this,index);
+        evaluated.set(index);
+        EVALUATION.set(e);
+        try {
+          if (compiled && conditions[index]!=null)
+            e.value = conditions[index].evaluate(session,e.variables);
+          else
+            e.value = session.evaluateAssumption(alphas[index],e.variables);
+        }
+        catch (Throwable ex) {
+          // the alpha node is evaluated again by the thread that executes the rules...
+          return false;
+        }
+        finally {
+          EVALUATION.set(null);
+        }
+        results.add(e);
+        if (e.value)
+          verified.set(index);
+        return e.value;
+      }
+
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Result of an alpha node evaluated by a parallel task, with the working memory reads
+   * to record.</p>
+   */
+  private static final class Evaluation {
+
+    /** memory the alpha node is evaluated for */
+    final Memory memory;
+
+    /** alpha node index */
+    final int index;
+
+    /** result of the alpha node */
+    boolean value;
+
+    /** variables bound by the alpha node */
+    final Hashtable variables = new Hashtable();
+
+    /** working memory keys read by the alpha node */
+    final ArrayList keys = new ArrayList();
+
+    /** facts read by the alpha node */
+    final ArrayList facts = new ArrayList();
+
+    /** <code>true</code> if the alpha node has read the whole working memory */
+    boolean wildcard = false;
+
+
+    Evaluation(Memory memory,int index) {
+      this.memory = memory;
+      this.index = index;
+    }
+
+  }
+
+}
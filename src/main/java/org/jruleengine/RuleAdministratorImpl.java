@@ -71,7 +71,10 @@ public class RuleAdministratorImpl implements RuleAdministrator {
    * Register a rule execution set.
    * @param bindUri rule execution set name
    * @param set rule execution set
-   * @param properties not supported
+   * @param properties engine properties, as listed by RuleExecutionSetImpl.ENGINE_PROPERTIES: "matcher", "conflictResolution",
+   *                   "firing", "comparison", "valueIndex", "typeKeys", "workingMemory", "facts", "sessionPool",
+   *                   "asyncConcurrency", "batchEvaluation", "parallelEvaluation", "maxFirings" and "fullScan";
+   *                   they configure the rule engine
    */
   public final void registerRuleExecutionSet(String bindUri, RuleExecutionSet set, Map properties)
       throws RuleExecutionSetRegisterException, RemoteException {
@@ -79,7 +82,11 @@ public class RuleAdministratorImpl implements RuleAdministrator {
       throw new RuleExecutionSetRegisterException("Wrong driver");
     }
     else {
-        ((RuleExecutionSetImpl)set).setUri(bindUri);
+        RuleExecutionSetImpl res = (RuleExecutionSetImpl)set;
+        res.setUri(bindUri);
+        res.setEngineProperties(properties);
+        // compile the rules now, so that sessions don't pay for it...
+        res.compile();
         ruleExecutionSets.put(bindUri, set);
         return;
     }
@@ -94,8 +101,10 @@ public class RuleAdministratorImpl implements RuleAdministrator {
   public final void deregisterRuleExecutionSet(String bindUri, Map properties)
       throws RuleExecutionSetDeregistrationException, RemoteException {
     RuleExecutionSetImpl set = (RuleExecutionSetImpl)ruleExecutionSets.remove(bindUri);
-    if(set != null)
+    if(set != null) {
       set.setUri(null);
+      set.clearSessionPool();
+    }
   }
 
 
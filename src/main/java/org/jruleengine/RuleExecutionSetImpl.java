@@ -1,10 +1,16 @@
 package org.jruleengine;
 
 import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.rules.InvalidRuleSessionException;
 import javax.rules.ObjectFilter;
+import javax.rules.RuleSessionCreateException;
 import javax.rules.admin.RuleExecutionSet;
 
+import org.jruleengine.rule.RuleImpl;
+
 
 /**
  * <p>Title: JRuleEngine Project</p>
@@ -36,6 +42,151 @@ import javax.rules.admin.RuleExecutionSet;
  */
 public class RuleExecutionSetImpl extends Hashtable implements RuleExecutionSet {
 
+  /** property used to select the algorithm that matches rules against the working memory */
+  public static final String MATCHER = "matcher";
+
+  /** matcher property value: rules are re-analyzed from the first one after each rule firing (default) */
+  public static final String MATCHER_INTERPRETER = "interpreter";
+
+  /** matcher property value: rules are matched through a Rete network */
+  public static final String MATCHER_RETE = "rete";
+
+  /** matcher property value: rules are matched through a Rete network, whose assumptions are compiled into specialized conditions */
+  public static final String MATCHER_COMPILED = "compiled";
+
+  /** property used to select the rule to fire when more than one rule can be fired */
+  public static final String CONFLICT_RESOLUTION = "conflictResolution";
+
+  /** conflictResolution property value: rules are fired in declaration order (default) */
+  public static final String CONFLICT_RESOLUTION_ORDER = "order";
+
+  /** conflictResolution property value: rules having a higher salience are fired first, then rules are fired in declaration order */
+  public static final String CONFLICT_RESOLUTION_SALIENCE = "salience";
+
+  /** conflictResolution property value: the rule whose assumptions have been verified most recently is fired first */
+  public static final String CONFLICT_RESOLUTION_RECENCY = "recency";
+
+  /** property used to define how many times a rule can be fired during a rule execution */
+  public static final String FIRING = "firing";
+
+  /** firing property value: each rule is fired at most once (default) */
+  public static final String FIRING_ONCE = "once";
+
+  /**
+   * firing property value: a rule can be fired again when a fact read by its assumptions changes, unless the fact
+   * has been changed by the actions of the rule itself
+   */
+  public static final String FIRING_REFRACTION = "refraction";
+
+  /**
+   * property used to limit the rule firings: maximum number of rules fired by a rule execution (0 or undefined for
+   * no limit); when the limit is exceeded, the execution fails, e.g. because rules fire each other endlessly
+   */
+  public static final String MAX_FIRINGS = "maxFirings";
+
+  /**
+   * property used to evaluate again all the assumptions of the rules not fired yet after each rule firing ("true",
+   * default), as the interpreter always did. Set it to "false" to evaluate again only the assumptions that reference
+   * the facts changed by the fired rule, through an index from working memory keys to assumptions built when the rules
+   * are compiled. Restriction of the index: only the facts stored again in the working memory (the target of an
+   * action, an object added or updated) are matched again, so a change made by an action to an object other than its
+   * target, e.g. an object returned by a getter method or changed by a method of another object, is not detected
+   */
+  public static final String FULL_SCAN = "fullScan";
+
+  /** property used to define how the comparison operators compare numeric values */
+  public static final String COMPARISON = "comparison";
+
+  /** comparison property value: numeric values are compared as int, long, double or BigDecimal values (default) */
+  public static final String COMPARISON_TYPED = "typed";
+
+  /** comparison property value: values are compared as strings, and parsed as double values by the "<", "<=", ">", ">=" operators */
+  public static final String COMPARISON_STRING = "string";
+
+  /**
+   * property used to enable the reverse index of the working memory ("true"), used to bind variables without
+   * enumerating the working memory; when more than one fact matches, the variable can be bound to any of them.
+   * The index is not updated when the working memory is changed directly, through getWorkingMemory() or getWorkingMemoryMap()
+   */
+  public static final String VALUE_INDEX = "valueIndex";
+
+  /** property used to select the working memory keys used to store a fact, besides its class name */
+  public static final String TYPE_KEYS = "typeKeys";
+
+  /** typeKeys property value: a fact is stored also with the names of all its superclasses and interfaces (default) */
+  public static final String TYPE_KEYS_ALL = "all";
+
+  /** typeKeys property value: a fact is stored also with the names of its superclasses and interfaces referenced by the rules */
+  public static final String TYPE_KEYS_REFERENCED = "referenced";
+
+  /**
+   * property used to select the working memory implementation; it can be defined also as a property of the session,
+   * which takes precedence over the property of the rule execution set
+   */
+  public static final String WORKING_MEMORY = "workingMemory";
+
+  /** workingMemory property value: unsynchronized working memory, accessed by a single thread (default) */
+  public static final String WORKING_MEMORY_LOCAL = "local";
+
+  /** workingMemory property value: working memory that can be filled by more threads at the same time */
+  public static final String WORKING_MEMORY_CONCURRENT = "concurrent";
+
+  /** workingMemory property value: working memory whose content is shared by the forks of the session */
+  public static final String WORKING_MEMORY_PERSISTENT = "persistent";
+
+  /** property used to define how many facts of the same type the working memory can hold */
+  public static final String FACTS = "facts";
+
+  /** facts property value: a fact replaces the fact of the same type previously added (default) */
+  public static final String FACTS_SINGLE = "single";
+
+  /**
+   * facts property value: the facts of the same type are all kept, each one with its own fact id,
+   * and the rules that depend on a type are matched against each fact of that type; the rules that depend on
+   * more types are matched against each combination of their facts
+   */
+  public static final String FACTS_MULTIPLE = "multiple";
+
+  /**
+   * property used to pool the stateless sessions: maximum number of idle sessions kept by the pool (0 or undefined
+   * to disable the pool); a pooled session is reused when it is released, or when it is garbage collected without
+   * being released
+   */
+  public static final String SESSION_POOL = "sessionPool";
+
+  /**
+   * property used to limit the asynchronous executions (RuleRuntimeImpl.executeRulesAsync()): maximum number of
+   * executions in progress at the same time (0 or undefined for no limit); the other executions wait.
+   * When the JVM does not support virtual threads, it is also the number of threads of the pool that runs the
+   * executions (the number of processors, if undefined)
+   */
+  public static final String ASYNC_CONCURRENCY = "asyncConcurrency";
+
+  /** property used to define how a batch session (BatchRuleSession) evaluates the assumptions of its inputs */
+  public static final String BATCH_EVALUATION = "batchEvaluation";
+
+  /** batchEvaluation property value: the assumptions are evaluated by the session of each input (default) */
+  public static final String BATCH_EVALUATION_ROW = "row";
+
+  /**
+   * batchEvaluation property value: the getter values of each chunk of inputs are extracted into columns and
+   * each assumption is evaluated over a whole column; the inputs of a chunk must not share objects changed by the actions
+   */
+  public static final String BATCH_EVALUATION_COLUMNAR = "columnar";
+
+  /**
+   * property used to evaluate the assumptions of large rule sets in parallel: number of rules whose assumptions are
+   * evaluated by each task of the common fork-join pool (0 or undefined to evaluate them only by the thread that
+   * executes the rules); the rules are still selected and fired by that thread, in the same order
+   */
+  public static final String PARALLEL_EVALUATION = "parallelEvaluation";
+
+  /** properties that configure the rule engine */
+  static final String[] ENGINE_PROPERTIES = new String[]{MATCHER,CONFLICT_RESOLUTION,FIRING,COMPARISON,VALUE_INDEX,TYPE_KEYS,WORKING_MEMORY,FACTS,SESSION_POOL,ASYNC_CONCURRENCY,BATCH_EVALUATION,PARALLEL_EVALUATION,MAX_FIRINGS,FULL_SCAN};
+
+  /** filter used when no filter class is defined; it has no state */
+  private static final ObjectFilter DEFAULT_FILTER = new ObjectFilterImpl();
+
   /** rule execution set name */
   private String name;
 
@@ -49,11 +200,38 @@ public class RuleExecutionSetImpl extends Hashtable implements RuleExecutionSet
   private String filter;
 
   /** rules */
-  private ArrayList rules = new ArrayList();
+  private RuleList rules = new RuleList();
 
   /** user defined or vendor defined properties */
   private Hashtable props = new Hashtable();
 
+  /** network compiled from the rules; it is immutable and it is read without locking by all the sessions */
+  private transient volatile ReteNetwork reteNetwork = null;
+
+  /** changes of the rules list when the network was compiled */
+  private transient int compiledRules;
+
+  /** changes of the properties of the rules since the network was compiled */
+  private transient AtomicInteger propertyChanges;
+
+  /** filter class, loaded once */
+  private transient volatile Class filterClass = null;
+
+  /** pool of the stateless sessions; null if it has not been created yet */
+  private transient volatile SessionPool sessionPool = null;
+
+  /** reference facts, read by all the sessions; null if there are none */
+  private transient volatile List referenceObjects = null;
+
+  /** reference facts, stored and indexed; null if they have not been stored yet */
+  private transient volatile ReferenceFacts referenceFacts = null;
+
+  /** permits of the asynchronous executions; null if it has not been created yet */
+  private transient volatile Semaphore asyncLimit = null;
+
+  /** threads of the asynchronous executions, used when virtual threads are not supported; null if it has not been created yet */
+  private transient volatile ThreadPoolExecutor asyncPool = null;
+
 
   /**
    * Create the rule execution set.
@@ -107,6 +285,7 @@ public class RuleExecutionSetImpl extends Hashtable implements RuleExecutionSet
    */
   public final void setDefaultObjectFilter(String objectFilterClassname) {
     filter = objectFilterClassname;
+    filterClass = null;
   }
 
 
@@ -125,9 +304,13 @@ public class RuleExecutionSetImpl extends Hashtable implements RuleExecutionSet
   public final ObjectFilter resolveObjectFilter() throws InvalidRuleSessionException {
     try {
       if (filter == null) {
-        return new ObjectFilterImpl();
+        return DEFAULT_FILTER;
+      }
+      Class c = filterClass;
+      if (c==null) {
+        c = Class.forName(filter);
+        filterClass = c;
       }
-      Class c = Class.forName(filter);
       return (ObjectFilter)c.newInstance();
     }
     catch (Exception ex) {
@@ -137,7 +320,8 @@ public class RuleExecutionSetImpl extends Hashtable implements RuleExecutionSet
 
 
   /**
-   * @return rules of the rule execution set
+   * @return rules of the rule execution set; changes to the list and to the rule properties (e.g. "salience")
+   *         are applied to the sessions from their next rule execution
    */
   public final List getRules() {
     return rules;
@@ -160,6 +344,330 @@ public class RuleExecutionSetImpl extends Hashtable implements RuleExecutionSet
    */
   public final void setProperty(Object propName, Object propValue) {
     props.put(propName,propValue);
+    if (Arrays.asList(ENGINE_PROPERTIES).contains(propName)) {
+      // the network must be compiled again and the sessions must be created again, with the new engine properties...
+      reteNetwork = null;
+      sessionPool = null;
+      referenceFacts = null;
+      asyncLimit = null;
+      // the executions already submitted are completed by the old pool, whose idle threads are then stopped...
+      asyncPool = null;
+    }
+  }
+
+
+  /**
+   * Copy the properties that configure the rule engine.
+   * @param properties properties to copy; may be null
+   */
+  final void setEngineProperties(Map properties) {
+    if (properties==null)
+      return;
+    for(int i=0;i<ENGINE_PROPERTIES.length;i++)
+      if (properties.get(ENGINE_PROPERTIES[i])!=null)
+        setProperty(ENGINE_PROPERTIES[i],properties.get(ENGINE_PROPERTIES[i]));
+  }
+
+
+  /**
+   * @return <code>true</code> if rules are matched through a Rete network, <code>false</code> if they are matched by the interpreter
+   */
+  final boolean isRete() {
+    return MATCHER_RETE.equals(props.get(MATCHER)) || isCompiled();
+  }
+
+
+  /**
+   * @return <code>true</code> if assumptions are evaluated through the conditions compiled in the Rete network
+   */
+  final boolean isCompiled() {
+    return MATCHER_COMPILED.equals(props.get(MATCHER));
+  }
+
+
+  /**
+   * @return <code>true</code> if each rule can be fired at most once during a rule execution
+   */
+  final boolean isFiringOnce() {
+    return !FIRING_REFRACTION.equals(props.get(FIRING));
+  }
+
+
+  /**
+   * @return <code>true</code> if numeric values are compared as typed values, <code>false</code> if they are compared as strings
+   */
+  final boolean isTypedComparison() {
+    return !COMPARISON_STRING.equals(props.get(COMPARISON));
+  }
+
+
+  /**
+   * @return <code>true</code> if sessions maintain a reverse index of the working memory to bind variables
+   */
+  final boolean isValueIndexed() {
+    return "true".equals(String.valueOf(props.get(VALUE_INDEX)));
+  }
+
+
+  /**
+   * @return <code>true</code> if all the assumptions of the rules not fired yet are evaluated again after each rule firing,
+   *         <code>false</code> if only the assumptions that reference the changed facts are evaluated again
+   */
+  final boolean isFullScan() {
+    return !"false".equals(String.valueOf(props.get(FULL_SCAN)));
+  }
+
+
+  /**
+   * @return <code>true</code> if the working memory holds more facts of the same type
+   */
+  final boolean isMultipleFacts() {
+    return FACTS_MULTIPLE.equals(props.get(FACTS));
+  }
+
+
+  /**
+   * @return <code>true</code> if a batch session evaluates the assumptions over the columns of its inputs
+   */
+  final boolean isColumnarBatch() {
+    return BATCH_EVALUATION_COLUMNAR.equals(props.get(BATCH_EVALUATION));
+  }
+
+
+  /**
+   * @return maximum number of rules fired by a rule execution, 0 for no limit
+   */
+  final int getMaxFirings() {
+    Object size = props.get(MAX_FIRINGS);
+    if (size==null)
+      return 0;
+    return Math.max(0,Integer.parseInt(size.toString()));
+  }
+
+
+  /**
+   * @return number of rules whose assumptions are evaluated by each parallel task, 0 if they are not evaluated in parallel
+   */
+  final int getParallelChunk() {
+    Object size = props.get(PARALLEL_EVALUATION);
+    if (size==null)
+      return 0;
+    return Math.max(0,Integer.parseInt(size.toString()));
+  }
+
+
+  /**
+   * @return <code>true</code> if a fact is stored only with the superclass and interface names referenced by the rules
+   */
+  final boolean isReferencedTypeKeys() {
+    return TYPE_KEYS_REFERENCED.equals(props.get(TYPE_KEYS));
+  }
+
+
+  /**
+   * @param properties properties of the session; may be null
+   * @return working memory of a new session: "local", "concurrent" or an instance of the specified class
+   */
+  final WorkingMemory createWorkingMemory(Map properties) throws RuleSessionCreateException {
+    Object type = properties==null ? null : properties.get(WORKING_MEMORY);
+    if (type==null)
+      type = props.get(WORKING_MEMORY);
+    if (type==null && referenceObjects!=null)
+      // the working memory is a fork of the one that contains the reference facts...
+      return new PersistentWorkingMemory();
+    if (type==null || WORKING_MEMORY_LOCAL.equals(type))
+      return new LocalWorkingMemory();
+    if (WORKING_MEMORY_CONCURRENT.equals(type))
+      return new ConcurrentWorkingMemory();
+    if (WORKING_MEMORY_PERSISTENT.equals(type))
+      return new PersistentWorkingMemory();
+    try {
+      Class c = Class.forName(type.toString());
+      return (WorkingMemory)c.newInstance();
+    }
+    catch (Exception ex) {
+      throw new RuleSessionCreateException("Bad working memory", ex);
+    }
+  }
+
+
+  /**
+   * @return <code>true</code> if rules having a higher salience are fired first
+   */
+  final boolean isSalience() {
+    return CONFLICT_RESOLUTION_SALIENCE.equals(props.get(CONFLICT_RESOLUTION));
+  }
+
+
+  /**
+   * @return <code>true</code> if the rule activated most recently is fired first
+   */
+  final boolean isRecency() {
+    return CONFLICT_RESOLUTION_RECENCY.equals(props.get(CONFLICT_RESOLUTION));
+  }
+
+
+  /**
+   * Compile the rules into a network, used to match rules both by the Rete matcher and by the interpreter.
+   * The network is immutable and it is shared by all the sessions, also by concurrent ones, until the rules
+   * are compiled again: the state of a rule execution (e.g. the variables bound by an activation) is stored in the session.
+   */
+  final synchronized void compile() {
+    compiledRules = rules.changes();
+    // each rule counts the changes of its properties in a counter of this rule execution set only...
+    AtomicInteger changes = new AtomicInteger();
+    for(int i=0;i<rules.size();i++)
+      ((RuleImpl)rules.get(i)).addChangeCounter(changes);
+    propertyChanges = changes;
+    reteNetwork = new ReteNetwork(this);
+  }
+
+
+  /**
+   * @return pool of the stateless sessions, null if sessions are not pooled
+   */
+  public final SessionPool getSessionPool() {
+    SessionPool pool = sessionPool;
+    if (pool!=null)
+      return pool;
+    Object size = props.get(SESSION_POOL);
+    if (size==null || Integer.parseInt(size.toString())<=0)
+      return null;
+    synchronized(this) {
+      if (sessionPool==null)
+        sessionPool = new SessionPool(this,Integer.parseInt(size.toString()));
+      return sessionPool;
+    }
+  }
+
+
+  /**
+   * Method not included into JSR specifications: define the reference facts, i.e. the objects that do not change
+   * between rule executions (catalogs, tables, ...): they are stored and indexed once and all the sessions created
+   * from now on read them, as if they were added to the session before any other object.
+   * A session stores its own objects on top of the reference facts, without changing them; getObjects() returns
+   * only the objects of the session; when an object of the session that replaced a reference fact is removed, the
+   * reference fact is visible again. The reference facts are read through a fork of a persistent working memory;
+   * if the "workingMemory" property selects another working memory, the objects of the session are stored into it,
+   * layered on the reference facts, which are never copied.
+   * @param objects reference facts; null to remove them
+   */
+  public final void setReferenceFacts(List objects) {
+    synchronized(this) {
+      referenceObjects = objects==null ? null : new ArrayList(objects);
+      referenceFacts = null;
+      sessionPool = null;
+    }
+  }
+
+
+  /**
+   * @return reference facts, stored and indexed if they have not been stored yet; null if there are none
+   */
+  final ReferenceFacts getReferenceFacts() throws RuleSessionCreateException {
+    ReferenceFacts facts = referenceFacts;
+    if (facts!=null)
+      return facts;
+    synchronized(this) {
+      if (referenceObjects==null)
+        return null;
+      if (referenceFacts==null)
+        referenceFacts = StatefulRuleSessionImpl.createReferenceFacts(this,referenceObjects);
+      return referenceFacts;
+    }
+  }
+
+
+  /**
+   * @return permits of the asynchronous executions, null if they are not limited
+   */
+  final Semaphore getAsyncLimit() {
+    Semaphore limit = asyncLimit;
+    if (limit!=null)
+      return limit;
+    Object size = props.get(ASYNC_CONCURRENCY);
+    if (size==null || Integer.parseInt(size.toString())<=0)
+      return null;
+    synchronized(this) {
+      if (asyncLimit==null)
+        asyncLimit = new Semaphore(Integer.parseInt(size.toString()));
+      return asyncLimit;
+    }
+  }
+
+
+  /**
+   * @return pool of the threads of the asynchronous executions, used when virtual threads are not supported:
+   *         its size is given by the "asyncConcurrency" property or by the number of processors
+   */
+  final ThreadPoolExecutor getAsyncPool() {
+    ThreadPoolExecutor pool = asyncPool;
+    if (pool!=null)
+      return pool;
+    synchronized(this) {
+      if (asyncPool==null) {
+        Object size = props.get(ASYNC_CONCURRENCY);
+        int threads = size==null ? 0 : Integer.parseInt(size.toString());
+        asyncPool = AsyncRuleExecutor.createPool(threads>0 ? threads : Runtime.getRuntime().availableProcessors());
+      }
+      return asyncPool;
+    }
+  }
+
+
+  /**
+   * Discard the pool of the stateless sessions; sessions in use are not reused anymore when they are released.
+   */
+  final void clearSessionPool() {
+    sessionPool = null;
+  }
+
+
+  /**
+   * @return network compiled from the rules; rules are compiled if they have not been compiled yet
+   */
+  final ReteNetwork getReteNetwork() {
+    ReteNetwork network = reteNetwork;
+    if (network!=null && (rules.changes()!=compiledRules || propertyChanges.get()!=0))
+      synchronized(this) {
+        if (reteNetwork==network) {
+          // the rules have changed since they were compiled: the reference facts are stored again with the new network...
+          reteNetwork = null;
+          sessionPool = null;
+          referenceFacts = null;
+        }
+        network = reteNetwork;
+      }
+    if (network==null)
+      synchronized(this) {
+        network = reteNetwork;
+        if (network==null) {
+          compile();
+          network = reteNetwork;
+        }
+      }
+    return network;
+  }
+
+
+  /**
+   * <p>Description: Rules of a rule execution set; it counts the changes of the list, so that the network compiled
+   * from the rules can be detected as out of date.</p>
+   */
+  private static final class RuleList extends ArrayList {
+
+    public final Object set(int index,Object element) {
+      modCount++;
+      return super.set(index,element);
+    }
+
+    /**
+     * @return number of changes of the list
+     */
+    final int changes() {
+      return modCount;
+    }
+
   }
 
 }
\ No newline at end of file
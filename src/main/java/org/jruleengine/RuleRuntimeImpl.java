@@ -3,6 +3,10 @@ package org.jruleengine;
 import java.rmi.RemoteException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import javax.rules.*;
 
 
@@ -46,15 +50,74 @@ public class RuleRuntimeImpl  implements RuleRuntime {
           throw new RuleExecutionSetNotFoundException(uri);
       switch(ruleSessionType) {
         case RuleRuntime.STATELESS_SESSION_TYPE:
-          return new StatelessRuleSessionImpl(res, properties);
+          SessionPool pool = res.getSessionPool();
+          if (pool != null && (properties == null || properties.get(RuleExecutionSetImpl.WORKING_MEMORY) == null))
+            return pool.borrow();
+          return StatelessRuleSessionImpl.create(res, properties);
         case RuleRuntime.STATEFUL_SESSION_TYPE:
-          return new StatefulRuleSessionImpl(res, properties);
+          return StatefulRuleSessionImpl.create(res, properties);
       }
       String message = String.valueOf(ruleSessionType);
       throw new RuleSessionTypeUnsupportedException(message);
     }
 
 
+    /**
+     * Method not included into JSR specifications: create a session that executes the rules over a batch of
+     * independent inputs, evaluated in parallel by the specified executor.
+     * @param uri URI of the rule execution set
+     * @param properties properties of the sessions; may be null
+     * @param executor executor of the workers; null to use the common fork-join pool
+     * @param parallelism maximum number of workers
+     */
+    public BatchRuleSession createBatchRuleSession(String uri, Map properties, Executor executor, int parallelism)
+        throws RuleExecutionSetNotFoundException {
+      RuleExecutionSetImpl res = RuleAdministratorImpl.lookup(uri);
+      if(res == null)
+          throw new RuleExecutionSetNotFoundException(uri);
+      if(executor == null)
+          return new BatchRuleSession(res, properties, ForkJoinPool.commonPool(), parallelism);
+      return new BatchRuleSession(res, properties, executor, parallelism);
+    }
+
+
+    /**
+     * Method not included into JSR specifications: execute the rules asynchronously over a list of objects,
+     * as a stateless session would do, without timeout: see executeRulesAsync(String, List, long, TimeUnit).
+     * @param uri URI of the rule execution set
+     * @param objects objects
+     * @return future completed with the objects of the session, or with the exception thrown by the execution
+     */
+    public CompletableFuture executeRulesAsync(String uri, List objects)
+        throws RuleExecutionSetNotFoundException {
+      return executeRulesAsync(uri, objects, 0, TimeUnit.NANOSECONDS);
+    }
+
+
+    /**
+     * Method not included into JSR specifications: execute the rules asynchronously over a list of objects,
+     * as a stateless session would do; the execution runs on a virtual thread, if supported by the JVM, otherwise
+     * on a bounded pool of the rule execution set, sized by its "asyncConcurrency" property.
+     * Cancelling the future, or the expiration of the timeout, stops the execution before the next rule is fired,
+     * or at once if it is still waiting for the "asyncConcurrency" limit; cancel(true) interrupts also the thread
+     * that executes the rules.
+     * @param uri URI of the rule execution set
+     * @param objects objects
+     * @param timeout maximum duration of the execution, including the time spent waiting for the
+     *        "asyncConcurrency" limit of the rule execution set; 0 for no timeout
+     * @param unit unit of the timeout
+     * @return future completed with the objects of the session, with a TimeoutException if the timeout expires,
+     *         or with the exception thrown by the execution
+     */
+    public CompletableFuture executeRulesAsync(String uri, List objects, long timeout, TimeUnit unit)
+        throws RuleExecutionSetNotFoundException {
+      RuleExecutionSetImpl res = RuleAdministratorImpl.lookup(uri);
+      if(res == null)
+          throw new RuleExecutionSetNotFoundException(uri);
+      return AsyncRuleExecutor.execute(res, objects, unit.toNanos(timeout));
+    }
+
+
     public List getRegistrations()
         throws RemoteException
     {
@@ -0,0 +1,171 @@
+package org.jruleengine;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.rules.InvalidRuleSessionException;
+import javax.rules.RuleSessionCreateException;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Pool of the stateless sessions of a rule execution set, enabled through the "sessionPool"
+ * property of the rule execution set (the maximum number of idle sessions).
+ * A session created by the rule runtime is borrowed from the pool and it is returned to the pool when it is
+ * released: its working memory, its handles and the state of the network are emptied and reused.
+ * A session that is garbage collected without being released is a leak: it is counted and its state is
+ * reused too. The pool is thread-safe.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class SessionPool {
+
+  /** rules */
+  private final RuleExecutionSetImpl ruleSet;
+
+  /** idle sessions */
+  private final ArrayBlockingQueue idle;
+
+  /** sessions in use */
+  private final Set leases = Collections.newSetFromMap(new ConcurrentHashMap());
+
+  /** sessions garbage collected without being released */
+  private final ReferenceQueue collected = new ReferenceQueue();
+
+  /** number of sessions garbage collected without being released */
+  private final AtomicInteger leaked = new AtomicInteger();
+
+
+  /**
+   * @param ruleSet rules
+   * @param maxIdle maximum number of idle sessions
+   */
+  SessionPool(RuleExecutionSetImpl ruleSet,int maxIdle) {
+    this.ruleSet = ruleSet;
+    this.idle = new ArrayBlockingQueue(maxIdle);
+  }
+
+
+  /**
+   * @return a stateless session, that uses an idle session of the pool or a new one if there is none
+   */
+  final StatelessRuleSessionImpl borrow() throws RuleSessionCreateException {
+    expunge();
+    StatefulRuleSessionImpl session = (StatefulRuleSessionImpl)idle.poll();
+    if (session==null)
+      session = StatefulRuleSessionImpl.create(ruleSet,null);
+    StatelessRuleSessionImpl facade = new StatelessRuleSessionImpl(ruleSet,session);
+    Lease lease = new Lease(facade,session,collected);
+    leases.add(lease);
+    facade.setLease(this,lease);
+    return facade;
+  }
+
+
+  /**
+   * Return a session to the pool.
+   * @param lease session in use
+   */
+  final void release(Lease lease) {
+    if (!leases.remove(lease))
+      return;
+    lease.clear();
+    recycle(lease.session);
+  }
+
+
+  /**
+   * @return number of idle sessions
+   */
+  public final int getIdleCount() {
+    return idle.size();
+  }
+
+
+  /**
+   * @return number of sessions in use
+   */
+  public final int getActiveCount() {
+    expunge();
+    return leases.size();
+  }
+
+
+  /**
+   * @return number of sessions garbage collected without being released
+   */
+  public final int getLeakedCount() {
+    expunge();
+    return leaked.get();
+  }
+
+
+  /**
+   * Reclaim the sessions garbage collected without being released.
+   */
+  private void expunge() {
+    Lease lease;
+    while((lease = (Lease)collected.poll())!=null)
+      if (leases.remove(lease)) {
+        leaked.incrementAndGet();
+        recycle(lease.session);
+      }
+  }
+
+
+  /**
+   * Empty a session and add it to the idle sessions; the session is discarded if the pool is full.
+   * @param session session no more in use
+   */
+  private void recycle(StatefulRuleSessionImpl session) {
+    try {
+      session.reset();
+    }
+    catch (InvalidRuleSessionException ex) {
+      return;
+    }
+    idle.offer(session);
+  }
+
+
+  /**
+   * <p>Description: A session in use: it references the stateless session weakly, so that the pool is notified
+   * when the stateless session is garbage collected without being released.</p>
+   */
+  static final class Lease extends WeakReference {
+
+    /** session used by the stateless session */
+    final StatefulRuleSessionImpl session;
+
+
+    Lease(StatelessRuleSessionImpl facade,StatefulRuleSessionImpl session,ReferenceQueue queue) {
+      super(facade,queue);
+      this.session = session;
+    }
+
+  }
+
+}
@@ -2,7 +2,6 @@ package org.jruleengine;
 
 import java.util.*;
 import javax.rules.*;
-import java.lang.reflect.*;
 import java.awt.Component;
 
 import org.jruleengine.rule.*;
@@ -54,11 +53,171 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
   private RuleExecutionSetImpl ruleSet;
 
   /** working memory */
-  private Hashtable workingMemory = new Hashtable();
+  private WorkingMemory workingMemory;
 
+  /** Hashtable adapter of the working memory, returned by getWorkingMemory(); created when first used */
+  private Hashtable workingMemoryTable = null;
 
+  /** reverse index of the working memory, used to bind variables; null if the index is not enabled */
+  private ValueIndex valueIndex = null;
+
+  /** extents of the facts of each type; null if the working memory holds a single fact for each type */
+  private FactExtents extents = null;
+
+  /** reference facts of the rule execution set, read by the session; null if there are none */
+  private final ReferenceFacts reference;
+
+  /** objects added to the session, identified by their handles */
+  private final HandleTable handles;
+
+  /** state of the network while rules are being executed */
+  private ReteNetwork.Memory reteMemory = null;
+
+  /** empty state of the network used by the last rule execution, reused by the next one */
+  private ReteNetwork.Memory spareMemory = null;
+
+  /** set to stop the rules execution in progress, or the next one */
+  private volatile boolean cancelled = false;
+
+  /** <code>true</code> to compare numeric values as typed values, <code>false</code> to compare them as strings */
+  private boolean typedComparison = true;
+
+  /** index of the objects of the session by class, maintained on each working memory change */
+  private final TypeIndex typeIndex;
+
+
+  /**
+   * A session whose working memory or reference facts cannot be created throws an IllegalArgumentException,
+   * whose cause is the RuleSessionCreateException reported by RuleRuntimeImpl.createRuleSession().
+   * @param ruleset rules
+   * @param properties session properties
+   */
   public StatefulRuleSessionImpl(RuleExecutionSetImpl ruleset, Map properties) {
+    this(ruleset, createWorkingMemory(ruleset, properties), getReferenceFacts(ruleset));
+  }
+
+
+  /**
+   * @param ruleset rules
+   * @param workingMemory working memory of the session
+   * @param reference reference facts read by the session; null if there are none
+   */
+  private StatefulRuleSessionImpl(RuleExecutionSetImpl ruleset, WorkingMemory workingMemory, ReferenceFacts reference) {
     this.ruleSet = ruleset;
+    this.reference = reference;
+    this.workingMemory = workingMemory;
+    if (reference!=null && !(workingMemory instanceof PersistentWorkingMemory))
+      // the facts of the session are layered on the reference facts, that are not copied...
+      this.workingMemory = new LayeredWorkingMemory(reference.memory, workingMemory);
+    this.handles = new HandleTable();
+    this.typeIndex = new TypeIndex();
+    if (ruleset.isValueIndexed())
+      valueIndex = new ValueIndex(reference==null ? null : reference.index);
+    if (ruleset.isMultipleFacts())
+      extents = new FactExtents(reference==null ? null : reference.extents);
+    loadReference();
+  }
+
+
+  /**
+   * @param ruleset rules
+   * @param properties session properties
+   * @return a new session
+   */
+  static StatefulRuleSessionImpl create(RuleExecutionSetImpl ruleset, Map properties) throws RuleSessionCreateException {
+    return new StatefulRuleSessionImpl(ruleset, ruleset.createWorkingMemory(properties), ruleset.getReferenceFacts());
+  }
+
+
+  /**
+   * @return working memory of a new session
+   * @throws IllegalArgumentException if the working memory cannot be created
+   */
+  private static WorkingMemory createWorkingMemory(RuleExecutionSetImpl ruleset, Map properties) {
+    try {
+      return ruleset.createWorkingMemory(properties);
+    }
+    catch (RuleSessionCreateException ex) {
+      throw new IllegalArgumentException(ex.getMessage(), ex);
+    }
+  }
+
+
+  /**
+   * @return reference facts of the rule execution set; null if there are none
+   * @throws IllegalArgumentException if the reference facts cannot be stored
+   */
+  private static ReferenceFacts getReferenceFacts(RuleExecutionSetImpl ruleset) {
+    try {
+      return ruleset.getReferenceFacts();
+    }
+    catch (RuleSessionCreateException ex) {
+      throw new IllegalArgumentException(ex.getMessage(), ex);
+    }
+  }
+
+
+  /**
+   * Store and index the reference facts of a rule execution set.
+   * @param ruleset rules
+   * @param objects reference facts
+   * @return reference facts, stored and indexed
+   */
+  static ReferenceFacts createReferenceFacts(RuleExecutionSetImpl ruleset, List objects) throws RuleSessionCreateException {
+    StatefulRuleSessionImpl session = new StatefulRuleSessionImpl(ruleset, new PersistentWorkingMemory(), null);
+    try {
+      session.addFacts(objects);
+    }
+    catch (InvalidRuleSessionException ex) {
+      throw new RuleSessionCreateException("Bad reference facts", ex);
+    }
+    return new ReferenceFacts((PersistentWorkingMemory)session.workingMemory, session.valueIndex, session.extents);
+  }
+
+
+  /**
+   * @param session session to fork
+   */
+  private StatefulRuleSessionImpl(StatefulRuleSessionImpl session) {
+    this.ruleSet = session.ruleSet;
+    this.reference = session.reference;
+    if (session.workingMemory instanceof PersistentWorkingMemory)
+      this.workingMemory = ((PersistentWorkingMemory)session.workingMemory).fork();
+    else if (session.workingMemory instanceof LayeredWorkingMemory)
+      this.workingMemory = ((LayeredWorkingMemory)session.workingMemory).fork();
+    else {
+      this.workingMemory = new PersistentWorkingMemory();
+      Iterator it = session.workingMemory.keys();
+      while(it.hasNext()) {
+        Object key = it.next();
+        Object fact = session.workingMemory.get(key);
+        if (fact!=null)
+          workingMemory.put(key,fact);
+      }
+    }
+    this.handles = session.handles.fork();
+    this.typeIndex = session.typeIndex.copy();
+    if (session.valueIndex!=null)
+      valueIndex = session.valueIndex.copy();
+    if (session.extents!=null)
+      extents = session.extents.copy();
+  }
+
+
+  /**
+   * Method not included into JSR specifications: creates a session with the same objects and handles of this one,
+   * that can be changed and executed independently of this one, also by another thread.
+   * The fork takes constant time when the session uses a persistent working memory ("workingMemory" property set
+   * to "persistent"): the working memory and the handle table are shared until they are changed.
+   * Otherwise the working memory is copied into a persistent one, so that the forks of the fork take constant time.
+   * The index of the objects by class, the reverse index of the working memory and the extents of the facts,
+   * if enabled, are copied.
+   * Objects are not copied: an action that changes an object changes it in all the forks.
+   * @return a fork of this session
+   */
+  public final StatefulRuleSessionImpl fork() throws InvalidRuleSessionException {
+    validateRuleSession();
+    return new StatefulRuleSessionImpl(this);
   }
 
 
@@ -69,8 +228,20 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
       throws InvalidRuleSessionException, InvalidHandleException {
     try {
       validateRuleSession();
-      Object obj = getObject(objectHandle);
-      return workingMemory.contains(obj);
+      if(!(objectHandle instanceof HandleImpl))
+        throw new InvalidHandleException("Wrong driver");
+      HandleImpl hi = (HandleImpl)objectHandle;
+      Object obj = handles.get(hi);
+      if (obj==null)
+        return false;
+      if (extents!=null && extents.contains(obj))
+        return true;
+      // the object is contained until another object replaces it in the working memory...
+      String[] keys = handles.getKeys(hi);
+      Object fact = workingMemory.get(keys[0]);
+      if (obj instanceof Clause)
+        return fact!=null;
+      return fact!=null && (fact==obj || fact.equals(obj));
     }
     catch (Exception ex) {
       throw new InvalidRuleSessionException("Internal error", ex);
@@ -84,27 +255,7 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
   public final Handle addObject(Object object) throws InvalidRuleSessionException {
     try {
       validateRuleSession();
-
-      if (object instanceof Clause)
-        workingMemory.put(((Clause)object).getName(),((Clause)object).getValue());
-      else if (object instanceof Component && ((Component)object).getName()!=null)
-        workingMemory.put(((Component)object).getName(),object);
-      else {
-        workingMemory.put(object.getClass().getName(),object);
-        if (!object.getClass().getName().startsWith("java.")) {
-          // add an entry for each super-class...
-          Class c = object.getClass().getSuperclass();
-          while(c!=null) {
-            workingMemory.put(c.getName(),object);
-            c = c.getSuperclass();
-          }
-          // add an entry for each implemented interface
-          for (Class i : object.getClass().getInterfaces()) {
-              workingMemory.put(i.getName(),object);
-          }
-        }
-      }
-      return new HandleImpl(object);
+      return handles.add(object,storeObject(object));
     }
     catch (Exception ex) {
       throw new InvalidRuleSessionException("Internal error", ex);
@@ -117,7 +268,7 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
    */
   public final List addObjects(List objList) throws InvalidRuleSessionException {
     validateRuleSession();
-    ArrayList al = new ArrayList();
+    ArrayList al = new ArrayList(objList.size());
     Iterator it = objList.iterator();
     while(it.hasNext())
       al.add(
@@ -127,6 +278,21 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
   }
 
 
+  /**
+   * Adds a List of Objects to the working memory, without creating their handles: used by stateless sessions.
+   */
+  final void addFacts(List objList) throws InvalidRuleSessionException {
+    validateRuleSession();
+    try {
+      for(int i=0;i<objList.size();i++)
+        storeObject(objList.get(i));
+    }
+    catch (Exception ex) {
+      throw new InvalidRuleSessionException("Internal error", ex);
+    }
+  }
+
+
   /**
    * Notifies the rules engine that a given object in the rule session state has changed.
    */
@@ -135,12 +301,12 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
     validateRuleSession();
     try {
       Object obj = getObject(objectHandle);
+      HandleImpl hi = (HandleImpl)objectHandle;
 
-      workingMemory.remove(obj);
+      retractObject(obj,handles.getKeys(hi));
 
-      HandleImpl newHandle = (HandleImpl)addObject(newObject);
-
-      ((HandleImpl)objectHandle).setObject(newHandle.getObject());
+      // the handle remains valid and it is associated to the new object...
+      handles.replace(hi,newObject,storeObject(newObject));
     }
     catch(Exception je) {
       throw new InvalidHandleException("Internal error", je);
@@ -155,7 +321,10 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
       throws InvalidHandleException, InvalidRuleSessionException {
     validateRuleSession();
     try {
-      workingMemory.remove(getObject(handleObject));
+      Object obj = getObject(handleObject);
+      HandleImpl hi = (HandleImpl)handleObject;
+      retractObject(obj,handles.getKeys(hi));
+      handles.remove(hi);
     }
     catch(Exception je) {
       throw new InvalidRuleSessionException("Internal error", je);
@@ -173,23 +342,70 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
 
 
   /**
-   * @return List over the objects in rule session state of this rule session
+   * Each object is returned once, also if it is stored in the working memory with more keys (its class name,
+   * superclasses and interfaces), in the order the objects have been stored; the facts having an extent follow,
+   * in fact id order. The objects are read from an index maintained on each working memory change and the filter
+   * is applied by the session, before the list is returned.
+   * @return List of the objects in rule session state of this rule session
    */
   public final List getObjects(ObjectFilter filter) throws InvalidRuleSessionException {
     validateRuleSession();
+    try {
+      return getObjects(null,filter);
+    }
+    catch(Exception ex) {
+      throw new InvalidRuleSessionException("Internal error", ex);
+    }
+  }
+
+
+  /**
+   * Method not included into JSR specifications: the objects of the session that are instances of the specified
+   * type, in the same order as getObjects(); they are read from the index of the objects by class, maintained on
+   * each working memory change. As for the reverse index of the working memory, a change performed directly
+   * through getWorkingMemory() or getWorkingMemoryMap() is not detected.
+   * @param type class or interface of the objects to return
+   * @return List of the objects of the specified type
+   */
+  public final List getObjects(Class type) throws InvalidRuleSessionException {
+    validateRuleSession();
+    try {
+      return getObjects(type,null);
+    }
+    catch(Exception ex) {
+      throw new InvalidRuleSessionException("Internal error", ex);
+    }
+  }
+
+
+  /**
+   * @param type class or interface of the objects to return; null to return all the objects
+   * @param filter filter applied to the objects; null to return the objects as they are
+   * @return objects of the session, each one once: the indexed objects, in the order they have been stored, and then
+   *         the facts having an extent, in fact id order; a Clause value is listed once for each Clause, also if more
+   *         Clauses share the same value. Reference facts are not listed
+   */
+  private ArrayList getObjects(Class type,ObjectFilter filter) {
     ArrayList al = new ArrayList();
-    Iterator it = workingMemory.values().iterator();
-    Object obj = null;
-    while(it.hasNext())
-      try {
-        obj = it.next();
-        if((obj = filter.filter(obj)) != null)
-          al.add(obj);
+    typeIndex.addObjects(type,al);
+    if (extents!=null) {
+      Iterator it = extents.entries();
+      while(it.hasNext()) {
+        Object fact = ((FactExtents.Fact)it.next()).fact;
+        if (type==null || type.isInstance(fact))
+          al.add(fact);
       }
-      catch(Exception ex) {
-          throw new InvalidRuleSessionException("Internal error", ex);
-      }
-
+    }
+    if (filter==null)
+      return al;
+    // the filter is applied in place...
+    int count = 0;
+    for(int i=0;i<al.size();i++) {
+      Object obj = filter.filter(al.get(i));
+      if (obj!=null)
+        al.set(count++,obj);
+    }
+    al.subList(count,al.size()).clear();
     return al;
   }
 
@@ -199,18 +415,7 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
    */
   public final List getHandles() throws InvalidRuleSessionException {
     validateRuleSession();
-    ArrayList al = new ArrayList();
-    Enumeration en = workingMemory.keys();
-    Object obj = null;
-    while(en.hasMoreElements())
-      try {
-        obj = en.nextElement();
-        al.add(new HandleImpl(obj));
-      }
-      catch(Exception ex) {
-          throw new InvalidRuleSessionException("Internal error", ex);
-      }
-    return al;
+    return handles.handles();
   }
 
 
@@ -220,7 +425,23 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
   public final void executeRules() throws InvalidRuleSessionException {
     validateRuleSession();
     try {
-      forwardChaining(new HashSet());
+      forwardChaining(ruleSet.getReteNetwork(),null,0);
+    }
+    catch(Exception ex) {
+      throw new InvalidRuleSessionException("Internal error", ex);
+    }
+  }
+
+
+  /**
+   * Executes the rules, starting from the alpha nodes already evaluated over the columns of a batch of inputs.
+   * @param batch alpha nodes evaluated over a batch of inputs
+   * @param row row of the batch that contains the objects of this session
+   */
+  final void executeRules(ColumnarBatch batch,int row) throws InvalidRuleSessionException {
+    validateRuleSession();
+    try {
+      forwardChaining(ruleSet.getReteNetwork(),batch,row);
     }
     catch(Exception ex) {
       throw new InvalidRuleSessionException("Internal error", ex);
@@ -229,12 +450,13 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
 
 
   /**
-   * Resets this rule session.
+   * Resets this rule session; a pending cancel() is discarded.
    */
   public final void reset() throws InvalidRuleSessionException {
     validateRuleSession();
+    cancelled = false;
     try {
-      workingMemory.clear();
+      clearFacts();
     }
     catch(Exception ex) {
         throw new InvalidRuleSessionException("Internal error", ex);
@@ -242,6 +464,16 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
   }
 
 
+  /**
+   * Method not included into JSR specifications: stop the rules execution in progress, before the next rule
+   * is fired, or the next execution if no execution is in progress; the execution throws InvalidRuleSessionException.
+   * It can be invoked by any thread. The execution is stopped also when its thread is interrupted.
+   */
+  public final void cancel() {
+    cancelled = true;
+  }
+
+
   /**
    * @return Object within the StatefulRuleSession associated with a Handle
    */
@@ -251,8 +483,10 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
       throw new InvalidHandleException("Wrong driver");
     }
     else {
-      HandleImpl hi = (HandleImpl)handle;
-      return hi.getObject();
+      Object obj = handles.get((HandleImpl)handle);
+      if (obj==null)
+        throw new InvalidHandleException("Invalid handle");
+      return obj;
     }
   }
 
@@ -273,7 +507,8 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
     validateRuleSession();
     reset();
     ruleSet = null;
-    workingMemory.clear();
+    spareMemory = null;
+    clearFacts();
   }
 
 
@@ -296,410 +531,431 @@ public class StatefulRuleSessionImpl implements StatefulRuleSession {
 
 
   /**
-   * Execute the specified method on obj instance.
-   * @param action method + argument value
-   * @param obj instance containing the method to invoke
+   * Analyze all rules and fire those rules that are valid.
+   * Rules are analyzed through the network compiled from the rule execution set: after each rule firing
+   * the rules affected by the working memory changes are re-analyzed
+   * and the next rule to fire is selected from the agenda, according to the conflict resolution strategy.
+   * @param network network compiled from the rule execution set
+   * @param batch alpha nodes evaluated over the columns of a batch of inputs; null if there is no batch
+   * @param row row of the batch that contains the objects of this session
    */
-  private void executeMethod(Action action,Object obj) throws InvalidRuleSessionException {
-    Method[] methods = null;
-    Object argValue = null;
-    int i = -1;
+  private void forwardChaining(ReteNetwork network,ColumnarBatch batch,int row) throws InvalidRuleSessionException {
+    typedComparison = network.isTypedComparison();
+    if (spareMemory==null || spareMemory.getNetwork()!=network)
+      spareMemory = network.createMemory();
+    reteMemory = spareMemory;
     try {
-      String method = action.getMethod();
-      if (method.indexOf(".")==-1)
-        throw new InvalidRuleSessionException("No method '"+action.getMethod()+"' found");
-      else
-        method = method.substring(method.lastIndexOf(".")+1);
-      methods = obj.getClass().getMethods();
-      for(i=0;i<methods.length;i++)
-        if (methods[i].getName().equals(method)) {
-          if (action.getValues().size()==methods[i].getParameterTypes().length) {
-            // method found...
-            List values = action.getValues(); // values to set (in String format)
-            Object[] argValues = new Object[action.getValues().size()];
-            String value = null;
-            for(int j=0;j<values.size();j++) {
-              value = values.get(j).toString();
-              if (value.indexOf(".")!=-1) {
-                // value must be decoded from the class.getMethod...
-                Object aux = workingMemory.get(value.substring(0, value.lastIndexOf(".")));
-                try {
-                  if (aux != null)
-                    value = aux.getClass().getMethod(value.substring(value.lastIndexOf(".")+1), new Class[0]).invoke(aux, new Object[0]).toString();
-                }
-                catch (NullPointerException ex) {
-                  value = null;
-                }
-                catch (Throwable ex) {
-                  throw new InvalidRuleSessionException("Method not found: '"+value.substring(0,value.lastIndexOf(".")+1)+"'");
-                }
-              }
-              if (value!=null && value.endsWith(".0") && value.length()>2)
-                value = value.substring(0,value.length()-2);
-
-              // now value is a real value (in String format)...
-              argValue = null;
-              if (methods[i].getParameterTypes()[j]==double.class)
-                argValue = Double.valueOf(value);
-              else if (methods[i].getParameterTypes()[j]==float.class)
-                argValue = Float.valueOf(value);
-              else if (methods[i].getParameterTypes()[j]==int.class)
-                argValue = Integer.valueOf(value);
-              else if (methods[i].getParameterTypes()[j]==long.class)
-                argValue = Long.valueOf(value);
-              else if (methods[i].getParameterTypes()[j]==char.class)
-                argValue = new Character(value.charAt(0));
-              else if (methods[i].getParameterTypes()[j]==boolean.class)
-                argValue = Boolean.valueOf(value);
-              else if (methods[i].getParameterTypes()[j]==Object.class)
-                argValue = value;
-              else
-                argValue = methods[i].getParameterTypes()[j].getConstructor(new Class[]{String.class}).newInstance(new Object[]{value});
-
-              argValues[j] = argValue;
-            }
-            methods[i].invoke(obj,argValues);
-            if (obj instanceof Clause)
-              workingMemory.put(((Clause)obj).getName(),((Clause)obj).getValue());
-            else if (obj instanceof Component && ((Component)obj).getName()!=null)
-              workingMemory.put(((Component)obj).getName(),obj);
-            else
-              workingMemory.put(obj.getClass().getName(),obj);
-            return;
+      if (extents==null || !extents.isMultiple()) {
+        if (batch!=null)
+          batch.preset(reteMemory,this,row);
+        fireActivations(network);
+        return;
+      }
+
+      // each key is bound to the first fact of its extent...
+      Iterator it = extents.keys();
+      while(it.hasNext()) {
+        Object key = it.next();
+        storeFact(key,extents.first(key));
+      }
+      if (batch!=null)
+        batch.preset(reteMemory,this,row);
+      fireActivations(network);
+
+      // ... and then to the other combinations of facts, in fact id order, each group of keys read by the same rules
+      // in turn: only the rules that depend on a rebound key are matched again, the others are evaluated and fired
+      // once for all the facts...
+      BitSet wildcards = network.getWildcardRules();
+      it = extents.groups(network).iterator();
+      while(it.hasNext()) {
+        FactExtents.Group group = (FactExtents.Group)it.next();
+        int[] positions = new int[group.size()];
+        int i;
+        while((i = nextCombination(group,positions))!=-1) {
+          // a rule is fired again only for the first combination that binds the keys it reads to their facts,
+          // i.e. if the keys of the group bound to a fact other than their first one are all read by the rule...
+          BitSet allowed = new BitSet();
+          for(int j=i;j<positions.length;j++)
+            allowed.or(group.getReaders(j));
+          for(int j=0;j<positions.length;j++)
+            if (positions[j]!=0)
+              allowed.and(group.getReaders(j));
+          allowed.or(wildcards);
+          for(int j=i;j<positions.length;j++) {
+            Object fact = group.getFact(j,positions[j]);
+            storeFact(group.getKey(j),fact);
+            reteMemory.rebind(group.getKey(j),fact,allowed);
           }
+          fireActivations(network);
         }
-      throw new InvalidRuleSessionException("No method '"+action.getMethod()+"' found in class '"+obj.getClass().getName()+"'");
+      }
     }
-    catch (Throwable ex) {
-      String msg = "";
-      if (obj!=null)
-        msg = "Class '"+obj.getClass().getName()+"' ";
-      if (i!=-1 && methods!=null)
-        msg += "Method '"+methods[i].getName()+"':\n";
-      throw new InvalidRuleSessionException(msg+ex.getMessage());
+    finally {
+      // the state is emptied (so that it does not retain the facts) and kept for the next rule execution...
+      reteMemory.reset();
+      reteMemory = null;
     }
   }
 
 
   /**
-   * Analyze all rules and fire those rules that are valid.
-   * After rule firing all rules are re-analyzed.
-   * @param rulesAlreadyFired rules already fired
-   */
-  private void forwardChaining(HashSet rulesAlreadyFired) throws InvalidRuleSessionException {
-    RuleImpl rule = null;
-    Assumption ass = null;
-    Action action = null;
-    String t1, t2;
-    Object aux;
-    String className = null;
-    boolean ok = true;
-    Hashtable variables = new Hashtable();
-    for(int i=0;i<ruleSet.getRules().size();i++) {
-      rule = (RuleImpl)ruleSet.getRules().get(i);
-      if (!rule.isEnabled() || rulesAlreadyFired.contains(rule))
-        continue;
-      variables.clear();
-      ok = true;
-      for(int j=0;j<rule.getAssumptions().size();j++) {
-        ass = (Assumption)rule.getAssumptions().get(j);
-
-        // extract and parse left term...
-        t1 = ass.getLeftTerm();
-        if (t1.indexOf(".")!=-1) {
-          aux = workingMemory.get(t1.substring(0, t1.lastIndexOf(".")));
-
-          try {
-            if (aux != null) {
-              Class auxClass = aux.getClass();
-              Method auxMethod = auxClass.getMethod(t1.substring(t1.lastIndexOf(".")+1), new Class[0]);
-              Object auxResult = auxMethod.invoke(aux, new Object[0]);
-              t1 = (auxResult == null) ? null : auxResult.toString();
-            }
-          }
-//          try {
-//            if (aux != null)
-//              t1 = aux.getClass().getMethod(t1.substring(t1.lastIndexOf(".")+1), new Class[0]).invoke(aux, new Object[0]).toString();
-//          }
-          catch (NullPointerException ex) {
-            t1 = null;
-          }
-          catch (NoSuchMethodError ex) {
-            throw new InvalidRuleSessionException("Method not found: '"+t1.substring(t1.lastIndexOf(".")+1)+"'");
-          }
-          catch (NoSuchMethodException ex) {
-            throw new InvalidRuleSessionException("Method not found: '"+t1.substring(t1.lastIndexOf(".")+1)+"'");
-          }
-          catch (Throwable ex) {
-            throw new InvalidRuleSessionException("Method not found: '"+t1.substring(t1.lastIndexOf(".")+1)+"'\n"+ex.getMessage());
-          }
-        }
-        else if (workingMemory.containsKey(t1))
-          t1 = workingMemory.get(t1).toString();
-        if (t1!=null && t1.endsWith(".0") && t1.length()>2)
-          t1 = t1.substring(0,t1.length()-2);
-
-        // extract and parse right term...
-        t2 = ass.getRightTerm();
-        if (t2.indexOf(".")!=-1) {
-          aux = workingMemory.get(t2.substring(0, t2.lastIndexOf(".")));
-
-          try {
-            if (aux != null) {
-              Class auxClass = aux.getClass();
-              Method auxMethod = auxClass.getMethod(t2.substring(t2.lastIndexOf(".")+1), new Class[0]);
-              Object auxResult = auxMethod.invoke(aux, new Object[0]);
-              t2 = (auxResult == null) ? null : auxResult.toString();
-            }
-          }
+   * Move to the next combination of the facts of a group of keys, in fact id order: the last key changes first.
+   * @param group keys read by the same rules
+   * @param positions position of the fact bound to each key
+   * @return first key bound to another fact (the following keys are bound to another fact too), -1 if there are no more combinations
+   */
+  private static int nextCombination(FactExtents.Group group,int[] positions) {
+    int i = positions.length-1;
+    while(i>=0 && positions[i]==group.getFactCount(i)-1)
+      i--;
+    if (i<0)
+      return -1;
+    positions[i]++;
+    for(int j=i+1;j<positions.length;j++)
+      positions[j] = 0;
+    return i;
+  }
 
-//          try {
-//            if (aux != null)
-//              t2 = aux.getClass().getMethod(t2.substring(t2.lastIndexOf(".")+1), new Class[0]).invoke(aux, new Object[0]).toString();
-//          }
-          catch (NullPointerException ex) {
-            t2 = null;
-          }
-          catch (Throwable ex) {
-            throw new InvalidRuleSessionException("Method not found: '"+t2.substring(0,t2.lastIndexOf(".")+1)+"'");
-          }
-        }
-        else if (workingMemory.containsKey(t2))
-          t2 = workingMemory.get(t2).toString();
-        if (t2!=null && t2.endsWith(".0") && t2.length()>2)
-          t2 = t2.substring(0,t2.length()-2);
 
+  /**
+   * Fire rules until there are no more rules to fire.
+   * @param network network compiled from the rules
+   */
+  private void fireActivations(ReteNetwork network) throws InvalidRuleSessionException {
+    int i;
+    while((i = reteMemory.nextActivation(this))!=-1) {
+      if (cancelled || Thread.currentThread().isInterrupted()) {
+        cancelled = false;
+        throw new InvalidRuleSessionException("Rules execution cancelled");
+      }
+      fireRule(network.getActions(i),reteMemory.fire(i));
+    }
+  }
 
-        // validate assumption...
-        if (ass.getOperator().equals(Assumption.EXISTS)) {
-          ok = t1!=null && workingMemory.containsKey(t1);
-        }
-        else if (ass.getOperator().equals(Assumption.EQUALS_TO)) {
-          if (t1!=null && t1.startsWith(":") && t2!=null) { // t1 is a variable...
-            Enumeration en = workingMemory.keys();
-            Object varValue = null;
-            Object value = null;
-            ok = false;
-            while(en.hasMoreElements()) {
-              varValue = en.nextElement();
-              value = workingMemory.get(varValue);
-              if (value.equals(t2)) {
-                variables.put(t1, varValue);
-                ok = true;
-                break;
-              }
-            }
-          }
-          else ok = t1==null && t2==null ||
-                    t1!=null && t2!=null && t1.equals(t2);
-        } // PART 0: 11.04.2008 - MAURIZIO FABBRI - Added management of Assumption.CONTAINSATLEASTONE
-        else if (ass.getOperator().equals(Assumption.CONTAINSATLEASTONE)) {
-                if(t1!=null && t2!=null && t2.startsWith("[") && t2.endsWith("]")){
-                        t2 = t2.substring(1, t2.length() -1);
-                        String[] t2List = t2.split(",");
-                        boolean stop = false;
-                        ok = false;
-                        for(int t2i=0; t2i<t2List.length && !stop; t2i++){
-                                //System.out.println(t1 + " contiene " + t2List[t2i] + " = " + t1.indexOf(t2List[t2i]));
-                                if(t1.indexOf(t2List[t2i]) != -1){
-                                        stop = true;
-                                        ok = true;
-                                }
-                        }
-                } else {
-                          ok = t1!=null &&
-                           t2!=null &&
-                           t1.indexOf(t2)!=-1;
-                }
-        } // End PART 0
-        else if (ass.getOperator().equals(Assumption.CONTAINS)) {
-          if (t1!=null && t1.startsWith(":") && t2!=null) { // t1 is a variable...
-            Enumeration en = workingMemory.keys();
-            Object varValue = null;
-            Object value = null;
-            ok = false;
-            while(en.hasMoreElements()) {
-              varValue = en.nextElement();
-              value = workingMemory.get(varValue);
-              if (value.toString().indexOf(t2)!=-1) {
-                variables.put(t1, varValue);
-                ok = true;
-                break;
-              }
-            }
-          }
-          else {
-            // PART 1: 11.04.2008 - MAURIZIO FABBRI - Added management of the second term of type HashSet
-            if(t1!=null && t2!=null && t2.startsWith("[") && t2.endsWith("]")){
-                    t2 = t2.substring(1, t2.length() -1);
-                    String[] t2List = t2.split(",");
-                    boolean stop = false;
-                    ok = true;
-                    for(int t2i=0; t2i<t2List.length && !stop; t2i++){
-                            if(t1.indexOf(t2List[t2i]) == -1){
-                                    stop = true;
-                                    ok = false;
-                            }
-                    }
-             // End PART 1
-            } else {
-                    ok = t1!=null &&
-                     t2!=null &&
-                     t1.indexOf(t2)!=-1;
-            }
-          }
-        }
-        else if (ass.getOperator().equals(Assumption.NOT_CONTAINS)) {
-          // PART 2: 11.04.2008 - MAURIZIO FABBRI - Added management of the second term of type HashSet
-          if(t1!=null && t2!=null && t2.startsWith("[") && t2.endsWith("]")){
-                  t2 = t2.substring(1, t2.length() -1);
-                  String[] t2List = t2.split(",");
-                  boolean stop = false;
-                  ok = false;
-                  for(int t2i=0; t2i<t2List.length && !stop; t2i++){
-                          if(t1.indexOf(t2List[t2i]) == -1){
-                                  stop = true;
-                                  ok = true;
-                          }
-                  }
-           // End PART 2
-          } else {
-            ok = t1!=null && t2==null ||
-                 t1!=null && t2!=null && t1.indexOf(t2)==-1;
-          }
-        }
-        else if (ass.getOperator().equals(Assumption.NOT_CONTAINSANYONE)) {
-                  // PART 3: 11.04.2008 - MAURIZIO FABBRI - Added management of Assumption.NOT_CONTAINSANYONE
-                  if(t1!=null && t2!=null && t2.startsWith("[") && t2.endsWith("]")){
-                          t2 = t2.substring(1, t2.length() -1);
-                          String[] t2List = t2.split(",");
-                          boolean stop = false;
-                          ok = true;
-                          for(int t2i=0; t2i<t2List.length && !stop; t2i++){
-                                  if(t1.indexOf(t2List[t2i]) != -1){
-                                          stop = true;
-                                          ok = false;
-                                  }
-                          }
-                   // End PART 3
-                  } else {
-                    ok = t1!=null && t2==null ||
-                         t1!=null && t2!=null && t1.indexOf(t2)==-1;
-                  }
-        }
-        else if (ass.getOperator().equals(Assumption.NOT_EQUALS_TO)) {
-          ok = t1==null && t2!=null ||
-               t1!=null && t2==null ||
-               t1!=null && t2!=null && !t1.equals(t2);
-        }
-        else if (t1==null && t2!=null ||
-                 t1!=null && t2==null ||
-                 t1==null && t2==null) {
-          ok = false;
-        }
-        else if (ass.getOperator().equals(Assumption.LESS_THAN)) {
-          try {
-            ok = t1!=null &&
-                 !"".equals(t1) &&
-                 t2!=null &&
-                 !"".equals(t2) &&
-                 (new Double(t1)).doubleValue() < (new Double(t2)).doubleValue();
-          }
-          catch (NumberFormatException ex1) {
-            throw new InvalidRuleSessionException("Numeric type expected: '"+t1+"','"+t2+"'");
-          }
-        }
-        else if (ass.getOperator().equals(Assumption.LESS_OR_EQUALS_TO)) {
-          try {
-            ok =
-               t1!=null &&
-               !"".equals(t1) &&
-               t2!=null &&
-               !"".equals(t2) &&
-               (new Double(t1)).doubleValue() <= (new Double(t2)).doubleValue();
-          }
-          catch (NumberFormatException ex2) {
-            throw new InvalidRuleSessionException("Numeric type expected: '"+t1+"','"+t2+"'");
-          }
-        }
-        else if (ass.getOperator().equals(Assumption.GREATER_THAN)) {
-          try {
-            ok =
-                t1!=null &&
-                !"".equals(t1) &&
-                t2!=null &&
-                !"".equals(t2) &&
-                (new Double(t1)).doubleValue() > (new Double(t2)).doubleValue();
-          }
-          catch (NumberFormatException ex3) {
-            throw new InvalidRuleSessionException("Numeric type expected: '"+t1+"','"+t2+"'");
-          }
-        }
-        else if (ass.getOperator().equals(Assumption.GREATER_OR_EQUALS_TO)) {
-          try {
-            ok =
-                t1!=null &&
-                !"".equals(t1) &&
-                t2!=null &&
-                !"".equals(t2) &&
-                (new Double(t1)).doubleValue() >= (new Double(t2)).doubleValue();
-          }
-          catch (NumberFormatException ex4) {
-            throw new InvalidRuleSessionException("Numeric type expected: '"+t1+"','"+t2+"'");
-          }
-        }
-        else throw new InvalidRuleSessionException("Operator not supported: '"+ass.getOperator()+"'");
 
-        if (!ok)
-          break;
-      }
+  /**
+   * Evaluate an assumption against the working memory.
+   * @param ass assumption to evaluate
+   * @param variables variables bound by the assumption
+   * @return <code>true</code> if the assumption is verified
+   */
+  final boolean evaluateAssumption(Assumption ass,Hashtable variables) throws InvalidRuleSessionException {
+    // extract and parse terms...
+    Object v1 = resolveTerm(ass.getLeft());
+    Object v2 = resolveTerm(ass.getRight());
+
+    // validate assumption...
+    Operator op = ass.getOperatorType();
+    if (op==Operator.EXISTS) {
+      String t1 = ass.getLeft().toText(v1);
+      return t1!=null && containsFact(t1);
+    }
+    if (op==Operator.EQUALS_TO || op==Operator.CONTAINS) {
+      String t1 = ass.getLeft().toText(v1);
+      String t2 = ass.getRight().toText(v2);
+      if (t1!=null && t1.startsWith(":") && t2!=null) // t1 is a variable...
+        return bindVariable(t1,t2,op==Operator.CONTAINS,variables);
+    }
+    if (op==null) {
+      if (v1==null || v2==null)
+        return false;
+      throw new InvalidRuleSessionException("Operator not supported: '"+ass.getOperator()+"'");
+    }
+    try {
+      return op.evaluate(ass.getLeft(),v1,ass.getRight(),v2,typedComparison);
+    }
+    catch (NumberFormatException ex) {
+      throw new InvalidRuleSessionException(ex.getMessage());
+    }
+  }
 
-      if (!ok)
-        // skip to the next rule...
-        continue;
-
-      // execute all actions associated to the current rule...
-      for(int j=0;j<rule.getActions().size();j++) {
-        action = (Action)rule.getActions().get(j);
-
-        // set values into variables (if there are any vars...)
-        for(int k=0;k<action.getValues().size();k++)
-          if (action.getValues().get(k).toString().startsWith(":")) {
-            // var found...
-            if (variables.containsKey(action.getValues().get(k).toString()))
-              action.getValues().set(k,variables.get(action.getValues().get(k)));
-            else throw new InvalidRuleSessionException("Variable '"+action.getValues().get(k)+"' not bound");
-          }
 
-        if (action.getMethod().indexOf(".")!=-1) {
-          className = action.getMethod().substring(0,action.getMethod().lastIndexOf("."));
-          aux = workingMemory.get(className);
-          try {
-            if (aux == null) {
-              aux = Class.forName(className).newInstance();
-            }
-          }
-          catch (Throwable ex) {
-            throw new InvalidRuleSessionException("Class not found '"+className+"'");
-          }
-        }
-        else throw new InvalidRuleSessionException("Class not found '"+action.getMethod()+"'");
-        executeMethod(action,aux);
+  /**
+   * Calculate the value of a term: the value returned by a getter method, the value of a fact (e.g. a Clause)
+   * or the term literal.
+   * @param term term to resolve
+   * @return value of the term
+   */
+  private Object resolveTerm(Term term) throws InvalidRuleSessionException {
+    Object aux = readFact(term.getKey());
+    if (aux==null)
+      return term.getLiteral();
+    if (term.getMethod()==null)
+      return aux;
+    try {
+      Accessor getter = Accessor.lookup(aux.getClass(),term.getMethod(),0);
+      if (getter==null)
+        throw new NoSuchMethodException(term.getMethod());
+      return getter.invoke(aux);
+    }
+    catch (NullPointerException ex) {
+      return null;
+    }
+    catch (NoSuchMethodException ex) {
+      throw new InvalidRuleSessionException("Method not found: '"+term.getMethod()+"'");
+    }
+    catch (Throwable ex) {
+      throw new InvalidRuleSessionException("Method not found: '"+term.getMethod()+"'\n"+ex.getMessage());
+    }
+  }
+
+
+  /**
+   * Bind a variable to the key of the first fact whose value is equal to (or contains) the specified value.
+   * @param variable variable name
+   * @param value value to search
+   * @param contains <code>true</code> if the fact must contain the value, <code>false</code> if it must be equal to the value
+   * @param variables bound variables
+   * @return <code>true</code> if the variable has been bound
+   */
+  final boolean bindVariable(String variable,String value,boolean contains,Hashtable variables) {
+    if (valueIndex!=null) {
+      if (reteMemory!=null)
+        reteMemory.readAll();
+      Object key = contains ? valueIndex.findContaining(value) : valueIndex.findEqual(value);
+      if (key==null)
+        return false;
+      readFact(key);
+      variables.put(variable,key);
+      return true;
+    }
+    Iterator it = readAllFacts();
+    Object varValue = null;
+    Object fact = null;
+    while(it.hasNext()) {
+      varValue = it.next();
+      fact = readFact(varValue);
+      if (contains ? fact.toString().indexOf(value)!=-1 : fact.equals(value)) {
+        variables.put(variable, varValue);
+        return true;
       }
-      rulesAlreadyFired.add(rule);
-      forwardChaining(rulesAlreadyFired);
-      break;
     }
+    return false;
+  }
+
+
+  /**
+   * Execute all actions associated to a rule.
+   * @param actions actions of the rule to fire
+   * @param variables variables bound by the rule assumptions
+   */
+  private void fireRule(ActionInvoker[] actions,Hashtable variables) throws InvalidRuleSessionException {
+    for(int j=0;j<actions.length;j++)
+      actions[j].execute(this,variables);
+  }
+
+
+  /**
+   * Store into the working memory the object on which an action has been executed.
+   * @param obj object on which the action has been executed
+   */
+  final void storeTarget(Object obj) {
+    if (obj instanceof Clause)
+      putFact(((Clause)obj).getName(),((Clause)obj).getValue(),obj);
+    else if (obj instanceof Component && ((Component)obj).getName()!=null)
+      putFact(((Component)obj).getName(),obj,obj);
+    else
+      putFact(obj.getClass().getName(),obj,obj);
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return fact stored in the working memory with the specified key
+   */
+  final Object readFact(Object key) {
+    Object value = workingMemory.get(key);
+    if (reteMemory!=null)
+      reteMemory.read(key,value);
+    return value;
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return fact stored in the working memory with the specified key, without recording the read
+   */
+  final Object getFact(Object key) {
+    return workingMemory.get(key);
+  }
+
+
+  /**
+   * @param key working memory key
+   * @return <code>true</code> if the working memory contains the specified key
+   */
+  final boolean containsFact(Object key) {
+    return readFact(key)!=null;
+  }
+
+
+  /**
+   * @return all keys of the working memory
+   */
+  private Iterator readAllFacts() {
+    if (reteMemory!=null)
+      reteMemory.readAll();
+    return workingMemory.keys();
+  }
+
+
+  /**
+   * Store a fact changed by an action into the working memory.
+   * @param key working memory key
+   * @param value fact
+   * @param target object on which the action has been executed
+   */
+  private void putFact(Object key,Object value,Object target) {
+    storeFact(key,value);
+    if (reteMemory!=null)
+      reteMemory.changed(key,target);
+  }
+
+
+  /**
+   * Store a fact into the working memory.
+   * @param key working memory key
+   * @param value fact
+   */
+  private void storeFact(Object key,Object value) {
+    Object old = workingMemory.put(key,value);
+    if (old!=value) {
+      typeIndex.remove(key,old);
+      if (extents==null || !extents.contains(value))
+        typeIndex.put(key,value);
+    }
+    else if (reference!=null && old==reference.memory.get(key) && !typeIndex.contains(key,value) &&
+             (extents==null || !extents.contains(value)))
+      // the same value of the reference fact, that is not indexed, is now a fact of the session...
+      typeIndex.put(key,value);
+    if (valueIndex!=null)
+      valueIndex.put(key,value);
   }
 
 
   /**
-   * @return method not included into JSR specifications: used to access to working memory
+   * Remove a fact from the working memory; the reference fact stored with the same key, if any, is bound again to the key.
+   * @param key working memory key
+   */
+  private void removeFact(Object key) {
+    typeIndex.remove(key,workingMemory.remove(key));
+    Object shadowed = reference==null ? null : reference.memory.get(key);
+    if (shadowed!=null)
+      // the fact of the session shadowed a reference fact: the working memory shares it again, the index reads it again...
+      workingMemory.put(key,shadowed);
+    if (valueIndex!=null)
+      valueIndex.remove(key,shadowed!=null);
+  }
+
+
+  /**
+   * Store an object added to the session into the working memory.
+   * @param object object to store
+   * @return working memory keys used to store the object
+   */
+  private String[] storeObject(Object object) {
+    if (object instanceof Clause) {
+      storeFact(((Clause)object).getName(),((Clause)object).getValue());
+      return new String[]{((Clause)object).getName()};
+    }
+    if (object instanceof Component && ((Component)object).getName()!=null) {
+      storeFact(((Component)object).getName(),object);
+      return new String[]{((Component)object).getName()};
+    }
+    // add an entry for the class, for each super-class and for each implemented interface...
+    String[] keys = ruleSet.getReteNetwork().getTypeKeys(object.getClass());
+    if (extents!=null)
+      extents.add(keys,object);
+    for(int i=0;i<keys.length;i++)
+      storeFact(keys[i],object);
+    return keys;
+  }
+
+
+  /**
+   * Remove an object added to the session from the working memory: a key is removed only if it still stores
+   * the object, i.e. it has not been replaced by another object of the same type.
+   * @param object object to remove
+   * @param keys working memory keys used to store the object
+   */
+  private void retractObject(Object object,String[] keys) {
+    if (extents!=null && extents.contains(object)) {
+      dropExtentFact(object);
+      return;
+    }
+    for(int i=0;i<keys.length;i++)
+      if (object instanceof Clause || workingMemory.get(keys[i])==object)
+        removeFact(keys[i]);
+  }
+
+
+  /**
+   * Remove a fact from its extents; each working memory key of the fact is bound to the last fact remaining
+   * in its extent, or removed if the extent is empty.
+   * @param fact fact to remove
+   */
+  private void dropExtentFact(Object fact) {
+    if (extents==null)
+      return;
+    String[] keys = extents.remove(fact);
+    if (keys==null)
+      return;
+    for(int i=0;i<keys.length;i++) {
+      Object last = extents.last(keys[i]);
+      if (last!=null)
+        storeFact(keys[i],last);
+      else if (workingMemory.get(keys[i])==fact)
+        removeFact(keys[i]);
+    }
+  }
+
+
+  /**
+   * Remove all facts from the working memory; the reference facts are stored again.
+   */
+  private void clearFacts() {
+    handles.clear();
+    if (extents!=null)
+      extents.clear();
+    workingMemory.clear();
+    typeIndex.clear();
+    if (valueIndex!=null)
+      valueIndex.clear();
+    loadReference();
+  }
+
+
+  /**
+   * Store the reference facts into the empty working memory: a persistent working memory shares them,
+   * the other working memories are layered on them (see LayeredWorkingMemory), so that they are visible again once
+   * cleared. The reference facts are already indexed and their extents are layered under the extents of the session.
+   */
+  private void loadReference() {
+    if (reference!=null && workingMemory instanceof PersistentWorkingMemory)
+      ((PersistentWorkingMemory)workingMemory).assign(reference.memory);
+  }
+
+
+  /**
+   * @return method not included into JSR specifications: used to access to working memory, through a Hashtable
+   *         that reads and writes it
    */
   public final Hashtable getWorkingMemory() {
-    return workingMemory;
+    if (workingMemoryTable==null)
+      workingMemoryTable = new WorkingMemoryTable(workingMemory.asMap());
+    return workingMemoryTable;
+  }
+
+
+  /**
+   * @return method not included into JSR specifications: Map view of the working memory, whose implementation
+   *         is selected through the "workingMemory" property
+   */
+  public final Map getWorkingMemoryMap() {
+    return workingMemory.asMap();
   }
 
 
 
+
 }
\ No newline at end of file
@@ -1,8 +1,8 @@
 package org.jruleengine;
 
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
-import java.util.Hashtable;
 import javax.rules.*;
 
 
@@ -44,13 +44,55 @@ public class StatelessRuleSessionImpl  implements StatelessRuleSession {
   /** rules */
   private RuleExecutionSetImpl ruleSet;
 
+  /** pool the session has been borrowed from; null if the session is not pooled */
+  private SessionPool pool = null;
+
+  /** session borrowed from the pool */
+  private SessionPool.Lease lease = null;
 
+
+  /**
+   * A session whose working memory or reference facts cannot be created throws an IllegalArgumentException,
+   * whose cause is the RuleSessionCreateException reported by RuleRuntimeImpl.createRuleSession().
+   * @param res rules
+   * @param properties session properties
+   */
   public StatelessRuleSessionImpl(RuleExecutionSetImpl res, Map properties) {
     session = new StatefulRuleSessionImpl(res, properties);
     this.ruleSet = res;
   }
 
 
+  /**
+   * @param res rules
+   * @param session stateful session used to execute the rules
+   */
+  StatelessRuleSessionImpl(RuleExecutionSetImpl res, StatefulRuleSessionImpl session) {
+    this.session = session;
+    this.ruleSet = res;
+  }
+
+
+  /**
+   * @param res rules
+   * @param properties session properties
+   * @return a new session, that is not pooled
+   */
+  static StatelessRuleSessionImpl create(RuleExecutionSetImpl res, Map properties) throws RuleSessionCreateException {
+    return new StatelessRuleSessionImpl(res, StatefulRuleSessionImpl.create(res, properties));
+  }
+
+
+  /**
+   * @param pool pool the session has been borrowed from
+   * @param lease session borrowed from the pool
+   */
+  final void setLease(SessionPool pool, SessionPool.Lease lease) {
+    this.pool = pool;
+    this.lease = lease;
+  }
+
+
   /**
    * Executes the rules in the bound rule execution set using the supplied list of objects.
    */
@@ -63,10 +105,26 @@ public class StatelessRuleSessionImpl  implements StatelessRuleSession {
    * Executes the rules in the bound rule execution set using the supplied list of objects.
    */
   public final List executeRules(List objects, ObjectFilter filter)
+    throws InvalidRuleSessionException {
+    return executeRules(objects, filter, null, 0);
+  }
+
+
+  /**
+   * Executes the rules using the supplied list of objects, starting from the alpha nodes already evaluated
+   * over the columns of a batch of inputs.
+   * @param batch alpha nodes evaluated over a batch of inputs; null if there is no batch
+   * @param row row of the batch that contains the objects
+   */
+  final List executeRules(List objects, ObjectFilter filter, ColumnarBatch batch, int row)
     throws InvalidRuleSessionException {
     session.reset();
-    session.addObjects(objects);
-    session.executeRules();
+    // handles are not returned, so they are not created...
+    session.addFacts(objects);
+    if (batch==null)
+      session.executeRules();
+    else
+      session.executeRules(batch, row);
     return session.getObjects(filter);
   }
 
@@ -77,7 +135,13 @@ public class StatelessRuleSessionImpl  implements StatelessRuleSession {
 
 
   public final void release() throws InvalidRuleSessionException {
-    session.release();
+    if (lease!=null) {
+      session.validateRuleSession();
+      pool.release(lease);
+      lease = null;
+    }
+    else
+      session.release();
     session = null;
   }
 
@@ -89,11 +153,29 @@ public class StatelessRuleSessionImpl  implements StatelessRuleSession {
 
 
   /**
-   * @return method not included into JSR specifications: used to access to working memory
+   * @return stateful session used to execute the rules
+   */
+  final StatefulRuleSessionImpl getSession() {
+    return session;
+  }
+
+
+  /**
+   * @return method not included into JSR specifications: used to access to working memory, through a Hashtable
+   *         that reads and writes it
    */
   public final Hashtable getWorkingMemory() {
     return session.getWorkingMemory();
   }
 
 
+  /**
+   * @return method not included into JSR specifications: Map view of the working memory, whose implementation
+   *         is selected through the "workingMemory" property
+   */
+  public final Map getWorkingMemoryMap() {
+    return session.getWorkingMemoryMap();
+  }
+
+
 }
\ No newline at end of file
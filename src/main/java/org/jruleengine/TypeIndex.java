@@ -0,0 +1,267 @@
+package org.jruleengine;
+
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Index of the objects of a session by class, used by getObjects() and getObjects(Class).
+ * A fact stored with the keys of its type (class name, superclasses, interfaces) is indexed once, a fact stored
+ * with another key (a Clause value, a named Component) is indexed once for each key; objects are listed in the order
+ * they have been stored.
+ * The index is maintained by the session on each working memory change, so that it is never built again by
+ * scanning the working memory; it is synchronized, since the working memory can be filled by more threads.
+ * The reference facts and the facts having an extent are not indexed.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class TypeIndex {
+
+  /** sequence number of the next entry */
+  private long next = 0;
+
+  /** facts stored with the keys of their type, by identity: fact -> Entry */
+  private final IdentityHashMap typed = new IdentityHashMap();
+
+  /** facts stored with other keys: working memory key -> Entry */
+  private final HashMap named = new HashMap();
+
+  /** entries of each class, in storing order: class -> LinkedHashSet of Entry */
+  private final LinkedHashMap classes = new LinkedHashMap();
+
+  /** all the entries, in storing order */
+  private final LinkedHashSet entries = new LinkedHashSet();
+
+
+  /**
+   * Index a fact stored in the working memory.
+   * @param key working memory key
+   * @param fact fact
+   */
+  final synchronized void put(Object key,Object fact) {
+    if (isTypeKey(key,fact)) {
+      Entry entry = (Entry)typed.get(fact);
+      if (entry==null) {
+        entry = add(fact);
+        typed.put(fact,entry);
+      }
+      entry.keys++;
+      return;
+    }
+    Entry entry = (Entry)named.put(key,add(fact));
+    if (entry!=null)
+      drop(entry);
+  }
+
+
+  /**
+   * Remove a fact removed from the working memory or replaced by another one; a fact that is not indexed is ignored.
+   * @param key working memory key
+   * @param fact fact; may be null
+   */
+  final synchronized void remove(Object key,Object fact) {
+    if (fact==null)
+      return;
+    if (isTypeKey(key,fact)) {
+      Entry entry = (Entry)typed.get(fact);
+      if (entry!=null && --entry.keys==0) {
+        typed.remove(fact);
+        drop(entry);
+      }
+      return;
+    }
+    Entry entry = (Entry)named.get(key);
+    if (entry!=null && entry.fact==fact) {
+      named.remove(key);
+      drop(entry);
+    }
+  }
+
+
+  /**
+   * @param key working memory key
+   * @param fact fact
+   * @return <code>true</code> if the fact has been indexed for the key, or for another key of its type
+   */
+  final synchronized boolean contains(Object key,Object fact) {
+    if (isTypeKey(key,fact))
+      return typed.containsKey(fact);
+    Entry entry = (Entry)named.get(key);
+    return entry!=null && entry.fact==fact;
+  }
+
+
+  /**
+   * Remove all facts from the index.
+   */
+  final synchronized void clear() {
+    typed.clear();
+    named.clear();
+    classes.clear();
+    entries.clear();
+  }
+
+
+  /**
+   * @return a copy of the index
+   */
+  final synchronized TypeIndex copy() {
+    TypeIndex copy = new TypeIndex();
+    IdentityHashMap copies = new IdentityHashMap();
+    Iterator it = entries.iterator();
+    while(it.hasNext()) {
+      Entry entry = (Entry)it.next();
+      Entry e = copy.add(entry.fact);
+      e.keys = entry.keys;
+      copies.put(entry,e);
+    }
+    it = typed.entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      copy.typed.put(entry.getKey(),copies.get(entry.getValue()));
+    }
+    it = named.entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      copy.named.put(entry.getKey(),copies.get(entry.getValue()));
+    }
+    return copy;
+  }
+
+
+  /**
+   * Add the indexed objects to a list, in the order they have been stored.
+   * @param type class or interface of the objects to add; null to add all the objects
+   * @param list list to fill
+   */
+  final synchronized void addObjects(Class type,List list) {
+    Iterator it;
+    if (type==null)
+      it = entries.iterator();
+    else if (!type.isArray() && Modifier.isFinal(type.getModifiers())) {
+      // no other class is assignable to a final class...
+      Set set = (Set)classes.get(type);
+      if (set==null)
+        return;
+      it = set.iterator();
+    }
+    else {
+      ArrayList matching = new ArrayList();
+      it = classes.entrySet().iterator();
+      while(it.hasNext()) {
+        Map.Entry entry = (Map.Entry)it.next();
+        if (type.isAssignableFrom((Class)entry.getKey()))
+          matching.add(entry.getValue());
+      }
+      if (matching.isEmpty())
+        return;
+      if (matching.size()==1)
+        it = ((Set)matching.get(0)).iterator();
+      else {
+        // the objects of more classes are merged in storing order...
+        ArrayList merged = new ArrayList();
+        for(int i=0;i<matching.size();i++)
+          merged.addAll((Set)matching.get(i));
+        Collections.sort(merged,new Comparator() {
+
+          public int compare(Object o1,Object o2) {
+            long s1 = ((Entry)o1).seq;
+            long s2 = ((Entry)o2).seq;
+            return s1<s2 ? -1 : (s1>s2 ? 1 : 0);
+          }
+
+        });
+        it = merged.iterator();
+      }
+    }
+    while(it.hasNext())
+      list.add(((Entry)it.next()).fact);
+  }
+
+
+  /**
+   * @return a new entry for the fact, added to the entries of its class
+   */
+  private Entry add(Object fact) {
+    Entry entry = new Entry(next++,fact);
+    Set set = (Set)classes.get(fact.getClass());
+    if (set==null) {
+      set = new LinkedHashSet();
+      classes.put(fact.getClass(),set);
+    }
+    set.add(entry);
+    entries.add(entry);
+    return entry;
+  }
+
+
+  /**
+   * Remove an entry from the entries of its class.
+   */
+  private void drop(Entry entry) {
+    entries.remove(entry);
+    Set set = (Set)classes.get(entry.fact.getClass());
+    set.remove(entry);
+    if (set.isEmpty())
+      classes.remove(entry.fact.getClass());
+  }
+
+
+  /**
+   * @param key working memory key
+   * @param fact fact stored with the key
+   * @return <code>true</code> if the key is the class name, a superclass or an interface of the fact,
+   *         <code>false</code> if it is the name of a Clause or of a Component
+   */
+  private static boolean isTypeKey(Object key,Object fact) {
+    String[] keys = ReteNetwork.getHierarchy(fact.getClass());
+    for(int i=0;i<keys.length;i++)
+      if (keys[i].equals(key))
+        return true;
+    return false;
+  }
+
+
+  /**
+   * <p>Description: An indexed object, with its sequence number.</p>
+   */
+  private static final class Entry {
+
+    /** sequence number, in storing order */
+    final long seq;
+
+    /** indexed object */
+    final Object fact;
+
+    /** number of working memory keys of its type that store the object */
+    int keys = 0;
+
+
+    Entry(long seq,Object fact) {
+      this.seq = seq;
+      this.fact = fact;
+    }
+
+  }
+
+}
@@ -0,0 +1,314 @@
+package org.jruleengine;
+
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Reverse index of the working memory, from fact values to working memory keys,
+ * used to bind a variable (":name") without enumerating the whole working memory.
+ * String facts (e.g. Clause values) are indexed by value, to find a fact equal to a value, and by trigrams,
+ * to find a fact that contains a value; the other facts are not indexed and are always analyzed, since their
+ * toString value may change without notice.
+ * The index is maintained by the session on each working memory change; it is synchronized, since the working
+ * memory can be filled by more threads.
+ * The index of a session that reads through reference facts is layered on the index of the reference facts,
+ * which is never changed once built: the keys changed by the session hide the ones of the reference index.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class ValueIndex {
+
+  /** length of the substrings indexed to find a fact that contains a value */
+  private static final int GRAM = 3;
+
+  /** String facts: working memory key -> value */
+  private HashMap strings = new HashMap();
+
+  /** String facts: value -> working memory keys */
+  private HashMap values = new HashMap();
+
+  /** String facts: trigram -> working memory keys of the values that contain it */
+  private HashMap grams = new HashMap();
+
+  /** facts that are not strings: working memory key -> fact */
+  private LinkedHashMap others = new LinkedHashMap();
+
+  /** index of the reference facts, read without locking since it is never changed; null if there is none */
+  private final ValueIndex base;
+
+  /** keys of the reference index changed by the session; null if there is no reference index */
+  private final HashSet hidden;
+
+
+  ValueIndex() {
+    this(null);
+  }
+
+
+  /**
+   * @param base index of the reference facts; null if there is none
+   */
+  ValueIndex(ValueIndex base) {
+    this.base = base;
+    this.hidden = base==null ? null : new HashSet();
+  }
+
+
+  /**
+   * Index a fact stored in the working memory, replacing the fact previously stored with the same key.
+   * @param key working memory key
+   * @param fact fact
+   */
+  final synchronized void put(Object key,Object fact) {
+    remove(key);
+    if (!(fact instanceof String)) {
+      others.put(key,fact);
+      return;
+    }
+    String value = (String)fact;
+    strings.put(key,value);
+    keys(values,value,true).add(key);
+    for(int i=0;i+GRAM<=value.length();i++)
+      keys(grams,gram(value,i),true).add(key);
+  }
+
+
+  /**
+   * Remove the fact stored with the specified key from the index.
+   * @param key working memory key
+   */
+  final synchronized void remove(Object key) {
+    remove(key,false);
+  }
+
+
+  /**
+   * Remove the fact stored with the specified key from the index.
+   * @param key working memory key
+   * @param restored <code>true</code> if the reference fact stored with the same key is bound again to the key
+   */
+  final synchronized void remove(Object key,boolean restored) {
+    if (restored && hidden!=null)
+      hidden.remove(key);
+    else if (base!=null && (base.strings.containsKey(key) || base.others.containsKey(key)))
+      hidden.add(key);
+    if (others.remove(key)!=null)
+      return;
+    String value = (String)strings.remove(key);
+    if (value==null)
+      return;
+    removeKey(values,value,key);
+    for(int i=0;i+GRAM<=value.length();i++)
+      removeKey(grams,gram(value,i),key);
+  }
+
+
+  /**
+   * @return a copy of the index, layered on the same reference index
+   */
+  final synchronized ValueIndex copy() {
+    ValueIndex copy = new ValueIndex(base);
+    copy.strings.putAll(strings);
+    copy.others.putAll(others);
+    copyKeys(values,copy.values);
+    copyKeys(grams,copy.grams);
+    if (hidden!=null)
+      copy.hidden.addAll(hidden);
+    return copy;
+  }
+
+
+  /**
+   * Remove all facts from the index; the reference facts are visible again.
+   */
+  final synchronized void clear() {
+    strings.clear();
+    values.clear();
+    grams.clear();
+    others.clear();
+    if (hidden!=null)
+      hidden.clear();
+  }
+
+
+  /**
+   * Search the reference facts first, since they are stored before the facts of the session.
+   * @param value value to search
+   * @return working memory key of a fact equal to the value, null if there is none
+   */
+  final synchronized Object findEqual(String value) {
+    Object key = base==null ? null : base.findEqualString(value,hidden);
+    if (key==null)
+      key = findEqualString(value,null);
+    if (key==null && base!=null)
+      key = base.findOther(value,false,hidden);
+    if (key==null)
+      key = findOther(value,false,null);
+    return key;
+  }
+
+
+  /**
+   * Search the reference facts first, since they are stored before the facts of the session.
+   * @param value value to search
+   * @return working memory key of a fact that contains the value, null if there is none
+   */
+  final synchronized Object findContaining(String value) {
+    Object key = base==null ? null : base.findContainingString(value,hidden);
+    if (key==null)
+      key = findContainingString(value,null);
+    if (key==null && base!=null)
+      key = base.findOther(value,true,hidden);
+    if (key==null)
+      key = findOther(value,true,null);
+    return key;
+  }
+
+
+  /**
+   * @param value value to search
+   * @param skip keys to ignore; null to ignore none
+   * @return working memory key of a String fact equal to the value, null if there is none
+   */
+  private Object findEqualString(String value,Set skip) {
+    Set keys = keys(values,value,false);
+    if (keys==null)
+      return null;
+    Iterator it = keys.iterator();
+    while(it.hasNext()) {
+      Object key = it.next();
+      if (skip==null || !skip.contains(key))
+        return key;
+    }
+    return null;
+  }
+
+
+  /**
+   * @param value value to search
+   * @param skip keys to ignore; null to ignore none
+   * @return working memory key of a String fact that contains the value, null if there is none
+   */
+  private Object findContainingString(String value,Set skip) {
+    Iterator it;
+    if (value.length()<GRAM)
+      // value too short to be searched through trigrams...
+      it = strings.keySet().iterator();
+    else {
+      // candidates are the facts that contain the less frequent trigram of the value...
+      Set candidates = null;
+      for(int i=0;i+GRAM<=value.length();i++) {
+        Set keys = keys(grams,gram(value,i),false);
+        if (keys==null) {
+          candidates = Collections.EMPTY_SET;
+          break;
+        }
+        if (candidates==null || keys.size()<candidates.size())
+          candidates = keys;
+      }
+      it = candidates.iterator();
+    }
+    while(it.hasNext()) {
+      Object key = it.next();
+      if ((skip==null || !skip.contains(key)) && ((String)strings.get(key)).indexOf(value)!=-1)
+        return key;
+    }
+    return null;
+  }
+
+
+  /**
+   * @param value value to search
+   * @param contains <code>true</code> to search a fact that contains the value, <code>false</code> to search a fact equal to it
+   * @param skip keys to ignore; null to ignore none
+   * @return working memory key of a fact that is not a String and matches the value, null if there is none
+   */
+  private Object findOther(String value,boolean contains,Set skip) {
+    Iterator it = others.entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      if (skip!=null && skip.contains(entry.getKey()))
+        continue;
+      if (contains ? entry.getValue().toString().indexOf(value)!=-1 : entry.getValue().equals(value))
+        return entry.getKey();
+    }
+    return null;
+  }
+
+
+  /**
+   * @param index index to read
+   * @param value indexed value
+   * @param create <code>true</code> to create the set of keys when it does not exist
+   * @return working memory keys associated to the value
+   */
+  private static Set keys(HashMap index,Object value,boolean create) {
+    Set keys = (Set)index.get(value);
+    if (keys==null && create) {
+      keys = new LinkedHashSet();
+      index.put(value,keys);
+    }
+    return keys;
+  }
+
+
+  /**
+   * Copy an index, with its sets of keys.
+   * @param index index to copy
+   * @param copy index to fill
+   */
+  private static void copyKeys(HashMap index,HashMap copy) {
+    Iterator it = index.entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      copy.put(entry.getKey(),new LinkedHashSet((Set)entry.getValue()));
+    }
+  }
+
+
+  /**
+   * Remove a working memory key associated to a value.
+   * @param index index to update
+   * @param value indexed value
+   * @param key working memory key
+   */
+  private static void removeKey(HashMap index,Object value,Object key) {
+    Set keys = (Set)index.get(value);
+    if (keys==null)
+      return;
+    keys.remove(key);
+    if (keys.isEmpty())
+      index.remove(value);
+  }
+
+
+  /**
+   * @param value value
+   * @param pos position of the trigram
+   * @return trigram starting at the specified position, packed in a long value
+   */
+  private static Long gram(String value,int pos) {
+    return new Long(((long)value.charAt(pos) << 32) | ((long)value.charAt(pos+1) << 16) | value.charAt(pos+2));
+  }
+
+}
@@ -0,0 +1,100 @@
+package org.jruleengine;
+
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Working memory of a rule session: the facts, stored by key (a class name, a Clause name, ...).
+ * Keys and facts cannot be null.
+ * The implementation used by a session is selected through the "workingMemory" property of the session or
+ * of the rule execution set: "local" (default) for a working memory accessed by a single thread,
+ * "concurrent" for a working memory that can be filled by more threads, or the name of a class that implements
+ * this interface and has a public constructor without arguments.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public interface WorkingMemory {
+
+  /**
+   * @param key working memory key
+   * @return fact stored with the specified key, null if there is none
+   */
+  public Object get(Object key);
+
+
+  /**
+   * Store a fact.
+   * @param key working memory key
+   * @param fact fact to store
+   * @return fact previously stored with the specified key, null if there was none
+   * @throws NullPointerException if the key or the fact is null
+   */
+  public Object put(Object key,Object fact);
+
+
+  /**
+   * Remove a fact.
+   * @param key working memory key
+   * @return fact removed, null if there was none
+   */
+  public Object remove(Object key);
+
+
+  /**
+   * @param fact fact to search
+   * @return <code>true</code> if the working memory contains a fact equal to the specified one
+   */
+  public boolean containsValue(Object fact);
+
+
+  /**
+   * @return number of working memory keys
+   */
+  public int size();
+
+
+  /**
+   * Remove all facts.
+   */
+  public void clear();
+
+
+  /**
+   * @return working memory keys
+   */
+  public Iterator keys();
+
+
+  /**
+   * @return facts, one for each working memory key
+   */
+  public Iterator values();
+
+
+  /**
+   * @return view of the working memory as a Map
+   */
+  public Map asMap();
+
+}
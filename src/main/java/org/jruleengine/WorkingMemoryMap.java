@@ -0,0 +1,141 @@
+package org.jruleengine;
+
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Map view of a working memory, returned by the getWorkingMemoryMap() method of the sessions
+ * and adapted to a Hashtable by their getWorkingMemory() method.
+ * Changes made through the view are written to the working memory; entries cannot be removed through
+ * the iterators of the view.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class WorkingMemoryMap extends AbstractMap {
+
+  /** working memory */
+  private final WorkingMemory workingMemory;
+
+  /** entries of the working memory */
+  private final Set entries = new AbstractSet() {
+
+    public Iterator iterator() {
+      return new Entries(workingMemory.keys());
+    }
+
+    public int size() {
+      return workingMemory.size();
+    }
+
+  };
+
+
+  WorkingMemoryMap(WorkingMemory workingMemory) {
+    this.workingMemory = workingMemory;
+  }
+
+
+  public Object get(Object key) {
+    return workingMemory.get(key);
+  }
+
+
+  public boolean containsKey(Object key) {
+    return workingMemory.get(key)!=null;
+  }
+
+
+  public boolean containsValue(Object value) {
+    return workingMemory.containsValue(value);
+  }
+
+
+  public Object put(Object key,Object value) {
+    return workingMemory.put(key,value);
+  }
+
+
+  public Object remove(Object key) {
+    return workingMemory.remove(key);
+  }
+
+
+  public int size() {
+    return workingMemory.size();
+  }
+
+
+  public void clear() {
+    workingMemory.clear();
+  }
+
+
+  public Set entrySet() {
+    return entries;
+  }
+
+
+  /**
+   * <p>Description: Iterator over the entries of the working memory; keys removed while iterating are skipped.</p>
+   */
+  private final class Entries implements Iterator {
+
+    /** keys of the working memory */
+    private final Iterator keys;
+
+    /** next entry to return, null if it has not been read yet */
+    private Map.Entry next = null;
+
+
+    Entries(Iterator keys) {
+      this.keys = keys;
+    }
+
+
+    public boolean hasNext() {
+      while(next==null && keys.hasNext()) {
+        Object key = keys.next();
+        Object value = workingMemory.get(key);
+        if (value!=null)
+          next = new AbstractMap.SimpleImmutableEntry(key,value);
+      }
+      return next!=null;
+    }
+
+
+    public Object next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      Map.Entry entry = next;
+      next = null;
+      return entry;
+    }
+
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
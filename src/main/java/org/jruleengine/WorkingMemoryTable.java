@@ -0,0 +1,224 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.function.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Hashtable adapter of a working memory, returned by the getWorkingMemory() method of the sessions
+ * for compatibility with the code written when the working memory was a Hashtable.
+ * Every method reads and writes the working memory, through its Map view; the storage inherited from Hashtable
+ * is never used. A clone or a serialized copy of the adapter is a plain Hashtable holding the current facts.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class WorkingMemoryTable extends Hashtable {
+
+  /** Map view of the working memory */
+  private final transient Map map;
+
+
+  WorkingMemoryTable(Map map) {
+    super(1);
+    this.map = map;
+  }
+
+
+  public int size() {
+    return map.size();
+  }
+
+
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+
+  public Enumeration keys() {
+    return Collections.enumeration(new ArrayList(map.keySet()));
+  }
+
+
+  public Enumeration elements() {
+    return Collections.enumeration(new ArrayList(map.values()));
+  }
+
+
+  public boolean contains(Object value) {
+    if (value==null)
+      throw new NullPointerException();
+    return map.containsValue(value);
+  }
+
+
+  public boolean containsValue(Object value) {
+    return contains(value);
+  }
+
+
+  public boolean containsKey(Object key) {
+    return map.containsKey(key);
+  }
+
+
+  public Object get(Object key) {
+    return map.get(key);
+  }
+
+
+  public Object put(Object key,Object value) {
+    if (key==null || value==null)
+      throw new NullPointerException();
+    return map.put(key,value);
+  }
+
+
+  public Object remove(Object key) {
+    return map.remove(key);
+  }
+
+
+  public void putAll(Map t) {
+    Iterator it = t.entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      put(entry.getKey(),entry.getValue());
+    }
+  }
+
+
+  public void clear() {
+    map.clear();
+  }
+
+
+  public Object clone() {
+    return new Hashtable(map);
+  }
+
+
+  public String toString() {
+    return map.toString();
+  }
+
+
+  public Set keySet() {
+    return map.keySet();
+  }
+
+
+  public Set entrySet() {
+    return map.entrySet();
+  }
+
+
+  public Collection values() {
+    return map.values();
+  }
+
+
+  public boolean equals(Object o) {
+    return o==this || map.equals(o);
+  }
+
+
+  public int hashCode() {
+    return map.hashCode();
+  }
+
+
+  public Object getOrDefault(Object key,Object defaultValue) {
+    return map.getOrDefault(key,defaultValue);
+  }
+
+
+  public void forEach(BiConsumer action) {
+    map.forEach(action);
+  }
+
+
+  public void replaceAll(BiFunction function) {
+    Iterator it = new ArrayList(map.keySet()).iterator();
+    while(it.hasNext()) {
+      Object key = it.next();
+      Object value = map.get(key);
+      if (value!=null)
+        put(key,function.apply(key,value));
+    }
+  }
+
+
+  public Object putIfAbsent(Object key,Object value) {
+    if (value==null)
+      throw new NullPointerException();
+    return map.putIfAbsent(key,value);
+  }
+
+
+  public boolean remove(Object key,Object value) {
+    return map.remove(key,value);
+  }
+
+
+  public boolean replace(Object key,Object oldValue,Object newValue) {
+    if (newValue==null)
+      throw new NullPointerException();
+    return map.replace(key,oldValue,newValue);
+  }
+
+
+  public Object replace(Object key,Object value) {
+    if (value==null)
+      throw new NullPointerException();
+    return map.replace(key,value);
+  }
+
+
+  public Object computeIfAbsent(Object key,Function mappingFunction) {
+    return map.computeIfAbsent(key,mappingFunction);
+  }
+
+
+  public Object computeIfPresent(Object key,BiFunction remappingFunction) {
+    return map.computeIfPresent(key,remappingFunction);
+  }
+
+
+  public Object compute(Object key,BiFunction remappingFunction) {
+    return map.compute(key,remappingFunction);
+  }
+
+
+  public Object merge(Object key,Object value,BiFunction remappingFunction) {
+    return map.merge(key,value,remappingFunction);
+  }
+
+
+  /**
+   * @return a Hashtable holding the current facts, serialized in place of the adapter
+   */
+  private Object writeReplace() {
+    return new Hashtable(map);
+  }
+
+}
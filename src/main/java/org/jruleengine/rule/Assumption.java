@@ -68,13 +68,22 @@ public class Assumption implements Serializable {
   public static final String NOT_CONTAINSANYONE = "notcontainsanyone";
 
   /** left term of the assumption */
-  private String leftTerm;
+  private final String leftTerm;
 
   /** operator of the assumption; possible values: =,<,>,<=,>=,<> */
-  private String operator;
+  private final String operator;
 
   /** right term of the assumption */
-  private String rightTerm;
+  private final String rightTerm;
+
+  /** left term, parsed */
+  private final Term left;
+
+  /** operator, parsed; null if the operator is not supported */
+  private final Operator operatorType;
+
+  /** right term, parsed */
+  private final Term right;
 
 
   /**
@@ -83,9 +92,7 @@ public class Assumption implements Serializable {
    * rightTerm is set to ""
    */
   public Assumption(String uniqueTerm) {
-    this.leftTerm = uniqueTerm;
-    this.operator = "exists";
-    this.rightTerm = "";
+    this(uniqueTerm,EXISTS,"");
   }
 
 
@@ -98,6 +105,9 @@ public class Assumption implements Serializable {
     this.leftTerm = leftTerm;
     this.operator = operator;
     this.rightTerm = rightTerm;
+    this.left = leftTerm==null ? null : new Term(leftTerm);
+    this.operatorType = Operator.parse(operator);
+    this.right = rightTerm==null ? null : new Term(rightTerm);
   }
 
 
@@ -124,4 +134,28 @@ public class Assumption implements Serializable {
     return rightTerm;
   }
 
+
+  /**
+   * @return left term of the assumption, parsed
+   */
+  public final Term getLeft() {
+    return left;
+  }
+
+
+  /**
+   * @return operator of the assumption, parsed; null if the operator is not supported
+   */
+  public final Operator getOperatorType() {
+    return operatorType;
+  }
+
+
+  /**
+   * @return right term of the assumption, parsed
+   */
+  public final Term getRight() {
+    return right;
+  }
+
 }
\ No newline at end of file
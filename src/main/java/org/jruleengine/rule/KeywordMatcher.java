@@ -0,0 +1,243 @@
+package org.jruleengine.rule;
+
+import java.io.Serializable;
+import java.util.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Aho-Corasick automaton that searches all the values of a list in a text with a single pass over the text.
+ * It is built when a term containing a list of values (e.g. "[a,b,c]") is created and it is used by the
+ * "contains", "containsAtLeastOne", "notContains" and "notContainsAnyone" operators.
+ * The automaton is a deterministic one: the next state is read from a table indexed by the current state and by
+ * the class of the current character, where all characters not contained in the values share the same class.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class KeywordMatcher implements Serializable {
+
+  /** number of distinct values to search */
+  private int patterns;
+
+  /** <code>true</code> if the list contains an empty value, which is contained in any text */
+  private boolean emptyPattern;
+
+  /** class of each ASCII character */
+  private int[] asciiClasses = new int[128];
+
+  /** non ASCII characters contained in the values, sorted */
+  private char[] otherChars;
+
+  /** class of each non ASCII character contained in the values */
+  private int[] otherClasses;
+
+  /** number of character classes */
+  private int classes;
+
+  /** transitions: next state, indexed by state * classes + character class */
+  private int[] delta;
+
+  /** value that ends in each state, -1 if none */
+  private int[] output;
+
+  /** nearest state reachable through failure links whose value ends there, -1 if none */
+  private int[] dictionary;
+
+  /** <code>true</code> if at least one value ends in the state or in a state reachable through failure links */
+  private boolean[] terminal;
+
+  /** values found by containsAll in the current thread, when there are more than 64 values; reused by all the matchers */
+  private static final ThreadLocal FOUND = new ThreadLocal();
+
+
+  /**
+   * Build the automaton.
+   * @param list values to search
+   */
+  public KeywordMatcher(String[] list) {
+    // distinct non empty values...
+    LinkedHashSet values = new LinkedHashSet();
+    for(int i=0;i<list.length;i++)
+      if (list[i].length()==0)
+        emptyPattern = true;
+      else
+        values.add(list[i]);
+    String[] keywords = (String[])values.toArray(new String[values.size()]);
+    patterns = keywords.length;
+
+    // character classes: 0 is the class of the characters not contained in the values...
+    TreeMap others = new TreeMap();
+    classes = 1;
+    for(int i=0;i<keywords.length;i++)
+      for(int j=0;j<keywords[i].length();j++) {
+        char c = keywords[i].charAt(j);
+        if (c<128) {
+          if (asciiClasses[c]==0)
+            asciiClasses[c] = classes++;
+        }
+        else if (!others.containsKey(new Character(c)))
+          others.put(new Character(c),new Integer(classes++));
+      }
+    otherChars = new char[others.size()];
+    otherClasses = new int[others.size()];
+    int k = 0;
+    for(Iterator it=others.entrySet().iterator();it.hasNext();k++) {
+      Map.Entry entry = (Map.Entry)it.next();
+      otherChars[k] = ((Character)entry.getKey()).charValue();
+      otherClasses[k] = ((Integer)entry.getValue()).intValue();
+    }
+
+    // trie...
+    int maxStates = 1;
+    for(int i=0;i<keywords.length;i++)
+      maxStates += keywords[i].length();
+    int[] trie = new int[maxStates*classes];
+    Arrays.fill(trie,-1);
+    int[] out = new int[maxStates];
+    Arrays.fill(out,-1);
+    int states = 1;
+    for(int i=0;i<keywords.length;i++) {
+      int state = 0;
+      for(int j=0;j<keywords[i].length();j++) {
+        int cls = classOf(keywords[i].charAt(j));
+        if (trie[state*classes+cls]==-1)
+          trie[state*classes+cls] = states++;
+        state = trie[state*classes+cls];
+      }
+      out[state] = i;
+    }
+
+    // failure links, computed breadth first, are folded into the transition table...
+    delta = new int[states*classes];
+    output = new int[states];
+    dictionary = new int[states];
+    terminal = new boolean[states];
+    int[] fail = new int[states];
+    int[] queue = new int[states];
+    int head = 0, tail = 0;
+    System.arraycopy(out,0,output,0,states);
+    dictionary[0] = -1;
+    for(int c=0;c<classes;c++) {
+      int next = trie[c];
+      if (next==-1)
+        delta[c] = 0;
+      else {
+        delta[c] = next;
+        fail[next] = 0;
+        dictionary[next] = -1;
+        terminal[next] = output[next]!=-1;
+        queue[tail++] = next;
+      }
+    }
+    while(head<tail) {
+      int state = queue[head++];
+      for(int c=0;c<classes;c++) {
+        int next = trie[state*classes+c];
+        if (next==-1)
+          delta[state*classes+c] = delta[fail[state]*classes+c];
+        else {
+          delta[state*classes+c] = next;
+          int f = delta[fail[state]*classes+c];
+          fail[next] = f;
+          dictionary[next] = output[f]!=-1 ? f : dictionary[f];
+          terminal[next] = output[next]!=-1 || terminal[f];
+          queue[tail++] = next;
+        }
+      }
+    }
+  }
+
+
+  /**
+   * @param text text to analyze
+   * @return <code>true</code> if the text contains at least one of the values
+   */
+  public final boolean containsAny(String text) {
+    if (emptyPattern)
+      return true;
+    int state = 0;
+    for(int i=0;i<text.length();i++) {
+      state = delta[state*classes+classOf(text.charAt(i))];
+      if (terminal[state])
+        return true;
+    }
+    return false;
+  }
+
+
+  /**
+   * @param text text to analyze
+   * @return <code>true</code> if the text contains all the values
+   */
+  public final boolean containsAll(String text) {
+    if (patterns==0)
+      return true;
+    long mask = 0;
+    long[] found = null;
+    if (patterns>64) {
+      int words = (patterns+63)/64;
+      found = (long[])FOUND.get();
+      if (found==null || found.length<words) {
+        found = new long[words];
+        FOUND.set(found);
+      }
+      else
+        Arrays.fill(found,0,words,0L);
+    }
+    int count = 0;
+    int state = 0;
+    for(int i=0;i<text.length();i++) {
+      state = delta[state*classes+classOf(text.charAt(i))];
+      if (!terminal[state])
+        continue;
+      for(int s=output[state]!=-1 ? state : dictionary[state];s!=-1;s=dictionary[s]) {
+        int p = output[s];
+        if (found==null) {
+          if ((mask & (1L << p))!=0)
+            continue;
+          mask |= 1L << p;
+        }
+        else {
+          if ((found[p >> 6] & (1L << p))!=0)
+            continue;
+          found[p >> 6] |= 1L << p;
+        }
+        if (++count==patterns)
+          return true;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * @param c character
+   * @return class of the character
+   */
+  private int classOf(char c) {
+    if (c<128)
+      return asciiClasses[c];
+    int pos = Arrays.binarySearch(otherChars,c);
+    return pos<0 ? 0 : otherClasses[pos];
+  }
+
+}
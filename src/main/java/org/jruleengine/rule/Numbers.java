@@ -0,0 +1,140 @@
+package org.jruleengine.rule;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Typed comparison of numeric values, used by the comparison operators.
+ * Values are widened as Java does: two integral values (byte, short, int, long) are compared as long values,
+ * a BigDecimal or BigInteger value is compared with the other value as BigDecimal values,
+ * all other values are compared as double values.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class Numbers {
+
+  private Numbers() { }
+
+
+  /**
+   * Parse a numeric value.
+   * @param value value to parse
+   * @return a Long for an integer value, a BigDecimal for a decimal value, a Double for the other values accepted by Double.valueOf
+   *         (e.g. "NaN"); null if the value is not a number
+   */
+  public static Number parse(String value) {
+    if (value==null || value.length()==0)
+      return null;
+    char c = value.charAt(value.length()-1);
+    if (c>='0' && c<='9') {
+      try {
+        return Long.valueOf(value);
+      }
+      catch (NumberFormatException ex) {
+      }
+      try {
+        return new BigDecimal(value);
+      }
+      catch (NumberFormatException ex) {
+      }
+    }
+    try {
+      return Double.valueOf(value);
+    }
+    catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+
+  /**
+   * Compare two numeric values.
+   * @param op comparison operator: "=", "<>", "<", "<=", ">" or ">="
+   * @param n1 left value
+   * @param n2 right value
+   * @return result of the comparison; NaN values are not equal, less or greater than any other value
+   */
+  public static boolean compare(Operator op,Number n1,Number n2) {
+    int cmp;
+    if (isIntegral(n1) && isIntegral(n2))
+      cmp = compare(n1.longValue(),n2.longValue());
+    else if (isDecimal(n1) && isFinite(n2) || isDecimal(n2) && isFinite(n1))
+      cmp = toBigDecimal(n1).compareTo(toBigDecimal(n2));
+    else
+      return op.compare(n1.doubleValue(),n2.doubleValue());
+    return op.holds(cmp);
+  }
+
+
+  private static int compare(long l1,long l2) {
+    return l1<l2 ? -1 : (l1>l2 ? 1 : 0);
+  }
+
+
+  /**
+   * @return <code>true</code> if the value is a byte, short, int or long value
+   */
+  private static boolean isIntegral(Number n) {
+    return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte ||
+           n instanceof AtomicInteger || n instanceof AtomicLong;
+  }
+
+
+  /**
+   * @return <code>true</code> if the value is a BigDecimal or BigInteger value
+   */
+  private static boolean isDecimal(Number n) {
+    return n instanceof BigDecimal || n instanceof BigInteger;
+  }
+
+
+  /**
+   * @return <code>true</code> if the value can be converted to a BigDecimal value
+   */
+  private static boolean isFinite(Number n) {
+    if (isIntegral(n) || isDecimal(n))
+      return true;
+    double d = n.doubleValue();
+    return !Double.isNaN(d) && !Double.isInfinite(d);
+  }
+
+
+  /**
+   * @return value converted to BigDecimal; a double or float value is converted through its decimal representation
+   */
+  private static BigDecimal toBigDecimal(Number n) {
+    if (n instanceof BigDecimal)
+      return (BigDecimal)n;
+    if (n instanceof BigInteger)
+      return new BigDecimal((BigInteger)n);
+    if (isIntegral(n))
+      return BigDecimal.valueOf(n.longValue());
+    if (n instanceof Float || n instanceof Double)
+      return new BigDecimal(n.toString());
+    return new BigDecimal(n.doubleValue());
+  }
+
+}
@@ -0,0 +1,179 @@
+package org.jruleengine.rule;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Operators supported by an assumption.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public enum Operator {
+
+  EQUALS_TO(Assumption.EQUALS_TO),
+  LESS_THAN(Assumption.LESS_THAN),
+  LESS_OR_EQUALS_TO(Assumption.LESS_OR_EQUALS_TO),
+  GREATER_THAN(Assumption.GREATER_THAN),
+  GREATER_OR_EQUALS_TO(Assumption.GREATER_OR_EQUALS_TO),
+  NOT_EQUALS_TO(Assumption.NOT_EQUALS_TO),
+  EXISTS(Assumption.EXISTS),
+  CONTAINS(Assumption.CONTAINS),
+  NOT_CONTAINS(Assumption.NOT_CONTAINS),
+  CONTAINSATLEASTONE(Assumption.CONTAINSATLEASTONE),
+  NOT_CONTAINSANYONE(Assumption.NOT_CONTAINSANYONE);
+
+  /** operator, as defined in the rule */
+  private String symbol;
+
+
+  private Operator(String symbol) {
+    this.symbol = symbol;
+  }
+
+
+  /**
+   * @return operator, as defined in the rule
+   */
+  public final String getSymbol() {
+    return symbol;
+  }
+
+
+  /**
+   * @return <code>true</code> for the "<", "<=", ">" and ">=" operators
+   */
+  public final boolean isOrdering() {
+    return this==LESS_THAN || this==LESS_OR_EQUALS_TO || this==GREATER_THAN || this==GREATER_OR_EQUALS_TO;
+  }
+
+
+  /**
+   * @param cmp result of the comparison of two values: negative, zero or positive
+   * @return <code>true</code> if this comparison operator is verified
+   */
+  public final boolean holds(int cmp) {
+    switch(this) {
+      case EQUALS_TO:
+        return cmp==0;
+      case NOT_EQUALS_TO:
+        return cmp!=0;
+      case LESS_THAN:
+        return cmp<0;
+      case LESS_OR_EQUALS_TO:
+        return cmp<=0;
+      case GREATER_THAN:
+        return cmp>0;
+      case GREATER_OR_EQUALS_TO:
+        return cmp>=0;
+      default:
+        throw new IllegalArgumentException("Operator not supported: '"+symbol+"'");
+    }
+  }
+
+
+  /**
+   * Compare two double values.
+   * @param d1 left value
+   * @param d2 right value
+   * @return result of the comparison; NaN values verify only the "<>" operator
+   */
+  public final boolean compare(double d1,double d2) {
+    if (Double.isNaN(d1) || Double.isNaN(d2))
+      return this==NOT_EQUALS_TO;
+    return holds(d1<d2 ? -1 : (d1>d2 ? 1 : 0));
+  }
+
+
+  /**
+   * Evaluate this operator over the values of two terms, except the "exists" operator.
+   * @param left left term
+   * @param v1 value of the left term
+   * @param right right term
+   * @param v2 value of the right term
+   * @param typed <code>true</code> to compare numeric values as typed values, <code>false</code> to compare them as strings
+   *              (the ordering operators parse them as double values)
+   * @return result of the comparison; <code>false</code> if an ordering operator compares a null or empty value
+   * @throws NumberFormatException if an ordering operator compares a value that is not a number
+   */
+  public final boolean evaluate(Term left,Object v1,Term right,Object v2,boolean typed) throws NumberFormatException {
+    boolean ordering = isOrdering();
+    if (typed && v1!=null && v2!=null && (ordering || this==EQUALS_TO || this==NOT_EQUALS_TO)) {
+      Number n1 = left.toNumericValue(v1,ordering);
+      Number n2 = right.toNumericValue(v2,ordering);
+      if (n1!=null && n2!=null)
+        return Numbers.compare(this,n1,n2);
+    }
+    String t1 = left.toText(v1);
+    String t2 = right.toText(v2);
+    if (!ordering)
+      return test(t1,right,t2);
+    if (t1==null || t2==null || "".equals(t1) || "".equals(t2))
+      return false;
+    try {
+      if (!typed)
+        return compare(left.toNumber(t1),right.toNumber(t2));
+    }
+    catch (NumberFormatException ex) {
+    }
+    throw new NumberFormatException("Numeric type expected: '"+t1+"','"+t2+"'");
+  }
+
+
+  /**
+   * Compare two values in String format: "=", "<>", "contains", "notContains", "containsAtLeastOne" and "notContainsAnyone".
+   * @param t1 value of the left term; may be null
+   * @param right right term
+   * @param t2 value of the right term; may be null
+   * @return result of the comparison
+   */
+  public final boolean test(String t1,Term right,String t2) {
+    switch(this) {
+      case EQUALS_TO:
+        return t1==null ? t2==null : t1.equals(t2);
+      case NOT_EQUALS_TO:
+        return t1==null ? t2!=null : !t1.equals(t2);
+      case CONTAINS:
+        return t1!=null && t2!=null && right.contains(t1,t2,true);
+      case CONTAINSATLEASTONE:
+        return t1!=null && t2!=null && right.contains(t1,t2,false);
+      case NOT_CONTAINS:
+        return t1!=null && (t2==null || !right.contains(t1,t2,true));
+      case NOT_CONTAINSANYONE:
+        return t1!=null && (t2==null || !right.contains(t1,t2,false));
+      default:
+        throw new IllegalArgumentException("Operator not supported: '"+symbol+"'");
+    }
+  }
+
+
+  /**
+   * @param symbol operator, as defined in the rule
+   * @return operator; null if the operator is not supported
+   */
+  public static Operator parse(String symbol) {
+    Operator[] operators = values();
+    for(int i=0;i<operators.length;i++)
+      if (operators[i].symbol.equals(symbol))
+        return operators[i];
+    return null;
+  }
+
+}
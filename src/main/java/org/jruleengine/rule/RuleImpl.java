@@ -3,6 +3,7 @@ package org.jruleengine.rule;
 import java.util.*;
 import javax.rules.admin.Rule;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -35,6 +36,9 @@ import java.io.Serializable;
  */
 public class RuleImpl implements Rule, Serializable {
 
+  /** property that defines the rule salience: rules having a higher salience are fired first */
+  public static final String SALIENCE = "salience";
+
   /** rule name */
   private String name;
 
@@ -52,6 +56,9 @@ public class RuleImpl implements Rule, Serializable {
 
   private boolean enabled;
 
+  /** counters of the changes of the properties, referenced weakly; null if there are none */
+  private transient Set counters = null;
+
   /**
    * @param name rule name
    * @param description rule description
@@ -115,9 +122,41 @@ public class RuleImpl implements Rule, Serializable {
    */
   public final void setProperty(Object propName, Object propValue) {
     props.put(propName,propValue);
+    synchronized(this) {
+      if (counters==null)
+        return;
+      Iterator it = counters.iterator();
+      while(it.hasNext())
+        ((AtomicInteger)it.next()).incrementAndGet();
+    }
+  }
+
+
+  /**
+   * Method not included into JSR specifications: count the changes of the properties of this rule,
+   * e.g. to detect that the rules compiled by a rule execution set are out of date.
+   * @param counter counter incremented when a property is set; it is referenced weakly
+   */
+  public final synchronized void addChangeCounter(AtomicInteger counter) {
+    if (counters==null)
+      counters = Collections.newSetFromMap(new WeakHashMap());
+    counters.add(counter);
   }
 
   public final boolean isEnabled() {
     return enabled;
   }
+
+
+  /**
+   * @return rule salience, as defined by the "salience" property; 0 if the property is not defined
+   */
+  public final int getSalience() {
+    Object salience = props.get(SALIENCE);
+    if (salience==null)
+      return 0;
+    if (salience instanceof Number)
+      return ((Number)salience).intValue();
+    return Integer.parseInt(salience.toString().trim());
+  }
 }
\ No newline at end of file
@@ -0,0 +1,238 @@
+package org.jruleengine.rule;
+
+import java.io.Serializable;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: This class implements a term of an assumption, parsed when the assumption is created.
+ * A term can be:
+ * - "className.methodName": the value is returned by the getter method of the fact stored in the working memory with key "className"
+ * - "name": the value is the fact stored in the working memory with key "name" (e.g. a Clause)
+ * and, if no fact is found, the term is a literal value:
+ * - a variable, when it starts with ":"
+ * - a list of values, when it is enclosed in square brackets, e.g. "[a,b,c]"
+ * - a number or a string.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * <p> This file is part of JRuleEngine project.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the (LGPL) Lesser General Public
+ * License as published by the Free Software Foundation;
+ *
+ *                GNU LESSER GENERAL PUBLIC LICENSE
+ *                 Version 2.1, February 1999
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the Free
+ * Software Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class Term implements Serializable {
+
+  /** term, as defined in the rule */
+  private final String text;
+
+  /** working memory key of the fact */
+  private final String key;
+
+  /** getter method name; null if the term does not contain a "." */
+  private final String method;
+
+  /** literal value of the term, without the ".0" suffix */
+  private final String literal;
+
+  /** values of the literal, if it is a list of values */
+  private final String[] list;
+
+  /** automaton that searches the values of the list in a text; null if the literal is not a list of values */
+  private final KeywordMatcher matcher;
+
+  /** numeric value of the literal; null if the literal is not a number */
+  private final Double number;
+
+  /** typed numeric value of the literal (Long, BigDecimal or Double); null if the literal is not a number */
+  private final Number numericValue;
+
+
+  /**
+   * @param text term, as defined in the rule
+   */
+  public Term(String text) {
+    this.text = text;
+    int pos = text.lastIndexOf(".");
+    key = pos==-1 ? text : text.substring(0,pos);
+    method = pos==-1 ? null : text.substring(pos+1);
+    literal = stripDecimals(text);
+    list = split(literal);
+    matcher = list==null ? null : new KeywordMatcher(list);
+    number = parseDouble(literal);
+    numericValue = number==null ? null : Numbers.parse(literal);
+  }
+
+
+  /**
+   * @return term, as defined in the rule
+   */
+  public final String getText() {
+    return text;
+  }
+
+
+  /**
+   * @return working memory key of the fact: the class name when the term is "className.methodName", the term itself otherwise
+   */
+  public final String getKey() {
+    return key;
+  }
+
+
+  /**
+   * @return getter method name; null if the term does not contain a "."
+   */
+  public final String getMethod() {
+    return method;
+  }
+
+
+  /**
+   * @return literal value of the term, used when no fact is found in the working memory
+   */
+  public final String getLiteral() {
+    return literal;
+  }
+
+
+  /**
+   * @param value value resolved from this term
+   * @return values of the list, if the value is enclosed in square brackets; null otherwise
+   */
+  public final String[] getList(String value) {
+    if (value==literal)
+      return list;
+    return split(value);
+  }
+
+
+  /**
+   * @param value value resolved from this term
+   * @return automaton that searches the values of the list, if the value is the literal list of values of this term; null otherwise
+   */
+  public final KeywordMatcher getMatcher(String value) {
+    if (value==literal)
+      return matcher;
+    return null;
+  }
+
+
+  /**
+   * @param value value resolved from this term
+   * @return numeric value
+   * @throws NumberFormatException if the value is not a number
+   */
+  public final double toNumber(String value) throws NumberFormatException {
+    if (value==literal && number!=null)
+      return number.doubleValue();
+    return Double.parseDouble(value);
+  }
+
+
+  /**
+   * @return typed numeric value of the literal (Long, BigDecimal or Double); null if the literal is not a number
+   */
+  public final Number getNumericValue() {
+    return numericValue;
+  }
+
+
+  /**
+   * @param value value resolved from this term
+   * @return value in String format, without the ".0" suffix
+   */
+  public final String toText(Object value) {
+    if (value==null || value==literal)
+      return (String)value;
+    return stripDecimals(value.toString());
+  }
+
+
+  /**
+   * @param value value resolved from this term, not null
+   * @param parse <code>true</code> to parse a value that is not a number nor the literal
+   * @return typed numeric value; null if the value is not a number
+   */
+  public final Number toNumericValue(Object value,boolean parse) {
+    if (value instanceof Number)
+      return (Number)value;
+    if (value==literal)
+      return numericValue;
+    if (parse)
+      return Numbers.parse(toText(value));
+    return null;
+  }
+
+
+  /**
+   * @param text text to analyze
+   * @param value value resolved from this term: a list of values (enclosed in square brackets) or a single value
+   * @param all <code>true</code> if the text must contain all the values of the list, <code>false</code> if it must contain one of them
+   * @return <code>true</code> if the text contains the value(s)
+   */
+  public final boolean contains(String text,String value,boolean all) {
+    String[] values = getList(value);
+    if (values==null)
+      return text.indexOf(value)!=-1;
+    KeywordMatcher m = getMatcher(value);
+    if (m!=null)
+      return all ? m.containsAll(text) : m.containsAny(text);
+    for(int i=0;i<values.length;i++)
+      if ((text.indexOf(values[i])!=-1)!=all)
+        return !all;
+    return all;
+  }
+
+
+  /**
+   * @param value value
+   * @return value without the ".0" suffix
+   */
+  public static String stripDecimals(String value) {
+    if (value!=null && value.endsWith(".0") && value.length()>2)
+      return value.substring(0,value.length()-2);
+    return value;
+  }
+
+
+  /**
+   * @param value value
+   * @return numeric value; null if the value is not a number
+   */
+  private static Double parseDouble(String value) {
+    try {
+      if (!"".equals(value))
+        return Double.valueOf(value);
+    }
+    catch (NumberFormatException ex) {
+    }
+    return null;
+  }
+
+
+  /**
+   * @param value value
+   * @return values of the list, if the value is enclosed in square brackets; null otherwise
+   */
+  private static String[] split(String value) {
+    if (value!=null && value.startsWith("[") && value.endsWith("]"))
+      return value.substring(1,value.length()-1).split(",");
+    return null;
+  }
+
+}
@@ -0,0 +1,103 @@
+package org.jruleengine;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.jruleengine.facts.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the cached accessors used to invoke the getter methods of the terms and the action methods.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class AccessorTest {
+
+  /**
+   * <p>Description: Class that is not public: its methods cannot be invoked through public method handles.</p>
+   */
+  static class Hidden {
+
+    public String getName() {
+      return "hidden";
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Class whose methods throw an exception.</p>
+   */
+  public static class Failing {
+
+    public String getName() {
+      throw new IllegalStateException("no name");
+    }
+
+    public static String describe(String value) {
+      return "<"+value+">";
+    }
+
+  }
+
+
+  @Test
+  public void accessorsAreCachedPerClass() {
+    Accessor getAge = Accessor.lookup(Customer.class,"getAge",0);
+    assertNotNull(getAge);
+    assertSame(getAge,Accessor.lookup(Customer.class,"getAge",0));
+    assertEquals("getAge",getAge.getName());
+
+    // arities are cached separately...
+    Accessor setAge = Accessor.lookup(Customer.class,"setAge",1);
+    assertSame(setAge,Accessor.lookup(Customer.class,"setAge",1));
+    assertNull(Accessor.lookup(Customer.class,"setAge",0));
+    assertSame(setAge,Accessor.lookup(Customer.class,"setAge",1));
+
+    // missing methods are cached too...
+    assertNull(Accessor.lookup(Customer.class,"getHeight",0));
+    assertNull(Accessor.lookup(Customer.class,"getHeight",0));
+  }
+
+
+  @Test
+  public void gettersAndMethodsAreInvoked() throws Exception {
+    Customer customer = new Customer("al",30);
+    assertEquals(new Integer(30),Accessor.lookup(Customer.class,"getAge",0).invoke(customer));
+    Accessor.lookup(Customer.class,"setTier",1).invoke(customer,new Object[]{"gold"});
+    assertEquals("gold",Accessor.lookup(Customer.class,"getTier",0).invoke(customer));
+
+    // methods inherited from an interface or a superclass...
+    assertEquals("gold",Accessor.lookup(Rated.class,"getTier",0).invoke(customer));
+    assertEquals(customer.toString(),Accessor.lookup(Customer.class,"toString",0).invoke(customer));
+
+    // static methods ignore the target...
+    assertEquals("<x>",Accessor.lookup(Failing.class,"describe",1).invoke(null,new Object[]{"x"}));
+  }
+
+
+  @Test
+  public void methodsOfClassesThatAreNotPublicAreInvokedThroughReflection() throws Exception {
+    Accessor getName = Accessor.lookup(Hidden.class,"getName",0);
+    assertEquals("hidden",getName.invoke(new Hidden()));
+    assertEquals("hidden",getName.invoke(new Hidden(),new Object[0]));
+  }
+
+
+  @Test
+  public void exceptionsThrownByMethodsAreWrapped() throws Exception {
+    try {
+      Accessor.lookup(Failing.class,"getName",0).invoke(new Failing());
+      fail("the method throws an exception");
+    }
+    catch (InvocationTargetException ex) {
+      assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+  }
+
+}
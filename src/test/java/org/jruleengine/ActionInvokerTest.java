@@ -0,0 +1,190 @@
+package org.jruleengine;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the compiled actions: the argument values must be converted to the parameter types of
+ * the invoked methods as the interpreter did.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ActionInvokerTest {
+
+  /** class name of the account facts */
+  private static final String ACCOUNT = Account.class.getName();
+
+
+  /**
+   * <p>Description: Fact whose methods have parameters converted through a String constructor or a valueOf method.</p>
+   */
+  public static class Account {
+
+    private BigDecimal limit;
+
+    private TimeUnit unit;
+
+    private boolean active;
+
+    private char grade;
+
+    public BigDecimal getLimit() {
+      return limit;
+    }
+
+    public void setLimit(BigDecimal limit) {
+      this.limit = limit;
+    }
+
+    public TimeUnit getUnit() {
+      return unit;
+    }
+
+    public void setUnit(TimeUnit unit) {
+      this.unit = unit;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public void setActive(boolean active) {
+      this.active = active;
+    }
+
+    public char getGrade() {
+      return grade;
+    }
+
+    public void setGrade(char grade) {
+      this.grade = grade;
+    }
+
+  }
+
+
+  /**
+   * @param actions actions of a rule that is always fired
+   * @param facts facts
+   */
+  private static void fire(Action[] actions,Object[] facts) throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule("always",new Assumption[]{RuleSets.exists("go")},actions));
+    StatelessRuleSessionImpl session = RuleSets.stateless(RuleSets.register(rules,new HashMap()),null);
+    ArrayList input = new ArrayList(Arrays.asList(facts));
+    input.add(new Clause("go"));
+    session.executeRules(input);
+    session.release();
+  }
+
+
+  @Test
+  public void argumentsAreConvertedToPrimitiveTypes() throws Exception {
+    Customer customer = new Customer("al",30);
+    Order order = new Order("o1",10,"pens");
+    fire(
+      new Action[]{
+        RuleSets.then(RuleSets.CUSTOMER+".setDiscount",new String[]{"12.5"}),
+        RuleSets.then(RuleSets.CUSTOMER+".setAge",new String[]{"41.0"}),
+        RuleSets.then(RuleSets.ORDER+".setQuantity",new String[]{"9007199254740993"})
+      },
+      new Object[]{customer,order}
+    );
+    assertEquals(12.5,customer.getDiscount(),0);
+    assertEquals(41,customer.getAge());
+    assertEquals(9007199254740993L,order.getQuantity());
+  }
+
+
+  @Test
+  public void argumentsAreConvertedThroughConstructorsAndValueOf() throws Exception {
+    Account account = new Account();
+    fire(
+      new Action[]{
+        RuleSets.then(ACCOUNT+".setLimit",new String[]{"1500.25"}),
+        RuleSets.then(ACCOUNT+".setUnit",new String[]{"SECONDS"}),
+        RuleSets.then(ACCOUNT+".setActive",new String[]{"true"}),
+        RuleSets.then(ACCOUNT+".setGrade",new String[]{"B+"})
+      },
+      new Object[]{account}
+    );
+    assertEquals(new BigDecimal("1500.25"),account.getLimit());
+    assertEquals(TimeUnit.SECONDS,account.getUnit());
+    assertTrue(account.isActive());
+    assertEquals('B',account.getGrade());
+  }
+
+
+  @Test
+  public void argumentsAreReadFromFactGetters() throws Exception {
+    Customer customer = new Customer("al",30);
+    Order order = new Order("o1",250.0,"pens");
+    fire(
+      new Action[]{
+        RuleSets.then(RuleSets.CUSTOMER+".setTier",new String[]{RuleSets.ORDER+".getDescription"}),
+        // the ".0" suffix is removed from the value...
+        RuleSets.then(RuleSets.CUSTOMER+".setAge",new String[]{RuleSets.ORDER+".getAmount"}),
+        // a getter of a fact that is not in the working memory is a literal value...
+        RuleSets.then(RuleSets.ORDER+".setStatus",new String[]{ACCOUNT+".getUnit"})
+      },
+      new Object[]{customer,order}
+    );
+    assertEquals("pens",customer.getTier());
+    assertEquals(250,customer.getAge());
+    assertEquals(ACCOUNT+".getUnit",order.getStatus());
+  }
+
+
+  @Test
+  public void targetsNotInTheWorkingMemoryAreCreated() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "create",
+      new Assumption[]{RuleSets.exists("go")},
+      new Action[]{RuleSets.then(ACCOUNT+".setActive",new String[]{"true"})}
+    ));
+    StatefulRuleSessionImpl session = RuleSets.stateful(RuleSets.register(rules,new HashMap()),null);
+    session.addObject(new Clause("go"));
+    session.executeRules();
+    List accounts = session.getObjects(Account.class);
+    assertEquals(1,accounts.size());
+    assertTrue(((Account)accounts.get(0)).isActive());
+    session.release();
+  }
+
+
+  @Test
+  public void invalidActionsAreReported() throws Exception {
+    Action[][] actions = new Action[][]{
+      {RuleSets.setClause("k0",":unbound")},
+      {RuleSets.then(RuleSets.CUSTOMER+".setHeight",new String[]{"1"})},
+      {RuleSets.then(RuleSets.CUSTOMER+".setAge",new String[]{"old"})}
+    };
+    String[] messages = new String[]{
+      "Variable ':unbound' not bound",
+      "No method '"+RuleSets.CUSTOMER+".setHeight' found in class '"+RuleSets.CUSTOMER+"'",
+      "Class '"+RuleSets.CUSTOMER+"' Method 'setAge':\nFor input string: \"old\""
+    };
+    for(int i=0;i<actions.length;i++)
+      try {
+        fire(actions[i],new Object[]{new Customer("al",30)});
+        fail(messages[i]);
+      }
+      catch (InvalidRuleSessionException ex) {
+        assertTrue(ex.getCause().getMessage(),ex.getCause().getMessage().endsWith(messages[i]));
+      }
+  }
+
+}
@@ -0,0 +1,129 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the asynchronous executions: they produce the results of a stateless session, and a
+ * cancelled or expired execution stops and releases its permit of the "asyncConcurrency" limit.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class AsyncExecutionTest {
+
+  /**
+   * @return registered rule execution set, whose rules fire each other endlessly when a "ball" Clause is added,
+   *         and that mark the order when a "go" Clause is added; at most one execution is in progress
+   */
+  private static RuleExecutionSetImpl endless() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "ping",
+      new Assumption[]{RuleSets.when("ball","=","ping")},
+      new Action[]{RuleSets.setClause("ball","pong")}
+    ));
+    rules.add(RuleSets.rule(
+      "pong",
+      new Assumption[]{RuleSets.when("ball","=","pong")},
+      new Action[]{RuleSets.setClause("ball","ping")}
+    ));
+    rules.add(RuleSets.rule(
+      "mark",
+      new Assumption[]{RuleSets.exists("go")},
+      new Action[]{RuleSets.then(RuleSets.ORDER+".setStatus",new String[]{"ran"})}
+    ));
+    return RuleSets.register(rules,RuleSets.properties(new String[]{
+      RuleExecutionSetImpl.FIRING,RuleExecutionSetImpl.FIRING_REFRACTION,RuleExecutionSetImpl.ASYNC_CONCURRENCY,"1"
+    }));
+  }
+
+
+  /**
+   * @param set rule execution set created by endless()
+   * @return an order, marked by an execution that completed
+   */
+  private static Order mark(RuleExecutionSetImpl set) throws Exception {
+    Order order = new Order("o1",10,"pens");
+    List objects = (List)new RuleRuntimeImpl().executeRulesAsync(
+      set.getUri(),Arrays.asList(new Object[]{order,new Clause("go")})
+    ).get(10,TimeUnit.SECONDS);
+    assertTrue(objects.contains(order));
+    return order;
+  }
+
+
+  @Test
+  public void asyncExecutionsProducePreviousOutcomes() throws Exception {
+    RuleExecutionSetImpl set = RuleSets.register(OrderRules.rules(),RuleSets.properties(new String[]{
+      RuleExecutionSetImpl.ASYNC_CONCURRENCY,"2"
+    }));
+    RuleRuntimeImpl runtime = new RuleRuntimeImpl();
+    List[] inputs = OrderRules.inputs();
+    CompletableFuture[] futures = new CompletableFuture[inputs.length];
+    for(int i=0;i<inputs.length;i++)
+      futures[i] = runtime.executeRulesAsync(set.getUri(),new ArrayList(inputs[i]),10,TimeUnit.SECONDS);
+    for(int i=0;i<inputs.length;i++)
+      assertEquals(OrderRules.EXPECTED[i],OrderRules.outcome(inputs[i],(List)futures[i].get(10,TimeUnit.SECONDS)));
+
+    // errors complete the future...
+    try {
+      runtime.executeRulesAsync(set.getUri(),Arrays.asList(new Object[]{new Customer("ex",30)})).get(10,TimeUnit.SECONDS);
+      fail("no order");
+    }
+    catch (ExecutionException ex) {
+      assertEquals("Numeric type expected: '"+RuleSets.ORDER+".getAmount','100'",ex.getCause().getCause().getMessage());
+    }
+  }
+
+
+  @Test
+  public void expiredExecutionsReleaseTheirPermit() throws Exception {
+    RuleExecutionSetImpl set = endless();
+    CompletableFuture future = new RuleRuntimeImpl().executeRulesAsync(
+      set.getUri(),Arrays.asList(new Object[]{new Clause("ball","ping")}),100,TimeUnit.MILLISECONDS
+    );
+    try {
+      future.get(10,TimeUnit.SECONDS);
+      fail("endless execution");
+    }
+    catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof TimeoutException);
+    }
+    assertEquals("ran",mark(set).getStatus());
+  }
+
+
+  @Test
+  public void cancelledExecutionsStop() throws Exception {
+    RuleExecutionSetImpl set = endless();
+    RuleRuntimeImpl runtime = new RuleRuntimeImpl();
+    boolean[] interrupt = new boolean[]{false,true};
+    for(int i=0;i<interrupt.length;i++) {
+      CompletableFuture running = runtime.executeRulesAsync(set.getUri(),Arrays.asList(new Object[]{new Clause("ball","ping")}));
+      // the next execution waits for the permit of the running one...
+      Order queued = new Order("o2",10,"pens");
+      CompletableFuture waiting = runtime.executeRulesAsync(set.getUri(),Arrays.asList(new Object[]{queued,new Clause("go")}));
+      Thread.sleep(50);
+      assertFalse(running.isDone());
+      assertFalse(waiting.isDone());
+      assertTrue(waiting.cancel(interrupt[i]));
+      assertTrue(running.cancel(interrupt[i]));
+      assertTrue(running.isCancelled());
+
+      // the permit is released, and the cancelled execution never runs...
+      assertEquals("ran",mark(set).getStatus());
+      assertEquals("new",queued.getStatus());
+    }
+  }
+
+}
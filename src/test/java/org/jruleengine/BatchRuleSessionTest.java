@@ -0,0 +1,117 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the batch session: the inputs evaluated in parallel produce the results of a stateless
+ * session for each input, in input order, and an input whose execution fails does not abort the batch.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class BatchRuleSessionTest {
+
+  /**
+   * @param copies number of copies of each input
+   * @return the inputs of OrderRules, repeated; each input whose index is a multiple of 7 has no order, so that
+   *         the comparison of the order amount fails
+   */
+  static List inputs(int copies) {
+    ArrayList inputs = new ArrayList();
+    for(int n=0;n<copies;n++) {
+      List[] lists = OrderRules.inputs();
+      for(int i=0;i<lists.length;i++)
+        if (inputs.size()%7==0)
+          inputs.add(new ArrayList(Arrays.asList(new Object[]{new Customer("ex",30)})));
+        else
+          inputs.add(new ArrayList(lists[i]));
+    }
+    return inputs;
+  }
+
+
+  /**
+   * Check the results of a batch against the outcomes of OrderRules.
+   * @param inputs inputs of the batch
+   * @param results results of the batch, in input order
+   */
+  static void checkResults(List inputs,List results) {
+    assertEquals(inputs.size(),results.size());
+    for(int i=0;i<inputs.size();i++) {
+      BatchRuleSession.Result result = (BatchRuleSession.Result)results.get(i);
+      List input = (List)inputs.get(i);
+      if (input.size()==1) {
+        assertTrue(String.valueOf(i),result.isFailed());
+        assertNull(result.getObjects());
+        assertEquals("Numeric type expected: '"+RuleSets.ORDER+".getAmount','100'",result.getException().getCause().getMessage());
+      }
+      else {
+        assertFalse(String.valueOf(i),result.isFailed());
+        assertNull(result.getException());
+        String expected = OrderRules.EXPECTED[Integer.parseInt(((Order)input.get(1)).getId().substring(1))-1];
+        assertEquals(String.valueOf(i),expected,OrderRules.outcome(input,result.getObjects()));
+      }
+    }
+  }
+
+
+  @Test
+  public void resultsAreReturnedInInputOrder() throws Exception {
+    RuleExecutionSetImpl set = RuleSets.register(OrderRules.rules(),new HashMap());
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      BatchRuleSession batch = new RuleRuntimeImpl().createBatchRuleSession(set.getUri(),null,pool,4);
+      for(int n=0;n<3;n++) {
+        List inputs = inputs(250);
+        checkResults(inputs,batch.executeRules(inputs));
+      }
+      List inputs = inputs(10);
+      checkResults(inputs,batch.executeRules(inputs.stream()));
+      assertEquals(0,batch.executeRules(new ArrayList()).size());
+      batch.release();
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+
+  @Test
+  public void batchesMatchStatelessSessions() throws Exception {
+    RuleExecutionSetImpl set = RuleSets.register(OrderRules.rules(),new HashMap());
+    List inputs = inputs(25);
+    List copies = inputs(25);
+    BatchRuleSession batch = new BatchRuleSession(set,null);
+    List results = batch.executeRules(inputs,new ObjectFilterImpl());
+    batch.release();
+    for(int i=0;i<copies.size();i++) {
+      StatelessRuleSessionImpl session = RuleSets.stateless(set,null);
+      BatchRuleSession.Result result = (BatchRuleSession.Result)results.get(i);
+      try {
+        List objects = session.executeRules((List)copies.get(i));
+        assertEquals(RuleSets.sorted(objects),RuleSets.sorted(result.getObjects()));
+      }
+      catch (InvalidRuleSessionException ex) {
+        assertEquals(ex.getCause().getMessage(),result.getException().getCause().getMessage());
+      }
+      session.release();
+    }
+  }
+
+
+  @Test(expected=IllegalArgumentException.class)
+  public void parallelismMustBePositive() throws Exception {
+    new BatchRuleSession(RuleSets.register(OrderRules.rules(),new HashMap()),null,ForkJoinPool.commonPool(),0);
+  }
+
+}
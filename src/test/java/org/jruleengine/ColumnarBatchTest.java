@@ -0,0 +1,159 @@
+package org.jruleengine;
+
+import java.util.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the columnar evaluation of a batch ("batchEvaluation" property set to "columnar"):
+ * each input must produce the result of the evaluation by its own session.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ColumnarBatchTest {
+
+  /** descriptions of the random orders */
+  private static final String[] DESCRIPTIONS = new String[]{"pens","a gun","knife set","books","bomb","",null};
+
+
+  /**
+   * @return the rules of OrderRules, and rules comparing two getters and big or decimal numbers
+   */
+  private static List rules() {
+    List rules = OrderRules.rules();
+    rules.add(RuleSets.rule(
+      "bulk",
+      new Assumption[]{RuleSets.when(RuleSets.ORDER+".getQuantity",">",RuleSets.CUSTOMER+".getAge")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".addNote",new String[]{"bulk"})}
+    ));
+    rules.add(RuleSets.rule(
+      "huge",
+      new Assumption[]{RuleSets.when(RuleSets.ORDER+".getQuantity",">=","9007199254740993")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".addNote",new String[]{"huge"})}
+    ));
+    rules.add(RuleSets.rule(
+      "cents",
+      new Assumption[]{RuleSets.when(RuleSets.ORDER+".getAmount","<=","0.1"),RuleSets.when(RuleSets.CUSTOMER+".getTier","<>","silver")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".addNote",new String[]{"cents"})}
+    ));
+    return rules;
+  }
+
+
+  /**
+   * @param seed seed of the random generator
+   * @param count number of inputs
+   * @return random inputs, each one a list whose first object is the customer; the same seed produces equal inputs
+   */
+  private static List inputs(long seed,int count) {
+    Random random = new Random(seed);
+    ArrayList inputs = new ArrayList();
+    for(int i=0;i<count;i++) {
+      ArrayList input = new ArrayList();
+      input.add(new Customer("c"+i,random.nextInt(90)));
+      Order order = new Order(
+        "o"+i,
+        random.nextInt(5)==0 ? random.nextInt(3)/10.0 : random.nextInt(3000)/(random.nextBoolean() ? 1.0 : 2.0),
+        DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]
+      );
+      order.setQuantity(random.nextInt(4)==0 ? 9007199254740992L+random.nextInt(3) : random.nextInt(120));
+      input.add(order);
+      if (random.nextBoolean())
+        input.add(new Clause("vip"));
+      if (random.nextInt(3)==0)
+        input.add(new Clause("k0",String.valueOf(random.nextInt(2))));
+      inputs.add(input);
+    }
+    return inputs;
+  }
+
+
+  /**
+   * @param props engine properties
+   * @param inputs inputs
+   * @return outcome of each input, or the message of its error
+   */
+  private static List outcomes(Map props,List inputs) throws Exception {
+    BatchRuleSession batch = new BatchRuleSession(RuleSets.register(rules(),props),null);
+    List results = batch.executeRules(inputs);
+    batch.release();
+    ArrayList outcomes = new ArrayList();
+    for(int i=0;i<results.size();i++) {
+      BatchRuleSession.Result result = (BatchRuleSession.Result)results.get(i);
+      List input = (List)inputs.get(i);
+      if (result.isFailed())
+        outcomes.add(result.getException().getCause().getMessage());
+      else
+        outcomes.add(OrderRules.outcome(input,result.getObjects())+" "+((Order)input.get(1)).getStatus());
+    }
+    return outcomes;
+  }
+
+
+  @Test
+  public void columnarBatchesProducePreviousOutcomes() throws Exception {
+    String[] matchers = new String[]{
+      RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE,RuleExecutionSetImpl.MATCHER_COMPILED
+    };
+    for(int m=0;m<matchers.length;m++) {
+      Map props = RuleSets.properties(new String[]{
+        RuleExecutionSetImpl.MATCHER,matchers[m],RuleExecutionSetImpl.BATCH_EVALUATION,RuleExecutionSetImpl.BATCH_EVALUATION_COLUMNAR
+      });
+      List outcomes = outcomes(props,Arrays.asList(OrderRules.inputs()));
+      for(int i=0;i<outcomes.size();i++) {
+        // the status of the order follows the outcome...
+        String outcome = (String)outcomes.get(i);
+        assertEquals(matchers[m],OrderRules.EXPECTED[i],outcome.substring(0,outcome.lastIndexOf(' ')));
+      }
+    }
+  }
+
+
+  @Test
+  public void columnarBatchesMatchRowEvaluation() throws Exception {
+    String[] comparisons = new String[]{RuleExecutionSetImpl.COMPARISON_TYPED,RuleExecutionSetImpl.COMPARISON_STRING};
+    for(int c=0;c<comparisons.length;c++)
+      for(long seed=1;seed<=5;seed++) {
+        List rows = outcomes(
+          RuleSets.properties(new String[]{RuleExecutionSetImpl.COMPARISON,comparisons[c]}),
+          inputs(seed,400)
+        );
+        List columns = outcomes(
+          RuleSets.properties(new String[]{
+            RuleExecutionSetImpl.COMPARISON,comparisons[c],RuleExecutionSetImpl.BATCH_EVALUATION,RuleExecutionSetImpl.BATCH_EVALUATION_COLUMNAR
+          }),
+          inputs(seed,400)
+        );
+        int evaluated = 0;
+        for(int i=0;i<rows.size();i++) {
+          assertEquals(comparisons[c]+" seed "+seed+" input "+i,rows.get(i),columns.get(i));
+          if (((String)rows.get(i)).indexOf(" discount=")!=-1)
+            evaluated++;
+        }
+        assertTrue(String.valueOf(evaluated),evaluated>rows.size()/2);
+      }
+  }
+
+
+  @Test
+  public void inputsThatCannotBeEvaluatedAreReported() throws Exception {
+    List inputs = BatchRuleSessionTest.inputs(20);
+    BatchRuleSession batch = new BatchRuleSession(
+      RuleSets.register(OrderRules.rules(),RuleSets.properties(new String[]{
+        RuleExecutionSetImpl.BATCH_EVALUATION,RuleExecutionSetImpl.BATCH_EVALUATION_COLUMNAR
+      })),
+      null
+    );
+    BatchRuleSessionTest.checkResults(inputs,batch.executeRules(inputs));
+    batch.release();
+  }
+
+}
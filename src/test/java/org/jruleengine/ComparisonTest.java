@@ -0,0 +1,54 @@
+package org.jruleengine;
+
+import java.util.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the "comparison" property: typed comparisons must give the results of the string
+ * comparisons, except for the values that lose precision when converted to double.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ComparisonTest {
+
+  @Test
+  public void typedAndStringComparisonsProducePreviousOutcomes() throws Exception {
+    String[] comparisons = new String[]{RuleExecutionSetImpl.COMPARISON_TYPED,RuleExecutionSetImpl.COMPARISON_STRING};
+    for(int i=0;i<comparisons.length;i++) {
+      Map props = RuleSets.properties(new String[]{RuleExecutionSetImpl.COMPARISON,comparisons[i]});
+      assertArrayEquals(comparisons[i],OrderRules.EXPECTED,OrderRules.execute(props));
+    }
+  }
+
+
+  @Test
+  public void typedComparisonsKeepLongPrecision() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "huge",
+      new Assumption[]{RuleSets.when(RuleSets.ORDER+".getQuantity",">","9007199254740992")},
+      new Action[]{RuleSets.then(RuleSets.ORDER+".setStatus",new String[]{"huge"})}
+    ));
+    String[] comparisons = new String[]{RuleExecutionSetImpl.COMPARISON_TYPED,RuleExecutionSetImpl.COMPARISON_STRING};
+    String[] expected = new String[]{"huge","new"};
+    for(int i=0;i<comparisons.length;i++) {
+      RuleExecutionSetImpl set = RuleSets.register(rules,RuleSets.properties(new String[]{RuleExecutionSetImpl.COMPARISON,comparisons[i]}));
+      Order order = new Order("o1",10,"pens");
+      order.setQuantity(9007199254740993L);
+      StatelessRuleSessionImpl session = RuleSets.stateless(set,null);
+      session.executeRules(new ArrayList(Arrays.asList(new Object[]{order})));
+      session.release();
+      assertEquals(comparisons[i],expected[i],order.getStatus());
+    }
+  }
+
+}
@@ -0,0 +1,125 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.zip.CRC32;
+
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the compiled matcher ("matcher" property set to "compiled") over random rule sets:
+ * every matcher must produce the working memory produced by the engine before the matchers were introduced,
+ * whose checksum is recorded in BASELINE_CHECKSUM.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class CompiledMatcherTest {
+
+  /** operators used by the random assumptions */
+  private static final String[] OPERATORS = new String[]{
+    Assumption.EQUALS_TO,Assumption.NOT_EQUALS_TO,Assumption.EXISTS,Assumption.LESS_THAN,
+    Assumption.GREATER_OR_EQUALS_TO,Assumption.CONTAINS,Assumption.NOT_CONTAINS
+  };
+
+  /** number of random rule sets */
+  private static final int SEEDS = 300;
+
+  /** checksum of the outcomes of the random rule sets, produced by the engine before the matchers were introduced */
+  private static final long BASELINE_CHECKSUM = 3726385211L;
+
+
+  /**
+   * @param random random generator
+   * @return random rules, whose assumptions compare Clauses "k0".."k5" with values "0".."3"
+   */
+  static List randomRules(Random random) {
+    ArrayList rules = new ArrayList();
+    int count = 3+random.nextInt(25);
+    for(int i=0;i<count;i++) {
+      ArrayList assumptions = new ArrayList();
+      int n = 1+random.nextInt(3);
+      for(int j=0;j<n;j++) {
+        String op = OPERATORS[random.nextInt(OPERATORS.length)];
+        String key = "k"+random.nextInt(6);
+        if (op.equals(Assumption.EXISTS))
+          assumptions.add(new Assumption(key));
+        else {
+          // a numeric comparison is applied only to an existing Clause...
+          if (op.equals(Assumption.LESS_THAN) || op.equals(Assumption.GREATER_OR_EQUALS_TO))
+            assumptions.add(new Assumption(key));
+          assumptions.add(new Assumption(key,op,String.valueOf(random.nextInt(4))));
+        }
+      }
+      ArrayList actions = new ArrayList();
+      n = 1+random.nextInt(2);
+      for(int j=0;j<n;j++)
+        actions.add(new Action(RuleSets.SET_CLAUSE,new ArrayList(Arrays.asList(new String[]{"k"+random.nextInt(6),String.valueOf(random.nextInt(4))}))));
+      rules.add(new RuleImpl("r"+i,"r"+i,assumptions,actions,random.nextInt(10)!=0));
+    }
+    return rules;
+  }
+
+
+  /**
+   * Execute a random rule set over random Clauses.
+   * @param seed seed of the random rule set
+   * @param props engine properties
+   * @return working memory content after the rule execution
+   */
+  static String outcome(int seed,Map props) throws Exception {
+    Random random = new Random(seed);
+    List rules = randomRules(random);
+    StatefulRuleSessionImpl session = RuleSets.stateful(RuleSets.register(rules,props),null);
+    int n = 2+random.nextInt(6);
+    for(int i=0;i<n;i++)
+      session.addObject(new Clause("k"+random.nextInt(6),String.valueOf(random.nextInt(4))));
+    session.executeRules();
+    String outcome = new TreeMap(session.getWorkingMemory()).toString();
+    session.release();
+    return outcome;
+  }
+
+
+  @Test
+  public void matchersProducePreviousOutcomes() throws Exception {
+    String[] matchers = new String[]{
+      RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE,RuleExecutionSetImpl.MATCHER_COMPILED
+    };
+    for(int m=0;m<matchers.length;m++) {
+      Map props = RuleSets.properties(new String[]{RuleExecutionSetImpl.MATCHER,matchers[m]});
+      CRC32 crc = new CRC32();
+      for(int seed=0;seed<SEEDS;seed++)
+        crc.update(outcome(seed,props).getBytes("UTF-8"));
+      assertEquals(matchers[m],BASELINE_CHECKSUM,crc.getValue());
+    }
+  }
+
+
+  @Test
+  public void compiledMatcherFollowsFactChanges() throws Exception {
+    String[] matchers = new String[]{RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_COMPILED};
+    List[] results = new List[matchers.length];
+    for(int m=0;m<matchers.length;m++) {
+      Random random = new Random(42);
+      StatefulRuleSessionImpl session = RuleSets.stateful(
+        RuleSets.register(randomRules(random),RuleSets.properties(new String[]{RuleExecutionSetImpl.MATCHER,matchers[m]})),
+        null
+      );
+      results[m] = new ArrayList();
+      for(int i=0;i<20;i++) {
+        session.addObject(new Clause("k"+random.nextInt(6),String.valueOf(random.nextInt(4))));
+        session.executeRules();
+        results[m].add(new TreeMap(session.getWorkingMemory()).toString());
+      }
+      session.release();
+    }
+    assertEquals(results[0],results[1]);
+  }
+
+}
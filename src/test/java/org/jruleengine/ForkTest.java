@@ -0,0 +1,189 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the persistent working memory and of the forks of a session: a fork is changed and
+ * executed independently of its session, also by another thread, as a session filled with the same facts.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ForkTest {
+
+  /** tiers evaluated by the forks */
+  private static final String[] TIERS = new String[]{"none","silver","gold"};
+
+  /** discounts expected for each tier */
+  private static final String[] DISCOUNTS = new String[]{null,"10","20"};
+
+
+  /**
+   * @param props engine properties
+   * @return registered rule execution set, whose rules store the discount of the customer tier
+   */
+  private static RuleExecutionSetImpl discounts(Map props) throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "silver",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getTier","=","silver"),RuleSets.when(RuleSets.ORDER+".getAmount",">","100")},
+      new Action[]{RuleSets.setClause("discount","10")}
+    ));
+    rules.add(RuleSets.rule(
+      "gold",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getTier","=","gold"),RuleSets.when(RuleSets.ORDER+".getAmount",">","100")},
+      new Action[]{RuleSets.setClause("discount","20")}
+    ));
+    return RuleSets.register(rules,props);
+  }
+
+
+  /**
+   * @param tier customer tier
+   * @return a customer of the given tier
+   */
+  private static Customer customer(String tier) {
+    Customer customer = new Customer("al",30);
+    customer.setTier(tier);
+    return customer;
+  }
+
+
+  @Test
+  public void persistentWorkingMemoryBehavesAsAMap() {
+    WorkingMemoryTest.checkAgainstModel(new PersistentWorkingMemory(),new Random(7),20000);
+  }
+
+
+  @Test
+  public void forkedWorkingMemoriesAreIndependent() {
+    Random random = new Random(11);
+    PersistentWorkingMemory memory = new PersistentWorkingMemory();
+    HashMap model = new HashMap();
+    for(int i=0;i<2000;i++) {
+      memory.put("k"+i,"v"+i);
+      model.put("k"+i,"v"+i);
+    }
+    PersistentWorkingMemory fork = memory.fork();
+    HashMap forkModel = new HashMap(model);
+    for(int n=0;n<5000;n++) {
+      String key = "k"+random.nextInt(3000);
+      boolean changeFork = random.nextBoolean();
+      PersistentWorkingMemory changed = changeFork ? fork : memory;
+      HashMap changedModel = changeFork ? forkModel : model;
+      if (random.nextBoolean())
+        assertEquals(changedModel.put(key,"w"+n),changed.put(key,"w"+n));
+      else
+        assertEquals(changedModel.remove(key),changed.remove(key));
+    }
+    assertEquals(model,memory.asMap());
+    assertEquals(forkModel,fork.asMap());
+    fork.clear();
+    assertEquals(0,fork.size());
+    assertEquals(model.size(),memory.size());
+  }
+
+
+  @Test
+  public void forksAreExecutedIndependently() throws Exception {
+    String[] memories = new String[]{RuleExecutionSetImpl.WORKING_MEMORY_PERSISTENT,RuleExecutionSetImpl.WORKING_MEMORY_LOCAL};
+    for(int w=0;w<memories.length;w++) {
+      RuleExecutionSetImpl set = discounts(RuleSets.properties(new String[]{RuleExecutionSetImpl.WORKING_MEMORY,memories[w]}));
+      StatefulRuleSessionImpl session = RuleSets.stateful(set,null);
+      Handle handle = session.addObject(customer("none"));
+      session.addObject(new Order("o1",200,"desk"));
+      List base = RuleSets.entries(session);
+
+      // each fork evaluates a tier of the customer, in parallel...
+      final StatefulRuleSessionImpl[] forks = new StatefulRuleSessionImpl[TIERS.length];
+      final List errors = Collections.synchronizedList(new ArrayList());
+      Thread[] threads = new Thread[TIERS.length];
+      for(int i=0;i<TIERS.length;i++) {
+        forks[i] = session.fork();
+        forks[i].updateObject(handle,customer(TIERS[i]));
+        final int fork = i;
+        threads[i] = new Thread() {
+
+          public void run() {
+            try {
+              forks[fork].executeRules();
+            }
+            catch (Exception ex) {
+              errors.add(ex.toString());
+            }
+          }
+
+        };
+        threads[i].start();
+      }
+      for(int i=0;i<threads.length;i++)
+        threads[i].join();
+      assertEquals("[]",errors.toString());
+
+      for(int i=0;i<TIERS.length;i++) {
+        assertEquals(memories[w]+" "+TIERS[i],DISCOUNTS[i],forks[i].getWorkingMemoryMap().get("discount"));
+
+        // a fork is equivalent to a session filled with the same facts, the updated one stored last...
+        StatefulRuleSessionImpl fresh = RuleSets.stateful(set,null);
+        fresh.addObject(new Order("o1",200,"desk"));
+        fresh.addObject(customer(TIERS[i]));
+        fresh.executeRules();
+        assertEquals(memories[w]+" "+TIERS[i],RuleSets.entries(fresh),RuleSets.entries(forks[i]));
+        assertEquals(RuleSets.sorted(fresh.getObjects()),RuleSets.sorted(forks[i].getObjects()));
+        fresh.release();
+      }
+      // the session is not changed by its forks...
+      assertEquals(base,RuleSets.entries(session));
+      assertEquals("none",((Customer)session.getObject(handle)).getTier());
+      session.executeRules();
+      assertNull(session.getWorkingMemoryMap().get("discount"));
+      for(int i=0;i<forks.length;i++)
+        forks[i].release();
+      session.release();
+    }
+  }
+
+
+  @Test
+  public void forksOfForksAreIndependent() throws Exception {
+    RuleExecutionSetImpl set = discounts(RuleSets.properties(new String[]{
+      RuleExecutionSetImpl.WORKING_MEMORY,RuleExecutionSetImpl.WORKING_MEMORY_PERSISTENT
+    }));
+    StatefulRuleSessionImpl session = RuleSets.stateful(set,null);
+    Handle handle = session.addObject(customer("silver"));
+    session.addObject(new Order("o1",200,"desk"));
+    StatefulRuleSessionImpl fork = session.fork();
+    fork.executeRules();
+    StatefulRuleSessionImpl forkOfFork = fork.fork();
+    forkOfFork.removeObject(handle);
+    forkOfFork.addObject(new Clause("extra","1"));
+
+    assertEquals("10",fork.getWorkingMemoryMap().get("discount"));
+    assertEquals("10",forkOfFork.getWorkingMemoryMap().get("discount"));
+    assertTrue(fork.containsObject(handle));
+    assertFalse(forkOfFork.containsObject(handle));
+    assertNull(fork.getWorkingMemoryMap().get("extra"));
+    assertNull(session.getWorkingMemoryMap().get("discount"));
+    assertEquals(2,session.getObjects().size());
+
+    // a reset fork does not change its session...
+    fork.reset();
+    assertEquals(0,fork.getObjects().size());
+    assertEquals(2,session.getObjects().size());
+    assertTrue(session.containsObject(handle));
+    forkOfFork.release();
+    fork.release();
+    session.release();
+  }
+
+}
@@ -0,0 +1,195 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the agenda-driven forward chaining: long chains of rules, conflict resolution
+ * (declaration order, salience, recency) and firing policies (once, refraction, firing limit).</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ForwardChainingTest {
+
+  /** matchers, each one must fire the same rules */
+  private static final String[] MATCHERS = new String[]{
+    RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE,RuleExecutionSetImpl.MATCHER_COMPILED
+  };
+
+
+  /**
+   * @param rules rules
+   * @param props engine properties, besides the matcher
+   * @param matcher matcher
+   * @param facts facts to add before executing the rules
+   * @return working memory entries after the rule execution
+   */
+  private static List run(List rules,String[] props,String matcher,Object[] facts) throws Exception {
+    String[] all = new String[props.length+2];
+    System.arraycopy(props,0,all,0,props.length);
+    all[props.length] = RuleExecutionSetImpl.MATCHER;
+    all[props.length+1] = matcher;
+    StatefulRuleSessionImpl session = RuleSets.stateful(RuleSets.register(rules,RuleSets.properties(all)),null);
+    for(int i=0;i<facts.length;i++)
+      session.addObject(facts[i]);
+    session.executeRules();
+    List entries = RuleSets.entries(session);
+    session.release();
+    return entries;
+  }
+
+
+  @Test
+  public void longChainDoesNotOverflowTheStack() throws Exception {
+    // rules are declared in reverse order, so that each firing activates a rule declared before it...
+    int n = 2000;
+    ArrayList rules = new ArrayList();
+    for(int i=n-1;i>=0;i--)
+      rules.add(RuleSets.rule(
+        "c"+i,
+        new Assumption[]{RuleSets.when("c"+i,"=","1")},
+        new Action[]{RuleSets.setClause("c"+(i+1),"1")}
+      ));
+    for(int m=0;m<MATCHERS.length;m++) {
+      List entries = run(rules,new String[0],MATCHERS[m],new Object[]{new Clause("c0","1")});
+      assertEquals(MATCHERS[m],n+1,entries.size());
+      assertTrue(MATCHERS[m],entries.contains("c"+n+"=1"));
+    }
+  }
+
+
+  @Test
+  public void refractionFiresAgainOnlyForChangesMadeByOtherRules() throws Exception {
+    ArrayList rules = new ArrayList();
+    // changes its own fact: no-loop prevents it from firing again because of its own change...
+    rules.add(RuleSets.rule(
+      "note",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getTier","<>","x")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".addNote",new String[]{"n"})}
+    ));
+    // changes the customer, so "note" can be fired again...
+    rules.add(RuleSets.rule(
+      "gold",
+      new Assumption[]{RuleSets.when(RuleSets.ORDER+".getStatus","=","new")},
+      new Action[]{RuleSets.then(RuleSets.ORDER+".setStatus",new String[]{"seen"}),RuleSets.then(RuleSets.CUSTOMER+".setTier",new String[]{"gold"})}
+    ));
+    for(int m=0;m<MATCHERS.length;m++) {
+      Customer once = new Customer("al",30);
+      run(rules,new String[0],MATCHERS[m],new Object[]{once,new Order("o1",10,"pens")});
+      assertEquals(MATCHERS[m],"[n]",once.getNotes().toString());
+
+      Customer refraction = new Customer("al",30);
+      run(
+        rules,
+        new String[]{RuleExecutionSetImpl.FIRING,RuleExecutionSetImpl.FIRING_REFRACTION},
+        MATCHERS[m],
+        new Object[]{refraction,new Order("o1",10,"pens")}
+      );
+      assertEquals(MATCHERS[m],"[n, n]",refraction.getNotes().toString());
+      assertEquals(MATCHERS[m],"gold",refraction.getTier());
+    }
+  }
+
+
+  @Test
+  public void firingLimitStopsRulesThatFireEachOther() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "ping",
+      new Assumption[]{RuleSets.when("ball","=","ping")},
+      new Action[]{RuleSets.setClause("ball","pong")}
+    ));
+    rules.add(RuleSets.rule(
+      "pong",
+      new Assumption[]{RuleSets.when("ball","=","pong")},
+      new Action[]{RuleSets.setClause("ball","ping")}
+    ));
+    for(int m=0;m<MATCHERS.length;m++) {
+      try {
+        run(
+          rules,
+          new String[]{RuleExecutionSetImpl.FIRING,RuleExecutionSetImpl.FIRING_REFRACTION,RuleExecutionSetImpl.MAX_FIRINGS,"50"},
+          MATCHERS[m],
+          new Object[]{new Clause("ball","ping")}
+        );
+        fail(MATCHERS[m]+": the rules fire each other endlessly");
+      }
+      catch (InvalidRuleSessionException ex) {
+        // as any error raised by the rules, it is wrapped by the session...
+        assertTrue(MATCHERS[m],ex.getCause().getMessage().startsWith("Too many rule firings"));
+      }
+
+      // each rule is fired at most once by default...
+      assertEquals(MATCHERS[m],"[ball=ping]",run(rules,new String[0],MATCHERS[m],new Object[]{new Clause("ball","ping")}).toString());
+    }
+  }
+
+
+  @Test
+  public void salienceSelectsTheRuleToFireFirst() throws Exception {
+    ArrayList rules = new ArrayList();
+    RuleImpl low = RuleSets.rule(
+      "low",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getAge",">","0")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".setTier",new String[]{"low"})}
+    );
+    low.setProperty(RuleImpl.SALIENCE,new Integer(-1));
+    RuleImpl high = RuleSets.rule(
+      "high",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getAge",">","0")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".setTier",new String[]{"high"})}
+    );
+    high.setProperty(RuleImpl.SALIENCE,"10");
+    rules.add(low);
+    rules.add(high);
+    for(int m=0;m<MATCHERS.length;m++) {
+      // the last rule fired wins...
+      Customer ordered = new Customer("al",30);
+      run(rules,new String[0],MATCHERS[m],new Object[]{ordered});
+      assertEquals(MATCHERS[m],"high",ordered.getTier());
+
+      Customer salience = new Customer("al",30);
+      run(
+        rules,
+        new String[]{RuleExecutionSetImpl.CONFLICT_RESOLUTION,RuleExecutionSetImpl.CONFLICT_RESOLUTION_SALIENCE},
+        MATCHERS[m],
+        new Object[]{salience}
+      );
+      assertEquals(MATCHERS[m],"low",salience.getTier());
+    }
+  }
+
+
+  @Test
+  public void recencySelectsTheRuleActivatedLast() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule("r0",new Assumption[]{RuleSets.when("k0","=","1")},new Action[]{RuleSets.setClause("res","r0")}));
+    rules.add(RuleSets.rule("r1",new Assumption[]{RuleSets.when("k0","=","1")},new Action[]{RuleSets.setClause("k1","1")}));
+    rules.add(RuleSets.rule("r2",new Assumption[]{RuleSets.when("k0","=","1")},new Action[]{RuleSets.setClause("res","r2")}));
+    rules.add(RuleSets.rule("r3",new Assumption[]{RuleSets.when("k1","=","1")},new Action[]{RuleSets.setClause("res","r3")}));
+    for(int m=0;m<MATCHERS.length;m++) {
+      // r0, r1, r2, r3...
+      assertTrue(MATCHERS[m],run(rules,new String[0],MATCHERS[m],new Object[]{new Clause("k0","1")}).contains("res=r3"));
+
+      // r0, r1, then r3, activated by r1, before r2...
+      List entries = run(
+        rules,
+        new String[]{RuleExecutionSetImpl.CONFLICT_RESOLUTION,RuleExecutionSetImpl.CONFLICT_RESOLUTION_RECENCY},
+        MATCHERS[m],
+        new Object[]{new Clause("k0","1")}
+      );
+      assertTrue(MATCHERS[m],entries.contains("res=r2"));
+    }
+  }
+
+}
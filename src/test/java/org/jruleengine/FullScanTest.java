@@ -0,0 +1,166 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the re-evaluation of the rules after a rule firing: by default ("fullScan" property) all
+ * the assumptions are evaluated again, otherwise only the assumptions that reference the changed facts.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class FullScanTest {
+
+  /** matchers, each one must fire the same rules */
+  private static final String[] MATCHERS = new String[]{
+    RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE,RuleExecutionSetImpl.MATCHER_COMPILED
+  };
+
+  /** class name of the sensor facts */
+  private static final String SENSOR = Sensor.class.getName();
+
+  /** class name of the cart facts */
+  private static final String CART = Cart.class.getName();
+
+
+  /**
+   * <p>Description: Fact that counts the invocations of its getter.</p>
+   */
+  public static class Sensor {
+
+    private int reads = 0;
+
+    public int getLevel() {
+      reads++;
+      return 5;
+    }
+
+    public int getReads() {
+      return reads;
+    }
+
+  }
+
+
+  /**
+   * <p>Description: Fact whose method changes another fact.</p>
+   */
+  public static class Cart {
+
+    private final Customer customer;
+
+    public Cart(Customer customer) {
+      this.customer = customer;
+    }
+
+    public void upgrade(String tier) {
+      customer.setTier(tier);
+    }
+
+  }
+
+
+  @Test
+  public void bothModesProducePreviousOutcomes() throws Exception {
+    String[] modes = new String[]{"true","false"};
+    for(int m=0;m<MATCHERS.length;m++)
+      for(int f=0;f<modes.length;f++)
+        assertArrayEquals(
+          MATCHERS[m]+" fullScan="+modes[f],
+          OrderRules.EXPECTED,
+          OrderRules.execute(RuleSets.properties(new String[]{
+            RuleExecutionSetImpl.MATCHER,MATCHERS[m],RuleExecutionSetImpl.FULL_SCAN,modes[f]
+          }))
+        );
+  }
+
+
+  @Test
+  public void onlyDependentAssumptionsAreEvaluatedAgain() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "sensor",
+      new Assumption[]{RuleSets.when(SENSOR+".getLevel",">","10")},
+      new Action[]{RuleSets.setClause("alarm","on")}
+    ));
+    for(int i=0;i<10;i++)
+      rules.add(RuleSets.rule(
+        "chain"+i,
+        new Assumption[]{RuleSets.when("k"+i,"=","x")},
+        new Action[]{RuleSets.setClause("k"+(i+1),"x")}
+      ));
+    String[] modes = new String[]{"true","false"};
+    for(int m=0;m<MATCHERS.length;m++) {
+      int[] reads = new int[modes.length];
+      for(int f=0;f<modes.length;f++) {
+        Sensor sensor = new Sensor();
+        StatelessRuleSessionImpl session = RuleSets.stateless(
+          RuleSets.register(rules,RuleSets.properties(new String[]{
+            RuleExecutionSetImpl.MATCHER,MATCHERS[m],RuleExecutionSetImpl.FULL_SCAN,modes[f]
+          })),
+          null
+        );
+        List objects = session.executeRules(new ArrayList(Arrays.asList(new Object[]{sensor,new Clause("k0","x")})));
+        session.release();
+        assertTrue(MATCHERS[m],RuleSets.sorted(objects).toString().indexOf("alarm")==-1);
+        assertEquals(MATCHERS[m],12,objects.size());
+        reads[f] = sensor.getReads();
+      }
+      // the sensor is read again after each firing only by a full scan...
+      assertEquals(MATCHERS[m],1,reads[1]);
+      assertTrue(MATCHERS[m]+" "+reads[0],reads[0]>10);
+    }
+  }
+
+
+  @Test
+  public void changesOfOtherObjectsAreDetectedOnlyByAFullScan() throws Exception {
+    ArrayList rules = new ArrayList();
+    // the first rule is evaluated before the customer is changed...
+    rules.add(RuleSets.rule(
+      "gold",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getTier","=","gold")},
+      new Action[]{RuleSets.setClause("upgraded","yes")}
+    ));
+    rules.add(RuleSets.rule(
+      "upgrade",
+      new Assumption[]{RuleSets.exists("go")},
+      new Action[]{RuleSets.then(CART+".upgrade",new String[]{"gold"})}
+    ));
+    String[] modes = new String[]{"true","false"};
+    String[] expected = new String[]{"yes",null};
+    for(int m=0;m<MATCHERS.length;m++)
+      for(int f=0;f<modes.length;f++) {
+        Customer customer = new Customer("al",30);
+        StatefulRuleSessionImpl session = RuleSets.stateful(
+          RuleSets.register(rules,RuleSets.properties(new String[]{
+            RuleExecutionSetImpl.MATCHER,MATCHERS[m],RuleExecutionSetImpl.FULL_SCAN,modes[f]
+          })),
+          null
+        );
+        Handle handle = session.addObject(customer);
+        session.addObject(new Cart(customer));
+        session.addObject(new Clause("go"));
+        session.executeRules();
+        assertEquals(MATCHERS[m],"gold",customer.getTier());
+        assertEquals(MATCHERS[m]+" fullScan="+modes[f],expected[f],session.getWorkingMemoryMap().get("upgraded"));
+
+        // the change is detected once the customer is updated...
+        session.updateObject(handle,customer);
+        session.executeRules();
+        assertEquals(MATCHERS[m],"yes",session.getWorkingMemoryMap().get("upgraded"));
+        session.release();
+      }
+  }
+
+}
@@ -0,0 +1,171 @@
+package org.jruleengine;
+
+import java.io.*;
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the handles checked by generation: a handle is no longer valid once its object is removed,
+ * even if its slot is reused, and it remains valid in the forks of the session and after serialization.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class HandleTest {
+
+  /**
+   * @return a stateful session that holds more facts of the same type
+   */
+  private static StatefulRuleSessionImpl session() throws Exception {
+    return RuleSets.stateful(
+      RuleSets.register(
+        OrderRules.rules(),
+        RuleSets.properties(new String[]{RuleExecutionSetImpl.FACTS,RuleExecutionSetImpl.FACTS_MULTIPLE})
+      ),
+      null
+    );
+  }
+
+
+  @Test
+  public void removedHandlesAreNotValid() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Order o1 = new Order("o1",10,"pens");
+    Handle h1 = session.addObject(o1);
+    assertTrue(session.containsObject(h1));
+    assertSame(o1,session.getObject(h1));
+    session.removeObject(h1);
+    assertFalse(session.containsObject(h1));
+    try {
+      session.getObject(h1);
+      fail("removed handle");
+    }
+    catch (InvalidHandleException ex) {
+      assertEquals("Invalid handle",ex.getMessage());
+    }
+    try {
+      session.removeObject(h1);
+      fail("removed twice");
+    }
+    catch (InvalidRuleSessionException ex) {
+      assertTrue(ex.getCause() instanceof InvalidHandleException);
+    }
+
+    // the slot is reused by the next object, but the removed handle is not revived...
+    Order o2 = new Order("o2",20,"desk");
+    Handle h2 = session.addObject(o2);
+    assertEquals(((HandleImpl)h1).getSlot(),((HandleImpl)h2).getSlot());
+    assertFalse(h1.equals(h2));
+    assertFalse(session.containsObject(h1));
+    assertTrue(session.containsObject(h2));
+    assertSame(o2,session.getObject(h2));
+    assertEquals(Arrays.asList(new Object[]{h2}),session.getHandles());
+    session.release();
+  }
+
+
+  @Test
+  public void updatedHandlesRemainValid() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Handle h = session.addObject(new Order("o1",10,"pens"));
+    Order o2 = new Order("o2",20,"desk");
+    session.updateObject(h,o2);
+    assertTrue(session.containsObject(h));
+    assertSame(o2,session.getObject(h));
+    assertSame(o2,((HandleImpl)h).getObject());
+    assertEquals(1,session.getHandles().size());
+    assertEquals(h,session.getHandles().get(0));
+    assertEquals("[Order(o2,new)]",session.getObjects().toString());
+    session.release();
+  }
+
+
+  @Test
+  public void handlesAreValidInTheForks() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Order o1 = new Order("o1",10,"pens");
+    Order o2 = new Order("o2",20,"desk");
+    Handle h1 = session.addObject(o1);
+    Handle h2 = session.addObject(o2);
+    StatefulRuleSessionImpl fork = session.fork();
+    assertSame(o1,fork.getObject(h1));
+    assertTrue(fork.containsObject(h2));
+
+    // a handle removed in the fork remains valid in the session...
+    fork.removeObject(h1);
+    assertFalse(fork.containsObject(h1));
+    assertTrue(session.containsObject(h1));
+    assertSame(o1,session.getObject(h1));
+
+    // ...and a slot reused by the fork does not revive it in the fork
+    Handle h3 = fork.addObject(new Order("o3",30,"chair"));
+    assertFalse(h1.equals(h3));
+    assertFalse(fork.containsObject(h1));
+    assertFalse(session.containsObject(h3));
+    assertEquals(2,session.getHandles().size());
+    assertEquals(2,fork.getHandles().size());
+    fork.release();
+    session.release();
+  }
+
+
+  @Test
+  public void deserializedHandlesAreValid() throws Exception {
+    // the handle is serialized with its object...
+    StatefulRuleSessionImpl session = session();
+    session.addObject(new Clause("k1","v1"));
+    Handle h = session.addObject(new Clause("k2","v2"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+    oos.writeObject(h);
+    oos.close();
+    Handle read = (Handle)new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+    assertEquals(h,read);
+    assertEquals(h.hashCode(),read.hashCode());
+    assertTrue(session.containsObject(read));
+    assertEquals("v2",((Clause)session.getObject(read)).getValue());
+
+    // the handle does not belong to another session...
+    StatefulRuleSessionImpl other = session();
+    other.addObject(new Clause("k1","v1"));
+    other.addObject(new Clause("k2","v2"));
+    assertFalse(other.containsObject(read));
+    other.release();
+
+    session.removeObject(h);
+    assertFalse(session.containsObject(read));
+    session.release();
+  }
+
+
+  @Test
+  public void detachedHandlesAreNotResolved() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Order o1 = new Order("o1",10,"pens");
+    Handle h = session.addObject(o1);
+    HandleImpl detached = new HandleImpl(o1);
+    assertEquals(detached,new HandleImpl(o1));
+    assertEquals(detached.hashCode(),new HandleImpl(o1).hashCode());
+    assertFalse(detached.equals(new HandleImpl(new Order("o2",20,"desk"))));
+    assertFalse(detached.equals(h));
+    assertFalse(h.equals(detached));
+    assertFalse(session.containsObject(detached));
+    try {
+      session.getObject(detached);
+      fail("detached handle");
+    }
+    catch (InvalidHandleException ex) {
+      assertEquals("Invalid handle",ex.getMessage());
+    }
+    session.release();
+  }
+
+}
@@ -0,0 +1,134 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the working memory holding more facts of the same type ("facts" property set to
+ * "multiple"): rules are matched against each fact of a type, and against each combination of facts of more types.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class MultipleFactsTest {
+
+  /** matchers, each one must fire the same rules */
+  private static final String[] MATCHERS = new String[]{
+    RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE,RuleExecutionSetImpl.MATCHER_COMPILED
+  };
+
+
+  /**
+   * @return rules that read one type (orders) and two types (customers and orders)
+   */
+  private static List rules() {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "big",
+      new Assumption[]{RuleSets.when(RuleSets.ORDER+".getAmount",">","100")},
+      new Action[]{RuleSets.then(RuleSets.ORDER+".setStatus",new String[]{"big"})}
+    ));
+    rules.add(RuleSets.rule(
+      "pair",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getTier","=","gold"),RuleSets.when(RuleSets.ORDER+".getAmount",">","100")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".addNote",new String[]{RuleSets.ORDER+".getId"})}
+    ));
+    rules.add(RuleSets.rule(
+      "any",
+      new Assumption[]{RuleSets.exists("go")},
+      new Action[]{RuleSets.setClause("went","yes")}
+    ));
+    return rules;
+  }
+
+
+  @Test
+  public void rulesAreMatchedAgainstEachCombinationOfFacts() throws Exception {
+    for(int m=0;m<MATCHERS.length;m++) {
+      StatefulRuleSessionImpl session = RuleSets.stateful(
+        RuleSets.register(rules(),RuleSets.properties(new String[]{
+          RuleExecutionSetImpl.FACTS,RuleExecutionSetImpl.FACTS_MULTIPLE,RuleExecutionSetImpl.MATCHER,MATCHERS[m]
+        })),
+        null
+      );
+      Customer silver = new Customer("c1",30);
+      silver.setTier("silver");
+      Customer gold = new Customer("c2",40);
+      gold.setTier("gold");
+      Customer platinum = new Customer("c3",50);
+      platinum.setTier("gold");
+      Order[] orders = new Order[]{new Order("o1",50,"pens"),new Order("o2",200,"desk"),new Order("o3",300,"chair")};
+      session.addObject(silver);
+      session.addObject(orders[0]);
+      session.addObject(gold);
+      session.addObject(orders[1]);
+      session.addObject(platinum);
+      session.addObject(orders[2]);
+      session.addObject(new Clause("go"));
+      session.executeRules();
+
+      assertEquals(MATCHERS[m],"new",orders[0].getStatus());
+      assertEquals(MATCHERS[m],"big",orders[1].getStatus());
+      assertEquals(MATCHERS[m],"big",orders[2].getStatus());
+      assertEquals(MATCHERS[m],"[]",silver.getNotes().toString());
+      assertEquals(MATCHERS[m],"[o2, o3]",RuleSets.sorted(gold.getNotes()).toString());
+      assertEquals(MATCHERS[m],"[o2, o3]",RuleSets.sorted(platinum.getNotes()).toString());
+
+      // each fact is returned once...
+      assertEquals(
+        MATCHERS[m],
+        "[Customer(c1,silver), Customer(c2,gold), Customer(c3,gold), Order(o1,new), Order(o2,big), Order(o3,big), go, yes]",
+        RuleSets.sorted(session.getObjects()).toString()
+      );
+      assertEquals(MATCHERS[m],3,session.getObjects(Customer.class).size());
+      session.release();
+    }
+  }
+
+
+  @Test
+  public void removedFactsAreNotMatched() throws Exception {
+    StatefulRuleSessionImpl session = RuleSets.stateful(
+      RuleSets.register(rules(),RuleSets.properties(new String[]{RuleExecutionSetImpl.FACTS,RuleExecutionSetImpl.FACTS_MULTIPLE})),
+      null
+    );
+    Customer gold = new Customer("c2",40);
+    gold.setTier("gold");
+    session.addObject(gold);
+    Handle removed = session.addObject(new Order("o1",500,"desk"));
+    Order kept = new Order("o2",200,"chair");
+    session.addObject(kept);
+    session.removeObject(removed);
+    session.executeRules();
+    assertEquals("[o2]",gold.getNotes().toString());
+    assertEquals("[Customer(c2,gold), Order(o2,big)]",RuleSets.sorted(session.getObjects()).toString());
+    session.release();
+  }
+
+
+  @Test
+  public void singleFactReplacesTheFactOfTheSameType() throws Exception {
+    Customer first = new Customer("c1",30);
+    first.setTier("gold");
+    Customer second = new Customer("c2",40);
+    second.setTier("gold");
+    StatelessRuleSessionImpl session = RuleSets.stateless(RuleSets.register(rules(),new HashMap()),null);
+    List objects = session.executeRules(new ArrayList(Arrays.asList(new Object[]{
+      first,new Order("o1",200,"desk"),second,new Order("o2",300,"chair")
+    })));
+    session.release();
+    assertEquals("[]",first.getNotes().toString());
+    assertEquals("[o2]",second.getNotes().toString());
+    assertEquals("[Customer(c2,gold), Order(o2,big)]",new ArrayList(new TreeSet(RuleSets.sorted(objects))).toString());
+  }
+
+}
@@ -0,0 +1,183 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of getObjects(): each object is returned once, in storing order, from an index by class
+ * maintained on each working memory change, that must list the objects a scan of the working memory would find.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ObjectsTest {
+
+  /**
+   * <p>Description: Subclass of a fact class.</p>
+   */
+  public static class Member extends Customer {
+
+    public Member(String name,int age) {
+      super(name,age);
+    }
+
+  }
+
+
+  /**
+   * @return a session whose rules store Clauses, some of them with the same value
+   */
+  private static StatefulRuleSessionImpl session() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "gold",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getTier","=","gold")},
+      new Action[]{RuleSets.setClause("gold","1")}
+    ));
+    rules.add(RuleSets.rule(
+      "chain",
+      new Assumption[]{RuleSets.when("k1","=","1")},
+      new Action[]{RuleSets.setClause("k2","1")}
+    ));
+    return RuleSets.stateful(RuleSets.register(rules,new HashMap()),null);
+  }
+
+
+  /**
+   * @param session session
+   * @return objects found by a scan of the working memory: each fact stored with the keys of its type once,
+   *         each value stored with another key once for each key
+   */
+  private static List scan(StatefulRuleSessionImpl session) {
+    ArrayList objects = new ArrayList();
+    IdentityHashMap typed = new IdentityHashMap();
+    Iterator it = session.getWorkingMemoryMap().entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      Object fact = entry.getValue();
+      if (!Arrays.asList(ReteNetwork.getHierarchy(fact.getClass())).contains(entry.getKey()))
+        objects.add(fact);
+      else if (typed.put(fact,fact)==null)
+        objects.add(fact);
+    }
+    return objects;
+  }
+
+
+  /**
+   * Check getObjects() and getObjects(Class) against a scan of the working memory.
+   * @param session session
+   */
+  private static void check(StatefulRuleSessionImpl session) throws Exception {
+    List objects = session.getObjects();
+    assertEquals(RuleSets.sorted(scan(session)),RuleSets.sorted(objects));
+    Class[] types = new Class[]{Customer.class,Member.class,Rated.class,Order.class,String.class,Object.class};
+    for(int t=0;t<types.length;t++) {
+      ArrayList expected = new ArrayList();
+      for(int i=0;i<objects.size();i++)
+        if (types[t].isInstance(objects.get(i)))
+          expected.add(objects.get(i));
+      // the objects of a type follow the order of getObjects()...
+      assertEquals(types[t].getName(),expected,session.getObjects(types[t]));
+    }
+  }
+
+
+  @Test
+  public void objectsAreReturnedOnceInStoringOrder() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Order order = new Order("o1",10,"pens");
+    Customer customer = new Customer("al",30);
+    customer.setTier("gold");
+    Member member = new Member("bo",40);
+    session.addObject(order);
+    session.addObject(customer);
+    session.addObject(new Clause("k1","1"));
+    session.addObject(member);
+    session.executeRules();
+
+    // the customer is replaced by the member, stored with the keys of the class Customer...
+    assertEquals("[Order(o1,new), 1, Customer(bo,none), 1]",session.getObjects().toString());
+    assertEquals("[Customer(bo,none)]",session.getObjects(Customer.class).toString());
+    assertEquals("[Customer(bo,none)]",session.getObjects(Rated.class).toString());
+    assertEquals("[1, 1]",session.getObjects(String.class).toString());
+    assertEquals("[]",session.getObjects(Number.class).toString());
+    check(session);
+
+    // the filter is applied to a list that can be changed...
+    List filtered = session.getObjects(new ObjectFilter() {
+
+      public Object filter(Object o) {
+        return o instanceof String ? null : o.toString();
+      }
+
+      public void reset() {
+      }
+
+    });
+    assertEquals("[Order(o1,new), Customer(bo,none)]",filtered.toString());
+    filtered.add("x");
+    assertEquals(3,filtered.size());
+    assertEquals(4,session.getObjects().size());
+    session.release();
+  }
+
+
+  @Test
+  public void indexFollowsTheSessionChanges() throws Exception {
+    Random random = new Random(5);
+    StatefulRuleSessionImpl session = session();
+    StatefulRuleSessionImpl fork = null;
+    ArrayList handles = new ArrayList();
+    for(int n=0;n<2000;n++) {
+      StatefulRuleSessionImpl changed = fork!=null && random.nextBoolean() ? fork : session;
+      int op = random.nextInt(12);
+      if (op<4) {
+        Object fact;
+        int type = random.nextInt(4);
+        if (type==0) {
+          Customer customer = new Customer("c"+n,random.nextInt(80));
+          customer.setTier(random.nextBoolean() ? "gold" : "none");
+          fact = customer;
+        }
+        else if (type==1)
+          fact = new Member("m"+n,random.nextInt(80));
+        else if (type==2)
+          fact = new Order("o"+n,random.nextInt(500),"pens");
+        else
+          fact = new Clause("k"+random.nextInt(4),String.valueOf(random.nextInt(2)));
+        handles.add(changed.addObject(fact));
+      }
+      else if (op<6 && !handles.isEmpty()) {
+        Handle handle = (Handle)handles.get(random.nextInt(handles.size()));
+        if (changed.containsObject(handle) && !(changed.getObject(handle) instanceof Clause))
+          changed.updateObject(handle,new Order("u"+n,random.nextInt(500),"desk"));
+      }
+      else if (op<8 && !handles.isEmpty()) {
+        Handle handle = (Handle)handles.get(random.nextInt(handles.size()));
+        if (changed.containsObject(handle))
+          changed.removeObject(handle);
+      }
+      else if (op<10)
+        changed.executeRules();
+      else if (op==10)
+        fork = session.fork();
+      else if (random.nextInt(10)==0)
+        changed.reset();
+      check(session);
+      if (fork!=null)
+        check(fork);
+    }
+    session.release();
+  }
+
+}
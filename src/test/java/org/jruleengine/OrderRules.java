@@ -0,0 +1,137 @@
+package org.jruleengine;
+
+import java.util.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Rules that classify customers and orders, shared by the tests that compare the matchers and the
+ * engine options: the expected outcomes have been produced by the engine before the matchers were introduced.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class OrderRules {
+
+  /**
+   * outcome of each input: the distinct objects returned by the session, sorted, with the discount and the notes
+   * of the customer
+   */
+  static final String[] EXPECTED = new String[]{
+    "[0, 1, Customer(bob,silver), Order(o1,flagged), done, vip] discount=10.0 notes=[vip]",
+    "[Customer(al,none), Order(o2,clean)] discount=0.0 notes=[]",
+    "[Customer(cy,silver), Order(o3,big), vip] discount=10.0 notes=[]",
+    "[1, Customer(di,silver), Order(o4,big)] discount=10.0 notes=[]"
+  };
+
+
+  private OrderRules() {
+  }
+
+
+  /**
+   * @return rules, in declaration order
+   */
+  static List rules() {
+    String customer = RuleSets.CUSTOMER;
+    String order = RuleSets.ORDER;
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "adult",
+      new Assumption[]{RuleSets.when(customer+".getAge",">=","18")},
+      new Action[]{RuleSets.then(customer+".setTier",new String[]{"adult"})}
+    ));
+    rules.add(RuleSets.rule(
+      "silver",
+      new Assumption[]{RuleSets.when(customer+".getTier","=","adult"),RuleSets.when(order+".getAmount",">","100")},
+      new Action[]{RuleSets.then(customer+".setTier",new String[]{"silver"}),RuleSets.then(customer+".setDiscount",new String[]{"10"})}
+    ));
+    rules.add(RuleSets.rule(
+      "flag",
+      new Assumption[]{RuleSets.when(order+".getDescription","containsatleastone","[bomb,gun,knife]")},
+      new Action[]{RuleSets.then(order+".setStatus",new String[]{"flagged"})}
+    ));
+    rules.add(RuleSets.rule(
+      "clean",
+      new Assumption[]{RuleSets.when(order+".getDescription","notcontainsanyone","[bomb,gun,knife]"),RuleSets.when(order+".getStatus","<>","flagged")},
+      new Action[]{RuleSets.then(order+".setStatus",new String[]{"clean"})}
+    ));
+    rules.add(RuleSets.rule(
+      "vip",
+      new Assumption[]{RuleSets.exists("vip"),RuleSets.when(customer+".getAge","<","65")},
+      new Action[]{RuleSets.then(customer+".addNote",new String[]{"vip"})}
+    ));
+    rules.add(RuleSets.rule(
+      "chain1",
+      new Assumption[]{RuleSets.when("k0","=","0")},
+      new Action[]{RuleSets.setClause("k1","1")}
+    ));
+    rules.add(RuleSets.rule(
+      "chain2",
+      new Assumption[]{RuleSets.when("k1","=","1")},
+      new Action[]{RuleSets.setClause("k2","done")}
+    ));
+    rules.add(RuleSets.rule(
+      "big",
+      new Assumption[]{RuleSets.when(order+".getAmount",">=","1000.5")},
+      new Action[]{RuleSets.then(order+".setStatus",new String[]{"big"})}
+    ));
+    return rules;
+  }
+
+
+  /**
+   * @return inputs, each one a list of objects whose first object is the customer
+   */
+  static List[] inputs() {
+    return new List[]{
+      Arrays.asList(new Object[]{new Customer("bob",30),new Order("o1",250,"a nice knife set"),new Clause("vip"),new Clause("k0","0")}),
+      Arrays.asList(new Object[]{new Customer("al",12),new Order("o2",50,"books")}),
+      Arrays.asList(new Object[]{new Customer("cy",70),new Order("o3",2000,"pens"),new Clause("vip")}),
+      Arrays.asList(new Object[]{new Customer("di",40),new Order("o4",1000.5,"gun"),new Clause("k0","1")})
+    };
+  }
+
+
+  /**
+   * @param input input, whose first object is the customer
+   * @param objects objects returned by the session
+   * @return outcome of the input, comparable with EXPECTED
+   */
+  static String outcome(List input,List objects) {
+    Customer customer = (Customer)input.get(0);
+    return new ArrayList(new TreeSet(RuleSets.sorted(objects)))+" discount="+customer.getDiscount()+" notes="+customer.getNotes();
+  }
+
+
+  /**
+   * Execute the rules over each input through a stateless session.
+   * @param props engine properties
+   * @return outcome of each input
+   */
+  static String[] execute(Map props) throws Exception {
+    return execute(RuleSets.register(rules(),props));
+  }
+
+
+  /**
+   * Execute the rules over each input through a stateless session.
+   * @param set registered rule execution set, created from rules()
+   * @return outcome of each input
+   */
+  static String[] execute(RuleExecutionSetImpl set) throws Exception {
+    List[] inputs = inputs();
+    String[] outcomes = new String[inputs.length];
+    for(int i=0;i<inputs.length;i++) {
+      StatelessRuleSessionImpl session = RuleSets.stateless(set,null);
+      outcomes[i] = outcome(inputs[i],session.executeRules(new ArrayList(inputs[i])));
+      session.release();
+    }
+    return outcomes;
+  }
+
+}
@@ -0,0 +1,100 @@
+package org.jruleengine;
+
+import java.util.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the parallel evaluation of the assumptions of large rule sets ("parallelEvaluation"
+ * property): the rules must be fired in the same order as by the sequential evaluation.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ParallelEvaluationTest {
+
+  /** matchers, each one must fire the same rules */
+  private static final String[] MATCHERS = new String[]{
+    RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE,RuleExecutionSetImpl.MATCHER_COMPILED
+  };
+
+
+  /**
+   * @param count number of rules
+   * @return rules generated from a price table: each rule notes its price when the order amount reaches it
+   *         and the customer is old enough; rules with a higher salience come later
+   */
+  private static List priceTable(int count) {
+    ArrayList rules = new ArrayList();
+    for(int i=0;i<count;i++) {
+      RuleImpl rule = RuleSets.rule(
+        "price"+i,
+        new Assumption[]{
+          RuleSets.when(RuleSets.ORDER+".getAmount",">=",String.valueOf((i*37)%1000)),
+          RuleSets.when(RuleSets.CUSTOMER+".getAge",i%3==0 ? ">" : "<",String.valueOf(i%50))
+        },
+        new Action[]{RuleSets.then(RuleSets.CUSTOMER+".addNote",new String[]{String.valueOf(i)})}
+      );
+      rule.setProperty(RuleImpl.SALIENCE,String.valueOf(i%7));
+      rules.add(rule);
+    }
+    return rules;
+  }
+
+
+  /**
+   * @param rules rules
+   * @param props engine properties
+   * @return notes of the customer, in firing order
+   */
+  private static List firings(List rules,Map props) throws Exception {
+    Customer customer = new Customer("al",30);
+    StatelessRuleSessionImpl session = RuleSets.stateless(RuleSets.register(rules,props),null);
+    session.executeRules(new ArrayList(Arrays.asList(new Object[]{customer,new Order("o1",600,"desk")})));
+    session.release();
+    return customer.getNotes();
+  }
+
+
+  @Test
+  public void parallelEvaluationFiresRulesInTheSameOrder() throws Exception {
+    List rules = priceTable(1000);
+    String[] strategies = new String[]{RuleExecutionSetImpl.CONFLICT_RESOLUTION_ORDER,RuleExecutionSetImpl.CONFLICT_RESOLUTION_SALIENCE};
+    for(int m=0;m<MATCHERS.length;m++)
+      for(int s=0;s<strategies.length;s++) {
+        List sequential = firings(rules,RuleSets.properties(new String[]{
+          RuleExecutionSetImpl.MATCHER,MATCHERS[m],RuleExecutionSetImpl.CONFLICT_RESOLUTION,strategies[s]
+        }));
+        List parallel = firings(rules,RuleSets.properties(new String[]{
+          RuleExecutionSetImpl.MATCHER,MATCHERS[m],RuleExecutionSetImpl.CONFLICT_RESOLUTION,strategies[s],
+          RuleExecutionSetImpl.PARALLEL_EVALUATION,"64"
+        }));
+        assertTrue(MATCHERS[m],sequential.size()>100);
+        assertEquals(MATCHERS[m]+" "+strategies[s],sequential,parallel);
+      }
+  }
+
+
+  @Test
+  public void parallelEvaluationProducesPreviousOutcomes() throws Exception {
+    for(int m=0;m<MATCHERS.length;m++) {
+      assertArrayEquals(MATCHERS[m],OrderRules.EXPECTED,OrderRules.execute(RuleSets.properties(new String[]{
+        RuleExecutionSetImpl.MATCHER,MATCHERS[m],RuleExecutionSetImpl.PARALLEL_EVALUATION,"1"
+      })));
+
+      // rules that change the facts read by the other rules...
+      Map sequential = RuleSets.properties(new String[]{RuleExecutionSetImpl.MATCHER,MATCHERS[m]});
+      Map parallel = RuleSets.properties(new String[]{RuleExecutionSetImpl.MATCHER,MATCHERS[m],RuleExecutionSetImpl.PARALLEL_EVALUATION,"2"});
+      for(int seed=0;seed<100;seed++)
+        assertEquals(MATCHERS[m]+" seed "+seed,CompiledMatcherTest.outcome(seed,sequential),CompiledMatcherTest.outcome(seed,parallel));
+    }
+  }
+
+}
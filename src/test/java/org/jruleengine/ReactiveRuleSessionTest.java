@@ -0,0 +1,200 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the reactive session: changes put by more producers are applied in batches by the engine
+ * thread, the changes of the same handle are coalesced and a full queue is reported to producers.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ReactiveRuleSessionTest {
+
+  /**
+   * <p>Description: Listener that records the notifications of the engine thread.</p>
+   */
+  private static class Recorder implements ReactiveRuleSession.Listener {
+
+    /** number of rules executions */
+    int executions = 0;
+
+    /** errors */
+    final List errors = new ArrayList();
+
+    public void executed(StatefulRuleSession session) {
+      executions++;
+    }
+
+    public void failed(Exception ex) {
+      errors.add(ex);
+    }
+
+  }
+
+
+  /**
+   * @return a stateful session that holds more orders
+   */
+  private static StatefulRuleSessionImpl session() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "big",
+      new Assumption[]{RuleSets.when(RuleSets.ORDER+".getAmount",">","100")},
+      new Action[]{RuleSets.then(RuleSets.ORDER+".setStatus",new String[]{"big"})}
+    ));
+    return RuleSets.stateful(
+      RuleSets.register(rules,RuleSets.properties(new String[]{RuleExecutionSetImpl.FACTS,RuleExecutionSetImpl.FACTS_MULTIPLE})),
+      null
+    );
+  }
+
+
+  @Test
+  public void changesOfMoreProducersAreApplied() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Recorder recorder = new Recorder();
+    final ReactiveRuleSession reactive = new ReactiveRuleSession(session,64,16,recorder);
+    // an order is always in the working memory, since the rule compares a number read from an order...
+    Order first = new Order("o",0,"item");
+    reactive.insert(first);
+    reactive.start();
+    final Order[][] orders = new Order[4][500];
+    final List retracted = Collections.synchronizedList(new ArrayList());
+    Thread[] threads = new Thread[orders.length];
+    for(int t=0;t<threads.length;t++) {
+      final int producer = t;
+      threads[t] = new Thread() {
+
+        public void run() {
+          for(int i=0;i<orders[producer].length;i++) {
+            orders[producer][i] = new Order("o"+producer+"_"+i,i,"item");
+            Handle h;
+            // the producer retries when the queue is full...
+            while((h=reactive.insert(orders[producer][i]))==null)
+              Thread.yield();
+            if (i%5==0) {
+              while(!reactive.retract(h))
+                Thread.yield();
+              retracted.add(orders[producer][i]);
+            }
+          }
+        }
+
+      };
+      threads[t].start();
+    }
+    for(int t=0;t<threads.length;t++)
+      threads[t].join();
+    reactive.close();
+
+    assertEquals("[]",recorder.errors.toString());
+    assertTrue(recorder.executions>0);
+    assertEquals(0,reactive.getPendingCount());
+    List objects = session.getObjects();
+    assertEquals(1+4*400,objects.size());
+    assertTrue(objects.contains(first));
+    for(int t=0;t<orders.length;t++)
+      for(int i=0;i<orders[t].length;i++) {
+        boolean removed = retracted.contains(orders[t][i]);
+        assertEquals(orders[t][i].toString(),!removed,objects.contains(orders[t][i]));
+        if (!removed)
+          assertEquals(orders[t][i].toString(),i>100 ? "big" : "new",orders[t][i].getStatus());
+      }
+    session.release();
+  }
+
+
+  @Test
+  public void fullQueueIsReportedToProducers() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    ReactiveRuleSession reactive = new ReactiveRuleSession(session,2,null);
+    Handle h = reactive.insert(new Order("o1",200,"desk"));
+    assertNotNull(h);
+    assertTrue(reactive.update(h,new Order("o2",300,"chair")));
+    assertEquals(2,reactive.getPendingCount());
+    assertEquals(0,reactive.getRemainingCapacity());
+    assertNull(reactive.insert(new Order("o3",400,"lamp")));
+    assertFalse(reactive.retract(h));
+
+    // the pending changes are applied when the session is closed, then changes are rejected...
+    reactive.start();
+    reactive.close();
+    assertEquals("[Order(o2,big)]",session.getObjects().toString());
+    assertNull(reactive.insert(new Order("o4",500,"sofa")));
+    assertFalse(reactive.update(h,new Order("o5",600,"bed")));
+    session.release();
+  }
+
+
+  @Test
+  public void changesOfTheSameHandleAreCoalesced() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Recorder recorder = new Recorder();
+    ReactiveRuleSession reactive = new ReactiveRuleSession(session,16,recorder);
+    Order o1 = new Order("o1",50,"pens");
+    Order o2 = new Order("o2",60,"pens");
+    Order o3 = new Order("o3",70,"pens");
+    Order o4 = new Order("o4",500,"desk");
+    Handle h1 = reactive.insert(o1);
+    reactive.update(h1,o2);
+    reactive.update(h1,o3);
+    Handle h4 = reactive.insert(o4);
+    reactive.retract(h4);
+    reactive.start();
+    reactive.close();
+
+    // the changes have been applied as a single batch...
+    assertEquals(1,recorder.executions);
+    assertEquals("[]",recorder.errors.toString());
+    assertEquals("[Order(o3,new)]",session.getObjects().toString());
+    assertEquals("new",o4.getStatus());
+    session.release();
+  }
+
+
+  @Test
+  public void changesOfRetractedHandlesAreReported() throws Exception {
+    StatefulRuleSessionImpl session = session();
+    Recorder recorder = new Recorder();
+    ReactiveRuleSession reactive = new ReactiveRuleSession(session,16,recorder);
+    Handle h = reactive.insert(new Order("o1",50,"pens"));
+    reactive.start();
+    reactive.close();
+    assertEquals(1,session.getObjects().size());
+
+    reactive = new ReactiveRuleSession(session,16,recorder);
+    try {
+      reactive.update(new HandleImpl("o1"),"o2");
+      fail("wrong handle");
+    }
+    catch (IllegalArgumentException ex) {
+      assertEquals("Wrong driver",ex.getMessage());
+    }
+    // a handle of another reactive session is not bound to an object of this one...
+    reactive.update(h,new Order("o2",60,"pens"));
+    Handle h3 = reactive.insert(new Order("o3",70,"pens"));
+    reactive.retract(h3);
+    reactive.update(h3,new Order("o4",80,"pens"));
+    reactive.start();
+    reactive.close();
+    assertEquals(2,recorder.errors.size());
+    for(int i=0;i<recorder.errors.size();i++) {
+      assertTrue(recorder.errors.get(i) instanceof InvalidHandleException);
+      assertEquals("Invalid handle",((Exception)recorder.errors.get(i)).getMessage());
+    }
+    assertEquals("[Order(o1,new)]",session.getObjects().toString());
+    session.release();
+  }
+
+}
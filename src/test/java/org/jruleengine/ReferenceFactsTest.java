@@ -0,0 +1,159 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the reference facts of a rule execution set: the rules read them as if they were added
+ * to each session before its own objects, which shadow them without changing them.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ReferenceFactsTest {
+
+  /** working memories, each one must read the reference facts */
+  private static final String[] MEMORIES = new String[]{
+    null,RuleExecutionSetImpl.WORKING_MEMORY_PERSISTENT,RuleExecutionSetImpl.WORKING_MEMORY_LOCAL,RuleExecutionSetImpl.WORKING_MEMORY_CONCURRENT
+  };
+
+
+  /**
+   * @param memory workingMemory property; may be null
+   * @return session properties
+   */
+  private static Map properties(String memory) {
+    return memory==null ? null : RuleSets.properties(new String[]{RuleExecutionSetImpl.WORKING_MEMORY,memory});
+  }
+
+
+  @Test
+  public void referenceFactsAreReadAsAddedFirst() throws Exception {
+    RuleExecutionSetImpl plain = RuleSets.register(OrderRules.rules(),new HashMap());
+    RuleExecutionSetImpl set = RuleSets.register(OrderRules.rules(),new HashMap());
+    set.setReferenceFacts(Arrays.asList(new Object[]{new Clause("vip"),new Clause("k0","0")}));
+    for(int m=0;m<MEMORIES.length;m++)
+      for(int n=0;n<2;n++) {
+        List[] inputs = OrderRules.inputs();
+        List[] copies = OrderRules.inputs();
+        for(int i=0;i<inputs.length;i++) {
+          // the same objects added before the input, then their values removed from the result,
+          // unless the input adds them too...
+          Clause[] clauses = new Clause[]{new Clause("vip"),new Clause("k0","0")};
+          ArrayList added = new ArrayList(Arrays.asList(clauses));
+          added.addAll(copies[i]);
+          StatelessRuleSessionImpl session = RuleSets.stateless(plain,null);
+          List expected = new ArrayList(session.executeRules(added));
+          session.release();
+          for(int j=0;j<clauses.length;j++)
+            if (!adds(copies[i],clauses[j].getName()))
+              expected.remove(clauses[j].getValue());
+
+          session = RuleSets.stateless(set,properties(MEMORIES[m]));
+          List objects = session.executeRules(new ArrayList(inputs[i]));
+          session.release();
+          assertEquals(MEMORIES[m]+" "+i,OrderRules.outcome(copies[i],expected),OrderRules.outcome(inputs[i],objects));
+        }
+      }
+  }
+
+
+  @Test
+  public void shadowedReferenceFactsAreRestored() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "gold",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getTier","=","gold")},
+      new Action[]{RuleSets.setClause("discount","20")}
+    ));
+    RuleExecutionSetImpl set = RuleSets.register(rules,new HashMap());
+    Customer reference = new Customer("ref",50);
+    reference.setTier("gold");
+    set.setReferenceFacts(Arrays.asList(new Object[]{reference,new Clause("rate","high")}));
+    for(int m=0;m<MEMORIES.length;m++) {
+      StatefulRuleSessionImpl session = RuleSets.stateful(set,properties(MEMORIES[m]));
+      assertSame(MEMORIES[m],reference,session.getWorkingMemoryMap().get(RuleSets.CUSTOMER));
+      assertEquals(MEMORIES[m],"[]",session.getObjects().toString());
+
+      // a customer of the session shadows the reference customer...
+      Customer own = new Customer("own",20);
+      Handle handle = session.addObject(own);
+      assertSame(MEMORIES[m],own,session.getWorkingMemoryMap().get(RuleSets.CUSTOMER));
+      assertEquals(MEMORIES[m],"[Customer(own,none)]",session.getObjects().toString());
+      session.executeRules();
+      assertNull(MEMORIES[m],session.getWorkingMemoryMap().get("discount"));
+
+      // ...until it is removed
+      session.removeObject(handle);
+      assertSame(MEMORIES[m],reference,session.getWorkingMemoryMap().get(RuleSets.CUSTOMER));
+      session.executeRules();
+      assertEquals(MEMORIES[m],"20",session.getWorkingMemoryMap().get("discount"));
+      assertEquals(MEMORIES[m],"[20]",RuleSets.sorted(session.getObjects()).toString());
+      assertEquals(MEMORIES[m],"high",session.getWorkingMemoryMap().get("rate"));
+
+      // a reset session reads the reference facts only...
+      session.addObject(new Clause("rate","low"));
+      session.reset();
+      assertEquals(MEMORIES[m],"high",session.getWorkingMemoryMap().get("rate"));
+      assertNull(MEMORIES[m],session.getWorkingMemoryMap().get("discount"));
+      assertEquals(MEMORIES[m],"[]",session.getObjects().toString());
+      assertEquals(MEMORIES[m],"[]",session.getObjects(Customer.class).toString());
+      session.release();
+    }
+  }
+
+
+  @Test
+  public void referenceFactsAreSharedAndNotChanged() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "rate",
+      new Assumption[]{RuleSets.when("rate","=","high")},
+      new Action[]{RuleSets.setClause("rate","checked")}
+    ));
+    RuleExecutionSetImpl set = RuleSets.register(rules,new HashMap());
+    set.setReferenceFacts(Arrays.asList(new Object[]{new Clause("rate","high")}));
+    for(int m=0;m<MEMORIES.length;m++) {
+      StatefulRuleSessionImpl first = RuleSets.stateful(set,properties(MEMORIES[m]));
+      StatefulRuleSessionImpl second = RuleSets.stateful(set,properties(MEMORIES[m]));
+      first.executeRules();
+      assertEquals(MEMORIES[m],"checked",first.getWorkingMemoryMap().get("rate"));
+      assertEquals(MEMORIES[m],"high",second.getWorkingMemoryMap().get("rate"));
+      StatefulRuleSessionImpl fork = first.fork();
+      first.reset();
+      assertEquals(MEMORIES[m],"high",first.getWorkingMemoryMap().get("rate"));
+      assertEquals(MEMORIES[m],"checked",fork.getWorkingMemoryMap().get("rate"));
+      fork.release();
+      second.release();
+      first.release();
+    }
+
+    // the sessions created after the reference facts are removed do not read them...
+    set.setReferenceFacts(null);
+    StatefulRuleSessionImpl session = RuleSets.stateful(set,null);
+    assertTrue(session.getWorkingMemoryMap().isEmpty());
+    session.release();
+  }
+
+  /**
+   * @param input objects
+   * @param name Clause name
+   * @return <code>true</code> if the objects contain a Clause having the given name
+   */
+  private static boolean adds(List input,String name) {
+    for(int i=0;i<input.size();i++)
+      if (input.get(i) instanceof Clause && name.equals(((Clause)input.get(i)).getName()))
+        return true;
+    return false;
+  }
+
+}
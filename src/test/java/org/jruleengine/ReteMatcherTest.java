@@ -0,0 +1,73 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the Rete matcher ("matcher" property set to "rete"): it must fire the same rules as the
+ * interpreter, also when the facts change between rule executions.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ReteMatcherTest {
+
+  @Test
+  public void interpreterMatchesPreviousOutcomes() throws Exception {
+    assertArrayEquals(OrderRules.EXPECTED,OrderRules.execute(new HashMap()));
+  }
+
+
+  @Test
+  public void reteMatchesPreviousOutcomes() throws Exception {
+    Map props = RuleSets.properties(new String[]{RuleExecutionSetImpl.MATCHER,RuleExecutionSetImpl.MATCHER_RETE});
+    assertArrayEquals(OrderRules.EXPECTED,OrderRules.execute(props));
+  }
+
+
+  @Test
+  public void reteMatchesUpdatedFacts() throws Exception {
+    String[] matchers = new String[]{RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE};
+    List[] results = new List[matchers.length];
+    for(int i=0;i<matchers.length;i++) {
+      RuleExecutionSetImpl set = RuleSets.register(
+        OrderRules.rules(),
+        RuleSets.properties(new String[]{RuleExecutionSetImpl.MATCHER,matchers[i]})
+      );
+      StatefulRuleSessionImpl session = RuleSets.stateful(set,null);
+      session.addObject(new Customer("ed",20));
+      Handle order = session.addObject(new Order("o5",50,"books"));
+      session.executeRules();
+      ArrayList states = new ArrayList();
+      states.add(RuleSets.sorted(session.getObjects()));
+
+      // the new order is matched again by the rules not fired yet...
+      session.updateObject(order,new Order("o6",500,"a bomb"));
+      session.executeRules();
+      states.add(RuleSets.sorted(session.getObjects()));
+
+      // a removed clause is no longer matched...
+      Handle clause = session.addObject(new Clause("k0","0"));
+      session.executeRules();
+      states.add(RuleSets.sorted(session.getObjects()));
+      session.removeObject(clause);
+      session.addObject(new Clause("k1","0"));
+      session.executeRules();
+      states.add(RuleSets.sorted(session.getObjects()));
+      session.release();
+      results[i] = states;
+    }
+    assertEquals("[Customer(ed,adult), Order(o5,clean)]",results[0].get(0).toString());
+    assertEquals(results[0],results[1]);
+  }
+
+}
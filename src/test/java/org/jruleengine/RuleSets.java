@@ -0,0 +1,168 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.rule.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Helpers used by the tests to define rules, to register rule execution sets and to create sessions.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class RuleSets {
+
+  /** class name of the customer facts */
+  static final String CUSTOMER = "org.jruleengine.facts.Customer";
+
+  /** class name of the order facts */
+  static final String ORDER = "org.jruleengine.facts.Order";
+
+  /** method that sets a Clause */
+  static final String SET_CLAUSE = "org.jruleengine.Clause.setClause";
+
+  /** number of rule execution sets registered, used to generate their URIs */
+  private static int registered = 0;
+
+
+  private RuleSets() {
+  }
+
+
+  /**
+   * @param left left term
+   * @param op operator
+   * @param right right term
+   * @return an assumption
+   */
+  static Assumption when(String left,String op,String right) {
+    return new Assumption(left,op,right);
+  }
+
+
+  /**
+   * @param term term that must exist
+   * @return an "exists" assumption
+   */
+  static Assumption exists(String term) {
+    return new Assumption(term);
+  }
+
+
+  /**
+   * @param method method to invoke
+   * @param args arguments of the method
+   * @return an action
+   */
+  static Action then(String method,String[] args) {
+    return new Action(method,new ArrayList(Arrays.asList(args)));
+  }
+
+
+  /**
+   * @param name Clause name
+   * @param value Clause value
+   * @return an action that sets a Clause
+   */
+  static Action setClause(String name,String value) {
+    return then(SET_CLAUSE,new String[]{name,value});
+  }
+
+
+  /**
+   * @param name rule name
+   * @param assumptions assumptions
+   * @param actions actions
+   * @return an enabled rule
+   */
+  static RuleImpl rule(String name,Assumption[] assumptions,Action[] actions) {
+    return new RuleImpl(name,name,new ArrayList(Arrays.asList(assumptions)),new ArrayList(Arrays.asList(actions)),true);
+  }
+
+
+  /**
+   * @param keysAndValues property names, each one followed by its value
+   * @return properties
+   */
+  static Map properties(String[] keysAndValues) {
+    HashMap props = new HashMap();
+    for(int i=0;i<keysAndValues.length;i+=2)
+      props.put(keysAndValues[i],keysAndValues[i+1]);
+    return props;
+  }
+
+
+  /**
+   * Create and register a rule execution set.
+   * @param rules rules
+   * @param props engine properties
+   * @return registered rule execution set, whose URI identifies it
+   */
+  static RuleExecutionSetImpl register(List rules,Map props) throws Exception {
+    RuleAdministratorImpl admin = new RuleAdministratorImpl();
+    RuleExecutionSetImpl set = (RuleExecutionSetImpl)admin.getLocalRuleExecutionSetProvider(new HashMap()).createRuleExecutionSet(
+      new ArrayList(rules),new HashMap(props)
+    );
+    String uri;
+    synchronized(RuleSets.class) {
+      uri = "test"+(++registered);
+    }
+    admin.registerRuleExecutionSet(uri,set,new HashMap(props));
+    return set;
+  }
+
+
+  /**
+   * @param set registered rule execution set
+   * @param props session properties; may be null
+   * @return a new stateful session
+   */
+  static StatefulRuleSessionImpl stateful(RuleExecutionSetImpl set,Map props) throws Exception {
+    return (StatefulRuleSessionImpl)new RuleRuntimeImpl().createRuleSession(set.getUri(),props,RuleRuntime.STATEFUL_SESSION_TYPE);
+  }
+
+
+  /**
+   * @param set registered rule execution set
+   * @param props session properties; may be null
+   * @return a new stateless session
+   */
+  static StatelessRuleSessionImpl stateless(RuleExecutionSetImpl set,Map props) throws Exception {
+    return (StatelessRuleSessionImpl)new RuleRuntimeImpl().createRuleSession(set.getUri(),props,RuleRuntime.STATELESS_SESSION_TYPE);
+  }
+
+
+  /**
+   * @param objects objects
+   * @return the strings of the objects, sorted, to compare results that do not depend on the order of the objects
+   */
+  static List sorted(Collection objects) {
+    ArrayList list = new ArrayList();
+    Iterator it = objects.iterator();
+    while(it.hasNext())
+      list.add(String.valueOf(it.next()));
+    Collections.sort(list);
+    return list;
+  }
+
+
+  /**
+   * @param session session
+   * @return working memory entries of the session, as sorted "key=fact" strings
+   */
+  static List entries(StatefulRuleSessionImpl session) {
+    ArrayList list = new ArrayList();
+    Iterator it = session.getWorkingMemoryMap().entrySet().iterator();
+    while(it.hasNext()) {
+      Map.Entry entry = (Map.Entry)it.next();
+      list.add(entry.getKey()+"="+entry.getValue());
+    }
+    Collections.sort(list);
+    return list;
+  }
+
+}
@@ -0,0 +1,150 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.facts.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the pool of stateless sessions ("sessionPool" property): released sessions are reset
+ * and reused, so each execution produces the outcome of a new session, and sessions never released are detected.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class SessionPoolTest {
+
+  /**
+   * @param size maximum number of idle sessions
+   * @return registered rule execution set, whose stateless sessions are pooled
+   */
+  private static RuleExecutionSetImpl pooled(int size) throws Exception {
+    return RuleSets.register(OrderRules.rules(),RuleSets.properties(new String[]{RuleExecutionSetImpl.SESSION_POOL,String.valueOf(size)}));
+  }
+
+
+  @Test
+  public void pooledSessionsProducePreviousOutcomes() throws Exception {
+    RuleExecutionSetImpl set = pooled(1);
+    SessionPool pool = set.getSessionPool();
+    assertNotNull(pool);
+    assertNull(RuleSets.register(OrderRules.rules(),new HashMap()).getSessionPool());
+    for(int n=0;n<5;n++) {
+      // the same session is reused by each input...
+      assertArrayEquals(OrderRules.EXPECTED,OrderRules.execute(set));
+      assertEquals(1,pool.getIdleCount());
+      assertEquals(0,pool.getActiveCount());
+    }
+  }
+
+
+  @Test
+  public void releasedSessionsAreReset() throws Exception {
+    RuleExecutionSetImpl set = pooled(2);
+    SessionPool pool = set.getSessionPool();
+    StatelessRuleSessionImpl first = RuleSets.stateless(set,null);
+    StatelessRuleSessionImpl second = RuleSets.stateless(set,null);
+    StatelessRuleSessionImpl third = RuleSets.stateless(set,null);
+    assertEquals(3,pool.getActiveCount());
+    assertEquals(0,pool.getIdleCount());
+    List input = OrderRules.inputs()[0];
+    first.executeRules(new ArrayList(input));
+    assertFalse(first.getWorkingMemoryMap().isEmpty());
+    first.release();
+    second.release();
+    third.release();
+    // the pool keeps at most two idle sessions...
+    assertEquals(0,pool.getActiveCount());
+    assertEquals(2,pool.getIdleCount());
+
+    StatelessRuleSessionImpl reused = RuleSets.stateless(set,null);
+    assertEquals(1,pool.getIdleCount());
+    assertTrue(reused.getWorkingMemoryMap().isEmpty());
+    List objects = reused.executeRules(new ArrayList(Arrays.asList(new Object[]{new Customer("al",12),new Order("o2",50,"books")})));
+    assertEquals("[Customer(al,none), Order(o2,clean)]",RuleSets.sorted(objects).toString());
+    reused.release();
+  }
+
+
+  @Test
+  public void concurrentSessionsAreBorrowedAndReleased() throws Exception {
+    final RuleExecutionSetImpl set = pooled(4);
+    final List errors = Collections.synchronizedList(new ArrayList());
+    Thread[] threads = new Thread[8];
+    for(int t=0;t<threads.length;t++) {
+      threads[t] = new Thread() {
+
+        public void run() {
+          try {
+            for(int n=0;n<50;n++)
+              if (!Arrays.equals(OrderRules.EXPECTED,OrderRules.execute(set)))
+                errors.add(Arrays.asList(OrderRules.execute(set)).toString());
+          }
+          catch (Exception ex) {
+            errors.add(ex.toString());
+          }
+        }
+
+      };
+      threads[t].start();
+    }
+    for(int t=0;t<threads.length;t++)
+      threads[t].join();
+    assertEquals("[]",errors.toString());
+    assertEquals(0,set.getSessionPool().getActiveCount());
+    assertTrue(set.getSessionPool().getIdleCount()<=4);
+  }
+
+
+  @Test
+  public void sessionsNotReleasedAreDetected() throws Exception {
+    RuleExecutionSetImpl set = pooled(2);
+    SessionPool pool = set.getSessionPool();
+    RuleSets.stateless(set,null).executeRules(new ArrayList(OrderRules.inputs()[1]));
+    for(int n=0;n<100 && pool.getLeakedCount()==0;n++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(1,pool.getLeakedCount());
+    assertEquals(0,pool.getActiveCount());
+    // the session is reclaimed...
+    assertEquals(1,pool.getIdleCount());
+  }
+
+
+  @Test
+  public void invalidWorkingMemoriesAreReported() throws Exception {
+    RuleExecutionSetImpl set = pooled(2);
+    Map props = RuleSets.properties(new String[]{RuleExecutionSetImpl.WORKING_MEMORY,"org.jruleengine.NoSuchMemory"});
+    try {
+      RuleSets.stateless(set,props);
+      fail("no working memory");
+    }
+    catch (RuleSessionCreateException ex) {
+    }
+    assertEquals(0,set.getSessionPool().getActiveCount());
+    try {
+      new StatelessRuleSessionImpl(set,props);
+      fail("no working memory");
+    }
+    catch (IllegalArgumentException ex) {
+      assertTrue(ex.getCause() instanceof RuleSessionCreateException);
+    }
+
+    // a session with its own working memory is not pooled...
+    StatelessRuleSessionImpl session = RuleSets.stateless(
+      set,
+      RuleSets.properties(new String[]{RuleExecutionSetImpl.WORKING_MEMORY,RuleExecutionSetImpl.WORKING_MEMORY_CONCURRENT})
+    );
+    assertEquals(0,set.getSessionPool().getActiveCount());
+    session.release();
+    assertEquals(0,set.getSessionPool().getIdleCount());
+  }
+
+}
@@ -0,0 +1,133 @@
+package org.jruleengine;
+
+import java.util.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the compiled rule set shared by concurrent sessions: it is compiled once, and again
+ * only when its own rules or their properties change.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class SharedRuleSetTest {
+
+  @Test
+  public void concurrentSessionsProducePreviousOutcomes() throws Exception {
+    String[] matchers = new String[]{
+      RuleExecutionSetImpl.MATCHER_INTERPRETER,RuleExecutionSetImpl.MATCHER_RETE,RuleExecutionSetImpl.MATCHER_COMPILED
+    };
+    for(int m=0;m<matchers.length;m++) {
+      final RuleExecutionSetImpl set = RuleSets.register(
+        OrderRules.rules(),
+        RuleSets.properties(new String[]{RuleExecutionSetImpl.MATCHER,matchers[m]})
+      );
+      ReteNetwork network = set.getReteNetwork();
+      final List errors = Collections.synchronizedList(new ArrayList());
+      Thread[] threads = new Thread[8];
+      for(int t=0;t<threads.length;t++) {
+        threads[t] = new Thread() {
+
+          public void run() {
+            try {
+              for(int n=0;n<100;n++) {
+                List[] inputs = OrderRules.inputs();
+                for(int i=0;i<inputs.length;i++) {
+                  StatelessRuleSessionImpl session = RuleSets.stateless(set,null);
+                  String outcome = OrderRules.outcome(inputs[i],session.executeRules(new ArrayList(inputs[i])));
+                  session.release();
+                  if (!OrderRules.EXPECTED[i].equals(outcome))
+                    errors.add(outcome);
+                }
+              }
+            }
+            catch (Exception ex) {
+              errors.add(ex.toString());
+            }
+          }
+
+        };
+        threads[t].start();
+      }
+      for(int t=0;t<threads.length;t++)
+        threads[t].join();
+      assertEquals(matchers[m],"[]",errors.toString());
+      assertSame(matchers[m],network,set.getReteNetwork());
+    }
+  }
+
+
+  @Test
+  public void rulesAreCompiledAgainWhenTheyChange() throws Exception {
+    List rules = new ArrayList();
+    RuleImpl low = RuleSets.rule(
+      "low",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getAge",">","0")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".setTier",new String[]{"low"})}
+    );
+    RuleImpl high = RuleSets.rule(
+      "high",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getAge",">","0")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".setTier",new String[]{"high"})}
+    );
+    rules.add(low);
+    rules.add(high);
+    RuleExecutionSetImpl set = RuleSets.register(
+      rules,
+      RuleSets.properties(new String[]{RuleExecutionSetImpl.CONFLICT_RESOLUTION,RuleExecutionSetImpl.CONFLICT_RESOLUTION_SALIENCE})
+    );
+    assertEquals("high",tier(set));
+
+    // a salience change reorders the rules...
+    ReteNetwork network = set.getReteNetwork();
+    ((RuleImpl)set.getRules().get(1)).setProperty(RuleImpl.SALIENCE,"5");
+    assertNotSame(network,set.getReteNetwork());
+    assertEquals("low",tier(set));
+
+    // a rule added to the list is fired...
+    network = set.getReteNetwork();
+    set.getRules().add(RuleSets.rule(
+      "last",
+      new Assumption[]{RuleSets.when(RuleSets.CUSTOMER+".getAge",">","0")},
+      new Action[]{RuleSets.then(RuleSets.CUSTOMER+".setTier",new String[]{"last"})}
+    ));
+    assertNotSame(network,set.getReteNetwork());
+    assertEquals("last",tier(set));
+  }
+
+
+  @Test
+  public void changesOfOtherRuleSetsAreIgnored() throws Exception {
+    RuleExecutionSetImpl first = RuleSets.register(OrderRules.rules(),new HashMap());
+    RuleExecutionSetImpl second = RuleSets.register(OrderRules.rules(),new HashMap());
+    ReteNetwork network = first.getReteNetwork();
+    ReteNetwork other = second.getReteNetwork();
+    ((RuleImpl)second.getRules().get(0)).setProperty(RuleImpl.SALIENCE,"3");
+    second.getRules().remove(1);
+    assertSame(network,first.getReteNetwork());
+    assertNotSame(other,second.getReteNetwork());
+    assertArrayEquals(OrderRules.EXPECTED,OrderRules.execute(first));
+  }
+
+
+  /**
+   * @param set rule execution set
+   * @return tier of a customer, after the execution of the rules
+   */
+  private static String tier(RuleExecutionSetImpl set) throws Exception {
+    Customer customer = new Customer("al",30);
+    StatelessRuleSessionImpl session = RuleSets.stateless(set,null);
+    session.executeRules(new ArrayList(Arrays.asList(new Object[]{customer})));
+    session.release();
+    return customer.getTier();
+  }
+
+}
@@ -0,0 +1,107 @@
+package org.jruleengine;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the streaming execution of a batch session: inputs are read only as the results are
+ * consumed, with a bounded number of inputs in flight, and the results are returned in input order.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class StreamingTest {
+
+  /**
+   * <p>Description: Iterator that counts the inputs read.</p>
+   */
+  private static class Feed implements Iterator {
+
+    private final Iterator inputs;
+
+    private int reads = 0;
+
+    Feed(List inputs) {
+      this.inputs = inputs.iterator();
+    }
+
+    public boolean hasNext() {
+      return inputs.hasNext();
+    }
+
+    public Object next() {
+      reads++;
+      return inputs.next();
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+
+  @Test
+  public void inputsAreReadAsResultsAreConsumed() throws Exception {
+    RuleExecutionSetImpl set = RuleSets.register(OrderRules.rules(),new HashMap());
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      BatchRuleSession batch = new BatchRuleSession(set,null,pool,2);
+      List inputs = BatchRuleSessionTest.inputs(50);
+      Feed feed = new Feed(inputs);
+      Iterator results = batch.executeStreaming(feed,3);
+      assertEquals(0,feed.reads);
+
+      ArrayList consumed = new ArrayList();
+      while(results.hasNext()) {
+        assertTrue(feed.reads+" read, "+consumed.size()+" consumed",feed.reads<=consumed.size()+3);
+        consumed.add(results.next());
+      }
+      assertEquals(inputs.size(),feed.reads);
+      BatchRuleSessionTest.checkResults(inputs,consumed);
+      try {
+        results.next();
+        fail("no more results");
+      }
+      catch (NoSuchElementException ex) {
+      }
+      batch.release();
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+
+  @Test
+  public void streamsProduceTheResultsOfTheBatch() throws Exception {
+    RuleExecutionSetImpl set = RuleSets.register(OrderRules.rules(),new HashMap());
+    BatchRuleSession batch = new BatchRuleSession(set,null);
+    List inputs = BatchRuleSessionTest.inputs(30);
+    List results = (List)batch.executeStreaming(inputs.stream(),8).collect(Collectors.toList());
+    BatchRuleSessionTest.checkResults(inputs,results);
+
+    // only the inputs needed by the consumed results are read...
+    Feed feed = new Feed(BatchRuleSessionTest.inputs(30));
+    Iterator it = batch.executeStreaming(feed,4);
+    for(int i=0;i<5;i++)
+      it.next();
+    assertTrue(String.valueOf(feed.reads),feed.reads<=9);
+    batch.release();
+  }
+
+
+  @Test(expected=IllegalArgumentException.class)
+  public void inputsInFlightMustBePositive() throws Exception {
+    new BatchRuleSession(RuleSets.register(OrderRules.rules(),new HashMap()),null).executeStreaming(new ArrayList().iterator(),0);
+  }
+
+}
@@ -0,0 +1,102 @@
+package org.jruleengine;
+
+import java.util.*;
+
+import org.jruleengine.facts.*;
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the cached type keys of the facts ("typeKeys" property): by default a fact is stored with
+ * the keys computed by addObject before they were cached, and also with the interfaces inherited from its superclasses.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class TypeKeysTest {
+
+  /**
+   * <p>Description: Subclass of a fact class that implements an interface.</p>
+   */
+  public static class Member extends Customer implements Comparable {
+
+    public Member(String name,int age) {
+      super(name,age);
+    }
+
+    public int compareTo(Object o) {
+      return getName().compareTo(((Member)o).getName());
+    }
+
+  }
+
+
+  @Test
+  public void hierarchyExtendsPreviousKeys() {
+    Class[] types = new Class[]{Customer.class,Member.class,Order.class,String.class,ArrayList.class};
+    for(int i=0;i<types.length;i++) {
+      String[] keys = ReteNetwork.getHierarchy(types[i]);
+      assertEquals(types[i].getName(),types[i].getName(),keys[0]);
+      assertTrue(types[i].getName(),Arrays.asList(keys).containsAll(legacyKeys(types[i])));
+      assertSame(keys,ReteNetwork.getHierarchy(types[i]));
+    }
+    assertEquals(
+      "[org.jruleengine.TypeKeysTest$Member, org.jruleengine.facts.Customer, java.lang.Object, java.lang.Comparable, org.jruleengine.facts.Rated]",
+      Arrays.asList(ReteNetwork.getHierarchy(Member.class)).toString()
+    );
+    assertEquals("[java.util.ArrayList]",Arrays.asList(ReteNetwork.getHierarchy(ArrayList.class)).toString());
+  }
+
+
+  @Test
+  public void factsAreStoredWithAllOrReferencedKeys() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "rated",
+      new Assumption[]{RuleSets.when(Rated.class.getName()+".getTier","=","none")},
+      new Action[]{RuleSets.setClause("rated","yes")}
+    ));
+    String[] modes = new String[]{RuleExecutionSetImpl.TYPE_KEYS_ALL,RuleExecutionSetImpl.TYPE_KEYS_REFERENCED};
+    String[][] expected = new String[][]{
+      ReteNetwork.getHierarchy(Member.class),
+      new String[]{Member.class.getName(),Rated.class.getName()}
+    };
+    for(int m=0;m<modes.length;m++) {
+      StatefulRuleSessionImpl session = RuleSets.stateful(
+        RuleSets.register(rules,RuleSets.properties(new String[]{RuleExecutionSetImpl.TYPE_KEYS,modes[m]})),
+        null
+      );
+      // the interface is implemented by the superclass...
+      session.addObject(new Member("al",30));
+      assertEquals(modes[m],new HashSet(Arrays.asList(expected[m])),new HashSet(session.getWorkingMemoryMap().keySet()));
+      session.executeRules();
+      assertEquals(modes[m],"yes",session.getWorkingMemoryMap().get("rated"));
+      session.release();
+    }
+  }
+
+
+  /**
+   * @param type class of a fact
+   * @return working memory keys used by addObject before they were cached: the class name and, unless the class is a
+   *         "java." class, the names of its superclasses and of the interfaces implemented directly by the class
+   */
+  private static Set legacyKeys(Class type) {
+    LinkedHashSet keys = new LinkedHashSet();
+    keys.add(type.getName());
+    if (type.getName().startsWith("java."))
+      return keys;
+    for(Class c=type.getSuperclass();c!=null;c=c.getSuperclass())
+      keys.add(c.getName());
+    Class[] interfaces = type.getInterfaces();
+    for(int i=0;i<interfaces.length;i++)
+      keys.add(interfaces[i].getName());
+    return keys;
+  }
+
+}
@@ -0,0 +1,145 @@
+package org.jruleengine;
+
+import java.util.*;
+import javax.rules.*;
+
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the reverse value index ("valueIndex" property) used to bind variables: it must find
+ * a fact whenever scanning the working memory finds one.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ValueIndexTest {
+
+  /** values stored and searched: short and long strings sharing their substrings */
+  private static final String[] VALUES = new String[]{"a","ab","abc","abcd","bcd","xabcx","gold","golden","old",""};
+
+
+  @Test
+  public void indexFindsWhatScanningFinds() {
+    Random random = new Random(3);
+    ValueIndex index = new ValueIndex();
+    LinkedHashMap memory = new LinkedHashMap();
+    for(int n=0;n<5000;n++) {
+      String key = "k"+random.nextInt(12);
+      int op = random.nextInt(4);
+      if (op==0) {
+        index.remove(key);
+        memory.remove(key);
+      }
+      else {
+        Object fact = op==1 ? (Object)new StringBuffer(VALUES[random.nextInt(VALUES.length)]) : VALUES[random.nextInt(VALUES.length)];
+        index.put(key,fact);
+        memory.put(key,fact);
+      }
+      String value = VALUES[random.nextInt(VALUES.length)];
+      assertFound(memory,value,false,index.findEqual(value));
+      assertFound(memory,value,true,index.findContaining(value));
+    }
+  }
+
+
+  @Test
+  public void sessionIndexHidesReferenceFacts() {
+    ValueIndex base = new ValueIndex();
+    base.put("tier","gold");
+    base.put("level","golden");
+    ValueIndex index = new ValueIndex(base);
+    assertEquals("tier",index.findEqual("gold"));
+
+    // a key changed by the session hides the reference fact...
+    index.put("tier","silver");
+    assertEquals("tier",index.findEqual("silver"));
+    assertNull(index.findEqual("gold"));
+    assertEquals("level",index.findContaining("gold"));
+
+    // a copy is independent...
+    ValueIndex copy = index.copy();
+    copy.remove("tier",true);
+    assertEquals("tier",copy.findEqual("gold"));
+    assertNull(index.findEqual("gold"));
+
+    // clearing the session index shows the reference facts again...
+    index.clear();
+    assertEquals("tier",index.findEqual("gold"));
+    assertNull(index.findEqual("silver"));
+  }
+
+
+  @Test
+  public void variablesAreBoundWithAndWithoutIndex() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule(
+      "equal",
+      new Assumption[]{RuleSets.when(":v","=","gold")},
+      new Action[]{RuleSets.setClause("equal",":v")}
+    ));
+    rules.add(RuleSets.rule(
+      "containing",
+      new Assumption[]{RuleSets.when(":w","contains","lde")},
+      new Action[]{RuleSets.setClause("containing",":w")}
+    ));
+    String[] flags = new String[]{"false","true"};
+    List[] results = new List[flags.length];
+    for(int i=0;i<flags.length;i++) {
+      StatefulRuleSessionImpl session = RuleSets.stateful(
+        RuleSets.register(rules,RuleSets.properties(new String[]{RuleExecutionSetImpl.VALUE_INDEX,flags[i]})),
+        null
+      );
+      session.addObject(new Clause("tier","gold"));
+      Handle level = session.addObject(new Clause("level","silver"));
+      session.executeRules();
+      results[i] = new ArrayList();
+      results[i].add(RuleSets.entries(session));
+
+      // the index follows the changes made through the session...
+      session.updateObject(level,new Clause("level","golden"));
+      session.removeObject(session.addObject(new Clause("other","gold")));
+      session.addObject(new Clause("equal","none"));
+      session.addObject(new Clause("containing","none"));
+      session.executeRules();
+      results[i].add(RuleSets.entries(session));
+      session.release();
+    }
+    assertEquals(
+      "[[equal=tier, level=silver, tier=gold], [containing=level, equal=tier, level=golden, tier=gold]]",
+      results[0].toString()
+    );
+    assertEquals(results[0],results[1]);
+  }
+
+
+  /**
+   * @param memory facts
+   * @param value value searched
+   * @param contains <code>true</code> to search a fact that contains the value, <code>false</code> to search a fact equal to it
+   * @param key key returned by the index
+   */
+  private static void assertFound(Map memory,String value,boolean contains,Object key) {
+    Object found = null;
+    Iterator it = memory.entrySet().iterator();
+    while(it.hasNext() && found==null) {
+      Map.Entry entry = (Map.Entry)it.next();
+      if (contains ? entry.getValue().toString().indexOf(value)!=-1 : entry.getValue().equals(value))
+        found = entry.getKey();
+    }
+    String what = memory+(contains ? " contains " : " equals ")+value;
+    if (found==null)
+      assertNull(what,key);
+    else {
+      assertNotNull(what,key);
+      Object fact = memory.get(key);
+      assertTrue(what,contains ? fact.toString().indexOf(value)!=-1 : fact.equals(value));
+    }
+  }
+
+}
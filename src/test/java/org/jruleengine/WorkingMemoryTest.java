@@ -0,0 +1,146 @@
+package org.jruleengine;
+
+import java.io.*;
+import java.util.*;
+
+import org.jruleengine.rule.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the working memory implementations, compared with a HashMap, and of the Hashtable
+ * returned by getWorkingMemory(), which must read and write the working memory of the session.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class WorkingMemoryTest {
+
+  /** keys, some of them having the same hash code */
+  private static final Object[] KEYS = new Object[]{
+    "Aa","BB","AaAa","AaBB","BBAa","BBBB",RuleSets.CUSTOMER,new Integer(0),new Integer(64),new Integer(128)
+  };
+
+
+  /**
+   * Apply random changes to a working memory and to a HashMap, comparing their content after each change.
+   * @param memory working memory to test, initially empty
+   * @param random random generator
+   * @param changes number of changes
+   */
+  static void checkAgainstModel(WorkingMemory memory,Random random,int changes) {
+    HashMap model = new HashMap();
+    for(int n=0;n<changes;n++) {
+      Object key = random.nextInt(4)==0 ? (Object)("k"+random.nextInt(200)) : KEYS[random.nextInt(KEYS.length)];
+      int op = random.nextInt(10);
+      if (op<5)
+        assertEquals(model.put(key,"v"+n),memory.put(key,"v"+n));
+      else if (op<9)
+        assertEquals(model.remove(key),memory.remove(key));
+      else if (random.nextInt(20)==0) {
+        model.clear();
+        memory.clear();
+      }
+      assertEquals(model.get(key),memory.get(key));
+      assertEquals(model.size(),memory.size());
+    }
+    assertEquals(model,memory.asMap());
+    assertEquals(model.keySet(),toSet(memory.keys()));
+    assertEquals(new HashSet(model.values()),toSet(memory.values()));
+    if (!model.isEmpty())
+      assertTrue(memory.containsValue(model.values().iterator().next()));
+    assertFalse(memory.containsValue("none"));
+  }
+
+
+  @Test
+  public void workingMemoriesBehaveAsMaps() {
+    WorkingMemory[] memories = new WorkingMemory[]{new LocalWorkingMemory(),new ConcurrentWorkingMemory()};
+    for(int i=0;i<memories.length;i++)
+      checkAgainstModel(memories[i],new Random(i),20000);
+  }
+
+
+  @Test
+  public void nullKeysAndFactsAreRejected() {
+    WorkingMemory memory = new LocalWorkingMemory();
+    try {
+      memory.put(null,"v");
+      fail("null key");
+    }
+    catch (NullPointerException ex) {
+    }
+    try {
+      memory.put("k",null);
+      fail("null fact");
+    }
+    catch (NullPointerException ex) {
+    }
+    assertNull(memory.remove(null));
+    assertEquals(0,memory.size());
+  }
+
+
+  @Test
+  public void hashtableWritesThroughTheWorkingMemory() throws Exception {
+    ArrayList rules = new ArrayList();
+    rules.add(RuleSets.rule("chain",new Assumption[]{RuleSets.when("k0","=","0")},new Action[]{RuleSets.setClause("k2","done")}));
+    StatefulRuleSessionImpl session = RuleSets.stateful(RuleSets.register(rules,new HashMap()),null);
+    session.addObject(new Clause("k0","0"));
+    Hashtable table = session.getWorkingMemory();
+    assertSame(table,session.getWorkingMemory());
+    assertEquals("0",table.get("k0"));
+
+    // changes made through the Hashtable are seen by the session, and vice versa...
+    table.put("k1","x");
+    assertEquals("x",session.getWorkingMemoryMap().get("k1"));
+    session.addObject(new Clause("k2","y"));
+    assertEquals("y",table.get("k2"));
+    assertTrue(table.contains("y"));
+    assertEquals(3,table.size());
+    table.remove("k0");
+    assertFalse(session.getWorkingMemoryMap().containsKey("k0"));
+    assertEquals(Collections.list(table.keys()).size(),table.keySet().size());
+
+    try {
+      table.put("k3",null);
+      fail("null fact");
+    }
+    catch (NullPointerException ex) {
+    }
+
+    // rules read the facts stored through the Hashtable...
+    table.put("k0","0");
+    session.executeRules();
+    assertEquals("done",table.get("k2"));
+
+    // copies are plain Hashtables, holding the current facts...
+    Hashtable copy = (Hashtable)table.clone();
+    assertEquals(Hashtable.class,copy.getClass());
+    assertEquals(table,copy);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+    oos.writeObject(table);
+    oos.close();
+    Object read = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+    assertEquals(Hashtable.class,read.getClass());
+    assertEquals(copy,read);
+
+    table.clear();
+    assertEquals(0,session.getWorkingMemoryMap().size());
+    session.release();
+  }
+
+
+  private static Set toSet(Iterator it) {
+    HashSet set = new HashSet();
+    while(it.hasNext())
+      set.add(it.next());
+    return set;
+  }
+
+}
@@ -0,0 +1,83 @@
+package org.jruleengine.facts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Fact used by the tests: a customer, whose tier and discount are set by the rules.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class Customer implements Rated {
+
+  private String name;
+
+  private int age;
+
+  private String tier = "none";
+
+  private double discount = 0;
+
+  private List notes = new ArrayList();
+
+
+  public Customer(String name,int age) {
+    this.name = name;
+    this.age = age;
+  }
+
+
+  public final String getName() {
+    return name;
+  }
+
+
+  public final int getAge() {
+    return age;
+  }
+
+
+  public final void setAge(int age) {
+    this.age = age;
+  }
+
+
+  public final String getTier() {
+    return tier;
+  }
+
+
+  public final void setTier(String tier) {
+    this.tier = tier;
+  }
+
+
+  public final double getDiscount() {
+    return discount;
+  }
+
+
+  public final void setDiscount(double discount) {
+    this.discount = discount;
+  }
+
+
+  public final List getNotes() {
+    return notes;
+  }
+
+
+  public final void addNote(String note) {
+    notes.add(note);
+  }
+
+
+  public String toString() {
+    return "Customer("+name+","+tier+")";
+  }
+
+}
@@ -0,0 +1,71 @@
+package org.jruleengine.facts;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Fact used by the tests: an order, whose status is set by the rules.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class Order implements Priced {
+
+  private String id;
+
+  private double amount;
+
+  private long quantity = 1;
+
+  private String description;
+
+  private String status = "new";
+
+
+  public Order(String id,double amount,String description) {
+    this.id = id;
+    this.amount = amount;
+    this.description = description;
+  }
+
+
+  public final String getId() {
+    return id;
+  }
+
+
+  public final double getAmount() {
+    return amount;
+  }
+
+
+  public final long getQuantity() {
+    return quantity;
+  }
+
+
+  public final void setQuantity(long quantity) {
+    this.quantity = quantity;
+  }
+
+
+  public final String getDescription() {
+    return description;
+  }
+
+
+  public final String getStatus() {
+    return status;
+  }
+
+
+  public final void setStatus(String status) {
+    this.status = status;
+  }
+
+
+  public String toString() {
+    return "Order("+id+","+status+")";
+  }
+
+}
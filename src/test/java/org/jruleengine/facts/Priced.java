@@ -0,0 +1,16 @@
+package org.jruleengine.facts;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Fact interface used by the tests: an object having an amount.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public interface Priced {
+
+  public double getAmount();
+
+}
@@ -0,0 +1,16 @@
+package org.jruleengine.facts;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Fact interface used by the tests: an object having a tier.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public interface Rated {
+
+  public String getTier();
+
+}
@@ -0,0 +1,187 @@
+package org.jruleengine.rule;
+
+import java.io.*;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the assumptions parsed into terms and operators when they are created: the string
+ * comparisons must give the same results of the comparisons performed by the interpreter on the raw terms.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class AssumptionTest {
+
+  /** values compared by the operators */
+  private static final String[] VALUES = new String[]{
+    null,"","0","1","1.0","10","2.5","-3","abc","a,b","[a,b]","[x]","[]","xa b","NaN"
+  };
+
+
+  @Test
+  public void termsAreParsedOnce() {
+    Term getter = new Term("org.jruleengine.facts.Customer.getAge");
+    assertEquals("org.jruleengine.facts.Customer",getter.getKey());
+    assertEquals("getAge",getter.getMethod());
+
+    Term name = new Term("k0");
+    assertEquals("k0",name.getKey());
+    assertNull(name.getMethod());
+
+    Term number = new Term("10.0");
+    assertEquals("10",number.getLiteral());
+    assertEquals(10L,number.getNumericValue().longValue());
+    assertNull(new Term("abc").getNumericValue());
+
+    Term list = new Term("[a,b,c]");
+    assertArrayEquals(new String[]{"a","b","c"},list.getList(list.getLiteral()));
+    assertNotNull(list.getMatcher(list.getLiteral()));
+    assertNull(new Term("a,b").getList("a,b"));
+  }
+
+
+  @Test
+  public void operatorsAreParsedOnce() {
+    String[] symbols = new String[]{
+      Assumption.EQUALS_TO,Assumption.LESS_THAN,Assumption.LESS_OR_EQUALS_TO,Assumption.GREATER_THAN,
+      Assumption.GREATER_OR_EQUALS_TO,Assumption.NOT_EQUALS_TO,Assumption.EXISTS,Assumption.CONTAINS,
+      Assumption.NOT_CONTAINS,Assumption.CONTAINSATLEASTONE,Assumption.NOT_CONTAINSANYONE
+    };
+    for(int i=0;i<symbols.length;i++) {
+      Assumption ass = new Assumption("a",symbols[i],"b");
+      assertEquals(symbols[i],ass.getOperatorType().getSymbol());
+      assertEquals("a",ass.getLeft().getText());
+      assertEquals("b",ass.getRight().getText());
+    }
+    assertNull(new Assumption("a","like","b").getOperatorType());
+
+    Assumption exists = new Assumption("k0");
+    assertEquals(Operator.EXISTS,exists.getOperatorType());
+    assertEquals("",exists.getRight().getText());
+  }
+
+
+  @Test
+  public void stringComparisonsMatchTheInterpreter() {
+    Operator[] operators = Operator.values();
+    for(int o=0;o<operators.length;o++) {
+      if (operators[o]==Operator.EXISTS)
+        continue;
+      for(int i=0;i<VALUES.length;i++)
+        for(int j=0;j<VALUES.length;j++) {
+          Term left = new Term(VALUES[i]==null ? "x" : VALUES[i]);
+          Term right = new Term(VALUES[j]==null ? "x" : VALUES[j]);
+          String what = VALUES[i]+" "+operators[o].getSymbol()+" "+VALUES[j];
+          String expected = legacy(operators[o].getSymbol(),Term.stripDecimals(VALUES[i]),Term.stripDecimals(VALUES[j]));
+
+          // values resolved from the literal of the terms...
+          Object v1 = VALUES[i]==null ? null : left.getLiteral();
+          Object v2 = VALUES[j]==null ? null : right.getLiteral();
+          assertEquals(what,expected,evaluate(operators[o],left,v1,right,v2));
+
+          // values resolved from the working memory...
+          v1 = VALUES[i]==null ? null : new StringBuffer(VALUES[i]);
+          v2 = VALUES[j]==null ? null : new StringBuffer(VALUES[j]);
+          assertEquals(what,expected,evaluate(operators[o],left,v1,right,v2));
+        }
+    }
+  }
+
+
+  @Test
+  public void parsedAssumptionsAreSerializable() throws Exception {
+    Assumption ass = new Assumption("org.jruleengine.facts.Order.getDescription",Assumption.CONTAINSATLEASTONE,"[bomb,gun]");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(out);
+    oos.writeObject(ass);
+    oos.close();
+    Assumption copy = (Assumption)new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+    assertEquals("getDescription",copy.getLeft().getMethod());
+    assertEquals(Operator.CONTAINSATLEASTONE,copy.getOperatorType());
+    assertTrue(copy.getOperatorType().evaluate(copy.getLeft(),"a gun",copy.getRight(),copy.getRight().getLiteral(),false));
+    assertFalse(copy.getOperatorType().evaluate(copy.getLeft(),"a pen",copy.getRight(),copy.getRight().getLiteral(),false));
+  }
+
+
+  /**
+   * @return "true", "false" or the error message
+   */
+  private static String evaluate(Operator op,Term left,Object v1,Term right,Object v2) {
+    try {
+      return String.valueOf(op.evaluate(left,v1,right,v2,false));
+    }
+    catch (NumberFormatException ex) {
+      return ex.getMessage();
+    }
+  }
+
+
+  /**
+   * Comparison performed by the interpreter before the assumptions were parsed, for values that are not variables.
+   * @param op operator
+   * @param t1 value of the left term, without the ".0" suffix
+   * @param t2 value of the right term, without the ".0" suffix
+   * @return "true", "false" or the error message
+   */
+  private static String legacy(String op,String t1,String t2) {
+    boolean list = t1!=null && t2!=null && t2.startsWith("[") && t2.endsWith("]");
+    String[] t2List = list ? t2.substring(1,t2.length()-1).split(",") : null;
+    boolean ok;
+    if (op.equals(Assumption.EQUALS_TO))
+      ok = t1==null && t2==null || t1!=null && t2!=null && t1.equals(t2);
+    else if (op.equals(Assumption.NOT_EQUALS_TO))
+      ok = t1==null && t2!=null || t1!=null && t2==null || t1!=null && t2!=null && !t1.equals(t2);
+    else if (op.equals(Assumption.CONTAINS) || op.equals(Assumption.NOT_CONTAINSANYONE)) {
+      boolean all = op.equals(Assumption.CONTAINS);
+      if (list) {
+        ok = true;
+        for(int i=0;i<t2List.length && ok;i++)
+          ok = (t1.indexOf(t2List[i])!=-1)==all;
+      }
+      else if (all)
+        ok = t1!=null && t2!=null && t1.indexOf(t2)!=-1;
+      else
+        ok = t1!=null && (t2==null || t1.indexOf(t2)==-1);
+    }
+    else if (op.equals(Assumption.CONTAINSATLEASTONE) || op.equals(Assumption.NOT_CONTAINS)) {
+      boolean any = op.equals(Assumption.CONTAINSATLEASTONE);
+      if (list) {
+        ok = false;
+        for(int i=0;i<t2List.length && !ok;i++)
+          ok = (t1.indexOf(t2List[i])!=-1)==any;
+      }
+      else if (any)
+        ok = t1!=null && t2!=null && t1.indexOf(t2)!=-1;
+      else
+        ok = t1!=null && (t2==null || t1.indexOf(t2)==-1);
+    }
+    else if (t1==null || t2==null || "".equals(t1) || "".equals(t2))
+      ok = false;
+    else {
+      double d1,d2;
+      try {
+        d1 = new Double(t1).doubleValue();
+        d2 = new Double(t2).doubleValue();
+      }
+      catch (NumberFormatException ex) {
+        return "Numeric type expected: '"+t1+"','"+t2+"'";
+      }
+      if (op.equals(Assumption.LESS_THAN))
+        ok = d1<d2;
+      else if (op.equals(Assumption.LESS_OR_EQUALS_TO))
+        ok = d1<=d2;
+      else if (op.equals(Assumption.GREATER_THAN))
+        ok = d1>d2;
+      else
+        ok = d1>=d2;
+    }
+    return String.valueOf(ok);
+  }
+
+}
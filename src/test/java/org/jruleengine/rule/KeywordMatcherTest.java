@@ -0,0 +1,120 @@
+package org.jruleengine.rule;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the automaton used by the list forms of the contains operators: it must give the results
+ * of searching each value with String.indexOf.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class KeywordMatcherTest {
+
+  /** characters of the random values and texts: overlapping ASCII and non ASCII characters */
+  private static final String CHARS = "abch\u00e8\u4e2d,";
+
+
+  @Test
+  public void overlappingValuesAreFound() {
+    KeywordMatcher m = new KeywordMatcher(new String[]{"he","she","his","hers"});
+    assertTrue(m.containsAny("ushers"));
+    assertTrue(m.containsAll("ushers his"));
+    assertFalse(m.containsAll("ushers"));
+    assertFalse(m.containsAny("hxs"));
+
+    // duplicated values...
+    KeywordMatcher dup = new KeywordMatcher(new String[]{"ab","ab","b"});
+    assertTrue(dup.containsAll("xab"));
+    assertFalse(dup.containsAll("xb"));
+  }
+
+
+  @Test
+  public void emptyValuesAreAlwaysFound() {
+    KeywordMatcher m = new KeywordMatcher(new String[]{""});
+    assertTrue(m.containsAny(""));
+    assertTrue(m.containsAll("abc"));
+    assertTrue(new KeywordMatcher(new String[0]).containsAll("abc"));
+  }
+
+
+  @Test
+  public void randomValuesMatchIndexOf() {
+    Random random = new Random(7);
+    for(int n=0;n<3000;n++) {
+      String[] values = new String[1+random.nextInt(n%10==0 ? 100 : 6)];
+      for(int i=0;i<values.length;i++)
+        values[i] = randomText(random,1+random.nextInt(3));
+      KeywordMatcher m = new KeywordMatcher(values);
+      for(int t=0;t<5;t++) {
+        String text = randomText(random,random.nextInt(30));
+        String what = Arrays.asList(values)+" in "+text;
+        assertEquals(what,indexOf(text,values,false),m.containsAny(text));
+        assertEquals(what,indexOf(text,values,true),m.containsAll(text));
+      }
+    }
+  }
+
+
+  @Test
+  public void manyValuesAreSearchedByConcurrentThreads() throws Exception {
+    // more than 64 values: each thread uses its own scratch array...
+    final String[] values = new String[100];
+    final StringBuffer all = new StringBuffer();
+    for(int i=0;i<values.length;i++) {
+      values[i] = "<"+i+">";
+      all.append(values[i]);
+    }
+    final KeywordMatcher m = new KeywordMatcher(values);
+    final boolean[] errors = new boolean[1];
+    Thread[] threads = new Thread[4];
+    for(int t=0;t<threads.length;t++) {
+      final int skip = t;
+      threads[t] = new Thread() {
+
+        public void run() {
+          String partial = all.toString().replace(values[skip],"");
+          for(int i=0;i<2000;i++)
+            if (!m.containsAll(all.toString()) || m.containsAll(partial))
+              errors[0] = true;
+        }
+
+      };
+      threads[t].start();
+    }
+    for(int t=0;t<threads.length;t++)
+      threads[t].join();
+    assertFalse(errors[0]);
+  }
+
+
+  /**
+   * @param text text to analyze
+   * @param values values to search
+   * @param all <code>true</code> if the text must contain all the values, <code>false</code> if it must contain one of them
+   * @return <code>true</code> if the text contains the values, according to String.indexOf
+   */
+  private static boolean indexOf(String text,String[] values,boolean all) {
+    for(int i=0;i<values.length;i++)
+      if ((text.indexOf(values[i])!=-1)!=all)
+        return !all;
+    return all;
+  }
+
+
+  private static String randomText(Random random,int length) {
+    StringBuffer sb = new StringBuffer();
+    for(int i=0;i<length;i++)
+      sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,86 @@
+package org.jruleengine.rule;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>Title: JRuleEngine Project</p>
+ * <p>Description: Tests of the typed comparison of numeric values.</p>
+ * <p>Copyright: Copyright (C) 2026 agent</p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class NumbersTest {
+
+  @Test
+  public void valuesAreParsedAsTheNarrowestType() {
+    assertEquals(new Long(10),Numbers.parse("10"));
+    assertEquals(new Long(-3),Numbers.parse("-3"));
+    assertEquals(new BigDecimal("2.50"),Numbers.parse("2.50"));
+    assertEquals(new BigDecimal("99999999999999999999"),Numbers.parse("99999999999999999999"));
+    assertEquals(new BigDecimal("1E+3"),Numbers.parse("1e3"));
+    assertEquals(new Double(Double.POSITIVE_INFINITY),Numbers.parse("Infinity"));
+    assertTrue(Double.isNaN(Numbers.parse("NaN").doubleValue()));
+    assertNull(Numbers.parse("abc"));
+    assertNull(Numbers.parse(""));
+    assertNull(Numbers.parse(null));
+  }
+
+
+  @Test
+  public void longValuesKeepTheirPrecision() {
+    Long big = new Long(9007199254740993L);
+    Long near = new Long(9007199254740992L);
+    // the two values are the same double value...
+    assertTrue(Operator.EQUALS_TO.compare(big.doubleValue(),near.doubleValue()));
+    assertTrue(Numbers.compare(Operator.GREATER_THAN,big,near));
+    assertTrue(Numbers.compare(Operator.NOT_EQUALS_TO,big,near));
+    assertTrue(Numbers.compare(Operator.EQUALS_TO,new Integer(7),new Long(7)));
+  }
+
+
+  @Test
+  public void decimalValuesAreComparedExactly() {
+    assertTrue(Numbers.compare(Operator.EQUALS_TO,new BigDecimal("0.10"),new Double(0.1)));
+    assertTrue(Numbers.compare(Operator.LESS_THAN,new BigDecimal("0.1"),new BigDecimal("0.10000000000000000001")));
+    assertTrue(Numbers.compare(Operator.GREATER_OR_EQUALS_TO,new BigInteger("99999999999999999999"),new Long(Long.MAX_VALUE)));
+    assertFalse(Numbers.compare(Operator.EQUALS_TO,new Double(0.1+0.2),new BigDecimal("0.3")));
+  }
+
+
+  @Test
+  public void notANumberVerifiesOnlyNotEqualsTo() {
+    Double nan = new Double(Double.NaN);
+    Operator[] operators = new Operator[]{
+      Operator.EQUALS_TO,Operator.LESS_THAN,Operator.LESS_OR_EQUALS_TO,Operator.GREATER_THAN,Operator.GREATER_OR_EQUALS_TO
+    };
+    for(int i=0;i<operators.length;i++) {
+      assertFalse(operators[i].getSymbol(),Numbers.compare(operators[i],nan,new Long(1)));
+      assertFalse(operators[i].getSymbol(),Numbers.compare(operators[i],new BigDecimal("1.5"),nan));
+    }
+    assertTrue(Numbers.compare(Operator.NOT_EQUALS_TO,nan,nan));
+  }
+
+
+  @Test
+  public void typedTermsCompareNumbersWithoutStrings() {
+    Term left = new Term("org.jruleengine.facts.Order.getQuantity");
+    Term right = new Term("9007199254740992");
+    Long quantity = new Long(9007199254740993L);
+    assertTrue(Operator.GREATER_THAN.evaluate(left,quantity,right,right.getLiteral(),true));
+    assertFalse(Operator.GREATER_THAN.evaluate(left,quantity,right,right.getLiteral(),false));
+
+    // "=" compares a number with a text as strings...
+    Term text = new Term("2");
+    assertTrue(Operator.EQUALS_TO.evaluate(left,new Double(2.0),text,text.getLiteral(),true));
+    assertTrue(Operator.EQUALS_TO.evaluate(left,"2.0",text,text.getLiteral(),true));
+    assertFalse(Operator.EQUALS_TO.evaluate(left,"2.00",text,text.getLiteral(),true));
+  }
+
+}